@@ -593,6 +593,12 @@ public class Parser {
     protected void start(String[] argv) throws IOException {
         // first add tables to database
         Database.getCatalog().loadSchema(argv[0]);
+        // warm up the buffer pool with the pages that were resident at the last checkpoint
+        try {
+            Database.getBufferPool().preload(Database.getLogFile().getManifestFile());
+        } catch (IOException e) {
+            System.out.println("Ignoring page manifest: " + e.getMessage());
+        }
         TableStats.computeStatistics();
 
         String queryFile = null;
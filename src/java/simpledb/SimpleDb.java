@@ -15,7 +15,7 @@ public class SimpleDb {
         switch (args[0]) {
             case "convert":
                 try {
-                    if (args.length < 3 || args.length > 5) {
+                    if (args.length < 3 || args.length > 6) {
                         System.err.println("Unexpected number of arguments to convert ");
                         return;
                     }
@@ -46,12 +46,16 @@ public class SimpleDb {
                                 return;
                             }
                         }
-                        if (args.length == 5)
+                        if (args.length >= 5)
                             fieldSeparator = args[4].charAt(0);
                     }
+                    // the page format, fixed or pax
+                    HeapFile.Format format = HeapFile.Format.FIXED;
+                    if (args.length == 6)
+                        format = HeapFile.Format.valueOf(args[5].toUpperCase());
 
                     HeapFileEncoder.convert(sourceTxtFile, targetDatFile,
-                            BufferPool.getPageSize(), numOfAttributes, ts, fieldSeparator);
+                            BufferPool.getPageSize(), numOfAttributes, ts, fieldSeparator, format);
 
                 } catch (IOException e) {
                     throw new RuntimeException(e);
@@ -75,6 +79,32 @@ public class SimpleDb {
                     it.close();
                 }
                 break;
+            case "scrub":
+                // verify the pages of a heap file against their checksums
+                if (args.length < 3 || args.length > 4) {
+                    System.err.println("Unexpected number of arguments to scrub ");
+                    return;
+                }
+                HeapFile scrubbed = Utility.openHeapFile(Integer.parseInt(args[2]), new File(args[1]));
+                if (scrubbed.getChecksums() == null) {
+                    System.err.println("No checksums for " + args[1]);
+                    System.exit(1);
+                }
+                int threads = args.length == 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+                try {
+                    java.util.List<Integer> corrupt = scrubbed.scrub(threads);
+                    for (int pageNo : corrupt) {
+                        System.out.println("corrupt page " + pageNo);
+                    }
+                    System.out.println(corrupt.size() + " corrupt pages of " + scrubbed.numPages());
+                    scrubbed.close();
+                    if (!corrupt.isEmpty()) {
+                        System.exit(2);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                break;
             case "parser":
                 // Strip the first argument and call the parser
                 String[] newargs = new String[args.length - 1];
@@ -1,6 +1,7 @@
 package simpledb.common;
 
 import simpledb.common.Type;
+import simpledb.storage.BufferPool;
 import simpledb.storage.DbFile;
 import simpledb.storage.HeapFile;
 import simpledb.storage.TupleDesc;
@@ -27,11 +28,13 @@ public class Catalog {
         private DbFile dbFile;
         private String name;
         private String primaryKey;
+        private String partition;
 
-        public Table(DbFile dbFile, String name, String primaryKey) {
+        public Table(DbFile dbFile, String name, String primaryKey, String partition) {
             this.dbFile = dbFile;
             this.name = name;
             this.primaryKey = primaryKey;
+            this.partition = partition;
         }
 
         public DbFile getDbFile() {
@@ -57,6 +60,10 @@ public class Catalog {
         public void setPrimaryKey(String primaryKey) {
             this.primaryKey = primaryKey;
         }
+
+        public String getPartition() {
+            return partition;
+        }
     }
 
     // tableId -> table
@@ -65,6 +72,12 @@ public class Catalog {
     // name -> tableId
     private Map<String, Integer> nameIndex;
 
+    private static final String PARTITION_KEYWORD = "partition";
+
+    private static final String SLOTTED_KEYWORD = "slotted";
+
+    private static final String PAX_KEYWORD = "pax";
+
     /**
      * Constructor.
      * Creates a new, empty catalog.
@@ -86,9 +99,27 @@ public class Catalog {
      * @param pkeyField the name of the primary key field
      */
     public void addTable(DbFile file, String name, String pkeyField) {
+        addTable(file, name, pkeyField, BufferPool.DEFAULT_PARTITION);
+    }
+
+    /**
+     * Add a new table to the catalog, and assign it to a partition of the buffer pool.
+     *
+     * @param partition the name of the buffer pool partition that caches the pages of the table,
+     *                  see {@link BufferPool#createPartition}
+     * @throws IllegalArgumentException if the buffer pool has no partition of that name
+     */
+    public void addTable(DbFile file, String name, String pkeyField, String partition) {
         // some code goes here
-        Table table = new Table(file, name, pkeyField);
-        this.tableMap.put(file.getId(), table);
+        Table table = new Table(file, name, pkeyField, partition);
+        if (!BufferPool.DEFAULT_PARTITION.equals(partition)
+                || !BufferPool.DEFAULT_PARTITION.equals(Database.getBufferPool().getPartition(file.getId()))) {
+            Database.getBufferPool().assignTable(file.getId(), partition);
+        }
+        Table replaced = this.tableMap.put(file.getId(), table);
+        if (replaced != null && replaced.getDbFile() != file) {
+            closeFile(replaced.getDbFile());
+        }
         this.nameIndex.put(name, file.getId());
     }
 
@@ -164,6 +195,17 @@ public class Catalog {
         return this.tableMap.keySet().iterator();
     }
 
+    /**
+     * @return the name of the buffer pool partition the table is assigned to
+     * @throws NoSuchElementException if the table doesn't exist
+     */
+    public String getPartition(int tableid) throws NoSuchElementException {
+        if (!this.tableMap.containsKey(tableid)) {
+            throw new NoSuchElementException();
+        }
+        return this.tableMap.get(tableid).getPartition();
+    }
+
     public String getTableName(int tableid) {
         // some code goes here
         if (!this.tableMap.containsKey(tableid)) {
@@ -177,12 +219,53 @@ public class Catalog {
      */
     public void clear() {
         // some code goes here
+        closeFiles();
         this.tableMap.clear();
         this.nameIndex.clear();
     }
 
+    /**
+     * Assign the tables of the catalog that are not in the default partition to their
+     * partition of the given pool, e.g. a pool that replaces the one they were added with.
+     *
+     * @throws IllegalArgumentException if the pool lacks the partition of a table
+     */
+    public void assignPartitions(BufferPool pool) {
+        for (Table table : this.tableMap.values()) {
+            if (!BufferPool.DEFAULT_PARTITION.equals(table.getPartition())) {
+                pool.assignTable(table.getDbFile().getId(), table.getPartition());
+            }
+        }
+    }
+
+    /**
+     * Release the open handles of the files of all tables, e.g. at shutdown. The tables
+     * stay in the catalog, and their files are opened again on the next access.
+     */
+    public void closeFiles() {
+        for (Table table : this.tableMap.values()) {
+            closeFile(table.getDbFile());
+        }
+    }
+
+    private static void closeFile(DbFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.out.println("Error closing table file: " + e.getMessage());
+        }
+    }
+
     /**
      * Reads the schema from a file and creates the appropriate tables in the database.
+     * <p>
+     * Besides the tables, the file may declare partitions of the buffer pool, with a line
+     * of the format "partition name pages [policy]", and a table is assigned to one of them
+     * by following its fields with "partition name", e.g.
+     * <pre>
+     * partition hot 20 lru-k
+     * users (id int pk, name string) partition hot
+     * </pre>
      *
      * @param catalogFile
      */
@@ -193,7 +276,15 @@ public class Catalog {
             BufferedReader br = new BufferedReader(new FileReader(catalogFile));
 
             while ((line = br.readLine()) != null) {
-                //assume line is of the format name (field type, field type, ...)
+                if (line.trim().startsWith(PARTITION_KEYWORD + " ") && !line.contains("(")) {
+                    // partition name pages [policy]
+                    String[] els = line.trim().split("\\s+");
+                    String policy = els.length > 3 ? els[3] : System.getProperty(BufferPool.EVICTION_POLICY_PROPERTY, "lru");
+                    Database.getBufferPool().createPartition(els[1], Integer.parseInt(els[2]), policy);
+                    System.out.println("Added buffer pool partition : " + els[1] + " of " + els[2] + " pages");
+                    continue;
+                }
+                //assume line is of the format name (field type, field type, ...) [slotted | pax] [partition name]
                 String name = line.substring(0, line.indexOf("(")).trim();
                 //System.out.println("TABLE NAME: " + name);
                 String fields = line.substring(line.indexOf("(") + 1, line.indexOf(")")).trim();
@@ -224,14 +315,32 @@ public class Catalog {
                 Type[] typeAr = types.toArray(new Type[0]);
                 String[] namesAr = names.toArray(new String[0]);
                 TupleDesc t = new TupleDesc(typeAr, namesAr);
-                HeapFile tabHf = new HeapFile(new File(baseFolder + "/" + name + ".dat"), t);
-                addTable(tabHf, name, primaryKey);
+                String partition = BufferPool.DEFAULT_PARTITION;
+                HeapFile.Format format = HeapFile.Format.FIXED;
+                String[] options = line.substring(line.indexOf(")") + 1).trim().split("\\s+");
+                for (int i = 0; i < options.length; i++) {
+                    if (options[i].isEmpty()) {
+                        continue;
+                    }
+                    if (options[i].equals(PARTITION_KEYWORD) && i + 1 < options.length) {
+                        partition = options[++i];
+                    } else if (options[i].equals(SLOTTED_KEYWORD)) {
+                        format = HeapFile.Format.SLOTTED;
+                    } else if (options[i].equals(PAX_KEYWORD)) {
+                        format = HeapFile.Format.PAX;
+                    } else {
+                        System.out.println("Unknown table option " + options[i]);
+                        System.exit(0);
+                    }
+                }
+                HeapFile tabHf = new HeapFile(new File(baseFolder + "/" + name + ".dat"), t, format);
+                addTable(tabHf, name, primaryKey, partition);
                 System.out.println("Added table : " + name + " with schema " + t);
             }
         } catch (IOException e) {
             e.printStackTrace();
             System.exit(0);
-        } catch (IndexOutOfBoundsException e) {
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
             System.out.println("Invalid catalog entry : " + line);
             System.exit(0);
         }
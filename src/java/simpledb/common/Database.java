@@ -61,14 +61,21 @@ public class Database {
 
     /**
      * Method used for testing -- create a new instance of the buffer pool and
-     * return it
+     * return it. The new pool has the partitions of the old one, with the tables of
+     * the catalog assigned to them, and the background threads of the old one are
+     * stopped.
      */
     public static BufferPool resetBufferPool(int pages) {
         java.lang.reflect.Field bufferPoolF = null;
         try {
+            BufferPool old = _instance.get()._bufferpool;
+            old.shutdown();
+            BufferPool pool = new BufferPool(pages);
+            old.copyPartitionsTo(pool);
+            _instance.get()._catalog.assignPartitions(pool);
             bufferPoolF = Database.class.getDeclaredField("_bufferpool");
             bufferPoolF.setAccessible(true);
-            bufferPoolF.set(_instance.get(), new BufferPool(pages));
+            bufferPoolF.set(_instance.get(), pool);
         } catch (NoSuchFieldException | IllegalAccessException | IllegalArgumentException | SecurityException e) {
             e.printStackTrace();
         }
@@ -78,7 +85,9 @@ public class Database {
 
     // reset the database, used for unit tests only.
     public static void reset() {
-        _instance.set(new Database());
+        Database old = _instance.getAndSet(new Database());
+        old._bufferpool.shutdown();
+        old._catalog.closeFiles();
     }
 
 }
@@ -118,19 +118,19 @@ public class IntegerAggregator implements Aggregator {
         // some code goes here
         // if no grouping
         if (this.groupByFieldIndex == NO_GROUPING) {
-            this.item.merge(((IntField) tup.getField(this.aggregateFiledIndex)).getVal());
+            this.item.merge(tup.getInt(this.aggregateFiledIndex));
             return;
         }
         // if grouping
         Field fieldGroup = tup.getField(this.groupByFieldIndex);
-        IntField fieldAggregate = (IntField) tup.getField(this.aggregateFiledIndex);
+        int fieldAggregate = tup.getInt(this.aggregateFiledIndex);
         if (this.itemWithGroup.containsKey(fieldGroup)) {
             // if contains, add it
-            this.itemWithGroup.get(fieldGroup).merge(fieldAggregate.getVal());
+            this.itemWithGroup.get(fieldGroup).merge(fieldAggregate);
         } else {
             // if not, init a group
             IntegerAggregatorItem value = new IntegerAggregatorItem(this.op);
-            value.merge(fieldAggregate.getVal());
+            value.merge(fieldAggregate);
             this.itemWithGroup.put(fieldGroup, value);
         }
     }
@@ -1,6 +1,8 @@
 package simpledb.execution;
 
+import simpledb.common.Type;
 import simpledb.storage.Field;
+import simpledb.storage.IntField;
 import simpledb.storage.Tuple;
 
 import java.io.Serializable;
@@ -48,6 +50,9 @@ public class JoinPredicate implements Serializable {
      */
     public boolean filter(Tuple t1, Tuple t2) {
         // some code goes here
+        if (t1.getTupleDesc().getFieldType(this.field1) == Type.INT_TYPE) {
+            return IntField.compare(this.op, t1.getInt(this.field1), t2.getInt(this.field2));
+        }
         return t1.getField(field1).compare(this.op, t2.getField(this.field2));
     }
     
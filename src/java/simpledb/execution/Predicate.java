@@ -1,6 +1,7 @@
 package simpledb.execution;
 
 import simpledb.storage.Field;
+import simpledb.storage.IntField;
 import simpledb.storage.Tuple;
 
 import java.io.Serializable;
@@ -103,6 +104,9 @@ public class Predicate implements Serializable {
      */
     public boolean filter(Tuple t) {
         // some code goes here
+        if (this.operand instanceof IntField) {
+            return IntField.compare(this.op, t.getInt(this.field), ((IntField) this.operand).getValue());
+        }
         Field field = t.getField(this.field);
         return field.compare(this.op, this.operand);
     }
@@ -6,6 +6,7 @@ import simpledb.transaction.TransactionId;
 import simpledb.common.Type;
 import simpledb.common.DbException;
 import simpledb.storage.DbFileIterator;
+import simpledb.storage.HeapFile;
 import simpledb.storage.Tuple;
 import simpledb.storage.TupleDesc;
 
@@ -32,6 +33,12 @@ public class SeqScan implements OpIterator {
 
     private TupleDesc tupleDesc;
 
+    // the fields of the table the scan returns and the predicate pushed into it, null
+    // for all of them
+    private int[] columns;
+
+    private Predicate predicate;
+
     /**
      * Creates a sequential scan over the specified table as a part of the
      * specified transaction.
@@ -70,6 +77,51 @@ public class SeqScan implements OpIterator {
         }
     }
 
+    /**
+     * Creates a sequential scan that returns the tuples of the table that satisfy a
+     * predicate, with all of their fields. A table of the {@link HeapFile.Format#PAX PAX}
+     * format evaluates the predicate on its pages, before it builds the tuples.
+     *
+     * @param predicate the predicate on a field of the table the tuples satisfy, null for every tuple
+     * @see #SeqScan(TransactionId, int, String)
+     */
+    public SeqScan(TransactionId tid, int tableid, String tableAlias, Predicate predicate) {
+        this(tid, tableid, tableAlias, null, predicate);
+    }
+
+    /**
+     * Creates a sequential scan that returns some of the fields of the tuples of the
+     * table that satisfy a predicate. The TupleDesc of the scan has those fields only,
+     * named as in {@link #SeqScan(TransactionId, int, String)}; a table of the
+     * {@link HeapFile.Format#PAX PAX} format does not read the others at all.
+     *
+     * @param columns   the fields of the table to return, in order, null for every field
+     * @param predicate the predicate on a field of the table the tuples satisfy, null for
+     *                  every tuple; the field need not be one of the columns
+     */
+    public SeqScan(TransactionId tid, int tableid, String tableAlias, int[] columns, Predicate predicate) {
+        this(tid, tableid, tableAlias);
+        this.columns = columns;
+        this.predicate = predicate;
+        if (columns != null) {
+            this.tupleDesc = this.tupleDesc.project(columns);
+        }
+    }
+
+    /**
+     * @return the fields of the table the scan returns, or null for every field
+     */
+    public int[] getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * @return the predicate pushed into the scan, or null
+     */
+    public Predicate getPredicate() {
+        return this.predicate;
+    }
+
     /**
      * @return return the table name of the table the operator scans. This should
      * be the actual name of the table in the catalog of the database
@@ -123,7 +175,7 @@ public class SeqScan implements OpIterator {
 
     public void open() throws DbException, TransactionAbortedException {
         // some code goes here
-        this.iterator = Database.getCatalog().getDatabaseFile(this.tableId).iterator(this.tid);
+        this.iterator = Database.getCatalog().getDatabaseFile(this.tableId).iterator(this.tid, this.columns, this.predicate);
         this.iterator.open();
     }
 
@@ -132,7 +184,7 @@ public class SeqScan implements OpIterator {
      * prefixed with the tableAlias string from the constructor. This prefix
      * becomes useful when joining tables containing a field(s) with the same
      * name.  The alias and name should be separated with a "." character
-     * (e.g., "alias.fieldName").
+     * (e.g., "alias.fieldName"). A scan of some of the fields has those fields only.
      *
      * @return the TupleDesc with field names from the underlying HeapFile,
      * prefixed with the tableAlias string from the constructor.
@@ -1,6 +1,7 @@
 package simpledb.index;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import simpledb.common.Database;
@@ -32,6 +33,11 @@ public class BTreeFile implements DbFile {
 	private final TupleDesc td;
 	private final int tableid ;
 	private final int keyField;
+	private final FileHandle handle;
+	// the size of the file, -1 until it is first needed; kept up to date by the writes of this file
+	private long fileSize = -1;
+	// the checksums of the pages, null if the file has none
+	private volatile PageChecksums checksums;
 
 	/**
 	 * Constructs a B+ tree file backed by the specified file.
@@ -46,6 +52,48 @@ public class BTreeFile implements DbFile {
 		this.tableid = f.getAbsoluteFile().hashCode();
 		this.keyField = key;
 		this.td = td;
+		this.handle = new FileHandle(f);
+		try {
+			this.checksums = PageChecksums.open(f);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Turn on checksums for the file. Pages get a checksum when they are written, pages
+	 * already in the file are not verified until then.
+	 */
+	public synchronized void enableChecksums() throws IOException {
+		if (checksums == null) {
+			checksums = PageChecksums.create(f);
+		}
+	}
+
+	/**
+	 * @return the checksums of the pages, or null if the file has none
+	 */
+	public PageChecksums getChecksums() {
+		return checksums;
+	}
+
+	/**
+	 * Verify every page of the file, including the root pointer page, against its checksum,
+	 * with the given number of threads.
+	 * 
+	 * @return the numbers of the corrupt pages, empty if the file has no checksums
+	 */
+	public List<Integer> scrub(int threads) throws IOException {
+		PageChecksums checksums = this.checksums;
+		if (checksums == null) {
+			return Collections.emptyList();
+		}
+		return checksums.scrub(pageNo -> {
+			ByteBuffer buf = ByteBuffer.allocate(pageNo == 0 ? BTreeRootPtrPage.getPageSize() : BufferPool.getPageSize());
+			handle.read(buf, pageNo == 0 ? 0 : pageOffset(pageNo));
+			buf.flip();
+			return buf;
+		}, 0, numPages() + 1, threads);
 	}
 
 	/**
@@ -87,49 +135,55 @@ public class BTreeFile implements DbFile {
 	public Page readPage(PageId pid) {
 		BTreePageId id = (BTreePageId) pid;
 
-        try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(f))) {
-            if (id.pgcateg() == BTreePageId.ROOT_PTR) {
-                byte[] pageBuf = new byte[BTreeRootPtrPage.getPageSize()];
-                int retval = bis.read(pageBuf, 0, BTreeRootPtrPage.getPageSize());
-                if (retval == -1) {
-                    throw new IllegalArgumentException("Read past end of table");
-                }
-                if (retval < BTreeRootPtrPage.getPageSize()) {
-                    throw new IllegalArgumentException("Unable to read "
-                            + BTreeRootPtrPage.getPageSize() + " bytes from BTreeFile");
-                }
-                Debug.log(1, "BTreeFile.readPage: read page %d", id.getPageNumber());
-                return new BTreeRootPtrPage(id, pageBuf);
-            } else {
-                byte[] pageBuf = new byte[BufferPool.getPageSize()];
-                if (bis.skip(BTreeRootPtrPage.getPageSize() + (long) (id.getPageNumber() - 1) * BufferPool.getPageSize()) !=
-                        BTreeRootPtrPage.getPageSize() + (long) (id.getPageNumber() - 1) * BufferPool.getPageSize()) {
-                    throw new IllegalArgumentException(
-                            "Unable to seek to correct place in BTreeFile");
-                }
-                int retval = bis.read(pageBuf, 0, BufferPool.getPageSize());
-                if (retval == -1) {
-                    throw new IllegalArgumentException("Read past end of table");
-                }
-                if (retval < BufferPool.getPageSize()) {
-                    throw new IllegalArgumentException("Unable to read "
-                            + BufferPool.getPageSize() + " bytes from BTreeFile");
-                }
-                Debug.log(1, "BTreeFile.readPage: read page %d", id.getPageNumber());
-                if (id.pgcateg() == BTreePageId.INTERNAL) {
-                    return new BTreeInternalPage(id, pageBuf, keyField);
-                } else if (id.pgcateg() == BTreePageId.LEAF) {
-                    return new BTreeLeafPage(id, pageBuf, keyField);
-                } else { // id.pgcateg() == BTreePageId.HEADER
-                    return new BTreeHeaderPage(id, pageBuf);
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        // Close the file on success or error
-        // Ignore failures closing the file
-    }
+		try {
+			if (id.pgcateg() == BTreePageId.ROOT_PTR) {
+				byte[] pageBuf = new byte[BTreeRootPtrPage.getPageSize()];
+				readFully(pageBuf, 0);
+				verify(id.getPageNumber(), pageBuf);
+				Debug.log(1, "BTreeFile.readPage: read page %d", id.getPageNumber());
+				return new BTreeRootPtrPage(id, pageBuf);
+			} else {
+				byte[] pageBuf = new byte[BufferPool.getPageSize()];
+				readFully(pageBuf, pageOffset(id.getPageNumber()));
+				verify(id.getPageNumber(), pageBuf);
+				Debug.log(1, "BTreeFile.readPage: read page %d", id.getPageNumber());
+				if (id.pgcateg() == BTreePageId.INTERNAL) {
+					return new BTreeInternalPage(id, pageBuf, keyField);
+				} else if (id.pgcateg() == BTreePageId.LEAF) {
+					return new BTreeLeafPage(id, pageBuf, keyField);
+				} else { // id.pgcateg() == BTreePageId.HEADER
+					return new BTreeHeaderPage(id, pageBuf);
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void readFully(byte[] pageBuf, long offset) throws IOException {
+		int retval = handle.read(ByteBuffer.wrap(pageBuf), offset);
+		if (retval == -1) {
+			throw new IllegalArgumentException("Read past end of table");
+		}
+		if (retval < pageBuf.length) {
+			throw new IllegalArgumentException("Unable to read "
+					+ pageBuf.length + " bytes from BTreeFile");
+		}
+	}
+
+	private void verify(int pageNo, byte[] pageBuf) {
+		PageChecksums checksums = this.checksums;
+		if (checksums != null) {
+			checksums.verify(pageNo, ByteBuffer.wrap(pageBuf));
+		}
+	}
+
+	/**
+	 * The offset of a page other than the root pointer page in the file
+	 */
+	private static long pageOffset(int pageNo) {
+		return BTreeRootPtrPage.getPageSize() + (long) (pageNo - 1) * BufferPool.getPageSize();
+	}
 
 	/**
 	 * Write a page to disk.  This should not be called directly but should 
@@ -141,24 +195,91 @@ public class BTreeFile implements DbFile {
 		BTreePageId id = (BTreePageId) page.getId();
 		
 		byte[] data = page.getPageData();
-		RandomAccessFile rf = new RandomAccessFile(f, "rw");
+		// the checksum goes to disk before the page, see PageChecksums
+		PageChecksums checksums = this.checksums;
+		if (checksums != null) {
+			checksums.record(id.getPageNumber(), ByteBuffer.wrap(data));
+		}
 		if(id.pgcateg() == BTreePageId.ROOT_PTR) {
-			rf.write(data);
-			rf.close();
+			write(ByteBuffer.wrap(data), 0);
 		}
 		else {
-			rf.seek(BTreeRootPtrPage.getPageSize() + (long) (page.getId().getPageNumber() - 1) * BufferPool.getPageSize());
-			rf.write(data);
-			rf.close();
+			write(ByteBuffer.wrap(data), pageOffset(page.getId().getPageNumber()));
+		}
+	}
+
+	/**
+	 * Write a run of pages with a single write. The root pointer page is page 0, it is
+	 * followed by page 1 on disk, so it can be the first page of a run.
+	 * 
+	 * @param pages - pages of adjacent page numbers, in increasing order
+	 */
+	public void writePages(List<Page> pages) throws IOException {
+		if (pages.size() == 1) {
+			writePage(pages.get(0));
+			return;
+		}
+		ByteArrayOutputStream run = new ByteArrayOutputStream();
+		List<ByteBuffer> datas = new ArrayList<>(pages.size());
+		for (Page page : pages) {
+			byte[] data = page.getPageData();
+			run.write(data);
+			datas.add(ByteBuffer.wrap(data));
+		}
+		BTreePageId first = (BTreePageId) pages.get(0).getId();
+		long offset = first.pgcateg() == BTreePageId.ROOT_PTR ? 0 : pageOffset(first.getPageNumber());
+		PageChecksums checksums = this.checksums;
+		if (checksums != null) {
+			checksums.record(first.getPageNumber(), datas);
+		}
+		write(ByteBuffer.wrap(run.toByteArray()), offset);
+	}
+
+	private void write(ByteBuffer data, long offset) throws IOException {
+		long end = offset + data.remaining();
+		handle.write(data, offset);
+		synchronized (this) {
+			fileSize = Math.max(fileSize(), end);
+		}
+	}
+
+	private synchronized long fileSize() {
+		if (fileSize < 0) {
+			try {
+				fileSize = handle.size();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return fileSize;
+	}
+
+	/**
+	 * The number of pages, as known from the writes of this file, without asking the file system.
+	 */
+	private int cachedNumPages() {
+		// we only ever write full pages
+		return (int) ((fileSize() - BTreeRootPtrPage.getPageSize())/ BufferPool.getPageSize());
+	}
+
+	// see DbFile.java for javadocs
+	public void close() throws IOException {
+		PageChecksums checksums = this.checksums;
+		if (checksums != null) {
+			checksums.close();
 		}
+		handle.close();
 	}
 	
 	/**
 	 * Returns the number of pages in this BTreeFile.
+	 * Pages appended by other writers of the file are picked up as well.
 	 */
 	public int numPages() {
-		// we only ever write full pages
-		return (int) ((f.length() - BTreeRootPtrPage.getPageSize())/ BufferPool.getPageSize());
+		synchronized (this) {
+			fileSize = Math.max(fileSize(), f.length());
+		}
+		return cachedNumPages();
 	}
 
 	/**
@@ -384,7 +505,8 @@ public class BTreeFile implements DbFile {
 	 * Method to encapsulate the process of locking/fetching a page.  First the method checks the local 
 	 * cache ("dirtypages"), and if it can't find the requested page there, it fetches it from the buffer pool.  
 	 * It also adds pages to the dirtypages cache if they are fetched with read-write permission, since 
-	 * presumably they will soon be dirtied by this transaction.
+	 * presumably they will soon be dirtied by this transaction. Those pages are pinned in the buffer pool
+	 * until the operation releases them with {@link #unpinDirtyPages(Map)}.
 	 * 
 	 * This method is needed to ensure that page updates are not lost if the same pages are
 	 * accessed multiple times.
@@ -405,11 +527,24 @@ public class BTreeFile implements DbFile {
 			return dirtypages.get(pid);
 		}
 		else {
-			Page p = Database.getBufferPool().getPage(tid, pid, perm);
 			if(perm == Permissions.READ_WRITE) {
+				Page p = Database.getBufferPool().pinPage(tid, pid, perm);
 				dirtypages.put(pid, p);
+				return p;
 			}
-			return p;
+			return Database.getBufferPool().getPage(tid, pid, perm);
+		}
+	}
+
+	/**
+	 * Release the pins taken by {@link #getPage(TransactionId, Map, BTreePageId, Permissions)}
+	 * on the pages of the local cache.
+	 * 
+	 * @param dirtypages - the local cache of an insert or delete
+	 */
+	void unpinDirtyPages(Map<PageId, Page> dirtypages) {
+		for(PageId pid : dirtypages.keySet()) {
+			Database.getBufferPool().unpinPage(pid);
 		}
 	}
 
@@ -426,27 +561,30 @@ public class BTreeFile implements DbFile {
 	public List<Page> insertTuple(TransactionId tid, Tuple t)
 			throws DbException, IOException, TransactionAbortedException {
 		Map<PageId, Page> dirtypages = new HashMap<>();
+		try {
+			// get a read lock on the root pointer page and use it to locate the root page
+			BTreeRootPtrPage rootPtr = getRootPtrPage(tid, dirtypages);
+			BTreePageId rootId = rootPtr.getRootId();
+
+			if(rootId == null) { // the root has just been created, so set the root pointer to point to it		
+				rootId = new BTreePageId(tableid, cachedNumPages(), BTreePageId.LEAF);
+				rootPtr = (BTreeRootPtrPage) getPage(tid, dirtypages, BTreeRootPtrPage.getId(tableid), Permissions.READ_WRITE);
+				rootPtr.setRootId(rootId);
+			}
 
-		// get a read lock on the root pointer page and use it to locate the root page
-		BTreeRootPtrPage rootPtr = getRootPtrPage(tid, dirtypages);
-		BTreePageId rootId = rootPtr.getRootId();
-
-		if(rootId == null) { // the root has just been created, so set the root pointer to point to it		
-			rootId = new BTreePageId(tableid, numPages(), BTreePageId.LEAF);
-			rootPtr = (BTreeRootPtrPage) getPage(tid, dirtypages, BTreeRootPtrPage.getId(tableid), Permissions.READ_WRITE);
-			rootPtr.setRootId(rootId);
-		}
+			// find and lock the left-most leaf page corresponding to the key field,
+			// and split the leaf page if there are no more slots available
+			BTreeLeafPage leafPage = findLeafPage(tid, dirtypages, rootId, Permissions.READ_WRITE, t.getField(keyField));
+			if(leafPage.getNumEmptySlots() == 0) {
+				leafPage = splitLeafPage(tid, dirtypages, leafPage, t.getField(keyField));	
+			}
 
-		// find and lock the left-most leaf page corresponding to the key field,
-		// and split the leaf page if there are no more slots available
-		BTreeLeafPage leafPage = findLeafPage(tid, dirtypages, rootId, Permissions.READ_WRITE, t.getField(keyField));
-		if(leafPage.getNumEmptySlots() == 0) {
-			leafPage = splitLeafPage(tid, dirtypages, leafPage, t.getField(keyField));	
+			// insert the tuple into the leaf page
+			leafPage.insertTuple(t);
+		} finally {
+			unpinDirtyPages(dirtypages);
 		}
 
-		// insert the tuple into the leaf page
-		leafPage.insertTuple(t);
-
         return new ArrayList<>(dirtypages.values());
 	}
 	
@@ -801,17 +939,20 @@ public class BTreeFile implements DbFile {
 	public List<Page> deleteTuple(TransactionId tid, Tuple t)
 			throws DbException, IOException, TransactionAbortedException {
 		Map<PageId, Page> dirtypages = new HashMap<>();
-
-		BTreePageId pageId = new BTreePageId(tableid, t.getRecordId().getPageId().getPageNumber(),
-				BTreePageId.LEAF);
-		BTreeLeafPage page = (BTreeLeafPage) getPage(tid, dirtypages, pageId, Permissions.READ_WRITE);
-		page.deleteTuple(t);
-
-		// if the page is below minimum occupancy, get some tuples from its siblings
-		// or merge with one of the siblings
-		int maxEmptySlots = page.getMaxTuples() - page.getMaxTuples()/2; // ceiling
-		if(page.getNumEmptySlots() > maxEmptySlots) { 
-			handleMinOccupancyPage(tid, dirtypages, page);
+		try {
+			BTreePageId pageId = new BTreePageId(tableid, t.getRecordId().getPageId().getPageNumber(),
+					BTreePageId.LEAF);
+			BTreeLeafPage page = (BTreeLeafPage) getPage(tid, dirtypages, pageId, Permissions.READ_WRITE);
+			page.deleteTuple(t);
+
+			// if the page is below minimum occupancy, get some tuples from its siblings
+			// or merge with one of the siblings
+			int maxEmptySlots = page.getMaxTuples() - page.getMaxTuples()/2; // ceiling
+			if(page.getNumEmptySlots() > maxEmptySlots) { 
+				handleMinOccupancyPage(tid, dirtypages, page);
+			}
+		} finally {
+			unpinDirtyPages(dirtypages);
 		}
 
         return new ArrayList<>(dirtypages.values());
@@ -830,15 +971,12 @@ public class BTreeFile implements DbFile {
 	 */
 	BTreeRootPtrPage getRootPtrPage(TransactionId tid, Map<PageId, Page> dirtypages) throws DbException, IOException, TransactionAbortedException {
 		synchronized(this) {
-			if(f.length() == 0) {
+			if(fileSize() == 0) {
 				// create the root pointer page and the root page
-				BufferedOutputStream bw = new BufferedOutputStream(
-						new FileOutputStream(f, true));
 				byte[] emptyRootPtrData = BTreeRootPtrPage.createEmptyPageData();
 				byte[] emptyLeafData = BTreeLeafPage.createEmptyPageData();
-				bw.write(emptyRootPtrData);
-				bw.write(emptyLeafData);
-				bw.close();
+				write(ByteBuffer.wrap(emptyRootPtrData), 0);
+				write(ByteBuffer.wrap(emptyLeafData), pageOffset(1));
 			}
 		}
 
@@ -894,12 +1032,9 @@ public class BTreeFile implements DbFile {
 		if(headerId == null) {		
 			synchronized(this) {
 				// create the new page
-				BufferedOutputStream bw = new BufferedOutputStream(
-						new FileOutputStream(f, true));
 				byte[] emptyData = BTreeInternalPage.createEmptyPageData();
-				bw.write(emptyData);
-				bw.close();
-				emptyPageNo = numPages();
+				write(ByteBuffer.wrap(emptyData), pageOffset(cachedNumPages() + 1));
+				emptyPageNo = cachedNumPages();
 			}
 		}
 
@@ -929,14 +1064,13 @@ public class BTreeFile implements DbFile {
 		BTreePageId newPageId = new BTreePageId(tableid, emptyPageNo, pgcateg);
 		
 		// write empty page to disk
-		RandomAccessFile rf = new RandomAccessFile(f, "rw");
-		rf.seek(BTreeRootPtrPage.getPageSize() + (long) (emptyPageNo - 1) * BufferPool.getPageSize());
-		rf.write(BTreePage.createEmptyPageData());
-		rf.close();
+		write(ByteBuffer.wrap(BTreePage.createEmptyPageData()), pageOffset(emptyPageNo));
 		
 		// make sure the page is not in the buffer pool	or in the local cache		
 		Database.getBufferPool().discardPage(newPageId);
-		dirtypages.remove(newPageId);
+		if(dirtypages.remove(newPageId) != null) {
+			Database.getBufferPool().unpinPage(newPageId);
+		}
 		
 		return getPage(tid, dirtypages, newPageId, Permissions.READ_WRITE);
 	}
@@ -1062,6 +1196,8 @@ class BTreeFileIterator extends AbstractDbFileIterator {
 
 	Iterator<Tuple> it = null;
 	BTreeLeafPage curp = null;
+	// right siblings read ahead of the iterator, null if the pool does not read ahead
+	ReadAhead.Window readAhead = null;
 
 	final TransactionId tid;
 	final BTreeFile f;
@@ -1083,10 +1219,44 @@ class BTreeFileIterator extends AbstractDbFileIterator {
 		BTreeRootPtrPage rootPtr = (BTreeRootPtrPage) Database.getBufferPool().getPage(
 				tid, BTreeRootPtrPage.getId(f.getId()), Permissions.READ_ONLY);
 		BTreePageId root = rootPtr.getRootId();
-		curp = f.findLeafPage(tid, root, null);
+		if(readAhead == null) {
+			readAhead = Database.getBufferPool().newReadAheadWindow(null);
+		}
+		curp = pin(f.findLeafPage(tid, root, null));
 		it = curp.iterator();
 	}
 
+	/**
+	 * Pin the leaf page the iterator moves on to and release the previous one
+	 */
+	private BTreeLeafPage pin(BTreeLeafPage page) throws DbException, TransactionAbortedException {
+		unpin();
+		if(page == null) {
+			return null;
+		}
+		return pin(page.getId());
+	}
+
+	private BTreeLeafPage pin(BTreePageId pid) throws DbException, TransactionAbortedException {
+		unpin();
+		if(readAhead != null) {
+			readAhead.read(pid);
+		}
+		BTreeLeafPage page = (BTreeLeafPage) Database.getBufferPool().pinPage(tid, pid, Permissions.READ_ONLY);
+		if(readAhead != null) {
+			readAhead.prefetchChain(page.getRightSiblingId(), readAhead.size(),
+					p -> ((BTreeLeafPage) p).getRightSiblingId());
+		}
+		return page;
+	}
+
+	private void unpin() {
+		if(curp != null) {
+			Database.getBufferPool().unpinPage(curp.getId());
+			curp = null;
+		}
+	}
+
 	/**
 	 * Read the next tuple either from the current page if it has more tuples or
 	 * from the next page by following the right sibling pointer.
@@ -1101,11 +1271,10 @@ class BTreeFileIterator extends AbstractDbFileIterator {
 		while (it == null && curp != null) {
 			BTreePageId nextp = curp.getRightSiblingId();
 			if(nextp == null) {
-				curp = null;
+				unpin();
 			}
 			else {
-				curp = (BTreeLeafPage) Database.getBufferPool().getPage(tid,
-						nextp, Permissions.READ_ONLY);
+				curp = pin(nextp);
 				it = curp.iterator();
 				if (!it.hasNext())
 					it = null;
@@ -1131,7 +1300,11 @@ class BTreeFileIterator extends AbstractDbFileIterator {
 	public void close() {
 		super.close();
 		it = null;
-		curp = null;
+		unpin();
+		if(readAhead != null) {
+			readAhead.close();
+			readAhead = null;
+		}
 	}
 }
 
@@ -1143,6 +1316,8 @@ class BTreeSearchIterator extends AbstractDbFileIterator {
 
 	Iterator<Tuple> it = null;
 	BTreeLeafPage curp = null;
+	// right siblings read ahead of the iterator, null if the pool does not read ahead
+	ReadAhead.Window readAhead = null;
 
 	final TransactionId tid;
 	final BTreeFile f;
@@ -1168,16 +1343,50 @@ class BTreeSearchIterator extends AbstractDbFileIterator {
 		BTreeRootPtrPage rootPtr = (BTreeRootPtrPage) Database.getBufferPool().getPage(
 				tid, BTreeRootPtrPage.getId(f.getId()), Permissions.READ_ONLY);
 		BTreePageId root = rootPtr.getRootId();
+		if(readAhead == null) {
+			readAhead = Database.getBufferPool().newReadAheadWindow(null);
+		}
 		if(ipred.getOp() == Op.EQUALS || ipred.getOp() == Op.GREATER_THAN 
 				|| ipred.getOp() == Op.GREATER_THAN_OR_EQ) {
-			curp = f.findLeafPage(tid, root, ipred.getField());
+			curp = pin(f.findLeafPage(tid, root, ipred.getField()));
 		}
 		else {
-			curp = f.findLeafPage(tid, root, null);
+			curp = pin(f.findLeafPage(tid, root, null));
 		}
 		it = curp.iterator();
 	}
 
+	/**
+	 * Pin the leaf page the iterator moves on to and release the previous one
+	 */
+	private BTreeLeafPage pin(BTreeLeafPage page) throws DbException, TransactionAbortedException {
+		unpin();
+		if(page == null) {
+			return null;
+		}
+		return pin(page.getId());
+	}
+
+	private BTreeLeafPage pin(BTreePageId pid) throws DbException, TransactionAbortedException {
+		unpin();
+		if(readAhead != null) {
+			readAhead.read(pid);
+		}
+		BTreeLeafPage page = (BTreeLeafPage) Database.getBufferPool().pinPage(tid, pid, Permissions.READ_ONLY);
+		if(readAhead != null) {
+			readAhead.prefetchChain(page.getRightSiblingId(), readAhead.size(),
+					p -> ((BTreeLeafPage) p).getRightSiblingId());
+		}
+		return page;
+	}
+
+	private void unpin() {
+		if(curp != null) {
+			Database.getBufferPool().unpinPage(curp.getId());
+			curp = null;
+		}
+	}
+
 	/**
 	 * Read the next tuple either from the current page if it has more tuples matching
 	 * the predicate or from the next page by following the right sibling pointer.
@@ -1213,8 +1422,7 @@ class BTreeSearchIterator extends AbstractDbFileIterator {
 				return null;
 			}
 			else {
-				curp = (BTreeLeafPage) Database.getBufferPool().getPage(tid,
-						nextp, Permissions.READ_ONLY);
+				curp = pin(nextp);
 				it = curp.iterator();
 			}
 		}
@@ -1236,5 +1444,10 @@ class BTreeSearchIterator extends AbstractDbFileIterator {
 	public void close() {
 		super.close();
 		it = null;
+		unpin();
+		if(readAhead != null) {
+			readAhead.close();
+			readAhead = null;
+		}
 	}
 }
@@ -7,10 +7,10 @@ import simpledb.storage.BufferPool;
 import simpledb.storage.Field;
 import simpledb.storage.IntField;
 import simpledb.storage.Page;
+import simpledb.storage.SlotBitmap;
 import simpledb.transaction.TransactionId;
 
 import java.io.*;
-import java.util.Arrays;
 
 /**
  * Each instance of BTreeHeaderPage stores data for one page of a BTreeFile and 
@@ -27,14 +27,15 @@ public class BTreeHeaderPage implements Page {
 	final static int INDEX_SIZE = Type.INT_TYPE.getLen();
 
 	final BTreePageId pid;
-	final byte[] header;
+	final SlotBitmap header;
 	final int numSlots;
 
 	private int nextPage; // next header page or 0
 	private int prevPage; // previous header page or 0
 
+	// the page as it was before it was first modified, null while it is not modified
 	byte[] oldData;
-	private final Byte oldDataLock= (byte) 0;
+	private final Object oldDataLock = new Object();
 
 	/**
 	 * Create a BTreeHeaderPage from a set of bytes of data read from disk.
@@ -65,20 +66,19 @@ public class BTreeHeaderPage implements Page {
 		}
 
 		// allocate and read the header slots of this page
-		header = new byte[getHeaderSize()];
-		for (int i=0; i<header.length; i++)
-			header[i] = dis.readByte();
+		byte[] headerBytes = new byte[getHeaderSize()];
+		dis.readFully(headerBytes);
+		header = new SlotBitmap(numSlots, headerBytes);
 
 		dis.close();
-
-		setBeforeImage();
 	}
 
 	/**
 	 * Initially mark all slots in the header used.
 	 */
 	public void init() {
-        Arrays.fill(header, (byte) 0xFF);
+		captureBeforeImage();
+        header.fill(true);
 	}
 
 	/**
@@ -104,7 +104,8 @@ public class BTreeHeaderPage implements Page {
 			byte[] oldDataRef = null;
 			synchronized(oldDataLock)
 			{
-				oldDataRef = oldData;
+				// not modified since it was read if there is no before image
+				oldDataRef = oldData == null ? getPageData() : oldData;
 			}
 			return new BTreeHeaderPage(pid,oldDataRef);
 		} catch (IOException e) {
@@ -118,7 +119,17 @@ public class BTreeHeaderPage implements Page {
 	public void setBeforeImage() {
 		synchronized(oldDataLock)
 		{
-			oldData = getPageData().clone();
+			// the page is its own before image until it is modified
+			oldData = null;
+		}
+	}
+
+	private void captureBeforeImage() {
+		synchronized(oldDataLock)
+		{
+			if(oldData == null) {
+				oldData = getPageData();
+			}
 		}
 	}
 
@@ -160,7 +171,7 @@ public class BTreeHeaderPage implements Page {
 		}
 
 		// create the header of the page
-        for (byte b : header) {
+        for (byte b : header.toByteArray()) {
             try {
                 dos.writeByte(b);
             } catch (IOException e) {
@@ -220,6 +231,7 @@ public class BTreeHeaderPage implements Page {
 	 * @throws DbException
 	 */
 	public void setPrevPageId(BTreePageId id) throws DbException {
+		captureBeforeImage();
 		if(id == null) {
 			prevPage = 0;
 		}
@@ -240,6 +252,7 @@ public class BTreeHeaderPage implements Page {
 	 * @throws DbException
 	 */
 	public void setNextPageId(BTreePageId id) throws DbException {
+		captureBeforeImage();
 		if(id == null) {
 			nextPage = 0;
 		}
@@ -277,23 +290,16 @@ public class BTreeHeaderPage implements Page {
 	 * Returns true if the page of the BTreeFile associated with slot i is used
 	 */
 	public boolean isSlotUsed(int i) {
-		int headerbit = i % 8;
-		int headerbyte = (i - headerbit) / 8;
-		return (header[headerbyte] & (1 << headerbit)) != 0;
+		return header.isUsed(i);
 	}
 
 	/**
 	 * Abstraction to mark a page of the BTreeFile used or unused
 	 */
 	public void markSlotUsed(int i, boolean value) {
-		int headerbit = i % 8;
-		int headerbyte = (i - headerbit) / 8;
-
 		Debug.log(1, "BTreeHeaderPage.setSlot: setting slot %d to %b", i, value);
-		if(value)
-			header[headerbyte] |= 1 << headerbit;
-		else
-			header[headerbyte] &= (0xFF ^ (1 << headerbit));
+		captureBeforeImage();
+		header.set(i, value);
 	}
 
 	/**
@@ -301,15 +307,6 @@ public class BTreeHeaderPage implements Page {
 	 * @return the index of the first empty slot or -1 if none exists
 	 */
 	public int getEmptySlot() {
-		for (int i=0; i<header.length; i++) {
-			if((int) header[i] != 0xFF) {
-				for(int j = 0; j < 8; j++) {
-					if(!isSlotUsed(i*8 + j)) {
-						return i*8 + j;
-					}
-				}
-			}
-		}
-		return -1;
+		return header.nextEmpty(0);
 	}
 }
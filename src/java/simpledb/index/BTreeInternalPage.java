@@ -13,6 +13,7 @@ import simpledb.storage.BufferPool;
 import simpledb.storage.Field;
 import simpledb.storage.IntField;
 import simpledb.storage.RecordId;
+import simpledb.storage.SlotBitmap;
 
 /**
  * Each instance of BTreeInternalPage stores data for one page of a BTreeFile and 
@@ -23,7 +24,7 @@ import simpledb.storage.RecordId;
  *
  */
 public class BTreeInternalPage extends BTreePage {
-	private final byte[] header;
+	private final SlotBitmap header;
 	private final Field[] keys;
 	private final int[] children;
 	private final int numSlots;
@@ -87,9 +88,9 @@ public class BTreeInternalPage extends BTreePage {
 		childCategory = dis.readByte();
 
 		// allocate and read the header slots of this page
-		header = new byte[getHeaderSize()];
-		for (int i=0; i<header.length; i++)
-			header[i] = dis.readByte();
+		byte[] headerBytes = new byte[getHeaderSize()];
+		dis.readFully(headerBytes);
+		header = new SlotBitmap(numSlots, headerBytes);
 
 		keys = new Field[numSlots];
 		try{
@@ -112,8 +113,6 @@ public class BTreeInternalPage extends BTreePage {
 			e.printStackTrace();
 		}
 		dis.close();
-
-		setBeforeImage();
 	}
 
 	/** 
@@ -144,12 +143,7 @@ public class BTreeInternalPage extends BTreePage {
         -- used by recovery */
 	public BTreeInternalPage getBeforeImage(){
 		try {
-			byte[] oldDataRef = null;
-			synchronized(oldDataLock)
-			{
-				oldDataRef = oldData;
-			}
-			return new BTreeInternalPage(pid,oldDataRef,keyField);
+			return new BTreeInternalPage(pid,getBeforeImageData(),keyField);
 		} catch (IOException e) {
 			e.printStackTrace();
 			//should never happen -- we parsed it OK before!
@@ -158,13 +152,6 @@ public class BTreeInternalPage extends BTreePage {
 		return null;
 	}
 
-	public void setBeforeImage() {
-		synchronized(oldDataLock)
-		{
-			oldData = getPageData().clone();
-		}
-	}
-
 	/**
 	 * Read keys from the source file.
 	 */
@@ -257,7 +244,7 @@ public class BTreeInternalPage extends BTreePage {
 		}
 
 		// create the header of the page
-        for (byte b : header) {
+        for (byte b : header.toByteArray()) {
             try {
                 dos.writeByte(b);
             } catch (IOException e) {
@@ -319,7 +306,7 @@ public class BTreeInternalPage extends BTreePage {
 		}
 
 		// padding
-		int zerolen = BufferPool.getPageSize() - (INDEX_SIZE + 1 + header.length + 
+		int zerolen = BufferPool.getPageSize() - (INDEX_SIZE + 1 + header.getNumBytes() + 
 				td.getFieldType(keyField).getLen() * (keys.length - 1) + INDEX_SIZE * children.length); 
 		byte[] zeroes = new byte[zerolen];
 		try {
@@ -356,6 +343,7 @@ public class BTreeInternalPage extends BTreePage {
 			throw new DbException("tried to delete entry on invalid page or table");
 		if (!isSlotUsed(rid.getTupleNumber()))
 			throw new DbException("tried to delete null entry.");
+		captureBeforeImage();
 		if(deleteRightChild) {
 			markSlotUsed(rid.getTupleNumber(), false);
 		}
@@ -413,6 +401,7 @@ public class BTreeInternalPage extends BTreePage {
 			throw new DbException("tried to update entry on invalid page or table");
 		if (!isSlotUsed(rid.getTupleNumber()))
 			throw new DbException("tried to update null entry.");
+		captureBeforeImage();
 		
 		for(int i = rid.getTupleNumber() + 1; i < numSlots; i++) {
 			if(isSlotUsed(i)) {
@@ -451,6 +440,7 @@ public class BTreeInternalPage extends BTreePage {
 		if(e.getLeftChild().getTableId() != pid.getTableId() || e.getRightChild().getTableId() != pid.getTableId())
 			throw new DbException("table id mismatch in insertEntry");
 
+		captureBeforeImage();
 		if(childCategory == 0) {
 			if(e.getLeftChild().pgcateg() != e.getRightChild().pgcateg())
 				throw new DbException("child page category mismatch in insertEntry");
@@ -472,13 +462,7 @@ public class BTreeInternalPage extends BTreePage {
 		}
 
 		// find the first empty slot, starting from 1
-		int emptySlot = -1;
-		for (int i=1; i<numSlots; i++) {
-			if (!isSlotUsed(i)) {
-				emptySlot = i;
-				break;
-			}
-		}
+		int emptySlot = header.nextEmpty(1);
 
 		if (emptySlot == -1)
 			throw new DbException("called insertEntry on page with no empty slots.");        
@@ -573,36 +557,24 @@ public class BTreeInternalPage extends BTreePage {
 	 * Returns the number of empty slots on this page.
 	 */
 	public int getNumEmptySlots() {
-		int cnt = 0;
 		// start from 1 because the first key slot is not used
 		// since a node with m keys has m+1 pointers
-		for(int i=1; i<numSlots; i++)
-			if(!isSlotUsed(i))
-				cnt++;
-		return cnt;
+		return header.getNumEmpty() - (isSlotUsed(0) ? 0 : 1);
 	}
 
 	/**
 	 * Returns true if associated slot on this page is filled.
 	 */
 	public boolean isSlotUsed(int i) {
-		int headerbit = i % 8;
-		int headerbyte = (i - headerbit) / 8;
-		return (header[headerbyte] & (1 << headerbit)) != 0;
+		return header.isUsed(i);
 	}
 
 	/**
 	 * Abstraction to fill or clear a slot on this page.
 	 */
 	private void markSlotUsed(int i, boolean value) {
-		int headerbit = i % 8;
-		int headerbyte = (i - headerbit) / 8;
-
 		Debug.log(1, "BTreeInternalPage.setSlot: setting slot %d to %b", i, value);
-		if(value)
-			header[headerbyte] |= 1 << headerbit;
-		else
-			header[headerbyte] &= (0xFF ^ (1 << headerbit));
+		header.set(i, value);
 	}
 
 	/**
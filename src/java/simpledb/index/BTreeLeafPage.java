@@ -20,7 +20,7 @@ import java.io.*;
  *
  */
 public class BTreeLeafPage extends BTreePage {
-	private final byte[] header;
+	private final SlotBitmap header;
 	private final Tuple[] tuples;
 	private final int numSlots;
 	
@@ -93,9 +93,9 @@ public class BTreeLeafPage extends BTreePage {
 		}
 
 		// allocate and read the header slots of this page
-		header = new byte[getHeaderSize()];
-		for (int i=0; i<header.length; i++)
-			header[i] = dis.readByte();
+		byte[] headerBytes = new byte[getHeaderSize()];
+		dis.readFully(headerBytes);
+		header = new SlotBitmap(numSlots, headerBytes);
 
 		tuples = new Tuple[numSlots];
 		try{
@@ -106,8 +106,6 @@ public class BTreeLeafPage extends BTreePage {
 			e.printStackTrace();
 		}
 		dis.close();
-
-		setBeforeImage();
 	}
 
 	/** 
@@ -135,12 +133,7 @@ public class BTreeLeafPage extends BTreePage {
         -- used by recovery */
 	public BTreeLeafPage getBeforeImage(){
 		try {
-			byte[] oldDataRef = null;
-			synchronized(oldDataLock)
-			{
-				oldDataRef = oldData;
-			}
-			return new BTreeLeafPage(pid,oldDataRef,keyField);
+			return new BTreeLeafPage(pid,getBeforeImageData(),keyField);
 		} catch (IOException e) {
 			e.printStackTrace();
 			//should never happen -- we parsed it OK before!
@@ -149,13 +142,6 @@ public class BTreeLeafPage extends BTreePage {
 		return null;
 	}
 
-	public void setBeforeImage() {
-		synchronized(oldDataLock)
-		{
-			oldData = getPageData().clone();
-		}
-	}
-
 	/**
 	 * Read tuples from the source file.
 	 */
@@ -227,7 +213,7 @@ public class BTreeLeafPage extends BTreePage {
 		}
 
 		// create the header of the page
-        for (byte b : header) {
+        for (byte b : header.toByteArray()) {
             try {
                 dos.writeByte(b);
             } catch (IOException e) {
@@ -265,7 +251,7 @@ public class BTreeLeafPage extends BTreePage {
 		}
 
 		// padding
-		int zerolen = BufferPool.getPageSize() - (header.length + td.getSize() * tuples.length + 3 * INDEX_SIZE); //- numSlots * td.getSize();
+		int zerolen = BufferPool.getPageSize() - (header.getNumBytes() + td.getSize() * tuples.length + 3 * INDEX_SIZE); //- numSlots * td.getSize();
 		byte[] zeroes = new byte[zerolen];
 		try {
 			dos.write(zeroes, 0, zerolen);
@@ -297,6 +283,7 @@ public class BTreeLeafPage extends BTreePage {
 			throw new DbException("tried to delete tuple on invalid page or table");
 		if (!isSlotUsed(rid.getTupleNumber()))
 			throw new DbException("tried to delete null tuple.");
+		captureBeforeImage();
 		markSlotUsed(rid.getTupleNumber(), false);
 		t.setRecordId(null);
 	}
@@ -314,27 +301,21 @@ public class BTreeLeafPage extends BTreePage {
 			throw new DbException("type mismatch, in addTuple");
 
 		// find the first empty slot 
-		int emptySlot = -1;
-		for (int i=0; i<numSlots; i++) {
-			if (!isSlotUsed(i)) {
-				emptySlot = i;
-				break;
-			}
-		}
+		int emptySlot = header.nextEmpty(0);
 
 		if (emptySlot == -1)
 			throw new DbException("called addTuple on page with no empty slots.");
 
+		captureBeforeImage();
+
 		// find the last key less than or equal to the key being inserted
 		int lessOrEqKey = -1;
 		Field key = t.getField(keyField);
-		for (int i=0; i<numSlots; i++) {
-			if(isSlotUsed(i)) {
-				if(tuples[i].getField(keyField).compare(Predicate.Op.LESS_THAN_OR_EQ, key))
-					lessOrEqKey = i;
-				else
-					break;	
-			}
+		for (int i=header.nextUsed(0); i>=0; i=header.nextUsed(i+1)) {
+			if(tuples[i].getField(keyField).compare(Predicate.Op.LESS_THAN_OR_EQ, key))
+				lessOrEqKey = i;
+			else
+				break;
 		}
 
 		// shift records back or forward to fill empty slot and make room for new record
@@ -403,6 +384,7 @@ public class BTreeLeafPage extends BTreePage {
 	 * @throws DbException if the id is not valid
 	 */
 	public void setLeftSiblingId(BTreePageId id) throws DbException {
+		captureBeforeImage();
 		if(id == null) {
 			leftSibling = 0;
 		}
@@ -423,6 +405,7 @@ public class BTreeLeafPage extends BTreePage {
 	 * @throws DbException if the id is not valid
 	 */
 	public void setRightSiblingId(BTreePageId id) throws DbException {
+		captureBeforeImage();
 		if(id == null) {
 			rightSibling = 0;
 		}
@@ -448,34 +431,22 @@ public class BTreeLeafPage extends BTreePage {
 	 * Returns the number of empty slots on this page.
 	 */
 	public int getNumEmptySlots() {
-		int cnt = 0;
-		for(int i=0; i<numSlots; i++)
-			if(!isSlotUsed(i))
-				cnt++;
-		return cnt;
+		return header.getNumEmpty();
 	}
 
 	/**
 	 * Returns true if associated slot on this page is filled.
 	 */
 	public boolean isSlotUsed(int i) {
-		int headerbit = i % 8;
-		int headerbyte = (i - headerbit) / 8;
-		return (header[headerbyte] & (1 << headerbit)) != 0;
+		return header.isUsed(i);
 	}
 
 	/**
 	 * Abstraction to fill or clear a slot on this page.
 	 */
 	private void markSlotUsed(int i, boolean value) {
-		int headerbit = i % 8;
-		int headerbyte = (i - headerbit) / 8;
-
 		Debug.log(1, "BTreeLeafPage.setSlot: setting slot %d to %b", i, value);
-		if(value)
-			header[headerbyte] |= 1 << headerbit;
-		else
-			header[headerbyte] &= (0xFF ^ (1 << headerbit));
+		header.set(i, value);
 	}
 
 	/**
@@ -28,8 +28,9 @@ public abstract class BTreePage implements Page {
 	protected final int keyField;
 
 	protected int parent; // parent is always internal node or 0 for root node
+	// the page as it was before it was first modified, null while it is not modified
 	protected byte[] oldData;
-	protected final Byte oldDataLock= (byte) 0;
+	protected final Object oldDataLock = new Object();
 
 	/**
 	 * Create a BTreeInternalPage from a set of bytes of data read from disk.
@@ -107,6 +108,7 @@ public abstract class BTreePage implements Page {
 		if(id.pgcateg() != BTreePageId.INTERNAL && id.pgcateg() != BTreePageId.ROOT_PTR) {
 			throw new DbException("parent must be an internal node or root pointer");
 		}
+		captureBeforeImage();
 		if(id.pgcateg() == BTreePageId.ROOT_PTR) {
 			parent = 0;
 		}
@@ -115,6 +117,38 @@ public abstract class BTreePage implements Page {
 		}
 	}
 
+	/**
+	 * @return the bytes of this page before it was modified, which are the current ones
+	 * if it has not been modified since it was read or since its last commit
+	 */
+	protected byte[] getBeforeImageData() {
+		synchronized(oldDataLock)
+		{
+			return oldData == null ? getPageData() : oldData;
+		}
+	}
+
+	public void setBeforeImage() {
+		synchronized(oldDataLock)
+		{
+			// the page is its own before image until it is modified
+			oldData = null;
+		}
+	}
+
+	/**
+	 * Keep the bytes of this page before its first modification, called by every method
+	 * modifying the page before it does so.
+	 */
+	protected void captureBeforeImage() {
+		synchronized(oldDataLock)
+		{
+			if(oldData == null) {
+				oldData = getPageData();
+			}
+		}
+	}
+
 	/**
 	 * Marks this page as dirty/not dirty and record that transaction
 	 * that did the dirtying
@@ -26,6 +26,7 @@ public class BTreeRootPtrPage implements Page {
 	private int rootCategory;
 	private int header;
 
+	// the page as it was before it was first modified, null while it is not modified
 	private byte[] oldData;
 
 	/**
@@ -47,12 +48,17 @@ public class BTreeRootPtrPage implements Page {
 
 		// read in the header pointer
 		header = dis.readInt();
-		
-		setBeforeImage();
 	}
 
 	public void setBeforeImage() {
-		oldData = getPageData().clone();
+		// the page is its own before image until it is modified
+		oldData = null;
+	}
+
+	private void captureBeforeImage() {
+		if(oldData == null) {
+			oldData = getPageData();
+		}
 	}
 
 	/**
@@ -144,7 +150,8 @@ public class BTreeRootPtrPage implements Page {
         -- used by recovery */
 	public BTreeRootPtrPage getBeforeImage(){
 		try {
-			return new BTreeRootPtrPage(pid,oldData);
+			// not modified since it was read if there is no before image
+			return new BTreeRootPtrPage(pid,oldData == null ? getPageData() : oldData);
 		} catch (IOException e) {
 			e.printStackTrace();
 			//should never happen -- we parsed it OK before!
@@ -170,6 +177,7 @@ public class BTreeRootPtrPage implements Page {
 	 * @throws DbException if the id is invalid
 	 */
 	public void setRootId(BTreePageId id) throws DbException {
+		captureBeforeImage();
 		if(id == null) {
 			root = 0;
 		}
@@ -202,6 +210,7 @@ public class BTreeRootPtrPage implements Page {
 	 * @throws DbException if the id is invalid
 	 */
 	public void setHeaderId(BTreePageId id) throws DbException {
+		captureBeforeImage();
 		if(id == null) {
 			header = 0;
 		}
@@ -108,6 +108,72 @@ public class LogicalPlan {
         filters.add(lf);
     }
 
+    /** Whether the table of the given alias is a heap file of the PAX format
+     */
+    private boolean isPax(String alias) {
+        DbFile file = Database.getCatalog().getDatabaseFile(getTableId(alias));
+        return file instanceof HeapFile && ((HeapFile) file).getFormat() == HeapFile.Format.PAX;
+    }
+
+    /** The filters evaluated by the scans of PAX tables, the first filter of each of them
+     */
+    private Set<LogicalFilterNode> pushedFilters() {
+        Set<LogicalFilterNode> pushed = new HashSet<>();
+        Set<String> aliases = new HashSet<>();
+        for (LogicalFilterNode lf : filters) {
+            if (tableMap.containsKey(lf.tableAlias) && isPax(lf.tableAlias) && aliases.add(lf.tableAlias)) {
+                pushed.add(lf);
+            }
+        }
+        return pushed;
+    }
+
+    /** The fields of the table of the given alias the plan uses above its scan, for a PAX
+     *  table whose scan can skip the others
+     *  @param pushed the filters evaluated by the scans, whose fields are not returned
+     *  @return the indices of the fields in the table, in order, or null for every field
+     */
+    private int[] scannedColumns(String alias, Set<LogicalFilterNode> pushed) {
+        if (!isPax(alias)) {
+            return null;
+        }
+        Set<String> names = new HashSet<>();
+        for (LogicalFilterNode lf : filters) {
+            if (!pushed.contains(lf)) {
+                names.add(lf.tableAlias + "." + lf.fieldPureName);
+            }
+        }
+        for (LogicalJoinNode lj : joins) {
+            names.add(lj.f1QuantifiedName);
+            names.add(lj.f2QuantifiedName);
+        }
+        for (LogicalSelectListNode si : selectList) {
+            if (si.fname.endsWith(".*")) {
+                return null;
+            }
+            names.add(si.fname);
+        }
+        names.add(aggField);
+        names.add(groupByField);
+        names.add(oByField);
+
+        TupleDesc td = Database.getCatalog().getTupleDesc(getTableId(alias));
+        List<Integer> columns = new ArrayList<>();
+        for (int i = 0; i < td.numFields(); i++) {
+            if (names.contains(alias + "." + td.getFieldName(i))) {
+                columns.add(i);
+            }
+        }
+        if (columns.isEmpty() || columns.size() == td.numFields()) {
+            return null;
+        }
+        int[] result = new int[columns.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = columns.get(i);
+        }
+        return result;
+    }
+
     /** Add a join between two fields of two different tables.  
      *  @param joinField1 The name of the first join field; this can
      *  be a fully qualified name (e.g., tableName.field or
@@ -292,12 +358,15 @@ public class LogicalPlan {
         Map<String,String> equivMap = new HashMap<>();
         Map<String,Double> filterSelectivities = new HashMap<>();
         Map<String,TableStats> statsMap = new HashMap<>();
+        Set<LogicalFilterNode> pushed = pushedFilters();
 
         while (tableIt.hasNext()) {
             LogicalScanNode table = tableIt.next();
             SeqScan ss = null;
             try {
-                 ss = new SeqScan(t, Database.getCatalog().getDatabaseFile(table.t).getId(), table.alias);
+                 // the scan of a PAX table only reads the fields used above it
+                 ss = new SeqScan(t, Database.getCatalog().getDatabaseFile(table.t).getId(), table.alias,
+                         scannedColumns(table.alias, pushed), null);
             } catch (NoSuchElementException e) {
                 throw new ParsingException("Unknown table " + table.t);
             }
@@ -318,9 +387,14 @@ public class LogicalPlan {
             Field f;
             Type ftyp;
             TupleDesc td = subplanMap.get(lf.tableAlias).getTupleDesc();
+            // the scan may return some fields of the table only, the index of the field
+            // in the table is that of its statistics and of a predicate pushed into the scan
+            TupleDesc tableTd = Database.getCatalog().getTupleDesc(getTableId(lf.tableAlias));
+            int tableIndex;
 
             try {//td.fieldNameToIndex(disambiguateName(lf.fieldPureName))
-                ftyp = td.getFieldType(td.fieldNameToIndex(lf.fieldQuantifiedName));
+                tableIndex = tableTd.fieldNameToIndex(lf.fieldPureName);
+                ftyp = tableTd.getFieldType(tableIndex);
             } catch (NoSuchElementException e) {
                 throw new ParsingException("Unknown field in filter expression " + lf.fieldQuantifiedName);
             }
@@ -329,17 +403,24 @@ public class LogicalPlan {
             else
                 f = new StringField(lf.c, Type.STRING_LEN);
 
-            Predicate p = null;
-            try {
-                p = new Predicate(subplan.getTupleDesc().fieldNameToIndex(lf.fieldQuantifiedName), lf.p, f);
-            } catch (NoSuchElementException e) {
-                throw new ParsingException("Unknown field " + lf.fieldQuantifiedName);
+            if (pushed.contains(lf)) {
+                // a PAX page evaluates the predicate before it builds the tuples
+                SeqScan scan = (SeqScan) subplan;
+                Predicate p = new Predicate(tableIndex, lf.p, f);
+                subplanMap.put(lf.tableAlias, new SeqScan(t, getTableId(lf.tableAlias), lf.tableAlias, scan.getColumns(), p));
+            } else {
+                Predicate p = null;
+                try {
+                    p = new Predicate(td.fieldNameToIndex(lf.fieldQuantifiedName), lf.p, f);
+                } catch (NoSuchElementException e) {
+                    throw new ParsingException("Unknown field " + lf.fieldQuantifiedName);
+                }
+                subplanMap.put(lf.tableAlias, new Filter(p, subplan));
             }
-            subplanMap.put(lf.tableAlias, new Filter(p, subplan));
 
             TableStats s = statsMap.get(Database.getCatalog().getTableName(this.getTableId(lf.tableAlias)));
 
-            double sel = s.estimateSelectivity(subplan.getTupleDesc().fieldNameToIndex(lf.fieldQuantifiedName), lf.p, f);
+            double sel = s.estimateSelectivity(tableIndex, lf.p, f);
             filterSelectivities.put(lf.tableAlias, filterSelectivities.get(lf.tableAlias) * sel);
 
             //s.addSelectivityFactor(estimateFilterSelectivity(lf,statsMap));
@@ -0,0 +1,79 @@
+package simpledb.storage;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 23:55
+ * @description Buffers the accesses of an eviction policy whose bookkeeping needs one lock.
+ * <p>
+ * A hit appends the PageId to a lock-free queue instead of taking the lock of the policy.
+ * Once {@link #DRAIN_THRESHOLD} accesses are pending, the thread that notices it replays
+ * them under the lock if the lock is free, otherwise it leaves them to the holder. The
+ * policy drains the buffer at the start of every other operation as well, so inserts,
+ * removals and evictions see every access recorded before them, in the order they were
+ * recorded. A hit only waits for the lock if {@link #MAX_PENDING} accesses pile up.
+ */
+class AccessBuffer {
+
+    static final int DRAIN_THRESHOLD = 64;
+
+    static final int MAX_PENDING = 16 * DRAIN_THRESHOLD;
+
+    private final ConcurrentLinkedQueue<PageId> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // applies one access to the policy, called under the lock
+    private final Consumer<PageId> apply;
+
+    AccessBuffer(Consumer<PageId> apply) {
+        this.apply = apply;
+    }
+
+    /**
+     * Record an access, and replay the pending ones if there are enough of them.
+     */
+    void record(PageId pageId) {
+        this.pending.add(pageId);
+        int n = this.size.incrementAndGet();
+        if (n < DRAIN_THRESHOLD) {
+            return;
+        }
+        if (n >= MAX_PENDING) {
+            this.lock.lock();
+        } else if (!this.lock.tryLock()) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Take the lock of the policy and replay the pending accesses.
+     */
+    void lock() {
+        this.lock.lock();
+        drain();
+    }
+
+    void unlock() {
+        this.lock.unlock();
+    }
+
+    private void drain() {
+        PageId pageId;
+        while ((pageId = this.pending.poll()) != null) {
+            this.size.decrementAndGet();
+            this.apply.accept(pageId);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package simpledb.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 14:10
+ * @description Background writer of the dirty pages of a BufferPool.
+ * <p>
+ * Every interval, the writer trickles up to pagesPerRound dirty pages to disk and marks
+ * them clean, so that the foreground eviction of a page almost always finds a clean
+ * victim and does not have to write it on the thread that asked for another page. When
+ * the number of dirty pages goes above the high-water mark, the pool wakes the writer up
+ * at once, and it writes until only half of the high-water mark is left.
+ *
+ * @see BufferPool#startBackgroundWriter
+ */
+
+public class BackgroundWriter implements Runnable {
+
+    private final BufferPool pool;
+
+    private final int highWaterMark;
+
+    private final int pagesPerRound;
+
+    private final long intervalMillis;
+
+    private final Thread thread;
+
+    private volatile boolean running = false;
+
+    private final Object signal = new Object();
+
+    // guarded by signal
+    private boolean signaled = false;
+
+    private final LongAdder pagesWritten = new LongAdder();
+
+    private final LongAdder rounds = new LongAdder();
+
+    private final LongAdder writeNanos = new LongAdder();
+
+    BackgroundWriter(BufferPool pool, int highWaterMark, int pagesPerRound, long intervalMillis) {
+        if (highWaterMark < 1 || pagesPerRound < 1 || intervalMillis < 1) {
+            throw new IllegalArgumentException("background writer settings must be positive");
+        }
+        this.pool = pool;
+        this.highWaterMark = highWaterMark;
+        this.pagesPerRound = pagesPerRound;
+        this.intervalMillis = intervalMillis;
+        this.thread = new Thread(this, "simpledb-background-writer");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        this.running = true;
+        this.thread.start();
+    }
+
+    void stop() {
+        this.running = false;
+        wakeUp();
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ask the writer to start a round now instead of at the end of its interval.
+     */
+    void wakeUp() {
+        synchronized (this.signal) {
+            this.signaled = true;
+            this.signal.notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (this.running) {
+            synchronized (this.signal) {
+                if (!this.signaled) {
+                    try {
+                        this.signal.wait(this.intervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                this.signaled = false;
+            }
+            if (this.running) {
+                round();
+            }
+        }
+    }
+
+    private void round() {
+        int dirty = this.pool.getNumDirtyPages();
+        int quota = dirty > this.highWaterMark ? dirty - this.highWaterMark / 2 : Math.min(this.pagesPerRound, dirty);
+        if (quota <= 0) {
+            return;
+        }
+        this.rounds.increment();
+        List<PageId> candidates = new ArrayList<>(this.pool.getDirtyPageIds());
+        // with an I/O scheduler, the writes of the round are queued together, so that it
+        // can sort and coalesce them
+        List<CompletableFuture<Boolean>> writes = new ArrayList<>();
+        long begin = System.nanoTime();
+        for (PageId pid : candidates) {
+            if (quota <= 0 || !this.running) {
+                break;
+            }
+            CompletableFuture<Boolean> write = this.pool.writeBackPageAsync(pid);
+            if (write != null) {
+                writes.add(write);
+                quota--;
+            }
+        }
+        for (CompletableFuture<Boolean> write : writes) {
+            if (write.join()) {
+                this.pagesWritten.increment();
+            }
+        }
+        if (!writes.isEmpty()) {
+            this.writeNanos.add(System.nanoTime() - begin);
+        }
+    }
+
+    public int getHighWaterMark() {
+        return this.highWaterMark;
+    }
+
+    /**
+     * @return the number of pages written by the writer so far
+     */
+    public long getPagesWritten() {
+        return this.pagesWritten.sum();
+    }
+
+    /**
+     * @return the number of rounds in which the writer found work to do
+     */
+    public long getRounds() {
+        return this.rounds.sum();
+    }
+
+    /**
+     * @return the number of dirty pages waiting to be written
+     */
+    public int getQueueDepth() {
+        return this.pool.getNumDirtyPages();
+    }
+
+    /**
+     * @return the pages written per second of writing, 0 if nothing was written yet
+     */
+    public double getThroughput() {
+        long nanos = this.writeNanos.sum();
+        return nanos == 0 ? 0 : this.pagesWritten.sum() / (nanos / 1e9);
+    }
+
+    public boolean isRunning() {
+        return this.running;
+    }
+}
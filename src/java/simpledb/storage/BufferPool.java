@@ -7,10 +7,24 @@ import simpledb.common.DeadlockException;
 import simpledb.transaction.TransactionAbortedException;
 import simpledb.transaction.TransactionId;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 
-import java.security.PrivateKey;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * BufferPool manages the reading and writing of pages into memory from
@@ -21,13 +35,53 @@ import java.util.*;
  * a page, BufferPool checks that the transaction has the appropriate
  * locks to read/write the page.
  *
+ * <p>
+ * The frames of the pool can be split into named partitions, each with its own
+ * capacity and replacement policy, see {@link #createPartition}. The pages of a
+ * table assigned to a partition only ever compete with the pages of the other
+ * tables of that partition. Tables that are not assigned to any partition use the
+ * default partition, of the size given to the constructor.
+ *
  * @Threadsafe, all fields are final
  */
 public class BufferPool {
 
-    private LRUPageCache pageCache;
+    /**
+     * Name of the partition of the tables that are not assigned to another one.
+     */
+    public static final String DEFAULT_PARTITION = "default";
+
+    // the default partition
+    private final PageCache pageCache;
+
+    // capacity of the default partition
+    private final int pageNum;
+
+    // name -> partition, including the default one
+    private final ConcurrentHashMap<String, PageCache> partitions = new ConcurrentHashMap<>();
+
+    // tableId -> partition, for the tables that are not in the default partition
+    private final ConcurrentHashMap<Integer, PageCache> tablePartitions = new ConcurrentHashMap<>();
+
+    // pages marked dirty by insertTuple/deleteTuple and not written back yet
+    private final Set<PageId> dirtyPages = ConcurrentHashMap.newKeySet();
+
+    private volatile BackgroundWriter backgroundWriter;
+
+    private volatile ReadAhead readAhead;
 
-    private int pageNum;
+    private volatile IoScheduler ioScheduler;
+
+    private final BufferPoolMetrics metrics = new BufferPoolMetrics();
+
+    // the name this pool is registered with in the platform MBean server, null if it is not
+    private ObjectName mbeanName;
+
+    // frames of the pages of an off-heap pool, null for a pool on the heap
+    private final FrameArena frameArena;
+
+    // writes the dirty pages of different files in parallel, created on the first flush of several files
+    private ThreadPoolExecutor flushExecutor;
 
     /**
      * Bytes per page, including header.
@@ -43,15 +97,108 @@ public class BufferPool {
      */
     public static final int DEFAULT_PAGES = 50;
 
+    /**
+     * Maximum number of frames of a bulk-read ring, 32 pages are 128 KB with the default page size.
+     */
+    public static final int MAX_RING_PAGES = 32;
+
+    /**
+     * Maximum number of pages read at once on a miss of a sequential reader, 64 pages are
+     * 256 KB with the default page size.
+     */
+    public static final int MAX_READ_PAGES = 64;
+
+    /**
+     * Maximum number of adjacent dirty pages written back with a single write.
+     */
+    public static final int MAX_WRITE_PAGES = 64;
+
+    /**
+     * Number of threads that write back the dirty pages of different files in parallel.
+     */
+    public static final int FLUSH_THREADS = 4;
+
+    /**
+     * Name of the system property that selects the replacement policy of the pools
+     * created by {@link #BufferPool(int)}, see {@link EvictionPolicy#create}.
+     */
+    public static final String EVICTION_POLICY_PROPERTY = "simpledb.evictionPolicy";
+
+    /**
+     * Name of the system property that makes the pools created by {@link #BufferPool(int)}
+     * keep their pages off-heap when set to true.
+     */
+    public static final String OFF_HEAP_PROPERTY = "simpledb.offHeap";
+
+    /**
+     * Name of the system property that starts the read-ahead of the pools created by
+     * {@link #BufferPool(int)}, its value is the maximum number of pages read ahead of a scan.
+     */
+    public static final String READ_AHEAD_PROPERTY = "simpledb.readAhead";
+
+    public static final int READ_AHEAD_THREADS = 4;
+
+    /**
+     * Name of the system property that starts the I/O scheduler of the pools created by
+     * {@link #BufferPool(int)}, its value is the number of I/O threads.
+     */
+    public static final String IO_SCHEDULER_PROPERTY = "simpledb.ioScheduler";
+
     /**
      * Creates a BufferPool that caches up to numPages pages.
      *
      * @param numPages maximum number of pages in this buffer pool.
      */
     public BufferPool(int numPages) {
+        this(numPages, EvictionPolicy.create(System.getProperty(EVICTION_POLICY_PROPERTY, "lru"), numPages),
+                Boolean.getBoolean(OFF_HEAP_PROPERTY));
+        int readAheadPages = Integer.getInteger(READ_AHEAD_PROPERTY, 0);
+        if (readAheadPages > 0) {
+            startReadAhead(readAheadPages);
+        }
+        int ioThreads = Integer.getInteger(IO_SCHEDULER_PROPERTY, 0);
+        if (ioThreads > 0) {
+            startIoScheduler(ioThreads);
+        }
+    }
+
+    /**
+     * Creates a BufferPool that caches up to numPages pages and replaces them
+     * with the given policy.
+     *
+     * @param numPages maximum number of pages in this buffer pool.
+     * @param policy   the replacement policy, it must not be shared with another pool.
+     */
+    public BufferPool(int numPages, EvictionPolicy policy) {
+        this(numPages, policy, false);
+    }
+
+    /**
+     * Creates a BufferPool that caches up to numPages pages and replaces them
+     * with the given policy.
+     * <p>
+     * An off-heap pool pre-allocates a {@link FrameArena} of numPages frames
+     * and reads heap file pages straight into them; the cached pages are views
+     * over their frame. Pages of other files, or pages read when every frame is
+     * in use, are kept on the heap as usual.
+     *
+     * @param numPages maximum number of pages in this buffer pool.
+     * @param policy   the replacement policy, it must not be shared with another pool.
+     * @param offHeap  whether the pages are kept in off-heap frames.
+     */
+    public BufferPool(int numPages, EvictionPolicy policy, boolean offHeap) {
         // some code goes here
         this.pageNum = numPages;
-        this.pageCache = new LRUPageCache(numPages, this::evictPage);
+        this.pageCache = new PageCache(numPages, policy, this::evictPage);
+        this.partitions.put(DEFAULT_PARTITION, this.pageCache);
+        this.frameArena = offHeap ? new FrameArena(numPages, getPageSize()) : null;
+    }
+
+    /**
+     * @return the frame arena of an off-heap pool, or null
+     */
+    public FrameArena getFrameArena() {
+        return this.frameArena;
     }
 
     public static int getPageSize() {
@@ -86,16 +233,504 @@ public class BufferPool {
     public Page getPage(TransactionId tid, PageId pid, Permissions perm)
             throws TransactionAbortedException, DbException {
         // some code goes here
-        if (!pageCache.containsKey(pid)) {
-            // if not absent, get from disk
-            DbFile dbFile = Database.getCatalog().getDatabaseFile(pid.getTableId());
-            HeapFile heapFile = (HeapFile) dbFile;
-            Page page = heapFile.readPage(pid);
-            // add in BufferPool
-            this.pageCache.put(pid, page);
-            return page;
+        // if absent, get from disk and add in BufferPool
+        this.metrics.recordRequest(pid);
+        return cacheOf(pid).get(pid, this::missPage);
+    }
+
+    /**
+     * Retrieve the specified page with the associated permissions, like
+     * {@link #getPage(TransactionId, PageId, Permissions)}. If the page is not
+     * present, it is read into the frames of the given ring instead of the
+     * shared frames of the pool.
+     *
+     * @param ring the ring of the reader, see {@link #newBulkReadRing}; may be null
+     */
+    public Page getPage(TransactionId tid, PageId pid, Permissions perm, BufferRing ring)
+            throws TransactionAbortedException, DbException {
+        this.metrics.recordRequest(pid);
+        return cacheOf(pid).get(pid, this::missPage, ring);
+    }
+
+    /**
+     * Retrieve the specified page like {@link #getPage(TransactionId, PageId, Permissions)}
+     * and pin it: the page is not evicted until the caller releases it with
+     * {@link #unpinPage(PageId)}. Every pin must be released exactly once.
+     */
+    public Page pinPage(TransactionId tid, PageId pid, Permissions perm)
+            throws TransactionAbortedException, DbException {
+        return pinPage(tid, pid, perm, null);
+    }
+
+    /**
+     * Same as {@link #pinPage(TransactionId, PageId, Permissions)}, a missing page is read
+     * into the frames of the given ring.
+     *
+     * @param ring the ring of the reader, see {@link #newBulkReadRing}; may be null
+     */
+    public Page pinPage(TransactionId tid, PageId pid, Permissions perm, BufferRing ring)
+            throws TransactionAbortedException, DbException {
+        this.metrics.recordRequest(pid);
+        return cacheOf(pid).pin(pid, this::missPage, ring);
+    }
+
+    /**
+     * Same as {@link #pinPage(TransactionId, PageId, Permissions, BufferRing)}, for a
+     * sequential reader: if the page is missing, it is read together with the pages that
+     * follow it in its file, with a single read, see {@link DbFile#readPages}. The run
+     * is cut to {@link #MAX_READ_PAGES}, and to what the ring or a quarter of the pool
+     * can hold, so that it does not evict itself before the reader gets there. Pages of
+     * the run that are resident already are left alone.
+     *
+     * @param readPages the number of pages the reader is going to read from this one on
+     */
+    public Page pinPage(TransactionId tid, PageId pid, Permissions perm, BufferRing ring, int readPages)
+            throws TransactionAbortedException, DbException {
+        this.metrics.recordRequest(pid);
+        PageCache cache = cacheOf(pid);
+        int count = Math.min(Math.min(readPages, MAX_READ_PAGES),
+                ring != null ? ring.size() - 1 : cache.getCapacity() / 4);
+        if (count <= 1 || this.frameArena != null) {
+            // an off-heap pool reads every page straight into its own frame
+            return cache.pin(pid, this::missPage, ring);
+        }
+        List<Page> following = new ArrayList<>();
+        Page page = cache.pin(pid, id -> missPages(id, count, following), ring);
+        for (Page next : following) {
+            // a page that someone else read in the meantime wins
+            cache.get(next.getId(), id -> next, ring);
+        }
+        return page;
+    }
+
+    /**
+     * Release a pin taken by {@link #pinPage}.
+     */
+    public void unpinPage(PageId pid) {
+        cacheOf(pid).unpin(pid);
+    }
+
+    /**
+     * @return the number of pins held on the page
+     */
+    public int getPinCount(PageId pid) {
+        return cacheOf(pid).getPinCount(pid);
+    }
+
+    /**
+     * Create a ring of frames for a reader that is going to read the given number of
+     * pages sequentially. Only reads that don't fit in the pool get a ring: they would
+     * flush the whole pool without ever hitting their own pages again, while the pages
+     * of smaller reads may well be reused.
+     *
+     * @param numPages the number of pages the reader is going to read
+     * @return the ring, or null if the reader should use the shared frames
+     */
+    public BufferRing newBulkReadRing(int numPages) {
+        return newBulkReadRing(this.pageCache, numPages);
+    }
+
+    /**
+     * Same as {@link #newBulkReadRing(int)} for a reader of the given table, the ring is
+     * sized after the partition of the table.
+     */
+    public BufferRing newBulkReadRing(int tableId, int numPages) {
+        return newBulkReadRing(partitionOf(tableId), numPages);
+    }
+
+    private static BufferRing newBulkReadRing(PageCache cache, int numPages) {
+        int ringPages = Math.min(MAX_RING_PAGES, cache.getCapacity() / 8);
+        if (ringPages < 1 || numPages <= cache.getCapacity()) {
+            return null;
+        }
+        return new BufferRing(ringPages, cache);
+    }
+
+    /**
+     * Release the ring of a reader, its pages become ordinary pages of the pool.
+     */
+    public void releaseRing(BufferRing ring) {
+        if (ring != null) {
+            ring.cache.releaseRing(ring);
+        }
+    }
+
+    /**
+     * Create a partition of the pool with its own frames and replacement policy.
+     *
+     * @param name     the name of the partition
+     * @param numPages maximum number of pages in the partition
+     * @param policy   the replacement policy of the partition, it must not be shared
+     * @throws IllegalArgumentException if a partition of that name exists
+     */
+    public void createPartition(String name, int numPages, EvictionPolicy policy) {
+        if (numPages < 1) {
+            throw new IllegalArgumentException("a partition needs at least one page");
+        }
+        PageCache cache = new PageCache(numPages, policy, this::evictPage);
+        if (this.partitions.putIfAbsent(name, cache) != null) {
+            throw new IllegalArgumentException("partition " + name + " already exists");
+        }
+    }
+
+    /**
+     * Create a partition of the pool replaced with the policy of the given name,
+     * see {@link EvictionPolicy#create}.
+     */
+    public void createPartition(String name, int numPages, String policy) {
+        createPartition(name, numPages, EvictionPolicy.create(policy, numPages));
+    }
+
+    /**
+     * Create the partitions of this pool, but the default one, in another pool that has
+     * none of them, with the same capacities and policies of the same kind. The pages and
+     * the table assignments are not copied.
+     */
+    public void copyPartitionsTo(BufferPool other) {
+        for (Map.Entry<String, PageCache> entry : this.partitions.entrySet()) {
+            PageCache cache = entry.getValue();
+            if (cache != this.pageCache) {
+                other.createPartition(entry.getKey(), cache.getCapacity(), cache.getPolicy().newInstance());
+            }
+        }
+    }
+
+    /**
+     * Assign a table to a partition. The pages of the table that are resident move to
+     * the new partition, tables are best assigned before they are read though: pins
+     * taken on the pages in the old partition are not carried over.
+     *
+     * @throws IllegalArgumentException if there is no partition of that name
+     */
+    public synchronized void assignTable(int tableId, String partition) {
+        PageCache target = this.partitions.get(partition);
+        if (target == null) {
+            throw new IllegalArgumentException("no partition " + partition);
+        }
+        PageCache source = partitionOf(tableId);
+        if (target == this.pageCache) {
+            this.tablePartitions.remove(tableId);
+        } else {
+            this.tablePartitions.put(tableId, target);
+        }
+        if (source != target) {
+            for (Page page : source.values()) {
+                if (page.getId().getTableId() == tableId && source.remove(page.getId()) != null) {
+                    target.put(page.getId(), page);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the name of the partition of the table
+     */
+    public String getPartition(int tableId) {
+        PageCache cache = partitionOf(tableId);
+        for (Map.Entry<String, PageCache> entry : this.partitions.entrySet()) {
+            if (entry.getValue() == cache) {
+                return entry.getKey();
+            }
+        }
+        return DEFAULT_PARTITION;
+    }
+
+    /**
+     * @return the names of the partitions, including the default one
+     */
+    public Set<String> getPartitionNames() {
+        return Collections.unmodifiableSet(this.partitions.keySet());
+    }
+
+    /**
+     * @return the maximum number of pages of the partition
+     * @throws IllegalArgumentException if there is no partition of that name
+     */
+    public int getPartitionCapacity(String partition) {
+        PageCache cache = this.partitions.get(partition);
+        if (cache == null) {
+            throw new IllegalArgumentException("no partition " + partition);
+        }
+        return cache.getCapacity();
+    }
+
+    /**
+     * @return the number of pages of the partition that are resident
+     */
+    public int getPartitionSize(String partition) {
+        PageCache cache = this.partitions.get(partition);
+        return cache == null ? 0 : cache.size();
+    }
+
+    private PageCache partitionOf(int tableId) {
+        if (this.tablePartitions.isEmpty()) {
+            return this.pageCache;
+        }
+        PageCache cache = this.tablePartitions.get(tableId);
+        return cache == null ? this.pageCache : cache;
+    }
+
+    private PageCache cacheOf(PageId pid) {
+        return partitionOf(pid.getTableId());
+    }
+
+    /**
+     * @return the pages resident in every partition
+     */
+    private List<Page> residentPages() {
+        if (this.partitions.size() == 1) {
+            return this.pageCache.values();
+        }
+        List<Page> pages = new ArrayList<>();
+        for (PageCache cache : this.partitions.values()) {
+            pages.addAll(cache.values());
+        }
+        return pages;
+    }
+
+    /**
+     * Start reading pages ahead of the scans, replacing the read-ahead that was running.
+     *
+     * @param maxWindow the maximum number of pages read ahead of a scan
+     */
+    public synchronized ReadAhead startReadAhead(int maxWindow) {
+        stopReadAhead();
+        this.readAhead = new ReadAhead(this, maxWindow, READ_AHEAD_THREADS);
+        return this.readAhead;
+    }
+
+    public synchronized void stopReadAhead() {
+        if (this.readAhead != null) {
+            this.readAhead.stop();
+            this.readAhead = null;
+        }
+    }
+
+    public ReadAhead getReadAhead() {
+        return this.readAhead;
+    }
+
+    /**
+     * Create the read-ahead window of a new scan.
+     *
+     * @param ring the ring of the scan; may be null
+     * @return the window, or null if read-ahead is not running
+     */
+    public ReadAhead.Window newReadAheadWindow(BufferRing ring) {
+        ReadAhead readAhead = this.readAhead;
+        return readAhead == null ? null : readAhead.newWindow(ring);
+    }
+
+    /**
+     * Read a page into the pool on behalf of a scan that will need it soon.
+     */
+    Page prefetchPage(PageId pid, BufferRing ring) {
+        return cacheOf(pid).get(pid, id -> readPageFromDisk(id, IoScheduler.Priority.PREFETCH), ring);
+    }
+
+    /**
+     * Start queueing the page reads and writes of this pool to an I/O scheduler, replacing
+     * the scheduler that was running. Misses, read-ahead and the background writer go
+     * through the scheduler; reads of runs of pages, flushes and the writes of evicted
+     * pages are still issued by the thread that needs them.
+     *
+     * @param threads the number of I/O threads
+     */
+    public synchronized IoScheduler startIoScheduler(int threads) {
+        stopIoScheduler();
+        this.ioScheduler = new IoScheduler(threads);
+        return this.ioScheduler;
+    }
+
+    /**
+     * Stop the I/O scheduler, if any, after the requests queued to it are done.
+     */
+    public synchronized void stopIoScheduler() {
+        if (this.ioScheduler != null) {
+            this.ioScheduler.stop();
+            this.ioScheduler = null;
+        }
+    }
+
+    public IoScheduler getIoScheduler() {
+        return this.ioScheduler;
+    }
+
+    /**
+     * Get the page if it is resident, without counting it as an access.
+     */
+    Page peekPage(PageId pid) {
+        return cacheOf(pid).peek(pid);
+    }
+
+    /**
+     * Take a snapshot of the counters of this pool.
+     */
+    public BufferPoolStats getStats() {
+        int capacity = 0;
+        for (PageCache cache : this.partitions.values()) {
+            capacity += cache.getCapacity();
+        }
+        return this.metrics.snapshot(capacity, this.dirtyPages.size(), residentPages());
+    }
+
+    /**
+     * Register a {@link BufferPoolMXBean} of this pool in the platform MBean server, as
+     * simpledb:type=BufferPool,name=&lt;name&gt;. A pool registered under the same name
+     * before is unregistered.
+     *
+     * @return the name of the MBean
+     */
+    public synchronized ObjectName registerMBean(String name) throws JMException {
+        unregisterMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("simpledb:type=BufferPool,name=" + ObjectName.quote(name));
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(new BufferPoolMonitor(this), objectName);
+        this.mbeanName = objectName;
+        return objectName;
+    }
+
+    public synchronized void unregisterMBean() throws JMException {
+        if (this.mbeanName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(this.mbeanName)) {
+                server.unregisterMBean(this.mbeanName);
+            }
+            this.mbeanName = null;
+        }
+    }
+
+    /**
+     * Write a {@link PageManifest} of the pages resident in the pool, the most recently
+     * used ones first, so that {@link #preload} can warm up the pool of the next run.
+     */
+    public void writeManifest(File file) throws IOException {
+        List<PageId> pageIds = new ArrayList<>();
+        for (PageCache cache : this.partitions.values()) {
+            pageIds.addAll(cache.residentByRecency());
+        }
+        PageManifest.write(file, pageIds);
+    }
+
+    /**
+     * Start loading the pages of a {@link PageManifest} in the background. Every partition
+     * gets the most recently used pages of its tables that fit in its free frames. The
+     * tables must be in the catalog already.
+     *
+     * @return the loader, or null if there is no manifest
+     */
+    public PagePreloader preload(File manifest) throws IOException {
+        if (!manifest.exists()) {
+            return null;
+        }
+        List<PageId> pageIds = new ArrayList<>();
+        Map<PageCache, Integer> budgets = new HashMap<>();
+        for (PageId pid : PageManifest.read(manifest)) {
+            DbFile dbFile;
+            try {
+                dbFile = Database.getCatalog().getDatabaseFile(pid.getTableId());
+            } catch (NoSuchElementException e) {
+                // the table is gone
+                continue;
+            }
+            if (dbFile instanceof HeapFile && pid.getPageNumber() >= ((HeapFile) dbFile).numPages()) {
+                continue;
+            }
+            PageCache cache = cacheOf(pid);
+            int budget = budgets.computeIfAbsent(cache, c -> c.getCapacity() - c.size());
+            if (budget > 0 && !cache.containsKey(pid)) {
+                budgets.put(cache, budget - 1);
+                pageIds.add(pid);
+            }
+        }
+        // read every file sequentially
+        pageIds.sort(Comparator.comparingInt(PageId::getTableId).thenComparingInt(PageId::getPageNumber));
+        PagePreloader preloader = new PagePreloader(this, pageIds);
+        preloader.start();
+        return preloader;
+    }
+
+    /**
+     * Read a page of a manifest into the pool, unless it is resident or its partition is full.
+     *
+     * @return true if the page was read
+     */
+    boolean preloadPage(PageId pid) {
+        PageCache cache = cacheOf(pid);
+        if (cache.containsKey(pid) || cache.size() >= cache.getCapacity()) {
+            return false;
+        }
+        boolean[] loaded = new boolean[1];
+        cache.get(pid, id -> {
+            loaded[0] = true;
+            return readPageFromDisk(id, IoScheduler.Priority.PREFETCH);
+        });
+        return loaded[0];
+    }
+
+    /**
+     * Return true if the specified page is resident in the buffer pool
+     */
+    public boolean containsPage(PageId pid) {
+        return cacheOf(pid).containsKey(pid);
+    }
+
+    private Page missPage(PageId pid) {
+        this.metrics.recordMiss(pid);
+        return readPageFromDisk(pid, IoScheduler.Priority.READ);
+    }
+
+    /**
+     * Read the missing page and up to count - 1 pages after it, the pages after it are
+     * added to following, for the caller to cache them once it released the load lock.
+     */
+    private Page missPages(PageId pid, int count, List<Page> following) {
+        this.metrics.recordMiss(pid);
+        DbFile dbFile = Database.getCatalog().getDatabaseFile(pid.getTableId());
+        List<Page> pages = dbFile.readPages(pid, count);
+        following.addAll(pages.subList(1, pages.size()));
+        return pages.get(0);
+    }
+
+    private Page readPageFromDisk(PageId pid, IoScheduler.Priority priority) {
+        DbFile dbFile = Database.getCatalog().getDatabaseFile(pid.getTableId());
+        if (this.frameArena != null && dbFile instanceof HeapFile && ((HeapFile) dbFile).readsIntoFrames()
+                && this.frameArena.getFrameSize() == getPageSize()) {
+            ByteBuffer frame = this.frameArena.allocate();
+            if (frame == null) {
+                // every frame is held by a resident page, free the one of the victim first
+                cacheOf(pid).evictIfFull();
+                frame = this.frameArena.allocate();
+            }
+            if (frame != null) {
+                try {
+                    return ((HeapFile) dbFile).readPage(pid, frame);
+                } catch (RuntimeException e) {
+                    this.frameArena.release(frame);
+                    throw e;
+                }
+            }
+        }
+        IoScheduler scheduler = this.ioScheduler;
+        if (scheduler != null) {
+            return IoScheduler.await(scheduler.read(dbFile, pid, priority));
+        }
+        return dbFile.readPage(pid);
+    }
+
+    /**
+     * Give the frame of a page that left the pool back to the arena.
+     */
+    private void releaseFrame(Page page) {
+        if (this.frameArena != null && page instanceof HeapPage) {
+            ByteBuffer frame = ((HeapPage) page).getFrame();
+            if (frame != null) {
+                this.frameArena.release(frame);
+            }
         }
-        return this.pageCache.get(pid);
     }
 
     /**
@@ -168,7 +803,11 @@ public class BufferPool {
         // replace the dirty pages so that future requests see up-to-date pages
         for (Page page : pages) {
             page.markDirty(true, tid);
-            this.pageCache.put(page.getId(), page);
+            Page replaced = cacheOf(page.getId()).put(page.getId(), page);
+            if (replaced != null && replaced != page) {
+                releaseFrame(replaced);
+            }
+            noteDirty(page.getId());
         }
     }
 
@@ -195,10 +834,144 @@ public class BufferPool {
         // replace the dirty pages so that future requests see up-to-date pages
         for (Page page : pages) {
             page.markDirty(true, tid);
-            this.pageCache.put(page.getId(), page);
+            Page replaced = cacheOf(page.getId()).put(page.getId(), page);
+            if (replaced != null && replaced != page) {
+                releaseFrame(replaced);
+            }
+            noteDirty(page.getId());
+        }
+    }
+
+    private void noteDirty(PageId pid) {
+        this.dirtyPages.add(pid);
+        BackgroundWriter writer = this.backgroundWriter;
+        if (writer != null && this.dirtyPages.size() > writer.getHighWaterMark()) {
+            writer.wakeUp();
+        }
+    }
+
+    /**
+     * Start a background writer that trickles dirty pages to disk ahead of eviction.
+     * A running writer is replaced.
+     *
+     * @param highWaterMark  the number of dirty pages above which the writer is woken up at once
+     * @param pagesPerRound  the number of pages the writer writes per interval below the mark
+     * @param intervalMillis the time between two rounds of the writer
+     * @return the writer, whose metrics can be queried
+     */
+    public synchronized BackgroundWriter startBackgroundWriter(int highWaterMark, int pagesPerRound, long intervalMillis) {
+        stopBackgroundWriter();
+        BackgroundWriter writer = new BackgroundWriter(this, highWaterMark, pagesPerRound, intervalMillis);
+        writer.start();
+        this.backgroundWriter = writer;
+        return writer;
+    }
+
+    /**
+     * Stop the background writer, if any, and wait for its current round to end.
+     */
+    public synchronized void stopBackgroundWriter() {
+        if (this.backgroundWriter != null) {
+            this.backgroundWriter.stop();
+            this.backgroundWriter = null;
         }
     }
 
+    /**
+     * Stop the background threads of this pool: the background writer, the read-ahead
+     * and the I/O scheduler, in that order. The pool stays usable, its reads and writes
+     * are then issued by the threads that need them.
+     */
+    public synchronized void shutdown() {
+        stopBackgroundWriter();
+        stopReadAhead();
+        stopIoScheduler();
+    }
+
+    /**
+     * @return the running background writer, or null
+     */
+    public BackgroundWriter getBackgroundWriter() {
+        return this.backgroundWriter;
+    }
+
+    /**
+     * @return the number of dirty pages that were not written back yet
+     */
+    public int getNumDirtyPages() {
+        return this.dirtyPages.size();
+    }
+
+    Set<PageId> getDirtyPageIds() {
+        return this.dirtyPages;
+    }
+
+    /**
+     * Write a dirty page to disk and mark it clean, leaving it in the pool.
+     * Pinned pages are skipped.
+     *
+     * @return true if the page was written
+     */
+    boolean writeBackPage(PageId pid) {
+        CompletableFuture<Boolean> written = writeBackPageAsync(pid);
+        return written != null && written.join();
+    }
+
+    /**
+     * Start writing a dirty page to disk and mark it clean, leaving it in the pool. The
+     * write is queued to the I/O scheduler if one is running, and done at once otherwise.
+     * Pinned pages are skipped.
+     *
+     * @return whether the page was written once it is, or null if the page is skipped
+     */
+    CompletableFuture<Boolean> writeBackPageAsync(PageId pid) {
+        if (cacheOf(pid).isPinned(pid)) {
+            // it is being used, it will be written back in a later round
+            return null;
+        }
+        this.dirtyPages.remove(pid);
+        Page page = cacheOf(pid).peek(pid);
+        if (page == null) {
+            return null;
+        }
+        TransactionId dirtier = page.isDirty();
+        if (dirtier == null) {
+            return null;
+        }
+        // mark it clean before taking its image, so that a concurrent update dirties it again
+        page.markDirty(false, null);
+        CompletableFuture<Void> write;
+        try {
+            DbFile dbFile = Database.getCatalog().getDatabaseFile(pid.getTableId());
+            IoScheduler scheduler = this.ioScheduler;
+            if (scheduler != null) {
+                write = scheduler.write(dbFile, page);
+            } else {
+                dbFile.writePage(page);
+                write = CompletableFuture.completedFuture(null);
+            }
+        } catch (IOException | RuntimeException e) {
+            write = new CompletableFuture<>();
+            write.completeExceptionally(e);
+        }
+        return write.handle((ignored, failure) -> {
+            if (failure == null) {
+                this.metrics.recordWriteBack(pid);
+                return true;
+            }
+            if (failure instanceof CompletionException) {
+                failure = failure.getCause();
+            }
+            if (!(failure instanceof CancellationException)) {
+                // a cancelled write is of a discarded page, which must not come back
+                failure.printStackTrace();
+                page.markDirty(true, dirtier);
+                this.dirtyPages.add(pid);
+            }
+            return false;
+        });
+    }
+
     /**
      * Flush all dirty pages to disk.
      * NB: Be careful using this routine -- it writes dirty data to disk so will
@@ -207,12 +980,125 @@ public class BufferPool {
     public synchronized void flushAllPages() throws IOException {
         // some code goes here
         // not necessary for lab1
-        for (Page page : this.pageCache.values()) {
-            flushPage(page.getId());
-            page.markDirty(false, null);
+        List<Page> pages = new ArrayList<>();
+        for (Page page : residentPages()) {
+            if (page.isDirty() != null) {
+                pages.add(page);
+            }
+        }
+        writeBack(pages);
+        // the free-space maps are saved after the pages they describe, a map is only
+        // trusted again if its table was not written since
+        for (Iterator<Integer> it = Database.getCatalog().tableIdIterator(); it.hasNext(); ) {
+            DbFile dbFile = Database.getCatalog().getDatabaseFile(it.next());
+            if (dbFile instanceof HeapFile) {
+                ((HeapFile) dbFile).saveFreeSpaceMap();
+            }
+        }
+    }
+
+    /**
+     * Write the pages to disk and mark them clean. The pages of every file are written
+     * in page number order, and runs of adjacent pages with a single write, see
+     * {@link DbFile#writePages}. Different files are written in parallel.
+     */
+    private void writeBack(Collection<Page> pages) throws IOException {
+        Map<Integer, List<Page>> filePages = new TreeMap<>();
+        for (Page page : pages) {
+            filePages.computeIfAbsent(page.getId().getTableId(), id -> new ArrayList<>()).add(page);
+        }
+        if (filePages.size() <= 1) {
+            for (List<Page> file : filePages.values()) {
+                writeBackFile(file);
+            }
+            return;
+        }
+        ThreadPoolExecutor executor = flushExecutor();
+        List<Future<Void>> writes = new ArrayList<>();
+        for (List<Page> file : filePages.values()) {
+            writes.add(executor.submit(() -> {
+                writeBackFile(file);
+                return null;
+            }));
+        }
+        // wait for all the files, even if one of them failed
+        IOException failure = null;
+        for (Future<Void> write : writes) {
+            try {
+                write.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new InterruptedIOException("interrupted while flushing pages");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    failure = (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else {
+                    throw new RuntimeException(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
         }
     }
 
+    /**
+     * Write the pages of one file, in runs of adjacent pages.
+     */
+    private void writeBackFile(List<Page> pages) throws IOException {
+        pages.sort(Comparator.comparingInt(page -> page.getId().getPageNumber()));
+        DbFile dbFile = Database.getCatalog().getDatabaseFile(pages.get(0).getId().getTableId());
+        int start = 0;
+        for (int i = 1; i <= pages.size(); i++) {
+            if (i == pages.size() || i - start == MAX_WRITE_PAGES
+                    || pages.get(i).getId().getPageNumber() != pages.get(i - 1).getId().getPageNumber() + 1) {
+                List<Page> run = pages.subList(start, i);
+                // mark them clean before taking their images, so that a concurrent update
+                // dirties them again
+                TransactionId[] dirtiers = new TransactionId[run.size()];
+                for (int j = 0; j < run.size(); j++) {
+                    Page page = run.get(j);
+                    dirtiers[j] = page.isDirty();
+                    page.markDirty(false, null);
+                    this.dirtyPages.remove(page.getId());
+                }
+                try {
+                    dbFile.writePages(run);
+                } catch (IOException | RuntimeException e) {
+                    for (int j = 0; j < run.size(); j++) {
+                        if (dirtiers[j] != null) {
+                            run.get(j).markDirty(true, dirtiers[j]);
+                            this.dirtyPages.add(run.get(j).getId());
+                        }
+                    }
+                    throw e;
+                }
+                for (Page page : run) {
+                    this.metrics.recordWriteBack(page.getId());
+                }
+                start = i;
+            }
+        }
+    }
+
+    private synchronized ThreadPoolExecutor flushExecutor() {
+        if (this.flushExecutor == null) {
+            AtomicInteger threadNo = new AtomicInteger();
+            this.flushExecutor = new ThreadPoolExecutor(FLUSH_THREADS, FLUSH_THREADS, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "simpledb-flush-" + threadNo.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            // idle pools don't keep threads around
+            this.flushExecutor.allowCoreThreadTimeOut(true);
+        }
+        return this.flushExecutor;
+    }
+
     /**
      * Remove the specific page id from the buffer pool.
      * Needed by the recovery manager to ensure that the
@@ -225,7 +1111,15 @@ public class BufferPool {
     public synchronized void discardPage(PageId pid) {
         // some code goes here
         // not necessary for lab1
-        this.pageCache.remove(pid);
+        IoScheduler scheduler = this.ioScheduler;
+        if (scheduler != null) {
+            scheduler.cancelWrite(pid);
+        }
+        Page page = cacheOf(pid).remove(pid);
+        this.dirtyPages.remove(pid);
+        if (page != null) {
+            releaseFrame(page);
+        }
     }
 
     /**
@@ -236,9 +1130,13 @@ public class BufferPool {
     private synchronized void flushPage(PageId pid) throws IOException {
         // some code goes here
         // not necessary for lab1
-        Page page = this.pageCache.get(pid);
+        Page page = cacheOf(pid).peek(pid);
         DbFile dbFile = Database.getCatalog().getDatabaseFile(pid.getTableId());
+        boolean dirty = page.isDirty() != null;
         dbFile.writePage(page);
+        if (dirty) {
+            this.metrics.recordWriteBack(pid);
+        }
     }
 
     /**
@@ -247,6 +1145,13 @@ public class BufferPool {
     public synchronized void flushPages(TransactionId tid) throws IOException {
         // some code goes here
         // not necessary for lab1|lab2
+        List<Page> pages = new ArrayList<>();
+        for (Page page : residentPages()) {
+            if (tid.equals(page.isDirty())) {
+                pages.add(page);
+            }
+        }
+        writeBack(pages);
     }
 
     /**
@@ -260,15 +1165,24 @@ public class BufferPool {
     }
 
     public void evictPage(Page page) {
+        IoScheduler scheduler = this.ioScheduler;
+        if (scheduler != null) {
+            // a queued write back of the page must be done before its frame is reused
+            scheduler.awaitWrite(page.getId());
+        }
+        this.dirtyPages.remove(page.getId());
+        this.metrics.recordEviction(page.getId());
         if (page.isDirty() != null){
             // dirty, flush
             DbFile dbFile = Database.getCatalog().getDatabaseFile(page.getId().getTableId());
             try {
                 dbFile.writePage(page);
+                this.metrics.recordWriteBack(page.getId());
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
+        releaseFrame(page);
     }
 
 }
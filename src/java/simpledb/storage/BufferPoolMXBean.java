@@ -0,0 +1,41 @@
+package simpledb.storage;
+
+import java.util.Map;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 17:35
+ * @description JMX view of a BufferPool, registered with {@link BufferPool#registerMBean(String)}.
+ * <p>
+ * Every attribute is read from a fresh {@link BufferPoolStats} snapshot. The maps are keyed
+ * by table name (or by table id if the table is not in the catalog) and by {@link PageType}.
+ */
+
+public interface BufferPoolMXBean {
+
+    int getCapacity();
+
+    long getResidentPages();
+
+    int getDirtyPages();
+
+    long getRequests();
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRatio();
+
+    long getEvictions();
+
+    long getWriteBacks();
+
+    Map<String, Long> getResidentPagesByTable();
+
+    Map<String, Double> getHitRatioByTable();
+
+    Map<String, Long> getResidentPagesByPageType();
+
+    Map<String, Double> getHitRatioByPageType();
+}
@@ -0,0 +1,104 @@
+package simpledb.storage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 17:10
+ * @description Live counters of a BufferPool.
+ * <p>
+ * Every event is counted per table and per page type on LongAdders, which spread
+ * concurrent increments over striped cells, so counting a hit costs a map lookup and
+ * two uncontended adds. The totals are the sums over the tables. A consistent view is
+ * taken with {@link BufferPool#getStats()}.
+ */
+
+class BufferPoolMetrics {
+
+    static class Counters {
+        final LongAdder requests = new LongAdder();
+
+        final LongAdder misses = new LongAdder();
+
+        final LongAdder evictions = new LongAdder();
+
+        final LongAdder writeBacks = new LongAdder();
+    }
+
+    private final ConcurrentHashMap<Integer, Counters> byTable = new ConcurrentHashMap<>();
+
+    private final Counters[] byPageType;
+
+    BufferPoolMetrics() {
+        this.byPageType = new Counters[PageType.values().length];
+        for (int i = 0; i < this.byPageType.length; i++) {
+            this.byPageType[i] = new Counters();
+        }
+    }
+
+    private Counters tableOf(PageId pid) {
+        Counters counters = this.byTable.get(pid.getTableId());
+        if (counters == null) {
+            counters = this.byTable.computeIfAbsent(pid.getTableId(), id -> new Counters());
+        }
+        return counters;
+    }
+
+    private Counters typeOf(PageId pid) {
+        return this.byPageType[PageType.of(pid).ordinal()];
+    }
+
+    void recordRequest(PageId pid) {
+        tableOf(pid).requests.increment();
+        typeOf(pid).requests.increment();
+    }
+
+    void recordMiss(PageId pid) {
+        tableOf(pid).misses.increment();
+        typeOf(pid).misses.increment();
+    }
+
+    void recordEviction(PageId pid) {
+        tableOf(pid).evictions.increment();
+        typeOf(pid).evictions.increment();
+    }
+
+    void recordWriteBack(PageId pid) {
+        tableOf(pid).writeBacks.increment();
+        typeOf(pid).writeBacks.increment();
+    }
+
+    /**
+     * Take a snapshot of the counters.
+     *
+     * @param resident the pages resident in the pool
+     */
+    BufferPoolStats snapshot(int capacity, int dirtyPages, Collection<Page> resident) {
+        Map<Integer, Long> residentByTable = new HashMap<>();
+        long[] residentByType = new long[this.byPageType.length];
+        for (Page page : resident) {
+            residentByTable.merge(page.getId().getTableId(), 1L, Long::sum);
+            residentByType[PageType.of(page.getId()).ordinal()]++;
+        }
+
+        Map<Integer, BufferPoolStats.Counters> tables = new TreeMap<>();
+        for (Map.Entry<Integer, Counters> entry : this.byTable.entrySet()) {
+            tables.put(entry.getKey(), snapshot(entry.getValue(), residentByTable.getOrDefault(entry.getKey(), 0L)));
+        }
+        for (Map.Entry<Integer, Long> entry : residentByTable.entrySet()) {
+            tables.putIfAbsent(entry.getKey(), new BufferPoolStats.Counters(0, 0, 0, 0, entry.getValue()));
+        }
+        Map<PageType, BufferPoolStats.Counters> types = new EnumMap<>(PageType.class);
+        for (PageType type : PageType.values()) {
+            types.put(type, snapshot(this.byPageType[type.ordinal()], residentByType[type.ordinal()]));
+        }
+        return new BufferPoolStats(capacity, dirtyPages, tables, types);
+    }
+
+    private static BufferPoolStats.Counters snapshot(Counters counters, long resident) {
+        return new BufferPoolStats.Counters(counters.requests.sum(), counters.misses.sum(),
+                counters.evictions.sum(), counters.writeBacks.sum(), resident);
+    }
+}
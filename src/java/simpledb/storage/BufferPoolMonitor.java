@@ -0,0 +1,113 @@
+package simpledb.storage;
+
+import simpledb.common.Database;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 17:40
+ * @description The {@link BufferPoolMXBean} of a BufferPool.
+ */
+
+class BufferPoolMonitor implements BufferPoolMXBean {
+
+    private final BufferPool pool;
+
+    BufferPoolMonitor(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public int getCapacity() {
+        return this.pool.getStats().getCapacity();
+    }
+
+    @Override
+    public long getResidentPages() {
+        return this.pool.getStats().getTotal().getResidentPages();
+    }
+
+    @Override
+    public int getDirtyPages() {
+        return this.pool.getStats().getDirtyPages();
+    }
+
+    @Override
+    public long getRequests() {
+        return this.pool.getStats().getTotal().getRequests();
+    }
+
+    @Override
+    public long getHits() {
+        return this.pool.getStats().getTotal().getHits();
+    }
+
+    @Override
+    public long getMisses() {
+        return this.pool.getStats().getTotal().getMisses();
+    }
+
+    @Override
+    public double getHitRatio() {
+        return this.pool.getStats().getTotal().getHitRatio();
+    }
+
+    @Override
+    public long getEvictions() {
+        return this.pool.getStats().getTotal().getEvictions();
+    }
+
+    @Override
+    public long getWriteBacks() {
+        return this.pool.getStats().getTotal().getWriteBacks();
+    }
+
+    @Override
+    public Map<String, Long> getResidentPagesByTable() {
+        return byTable(BufferPoolStats.Counters::getResidentPages);
+    }
+
+    @Override
+    public Map<String, Double> getHitRatioByTable() {
+        return byTableDouble(BufferPoolStats.Counters::getHitRatio);
+    }
+
+    @Override
+    public Map<String, Long> getResidentPagesByPageType() {
+        Map<String, Long> result = new TreeMap<>();
+        this.pool.getStats().getByPageType().forEach((type, counters) -> result.put(type.name(), counters.getResidentPages()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getHitRatioByPageType() {
+        Map<String, Double> result = new TreeMap<>();
+        this.pool.getStats().getByPageType().forEach((type, counters) -> result.put(type.name(), counters.getHitRatio()));
+        return result;
+    }
+
+    private Map<String, Long> byTable(ToLongFunction<BufferPoolStats.Counters> value) {
+        Map<String, Long> result = new TreeMap<>();
+        this.pool.getStats().getByTable().forEach((tableId, counters) -> result.put(tableName(tableId), value.applyAsLong(counters)));
+        return result;
+    }
+
+    private Map<String, Double> byTableDouble(ToDoubleFunction<BufferPoolStats.Counters> value) {
+        Map<String, Double> result = new TreeMap<>();
+        this.pool.getStats().getByTable().forEach((tableId, counters) -> result.put(tableName(tableId), value.applyAsDouble(counters)));
+        return result;
+    }
+
+    private static String tableName(int tableId) {
+        try {
+            return Database.getCatalog().getTableName(tableId);
+        } catch (NoSuchElementException e) {
+            return String.valueOf(tableId);
+        }
+    }
+}
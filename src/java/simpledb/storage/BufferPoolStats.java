@@ -0,0 +1,157 @@
+package simpledb.storage;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 17:20
+ * @description Snapshot of the counters of a BufferPool, see {@link BufferPool#getStats()}.
+ * <p>
+ * A request is a call of getPage or pinPage, a miss is a request that had to read the
+ * page from disk. Evictions count the pages the replacement policy (or a ring) pushed out
+ * of the pool, write-backs count the dirty pages written to disk, on eviction, on flush or
+ * by the background writer. Pages read ahead are not requests, the scan that reads them
+ * later is.
+ */
+
+public class BufferPoolStats {
+
+    /**
+     * The counters of the whole pool, of a table or of a page type.
+     */
+    public static class Counters {
+
+        private final long requests;
+
+        private final long misses;
+
+        private final long evictions;
+
+        private final long writeBacks;
+
+        private final long residentPages;
+
+        public Counters(long requests, long misses, long evictions, long writeBacks, long residentPages) {
+            this.requests = requests;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.writeBacks = writeBacks;
+            this.residentPages = residentPages;
+        }
+
+        public long getRequests() {
+            return this.requests;
+        }
+
+        public long getHits() {
+            return this.requests - this.misses;
+        }
+
+        public long getMisses() {
+            return this.misses;
+        }
+
+        /**
+         * @return hits / requests, or 0 if there was no request
+         */
+        public double getHitRatio() {
+            return this.requests == 0 ? 0 : (double) getHits() / this.requests;
+        }
+
+        public long getEvictions() {
+            return this.evictions;
+        }
+
+        public long getWriteBacks() {
+            return this.writeBacks;
+        }
+
+        public long getResidentPages() {
+            return this.residentPages;
+        }
+
+        Counters plus(Counters other) {
+            return new Counters(this.requests + other.requests, this.misses + other.misses,
+                    this.evictions + other.evictions, this.writeBacks + other.writeBacks,
+                    this.residentPages + other.residentPages);
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + this.requests + ", hits=" + getHits() + ", misses=" + this.misses
+                    + ", hitRatio=" + String.format("%.4f", getHitRatio()) + ", evictions=" + this.evictions
+                    + ", writeBacks=" + this.writeBacks + ", resident=" + this.residentPages;
+        }
+    }
+
+    private final int capacity;
+
+    private final int dirtyPages;
+
+    private final Counters total;
+
+    private final Map<Integer, Counters> byTable;
+
+    private final Map<PageType, Counters> byPageType;
+
+    BufferPoolStats(int capacity, int dirtyPages, Map<Integer, Counters> byTable, Map<PageType, Counters> byPageType) {
+        this.capacity = capacity;
+        this.dirtyPages = dirtyPages;
+        this.byTable = Collections.unmodifiableMap(byTable);
+        this.byPageType = Collections.unmodifiableMap(byPageType);
+        Counters sum = new Counters(0, 0, 0, 0, 0);
+        for (Counters counters : byPageType.values()) {
+            sum = sum.plus(counters);
+        }
+        this.total = sum;
+    }
+
+    /**
+     * @return the maximum number of pages of the pool
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public int getDirtyPages() {
+        return this.dirtyPages;
+    }
+
+    /**
+     * @return the counters of the whole pool
+     */
+    public Counters getTotal() {
+        return this.total;
+    }
+
+    /**
+     * @return the counters of every table that was requested or has resident pages, by table id
+     */
+    public Map<Integer, Counters> getByTable() {
+        return this.byTable;
+    }
+
+    /**
+     * @return the counters of a table, all zero if the table was never requested
+     */
+    public Counters getTable(int tableId) {
+        return this.byTable.getOrDefault(tableId, new Counters(0, 0, 0, 0, 0));
+    }
+
+    /**
+     * @return the counters of every page type
+     */
+    public Map<PageType, Counters> getByPageType() {
+        return this.byPageType;
+    }
+
+    public Counters getPageType(PageType type) {
+        return this.byPageType.get(type);
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPoolStats(capacity=" + this.capacity + ", dirty=" + this.dirtyPages + ", " + this.total + ")";
+    }
+}
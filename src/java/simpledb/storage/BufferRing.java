@@ -0,0 +1,62 @@
+package simpledb.storage;
+
+import java.util.Arrays;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 13:05
+ * @description Bulk-read access strategy of the BufferPool, a small private ring of frames.
+ * <p>
+ * A large sequential reader (e.g. the iterator of a SeqScan over a big table) reads the
+ * pages it misses into the frames of its ring instead of the frames of the shared pool.
+ * Once the ring is full, the next miss reuses the frame of the page read {@link #size()}
+ * misses ago, so a full scan only ever occupies {@link #size()} frames and does not push
+ * the working set of other queries out of the pool. A page of the ring that someone else
+ * accesses in the meantime is handed over to the shared pool.
+ * <p>
+ * A ring is owned by one reader and must be released with {@link BufferPool#releaseRing}
+ * when the reader is done.
+ */
+
+public class BufferRing {
+
+    private final PageId[] slots;
+
+    private int next = 0;
+
+    // the page cache (i.e. the partition of the pool) the ring takes its frames from
+    final PageCache cache;
+
+    BufferRing(int size, PageCache cache) {
+        this.slots = new PageId[size];
+        this.cache = cache;
+    }
+
+    public int size() {
+        return this.slots.length;
+    }
+
+    /**
+     * Put the page in the next slot of the ring.
+     *
+     * @return the page that occupied the slot, or null if the ring is not full yet
+     */
+    PageId advance(PageId pageId) {
+        PageId old = this.slots[this.next];
+        this.slots[this.next] = pageId;
+        this.next = (this.next + 1) % this.slots.length;
+        return old;
+    }
+
+    /**
+     * Empty the ring.
+     *
+     * @return the pages that occupied the ring
+     */
+    PageId[] clear() {
+        PageId[] pages = this.slots.clone();
+        Arrays.fill(this.slots, null);
+        this.next = 0;
+        return pages;
+    }
+}
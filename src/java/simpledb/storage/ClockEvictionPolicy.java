@@ -0,0 +1,161 @@
+package simpledb.storage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 10:41
+ * @description CLOCK (second chance) replacement.
+ * <p>
+ * Every resident page owns a frame slot with a reference bit. A hit only sets the bit of
+ * its slot, without any lock. The clock hand sweeps the slots on eviction: a slot whose
+ * bit is set gets a second chance (the bit is cleared and the hand moves on), the first
+ * slot whose bit is clear is the victim.
+ */
+
+public class ClockEvictionPolicy implements EvictionPolicy {
+
+    private PageId[] slots;
+
+    private volatile AtomicIntegerArray referenced;
+
+    // pageId -> slot
+    private final ConcurrentHashMap<PageId, Integer> index;
+
+    private final Deque<Integer> freeSlots;
+
+    private int hand = 0;
+
+    // the number of slots the policy started with, it grows if the pool overflows
+    private final int capacity;
+
+    public ClockEvictionPolicy(int capacity) {
+        this.capacity = capacity;
+        this.slots = new PageId[capacity];
+        this.referenced = new AtomicIntegerArray(capacity);
+        this.index = new ConcurrentHashMap<>();
+        this.freeSlots = new ArrayDeque<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.freeSlots.addLast(i);
+        }
+    }
+
+    @Override
+    public EvictionPolicy newInstance() {
+        return new ClockEvictionPolicy(this.capacity);
+    }
+
+    @Override
+    public void recordAccess(PageId pageId) {
+        Integer slot = this.index.get(pageId);
+        if (slot != null) {
+            this.referenced.set(slot, 1);
+        }
+    }
+
+    @Override
+    public synchronized void recordInsert(PageId pageId) {
+        Integer exist = this.index.get(pageId);
+        if (exist != null) {
+            this.referenced.set(exist, 1);
+            return;
+        }
+        if (this.freeSlots.isEmpty()) {
+            // the pool overflowed its capacity
+            grow();
+        }
+        int slot = this.freeSlots.removeFirst();
+        this.slots[slot] = pageId;
+        // a new page starts without the second chance, like in the classic clock
+        this.referenced.set(slot, 0);
+        this.index.put(pageId, slot);
+    }
+
+    private void grow() {
+        int oldLength = this.slots.length;
+        int newLength = Math.max(1, oldLength * 2);
+        AtomicIntegerArray newReferenced = new AtomicIntegerArray(newLength);
+        for (int i = 0; i < oldLength; i++) {
+            newReferenced.set(i, this.referenced.get(i));
+        }
+        this.slots = Arrays.copyOf(this.slots, newLength);
+        this.referenced = newReferenced;
+        for (int i = oldLength; i < newLength; i++) {
+            this.freeSlots.addLast(i);
+        }
+    }
+
+    @Override
+    public synchronized void recordRemove(PageId pageId) {
+        Integer slot = this.index.remove(pageId);
+        if (slot != null) {
+            this.slots[slot] = null;
+            this.freeSlots.addLast(slot);
+        }
+    }
+
+    @Override
+    public synchronized void restore(PageId pageId) {
+        if (this.index.containsKey(pageId)) {
+            return;
+        }
+        if (this.freeSlots.isEmpty()) {
+            grow();
+        }
+        // back into the slot it left right behind the hand if it is still free, without
+        // its second chance, and the hand points to it
+        int behind = (this.hand - 1 + this.slots.length) % this.slots.length;
+        int slot = this.freeSlots.remove(behind) ? behind : this.freeSlots.removeFirst();
+        this.slots[slot] = pageId;
+        this.referenced.set(slot, 0);
+        this.index.put(pageId, slot);
+        this.hand = slot;
+    }
+
+    @Override
+    public synchronized PageId evict() {
+        if (this.index.isEmpty()) {
+            return null;
+        }
+        // after one full sweep every bit is clear, so two sweeps always find a victim
+        for (int i = 0; i < 2 * this.slots.length; i++) {
+            int slot = this.hand;
+            this.hand = (this.hand + 1) % this.slots.length;
+            PageId pageId = this.slots[slot];
+            if (pageId == null) {
+                continue;
+            }
+            if (this.referenced.compareAndSet(slot, 1, 0)) {
+                // second chance
+                continue;
+            }
+            this.slots[slot] = null;
+            this.index.remove(pageId);
+            this.freeSlots.addLast(slot);
+            return pageId;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized List<PageId> evictionOrder() {
+        // the hand meets the pages without a second chance first, in its sweep order
+        List<PageId> unreferenced = new ArrayList<>();
+        List<PageId> referenced = new ArrayList<>();
+        for (int i = 0; i < this.slots.length; i++) {
+            int slot = (this.hand + i) % this.slots.length;
+            PageId pageId = this.slots[slot];
+            if (pageId != null) {
+                (this.referenced.get(slot) == 0 ? unreferenced : referenced).add(pageId);
+            }
+        }
+        unreferenced.addAll(referenced);
+        return unreferenced;
+    }
+}
@@ -0,0 +1,25 @@
+package simpledb.storage;
+
+import java.io.File;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 21:05
+ * @description Thrown when a page read from disk does not match its checksum.
+ */
+
+public class CorruptPageException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int pageNo;
+
+    public CorruptPageException(File file, int pageNo, int expected, int actual) {
+        super(String.format("page %d of %s is corrupt: checksum %08x, expected %08x", pageNo, file, actual, expected));
+        this.pageNo = pageNo;
+    }
+
+    public int getPageNo() {
+        return this.pageNo;
+    }
+}
@@ -3,6 +3,7 @@ package simpledb.storage;
 
 import simpledb.common.DbException;
 import simpledb.common.Catalog;
+import simpledb.execution.Predicate;
 import simpledb.transaction.TransactionAbortedException;
 import simpledb.transaction.TransactionId;
 
@@ -24,6 +25,19 @@ public interface DbFile {
      */
     Page readPage(PageId id);
 
+    /**
+     * Read a run of pages from disk: the specified page and up to count - 1 pages that
+     * follow it in the file, with as few reads as possible.
+     * <p>
+     * The default reads the specified page only, files that can read ranges override it.
+     *
+     * @return the pages, the specified one first; fewer than count at the end of the file
+     * @throws IllegalArgumentException if the specified page does not exist in this file.
+     */
+    default List<Page> readPages(PageId first, int count) {
+        return Collections.singletonList(readPage(first));
+    }
+
     /**
      * Push the specified page to disk.
      *
@@ -33,6 +47,29 @@ public interface DbFile {
      */
     void writePage(Page p) throws IOException;
 
+    /**
+     * Release the open handles of the file. The file stays usable, it is opened again
+     * on the next access.
+     *
+     * @throws IOException if closing the file fails
+     */
+    default void close() throws IOException {
+    }
+
+    /**
+     * Push a run of pages to disk: pages of adjacent page numbers, in increasing order.
+     * <p>
+     * The default writes the pages one by one, files that can write ranges override it.
+     *
+     * @param pages the pages to write, the first one at the lowest offset
+     * @throws IOException if the write fails
+     */
+    default void writePages(List<Page> pages) throws IOException {
+        for (Page page : pages) {
+            writePage(page);
+        }
+    }
+
     /**
      * Inserts the specified tuple to the file on behalf of transaction.
      * This method will acquire a lock on the affected pages of the file, and
@@ -73,6 +110,51 @@ public interface DbFile {
      */
     DbFileIterator iterator(TransactionId tid);
 
+    /**
+     * Returns an iterator over the tuples stored in this DbFile that satisfy a
+     * predicate, with the given fields of them only. The tuples are of the
+     * {@link TupleDesc#project projection} of the TupleDesc of the file on the fields,
+     * and keep their record ids.
+     * <p>
+     * The default filters and projects the tuples of {@link #iterator(TransactionId)},
+     * files that can skip the fields or evaluate the predicate on the page override it.
+     *
+     * @param columns   the fields to return, in order, null for every field
+     * @param predicate the predicate on a field of the file the tuples satisfy, null for every tuple
+     */
+    default DbFileIterator iterator(TransactionId tid, int[] columns, Predicate predicate) {
+        DbFileIterator all = iterator(tid);
+        if (predicate == null && columns == null) {
+            return all;
+        }
+        TupleDesc projected = columns == null ? null : getTupleDesc().project(columns);
+        return new AbstractDbFileIterator() {
+
+            public void open() throws DbException, TransactionAbortedException {
+                all.open();
+            }
+
+            public void rewind() throws DbException, TransactionAbortedException {
+                all.rewind();
+            }
+
+            protected Tuple readNext() throws DbException, TransactionAbortedException {
+                while (all.hasNext()) {
+                    Tuple t = all.next();
+                    if (predicate == null || predicate.filter(t)) {
+                        return projected == null ? t : Tuple.project(projected, t, columns);
+                    }
+                }
+                return null;
+            }
+
+            public void close() {
+                super.close();
+                all.close();
+            }
+        };
+    }
+
     /**
      * Returns a unique ID used to identify this DbFile in the Catalog. This id
      * can be used to look up the table via {@link Catalog#getDatabaseFile} and
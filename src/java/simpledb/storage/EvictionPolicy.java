@@ -0,0 +1,83 @@
+package simpledb.storage;
+
+import java.util.List;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 10:12
+ * @description Replacement policy of the BufferPool.
+ * <p>
+ * A policy only tracks PageIds and decides which one leaves the pool next, the pages
+ * themselves are kept by the {@link PageCache}. The cache serializes
+ * {@link #recordInsert}, {@link #recordRemove}, {@link #evict} and {@link #restore}, while
+ * {@link #recordAccess} is called on every hit and may run concurrently with all of them.
+ */
+
+public interface EvictionPolicy {
+
+    /**
+     * A page that is resident in the pool was accessed.
+     */
+    void recordAccess(PageId pageId);
+
+    /**
+     * A page was brought into the pool.
+     */
+    void recordInsert(PageId pageId);
+
+    /**
+     * A page was removed from the pool without being chosen by this policy
+     * (e.g. discarded by the recovery manager).
+     */
+    void recordRemove(PageId pageId);
+
+    /**
+     * Choose the page to evict next and stop tracking it.
+     *
+     * @return the PageId of the victim, or null if no page is tracked
+     */
+    PageId evict();
+
+    /**
+     * Track again a page that {@link #evict} chose but that could not leave the pool
+     * (e.g. it is pinned), as the next victim. Unlike {@link #recordInsert}, it does not
+     * count as an access: the page keeps the place and the history it had. The cache puts
+     * back several pages in the reverse order of their eviction, so they keep their order.
+     */
+    void restore(PageId pageId);
+
+    /**
+     * List the tracked pages in the order this policy would evict them, the coldest one
+     * first. The order is best effort if the policy is updated concurrently.
+     */
+    List<PageId> evictionOrder();
+
+    /**
+     * Create a policy of the same kind and tuning as this one that tracks no page, e.g.
+     * for the same partition of a pool that is rebuilt.
+     */
+    EvictionPolicy newInstance();
+
+    /**
+     * Create a policy by its name.
+     *
+     * @param name     one of "lru", "clock", "lru-k" and "2q" (case insensitive)
+     * @param capacity the maximum number of pages of the pool the policy serves
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static EvictionPolicy create(String name, int capacity) {
+        switch (name.trim().toLowerCase()) {
+            case "lru":
+                return new LRUEvictionPolicy();
+            case "clock":
+                return new ClockEvictionPolicy(capacity);
+            case "lru-k":
+            case "lru-2":
+                return new LRUKEvictionPolicy(LRUKEvictionPolicy.DEFAULT_K, capacity);
+            case "2q":
+                return new TwoQueueEvictionPolicy(capacity);
+            default:
+                throw new IllegalArgumentException("unknown eviction policy: " + name);
+        }
+    }
+}
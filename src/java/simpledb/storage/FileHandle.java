@@ -0,0 +1,209 @@
+package simpledb.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 19:10
+ * @description Long-lived channel of the file of a DbFile.
+ * <p>
+ * The channel is opened on the first access and kept open, so a page read or write is a
+ * single positional read or write instead of an open, a seek, the I/O and a close.
+ * Positional I/O does not move the position of the channel, so any number of threads can
+ * use the same channel at the same time.
+ * <p>
+ * The file is opened read-only, so a table on a read-only file or mount can be scanned,
+ * and opened again for reading and writing on the first write. Only a write creates a
+ * file that does not exist yet: a read of a missing file fails with a
+ * FileNotFoundException, while its {@link #size} is 0.
+ * <p>
+ * {@link #close} releases the channel, the next access opens it again. A channel that
+ * got closed under our feet, because a thread was interrupted during its I/O, is opened
+ * again too, and the I/O of the other threads is retried.
+ */
+
+public class FileHandle {
+
+    private final File file;
+
+    private volatile FileChannel channel;
+
+    // the channel if it was opened for writing, null otherwise
+    private volatile FileChannel writeChannel;
+
+    public FileHandle(File file) {
+        this.file = file;
+    }
+
+    private FileChannel channel() throws IOException {
+        FileChannel ch = this.channel;
+        if (ch != null && ch.isOpen()) {
+            return ch;
+        }
+        return open(false);
+    }
+
+    private FileChannel writableChannel() throws IOException {
+        FileChannel ch = this.writeChannel;
+        if (ch != null && ch.isOpen()) {
+            return ch;
+        }
+        return open(true);
+    }
+
+    private synchronized FileChannel open(boolean write) throws IOException {
+        FileChannel ch = this.channel;
+        if (ch != null && ch.isOpen() && (!write || ch == this.writeChannel)) {
+            return ch;
+        }
+        FileChannel opened = new RandomAccessFile(this.file, write ? "rw" : "r").getChannel();
+        this.writeChannel = write ? opened : null;
+        this.channel = opened;
+        if (ch != null) {
+            // the I/O of the readers of the read-only channel is retried on the new one
+            ch.close();
+        }
+        return opened;
+    }
+
+    /**
+     * Read from the given position of the file until the buffer is full or the end of
+     * the file is reached.
+     *
+     * @return the number of bytes read, -1 if the position is at or past the end of the file
+     */
+    public int read(ByteBuffer dst, long position) throws IOException {
+        int start = dst.position();
+        while (true) {
+            FileChannel ch = channel();
+            try {
+                while (dst.hasRemaining()) {
+                    int n = ch.read(dst, position + dst.position() - start);
+                    if (n < 0) {
+                        break;
+                    }
+                }
+                int read = dst.position() - start;
+                return read == 0 && dst.hasRemaining() ? -1 : read;
+            } catch (ClosedChannelException e) {
+                retryOrThrow(e);
+            }
+        }
+    }
+
+    /**
+     * Write the whole buffer at the given position of the file, extending the file if needed.
+     */
+    public void write(ByteBuffer src, long position) throws IOException {
+        int start = src.position();
+        while (true) {
+            FileChannel ch = writableChannel();
+            try {
+                while (src.hasRemaining()) {
+                    ch.write(src, position + src.position() - start);
+                }
+                return;
+            } catch (ClosedChannelException e) {
+                retryOrThrow(e);
+            }
+        }
+    }
+
+    private void retryOrThrow(ClosedChannelException e) throws ClosedChannelException {
+        if (Thread.currentThread().isInterrupted()) {
+            // our own interrupt closed the channel, the next access opens it again
+            throw e;
+        }
+        // the channel was closed by another thread, open it again and retry
+    }
+
+    /**
+     * @return the size of the file in bytes, 0 if it does not exist yet
+     */
+    public long size() throws IOException {
+        if (!isOpen() && !this.file.exists()) {
+            // like File.length(), without creating the file
+            return 0;
+        }
+        while (true) {
+            FileChannel ch = channel();
+            try {
+                return ch.size();
+            } catch (ClosedChannelException e) {
+                retryOrThrow(e);
+            }
+        }
+    }
+
+    /**
+     * Cut the file to the given size, if it is longer.
+     */
+    public void truncate(long size) throws IOException {
+        while (true) {
+            FileChannel ch = writableChannel();
+            try {
+                ch.truncate(size);
+                return;
+            } catch (ClosedChannelException e) {
+                retryOrThrow(e);
+            }
+        }
+    }
+
+    /**
+     * Map a region of the file read-only into memory. The mapping stays valid when the
+     * channel is closed.
+     */
+    public MappedByteBuffer map(long position, long size) throws IOException {
+        while (true) {
+            FileChannel ch = channel();
+            try {
+                return ch.map(FileChannel.MapMode.READ_ONLY, position, size);
+            } catch (ClosedChannelException e) {
+                retryOrThrow(e);
+            }
+        }
+    }
+
+    /**
+     * Force the writes to the file to the storage device.
+     */
+    public void force() throws IOException {
+        channel().force(false);
+    }
+
+    /**
+     * Close the channel, the next access opens it again.
+     */
+    public synchronized void close() throws IOException {
+        FileChannel ch = this.channel;
+        this.channel = null;
+        this.writeChannel = null;
+        if (ch != null) {
+            ch.close();
+        }
+    }
+
+    /**
+     * @return whether the file is open for writing
+     */
+    public boolean isWritable() {
+        FileChannel ch = this.writeChannel;
+        return ch != null && ch.isOpen();
+    }
+
+    public boolean isOpen() {
+        FileChannel ch = this.channel;
+        return ch != null && ch.isOpen();
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+}
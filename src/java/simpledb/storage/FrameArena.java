@@ -0,0 +1,84 @@
+package simpledb.storage;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 15:02
+ * @description Off-heap arena of fixed-size page frames.
+ * <p>
+ * The arena pre-allocates direct ByteBuffers outside of the Java heap and slices them
+ * into frames of one page each. Pages are read straight into a frame, and the page
+ * objects of an off-heap BufferPool are views over their frame, so the heap only holds
+ * a small page object per cached page. A direct buffer can't be larger than 2 GB, so
+ * the frames are carved out of as many 1 GB chunks as needed.
+ */
+
+public class FrameArena {
+
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final int frameSize;
+
+    private final int numFrames;
+
+    private final Deque<ByteBuffer> freeFrames;
+
+    // frames handed out and not released yet, compared by identity
+    private final Set<ByteBuffer> usedFrames;
+
+    public FrameArena(int numFrames, int frameSize) {
+        this.frameSize = frameSize;
+        this.numFrames = numFrames;
+        this.freeFrames = new ArrayDeque<>(numFrames);
+        this.usedFrames = Collections.newSetFromMap(new IdentityHashMap<>());
+        int framesPerChunk = (int) (MAX_CHUNK_BYTES / frameSize);
+        int left = numFrames;
+        while (left > 0) {
+            int frames = Math.min(left, framesPerChunk);
+            ByteBuffer chunk = ByteBuffer.allocateDirect(frames * frameSize);
+            for (int i = 0; i < frames; i++) {
+                chunk.limit((i + 1) * frameSize);
+                chunk.position(i * frameSize);
+                this.freeFrames.addLast(chunk.slice());
+            }
+            left -= frames;
+        }
+    }
+
+    public int getFrameSize() {
+        return this.frameSize;
+    }
+
+    public int getNumFrames() {
+        return this.numFrames;
+    }
+
+    public synchronized int getNumFreeFrames() {
+        return this.freeFrames.size();
+    }
+
+    /**
+     * Take a free frame out of the arena.
+     *
+     * @return the frame, cleared, or null if every frame is in use
+     */
+    public synchronized ByteBuffer allocate() {
+        ByteBuffer frame = this.freeFrames.pollFirst();
+        if (frame != null) {
+            this.usedFrames.add(frame);
+            frame.clear();
+        }
+        return frame;
+    }
+
+    /**
+     * Give a frame back to the arena. Releasing a frame twice has no effect.
+     */
+    public synchronized void release(ByteBuffer frame) {
+        if (this.usedFrames.remove(frame)) {
+            this.freeFrames.addFirst(frame);
+        }
+    }
+}
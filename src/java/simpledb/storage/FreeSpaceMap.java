@@ -0,0 +1,168 @@
+package simpledb.storage;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 20:20
+ * @description Free-space map of a HeapFile.
+ * <p>
+ * The map has one bit per page of the file, set if the page may have an empty slot, so
+ * an insert goes straight to a page with room instead of reading the whole file. The
+ * bits are hints: an insert that finds a page full after all clears its bit and moves
+ * on. Pages the map does not know yet, e.g. pages appended by someone else, are assumed
+ * to have room until an insert looks at them.
+ * <p>
+ * The map is kept in memory and saved to a side file next to the table when the file
+ * is closed and when the buffer pool flushes all its pages, e.g. on a checkpoint:
+ * <pre>
+ * magic, length and modification time of the table file, number of pages, number of
+ * words, words of the bitmap
+ * </pre>
+ * The map is only loaded if the table file still has the length and modification time it
+ * was saved with. A table file written after the map was saved, e.g. by a transaction
+ * before a crash or by the recovery, or created again, may have room the map does not
+ * know. A missing, unreadable or stale side file gives a map where every page may have
+ * room, which the first inserts correct as they go.
+ */
+
+public class FreeSpaceMap {
+
+    private static final int MAGIC = 0x46534d32;
+
+    // the table file and the side file
+    private final File tableFile;
+
+    private final File file;
+
+    // the length and modification time of the table file when the map was saved
+    private long savedLength;
+
+    private long savedModified;
+
+    private final BitSet free;
+
+    // the number of pages the map knows
+    private int numPages;
+
+    private boolean changed = false;
+
+    private FreeSpaceMap(File tableFile, BitSet free, int numPages, long savedLength, long savedModified) {
+        this.tableFile = tableFile;
+        this.file = sideFileOf(tableFile);
+        this.free = free;
+        this.numPages = numPages;
+        this.savedLength = savedLength;
+        this.savedModified = savedModified;
+    }
+
+    /**
+     * The side file of the table stored in the given file.
+     */
+    public static File sideFileOf(File tableFile) {
+        return new File(tableFile.getPath() + ".fsm");
+    }
+
+    /**
+     * Load the map of the table stored in the given file from its side file, or start an
+     * empty one if it can't be read or the table file changed since it was saved.
+     */
+    public static FreeSpaceMap load(File tableFile) {
+        File file = sideFileOf(tableFile);
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() == MAGIC) {
+                    long length = in.readLong();
+                    long modified = in.readLong();
+                    if (length == tableFile.length() && modified == tableFile.lastModified()) {
+                        int numPages = in.readInt();
+                        long[] words = new long[in.readInt()];
+                        for (int i = 0; i < words.length; i++) {
+                            words[i] = in.readLong();
+                        }
+                        return new FreeSpaceMap(tableFile, BitSet.valueOf(words), numPages, length, modified);
+                    }
+                }
+            } catch (IOException e) {
+                // start over
+            }
+        }
+        return new FreeSpaceMap(tableFile, new BitSet(), 0, -1, -1);
+    }
+
+    /**
+     * Get the first page from the given one on that may have an empty slot. Pages of the
+     * file the map does not know yet are added to it as pages that may have room.
+     *
+     * @param numPages the number of pages of the file
+     * @return the page number, or -1 if no page may have room
+     */
+    public synchronized int nextFree(int from, int numPages) {
+        if (numPages > this.numPages) {
+            this.free.set(this.numPages, numPages);
+            this.numPages = numPages;
+            this.changed = true;
+        }
+        int pageNo = this.free.nextSetBit(from);
+        return pageNo < 0 || pageNo >= numPages ? -1 : pageNo;
+    }
+
+    /**
+     * Record whether the page has an empty slot.
+     */
+    public synchronized void setFree(int pageNo, boolean hasRoom) {
+        if (this.free.get(pageNo) != hasRoom) {
+            this.free.set(pageNo, hasRoom);
+            this.changed = true;
+        }
+        if (pageNo >= this.numPages) {
+            // a page the map did not know, the pages in between may have room too
+            this.free.set(this.numPages, pageNo);
+            this.numPages = pageNo + 1;
+            this.changed = true;
+        }
+    }
+
+    public synchronized boolean isFree(int pageNo) {
+        return pageNo >= this.numPages || this.free.get(pageNo);
+    }
+
+    /**
+     * @return the number of pages the map knows
+     */
+    public synchronized int getNumPages() {
+        return this.numPages;
+    }
+
+    /**
+     * Save the map to its side file if it or the table file changed since it was loaded
+     * or saved. The file is replaced atomically.
+     */
+    public synchronized void save() throws IOException {
+        // taken first: a write of the table while the map is saved makes it stale
+        long length = this.tableFile.length();
+        long modified = this.tableFile.lastModified();
+        if (!this.changed && length == this.savedLength && modified == this.savedModified) {
+            return;
+        }
+        long[] words = this.free.toLongArray();
+        File tmp = new File(this.file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(length);
+            out.writeLong(modified);
+            out.writeInt(this.numPages);
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+        Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.changed = false;
+        this.savedLength = length;
+        this.savedModified = modified;
+    }
+}
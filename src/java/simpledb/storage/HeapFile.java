@@ -1,14 +1,16 @@
 package simpledb.storage;
 
-import com.sun.corba.se.impl.orb.DataCollectorBase;
 import simpledb.common.Database;
 import simpledb.common.DbException;
 import simpledb.common.Debug;
 import simpledb.common.Permissions;
+import simpledb.execution.Predicate;
 import simpledb.transaction.TransactionAbortedException;
 import simpledb.transaction.TransactionId;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 
 /**
@@ -16,17 +18,69 @@ import java.util.*;
  * in no particular order. Tuples are stored on pages, each of which is a fixed
  * size, and the file is simply a collection of those pages. HeapFile works
  * closely with HeapPage. The format of HeapPages is described in the HeapPage
- * constructor.
+ * constructor. A table may use the {@link Format#SLOTTED slotted} page format
+ * instead, described in SlottedPage, or the {@link Format#PAX PAX} one, described
+ * in PaxPage.
  *
  * @author Sam Madden
  * @see HeapPage#HeapPage
  */
 public class HeapFile implements DbFile {
 
+    /**
+     * System property that turns on {@link #setMemoryMapped memory mapping} for every
+     * heap file, e.g. on a replica that only serves scans.
+     */
+    public static final String MMAP_PROPERTY = "simpledb.mmap";
+
+    /**
+     * The file grows by this many bytes at a time, the pages past the last one are
+     * preallocated as zeros, which is an empty heap page.
+     */
+    public static final int EXTENT_BYTES = 1 << 20;
+
+    /**
+     * The layout of the pages of a heap file, chosen per table when it is created.
+     */
+    public enum Format {
+        /**
+         * A bitmap of slots of the size of a tuple, see {@link HeapPage}.
+         */
+        FIXED,
+        /**
+         * A slot directory and variable-length records, see {@link SlottedPage}.
+         */
+        SLOTTED,
+        /**
+         * A bitmap of slots and one minipage per field, see {@link PaxPage}.
+         */
+        PAX
+    }
+
     private File file;
 
     private TupleDesc td;
 
+    private final Format format;
+
+    private final FileHandle handle;
+
+    // the read-only mapping of the file, null unless the file is memory mapped
+    private volatile MappedFile mapped;
+
+    // loaded on the first insert or delete
+    private FreeSpaceMap freeSpaceMap;
+
+    // the checksums of the pages, null if the file has none
+    private volatile PageChecksums checksums;
+
+    // the number of pages, and the number of pages the file has room for on disk, pages in
+    // between are preallocated; -1 until first needed, then kept up to date by the writes
+    // of this file until it is closed
+    private volatile int cachedPages = -1;
+
+    private int allocatedPages = -1;
+
     /**
      * Constructs a heap file backed by the specified file.
      *
@@ -34,9 +88,26 @@ public class HeapFile implements DbFile {
      *          file.
      */
     public HeapFile(File f, TupleDesc td) {
+        this(f, td, Format.FIXED);
+    }
+
+    /**
+     * Constructs a heap file backed by the specified file, with pages of the given format.
+     */
+    public HeapFile(File f, TupleDesc td, Format format) {
         // some code goes here
         this.file = f;
         this.td = td;
+        this.format = format;
+        this.handle = new FileHandle(f);
+        if (Boolean.getBoolean(MMAP_PROPERTY)) {
+            this.mapped = new MappedFile(this.handle);
+        }
+        try {
+            this.checksums = PageChecksums.open(f);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
@@ -73,19 +144,109 @@ public class HeapFile implements DbFile {
         return this.td;
     }
 
+    /**
+     * @return the format of the pages of this file
+     */
+    public Format getFormat() {
+        return this.format;
+    }
+
+    /**
+     * Turn memory mapping of the file on or off. Pages of a memory mapped file are read
+     * as views over the mapping, without a system call or a copy. A page is copied to
+     * the heap on its first modification, so it suits tables that are mostly read.
+     * Slotted and PAX pages are always read into a buffer of their own.
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.mapped = memoryMapped ? new MappedFile(this.handle) : null;
+    }
+
+    public boolean isMemoryMapped() {
+        return this.mapped != null;
+    }
+
+    /**
+     * @return whether pages can be read into a frame with {@link #readPage(PageId, ByteBuffer)}
+     */
+    public boolean readsIntoFrames() {
+        return this.mapped == null && this.format == Format.FIXED;
+    }
+
+    private TuplePage newPage(HeapPageId pid, byte[] data) {
+        switch (this.format) {
+            case SLOTTED:
+                return new SlottedPage(pid, data, false);
+            case PAX:
+                return new PaxPage(pid, data, false);
+            default:
+                return new HeapPage(pid, data, false);
+        }
+    }
+
+    /**
+     * Turn on checksums for the file. Pages get a checksum when they are written, pages
+     * already in the file are not verified until then.
+     */
+    public synchronized void enableChecksums() throws IOException {
+        if (this.checksums == null) {
+            this.checksums = PageChecksums.create(this.file);
+        }
+    }
+
+    /**
+     * @return the checksums of the pages, or null if the file has none
+     */
+    public PageChecksums getChecksums() {
+        return this.checksums;
+    }
+
+    private void verify(int pageNo, ByteBuffer data) {
+        PageChecksums checksums = this.checksums;
+        if (checksums != null) {
+            checksums.verify(pageNo, data);
+        }
+    }
+
+    /**
+     * Verify every page of the file against its checksum, with the given number of threads.
+     *
+     * @return the numbers of the corrupt pages, empty if the file has no checksums
+     */
+    public List<Integer> scrub(int threads) throws IOException {
+        PageChecksums checksums = this.checksums;
+        if (checksums == null) {
+            return Collections.emptyList();
+        }
+        int pageSize = BufferPool.getPageSize();
+        return checksums.scrub(pageNo -> {
+            ByteBuffer buf = ByteBuffer.allocate(pageSize);
+            this.handle.read(buf, (long) pageNo * pageSize);
+            buf.flip();
+            return buf;
+        }, 0, numPages(), threads);
+    }
+
     // see DbFile.java for javadocs
     public Page readPage(PageId pid) {
         // some code goes here
         Page page;
         try {
-            RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "r");
             // start offset
-            int start = pid.getPageNumber() * BufferPool.getPageSize();
+            long start = (long) pid.getPageNumber() * BufferPool.getPageSize();
+            MappedFile mapped = this.mapped;
+            if (mapped != null && this.format == Format.FIXED) {
+                ByteBuffer view = mapped.slice(start, BufferPool.getPageSize());
+                if (view != null) {
+                    verify(pid.getPageNumber(), view);
+                    return new HeapPage((HeapPageId) pid, view);
+                }
+            }
             byte[] buf = new byte[BufferPool.getPageSize()];
-            randomAccessFile.seek(start);
-            randomAccessFile.read(buf);
-            page = new HeapPage((HeapPageId) pid, buf);
-            randomAccessFile.close();
+            this.handle.read(ByteBuffer.wrap(buf), start);
+            verify(pid.getPageNumber(), ByteBuffer.wrap(buf));
+            page = newPage((HeapPageId) pid, buf);
+        } catch (CorruptPageException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             throw new IllegalArgumentException();
@@ -93,26 +254,229 @@ public class HeapFile implements DbFile {
         return page;
     }
 
+    // see DbFile.java for javadocs
+    public List<Page> readPages(PageId first, int count) {
+        int pageSize = BufferPool.getPageSize();
+        int firstNo = first.getPageNumber();
+        count = Math.min(count, cachedNumPages() - firstNo);
+        if (count <= 1) {
+            return Collections.singletonList(readPage(first));
+        }
+        List<Page> pages = new ArrayList<>(count);
+        if (this.mapped != null && this.format == Format.FIXED) {
+            // the pages are views over the mapping, there is nothing to read
+            for (int i = 0; i < count; i++) {
+                pages.add(readPage(new HeapPageId(getId(), firstNo + i)));
+            }
+            return pages;
+        }
+        try {
+            byte[] buf = new byte[count * pageSize];
+            int read = this.handle.read(ByteBuffer.wrap(buf), (long) firstNo * pageSize);
+            if (read < pageSize) {
+                // the file shrank under us
+                return Collections.singletonList(readPage(first));
+            }
+            for (int i = 0; i < read / pageSize; i++) {
+                verify(firstNo + i, ByteBuffer.wrap(buf, i * pageSize, pageSize));
+                pages.add(newPage(new HeapPageId(getId(), firstNo + i),
+                        Arrays.copyOfRange(buf, i * pageSize, (i + 1) * pageSize)));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new IllegalArgumentException();
+        }
+        return pages;
+    }
+
+    /**
+     * Read the specified page from disk straight into the given frame, and return a
+     * page that is a view over the frame. Only for files that {@link #readsIntoFrames()}.
+     *
+     * @param frame a buffer of exactly one page, typically a direct buffer of a {@link FrameArena}
+     * @throws IllegalArgumentException if the page does not exist in this file.
+     */
+    public Page readPage(PageId pid, ByteBuffer frame) {
+        try {
+            long start = (long) pid.getPageNumber() * BufferPool.getPageSize();
+            frame.clear();
+            this.handle.read(frame, start);
+            if (frame.hasRemaining()) {
+                throw new IllegalArgumentException("page " + pid.getPageNumber() + " does not exist");
+            }
+            frame.clear();
+            verify(pid.getPageNumber(), frame);
+            return new HeapPage((HeapPageId) pid, frame);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new IllegalArgumentException();
+        }
+    }
+
     // see DbFile.java for javadocs
     public void writePage(Page page) throws IOException {
         // some code goes here
         // not necessary for lab1
         // start offset
-        int start = page.getId().getPageNumber() * BufferPool.getPageSize();
-        RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "rw");
-        randomAccessFile.seek(start);
-        randomAccessFile.write(page.getPageData());
-        randomAccessFile.close();
+        long start = (long) page.getId().getPageNumber() * BufferPool.getPageSize();
+        PageChecksums checksums = this.checksums;
+        if (checksums != null) {
+            // a copy, so that the checksum is of the bytes written even if the page changes;
+            // the checksum goes to disk first, see PageChecksums
+            ByteBuffer data = ByteBuffer.wrap(page.getPageData());
+            checksums.record(page.getId().getPageNumber(), data);
+            this.handle.write(data.duplicate(), start);
+        } else {
+            this.handle.write(page.getPageBuffer(), start);
+        }
+        written(page.getId().getPageNumber());
+    }
+
+    // see DbFile.java for javadocs
+    public void writePages(List<Page> pages) throws IOException {
+        if (pages.size() == 1) {
+            writePage(pages.get(0));
+            return;
+        }
+        int pageSize = BufferPool.getPageSize();
+        byte[] buf = new byte[pages.size() * pageSize];
+        for (int i = 0; i < pages.size(); i++) {
+            pages.get(i).getPageBuffer().get(buf, i * pageSize, pageSize);
+        }
+        PageChecksums checksums = this.checksums;
+        if (checksums != null) {
+            List<ByteBuffer> run = new ArrayList<>(pages.size());
+            for (int i = 0; i < pages.size(); i++) {
+                run.add(ByteBuffer.wrap(buf, i * pageSize, pageSize));
+            }
+            checksums.record(pages.get(0).getId().getPageNumber(), run);
+        }
+        this.handle.write(ByteBuffer.wrap(buf), (long) pages.get(0).getId().getPageNumber() * pageSize);
+        written(pages.get(pages.size() - 1).getId().getPageNumber());
+    }
+
+    private synchronized void loadPageCounts() {
+        if (this.cachedPages < 0) {
+            try {
+                this.allocatedPages = (int) (this.handle.size() / BufferPool.getPageSize());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            this.cachedPages = this.allocatedPages;
+        }
+    }
+
+    /**
+     * The number of pages, as known from the writes of this file, without asking the file system.
+     */
+    private int cachedNumPages() {
+        int pages = this.cachedPages;
+        if (pages < 0) {
+            loadPageCounts();
+            pages = this.cachedPages;
+        }
+        return pages;
+    }
+
+    private synchronized void written(int lastPageNo) {
+        loadPageCounts();
+        this.allocatedPages = Math.max(this.allocatedPages, lastPageNo + 1);
+        this.cachedPages = Math.max(this.cachedPages, lastPageNo + 1);
+    }
+
+    /**
+     * Add an empty page at the end of the file. The file is extended by a whole extent
+     * once the preallocated pages are used up.
+     *
+     * @return the number of the new page
+     */
+    private synchronized int allocatePage() throws IOException {
+        loadPageCounts();
+        int pageNo = this.cachedPages;
+        if (pageNo >= this.allocatedPages) {
+            int pageSize = BufferPool.getPageSize();
+            int extentPages = Math.max(1, EXTENT_BYTES / pageSize);
+            this.handle.write(ByteBuffer.allocate(extentPages * pageSize), (long) pageNo * pageSize);
+            this.allocatedPages = pageNo + extentPages;
+        }
+        this.cachedPages = pageNo + 1;
+        return pageNo;
+    }
+
+    /**
+     * @return the free-space map of this file, loaded from its side file on the first call
+     */
+    public synchronized FreeSpaceMap getFreeSpaceMap() {
+        if (this.freeSpaceMap == null) {
+            this.freeSpaceMap = FreeSpaceMap.load(this.file);
+        }
+        return this.freeSpaceMap;
+    }
+
+    /**
+     * Save the free-space map to its side file, if it was loaded, see {@link FreeSpaceMap#save}.
+     */
+    public void saveFreeSpaceMap() throws IOException {
+        FreeSpaceMap freeSpaceMap;
+        synchronized (this) {
+            freeSpaceMap = this.freeSpaceMap;
+        }
+        if (freeSpaceMap != null) {
+            freeSpaceMap.save();
+        }
+    }
+
+    // see DbFile.java for javadocs
+    public void close() throws IOException {
+        MappedFile mapped = this.mapped;
+        if (mapped != null) {
+            mapped.close();
+        }
+        PageChecksums checksums = this.checksums;
+        if (checksums != null) {
+            checksums.close();
+        }
+        synchronized (this) {
+            // give back the preallocated pages, so the length of the file is its page count
+            // again when it is opened next
+            if (this.cachedPages >= 0 && this.allocatedPages > this.cachedPages) {
+                this.handle.truncate((long) this.cachedPages * BufferPool.getPageSize());
+            }
+            this.cachedPages = -1;
+            this.allocatedPages = -1;
+        }
+        // once the file has its final length
+        saveFreeSpaceMap();
+        this.handle.close();
     }
 
     /**
      * Returns the number of pages in this HeapFile.
+     * The count is kept in memory, the size of the open file is only compared with it to
+     * pick up pages appended by other writers of the file; the insert and scan paths use
+     * the count alone. The pages preallocated at the end of the file are not counted, they
+     * are cut off when the file is closed, and counted as empty pages after a crash.
      */
     public int numPages() {
         // some code goes here
-        // total page num = (file size) / (page size)
-        int num = (int) this.file.length() / BufferPool.getPageSize();
-        return num;
+        int pages = cachedNumPages();
+        long size;
+        try {
+            size = this.handle.size();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if (size <= (long) this.allocatedPages * BufferPool.getPageSize()) {
+            return pages;
+        }
+        synchronized (this) {
+            int num = (int) (size / BufferPool.getPageSize());
+            if (num > this.allocatedPages) {
+                this.allocatedPages = num;
+                this.cachedPages = num;
+            }
+            return this.cachedPages;
+        }
     }
 
     // see DbFile.java for javadocs
@@ -120,25 +484,34 @@ public class HeapFile implements DbFile {
             throws DbException, IOException, TransactionAbortedException {
         // some code goes here
         // get page from buffer pool
-        HeapPage heapPage = null;
-        int numPages = this.numPages();
-        // get suitable page from exist pages
-        for (int i = 0; i < numPages; i++) {
-            HeapPage pageTemp = (HeapPage) Database.getBufferPool().getPage(tid, new HeapPageId(this.getId(), i), Permissions.READ_WRITE);
-            if (pageTemp.getNumEmptySlots() > 0) {
+        BufferPool bufferPool = Database.getBufferPool();
+        FreeSpaceMap freeSpaceMap = getFreeSpaceMap();
+        TuplePage heapPage = null;
+        int numPages = this.cachedNumPages();
+        // get suitable page from the pages the free-space map says may have room
+        for (int i = freeSpaceMap.nextFree(0, numPages); i >= 0; i = freeSpaceMap.nextFree(i + 1, numPages)) {
+            TuplePage pageTemp = (TuplePage) bufferPool.pinPage(tid, new HeapPageId(this.getId(), i), Permissions.READ_WRITE);
+            if (pageTemp.hasRoomFor(t)) {
                 heapPage = pageTemp;
                 break;
             }
+            // a slotted page too full for this tuple may still take a smaller one
+            freeSpaceMap.setFree(i, pageTemp.hasFreeSpace());
+            bufferPool.unpinPage(pageTemp.getId());
         }
         if (heapPage == null) {
             // create a new page
-            writePage(new HeapPage(new HeapPageId(this.getId(), numPages), HeapPage.createEmptyPageData()));
-            heapPage = (HeapPage) Database.getBufferPool().getPage(tid, new HeapPageId(this.getId(), numPages), Permissions.READ_WRITE);
+            heapPage = (TuplePage) bufferPool.pinPage(tid, new HeapPageId(this.getId(), allocatePage()), Permissions.READ_WRITE);
         }
         // has got the suitable page
         // insert the tuple and mark it as dirty page
-        t.setRecordId(new RecordId(heapPage.getId(), -1));
-        heapPage.insertTuple(t);
+        try {
+            t.setRecordId(new RecordId(heapPage.getId(), -1));
+            heapPage.insertTuple(t);
+        } finally {
+            freeSpaceMap.setFree(heapPage.getId().getPageNumber(), heapPage.hasFreeSpace());
+            bufferPool.unpinPage(heapPage.getId());
+        }
         return Arrays.asList(heapPage);
         // not necessary for lab1
     }
@@ -150,8 +523,14 @@ public class HeapFile implements DbFile {
         // get recordId
         RecordId recordId = t.getRecordId();
         // get page from buffer pool
-        HeapPage page = (HeapPage) Database.getBufferPool().getPage(tid, recordId.getPageId(), Permissions.READ_WRITE);
-        page.deleteTuple(t);
+        BufferPool bufferPool = Database.getBufferPool();
+        TuplePage page = (TuplePage) bufferPool.pinPage(tid, recordId.getPageId(), Permissions.READ_WRITE);
+        try {
+            page.deleteTuple(t);
+            getFreeSpaceMap().setFree(page.getId().getPageNumber(), true);
+        } finally {
+            bufferPool.unpinPage(page.getId());
+        }
         return Arrays.asList(page);
         // not necessary for lab1
     }
@@ -159,9 +538,23 @@ public class HeapFile implements DbFile {
     // see DbFile.java for javadocs
     public DbFileIterator iterator(TransactionId tid) {
         // some code goes here
+        return iterator(tid, null, null);
+    }
+
+    /**
+     * Returns an iterator over the tuples of this file that satisfy a predicate, with
+     * the given fields only, see {@link DbFile#iterator(TransactionId, int[], Predicate)}.
+     * The pages of a {@link Format#PAX PAX} file evaluate the predicate over the minipage
+     * of its field, and read the minipages of the given fields only; the pages of the
+     * other formats decode the fields of a tuple on their first access anyway.
+     *
+     * @param columns   the fields to return, in order, null for every field
+     * @param predicate the predicate the tuples satisfy, null for every tuple
+     */
+    public DbFileIterator iterator(TransactionId tid, int[] columns, Predicate predicate) {
         DbFileIterator iterator = null;
         try {
-            iterator = new HeapFileIterator(tid, this);
+            iterator = new HeapFileIterator(tid, this, columns, predicate);
         } catch (TransactionAbortedException e) {
             e.printStackTrace();
         } catch (DbException e) {
@@ -182,33 +575,115 @@ public class HeapFile implements DbFile {
 
         private Iterator<Tuple> tupleIteratorNow = null;
 
+        // the page tupleIteratorNow iterates over, pinned until the iterator moves on
+        private PageId pinnedPage = null;
+
+        // frames recycled by a scan of a large file, null for small ones
+        private BufferRing ring = null;
+
+        // pages read ahead of the scan, null if the pool does not read ahead
+        private ReadAhead.Window readAhead = null;
+
+        // the fields to return and the predicate the tuples satisfy, null for all of them
+        private final int[] columns;
+
+        private final Predicate predicate;
+
+        // the TupleDesc of the fields returned, null for every field
+        private final TupleDesc projected;
+
         public HeapFileIterator(TransactionId tid, HeapFile heapFile) throws TransactionAbortedException, DbException {
+            this(tid, heapFile, null, null);
+        }
+
+        public HeapFileIterator(TransactionId tid, HeapFile heapFile, int[] columns, Predicate predicate)
+                throws TransactionAbortedException, DbException {
             this.tid = tid;
             this.heapFile = heapFile;
-            this.pageNum = heapFile.numPages();
+            this.pageNum = heapFile.cachedNumPages();
+            this.columns = columns;
+            this.predicate = predicate;
+            this.projected = columns == null ? null : heapFile.getTupleDesc().project(columns);
         }
 
         @Override
         protected Tuple readNext() throws DbException, TransactionAbortedException {
-            if (this.tupleIteratorNow == null) return null;
-            if (!this.tupleIteratorNow.hasNext()) {
-                // if this page has been visited
-                if (this.pageNow < this.pageNum - 1) {
-                    this.pageNow++;
-                    this.tupleIteratorNow = ((HeapPage) Database.getBufferPool().getPage(this.tid, new HeapPageId(this.heapFile.getId(), this.pageNow), Permissions.READ_ONLY)).iterator();
-                    return readNext();
-                } else {
-                    this.tupleIteratorNow = null;
-                    return null;
+            while (this.tupleIteratorNow != null) {
+                if (!this.tupleIteratorNow.hasNext()) {
+                    // if this page has been visited
+                    if (this.pageNow < this.pageNum - 1) {
+                        this.pageNow++;
+                        this.tupleIteratorNow = tuples(pin(new HeapPageId(this.heapFile.getId(), this.pageNow)));
+                    } else {
+                        this.tupleIteratorNow = null;
+                        unpin();
+                    }
+                    continue;
+                }
+                Tuple t = this.tupleIteratorNow.next();
+                if (this.heapFile.format == Format.PAX) {
+                    // filtered and projected by the page
+                    return t;
+                }
+                if (this.predicate == null || this.predicate.filter(t)) {
+                    return this.projected == null ? t : Tuple.project(this.projected, t, this.columns);
                 }
             }
-            return this.tupleIteratorNow.next();
+            return null;
+        }
+
+        private Iterator<Tuple> tuples(TuplePage page) {
+            if (page instanceof PaxPage) {
+                return ((PaxPage) page).iterator(this.columns, this.projected, this.predicate);
+            }
+            return page.iterator();
         }
 
         @Override
         public void open() throws DbException, TransactionAbortedException {
+            if (this.ring == null) {
+                this.ring = Database.getBufferPool().newBulkReadRing(this.heapFile.getId(), this.pageNum);
+            }
+            if (this.readAhead == null) {
+                this.readAhead = Database.getBufferPool().newReadAheadWindow(this.ring);
+            }
             PageId pageId = new HeapPageId(heapFile.getId(), pageNow);
-            this.tupleIteratorNow = ((HeapPage) Database.getBufferPool().getPage(tid, pageId, Permissions.READ_ONLY)).iterator();
+            this.tupleIteratorNow = tuples(pin(pageId));
+        }
+
+        /**
+         * Pin the page the iterator moves on to, releasing the previous one first so
+         * that a ring can recycle its frame.
+         */
+        private TuplePage pin(PageId pageId) throws DbException, TransactionAbortedException {
+            unpin();
+            if (this.readAhead != null) {
+                this.readAhead.read(pageId);
+            }
+            TuplePage page;
+            if (this.readAhead == null && this.ring != null) {
+                // a scan larger than the pool reads runs of pages, the pages of a smaller
+                // one may well be resident already
+                page = (TuplePage) Database.getBufferPool().pinPage(this.tid, pageId, Permissions.READ_ONLY,
+                        this.ring, this.pageNum - pageId.getPageNumber());
+            } else {
+                page = (TuplePage) Database.getBufferPool().pinPage(this.tid, pageId, Permissions.READ_ONLY, this.ring);
+            }
+            this.pinnedPage = pageId;
+            if (this.readAhead != null) {
+                int last = Math.min(this.pageNum - 1, pageId.getPageNumber() + this.readAhead.size());
+                for (int i = pageId.getPageNumber() + 1; i <= last; i++) {
+                    this.readAhead.prefetch(new HeapPageId(this.heapFile.getId(), i));
+                }
+            }
+            return page;
+        }
+
+        private void unpin() {
+            if (this.pinnedPage != null) {
+                Database.getBufferPool().unpinPage(this.pinnedPage);
+                this.pinnedPage = null;
+            }
         }
 
         @Override
@@ -221,6 +696,13 @@ public class HeapFile implements DbFile {
         public void close() {
             super.close();
             this.tupleIteratorNow = null;
+            unpin();
+            if (this.readAhead != null) {
+                this.readAhead.close();
+                this.readAhead = null;
+            }
+            Database.getBufferPool().releaseRing(this.ring);
+            this.ring = null;
         }
     }
 
@@ -34,6 +34,18 @@ public class HeapFileEncoder {
      * @see HeapFile
      */
     public static void convert(List<List<Integer>> tuples, File outFile, int npagebytes, int numFields) throws IOException {
+        convert(tuples, outFile, npagebytes, numFields, HeapFile.Format.FIXED);
+    }
+
+    /**
+     * Convert the specified tuple list (with only integer fields) into a binary
+     * page file with pages of the given format.
+     *
+     * @see #convert(List, File, int, int)
+     * @see #convert(File, File, int, int, Type[], char, HeapFile.Format)
+     */
+    public static void convert(List<List<Integer>> tuples, File outFile, int npagebytes, int numFields,
+                               HeapFile.Format format) throws IOException {
         File tempInput = File.createTempFile("tempTable", ".txt");
         tempInput.deleteOnExit();
         BufferedWriter bw = new BufferedWriter(new FileWriter(tempInput));
@@ -53,7 +65,9 @@ public class HeapFileEncoder {
             bw.write('\n');
         }
         bw.close();
-        convert(tempInput, outFile, npagebytes, numFields);
+        Type[] ts = new Type[numFields];
+        Arrays.fill(ts, Type.INT_TYPE);
+        convert(tempInput, outFile, npagebytes, numFields, ts, ',', format);
     }
 
     public static void convert(File inFile, File outFile, int npagebytes,
@@ -94,6 +108,26 @@ public class HeapFileEncoder {
     public static void convert(File inFile, File outFile, int npagebytes,
                                int numFields, Type[] typeAr, char fieldSeparator)
             throws IOException {
+        convert(inFile, outFile, npagebytes, numFields, typeAr, fieldSeparator, HeapFile.Format.FIXED);
+    }
+
+    /**
+     * Convert the specified input text file into a binary page file with pages of the
+     * given format. The slots and the header of a {@link HeapFile.Format#PAX PAX} page
+     * are those of a HeapPage, its fields are written column by column as described in
+     * PaxPage.
+     *
+     * @param format the format of the pages, FIXED or PAX
+     * @throws IllegalArgumentException if the format is SLOTTED, which is not supported
+     * @see #convert(File, File, int, int, Type[], char)
+     * @see PaxPage
+     */
+    public static void convert(File inFile, File outFile, int npagebytes,
+                               int numFields, Type[] typeAr, char fieldSeparator, HeapFile.Format format)
+            throws IOException {
+        if (format == HeapFile.Format.SLOTTED) {
+            throw new IllegalArgumentException("slotted pages can not be encoded");
+        }
 
         int nrecbytes = 0;
         for (int i = 0; i < numFields; i++) {
@@ -210,7 +244,11 @@ public class HeapFileEncoder {
                 headerStream.flush();
                 headerBAOS.writeTo(os);
                 pageStream.flush();
-                pageBAOS.writeTo(os);
+                if (format == HeapFile.Format.PAX) {
+                    os.write(toColumns(pageBAOS.toByteArray(), recordcount, nrecords, typeAr));
+                } else {
+                    pageBAOS.writeTo(os);
+                }
 
                 // reset header and body for next page
                 headerBAOS = new ByteArrayOutputStream(nheaderbytes);
@@ -225,4 +263,27 @@ public class HeapFileEncoder {
         br.close();
         os.close();
     }
+
+    /**
+     * Rearrange the records of a page, written one after the other, into one minipage
+     * per field with a value for each of the slots of the page.
+     *
+     * @return the body of the page, of the same length as the records and their padding
+     */
+    private static byte[] toColumns(byte[] records, int recordcount, int nrecords, Type[] typeAr) {
+        int nrecbytes = 0;
+        for (Type type : typeAr) {
+            nrecbytes += type.getLen();
+        }
+        byte[] body = new byte[records.length];
+        int fieldOffset = 0;
+        for (Type type : typeAr) {
+            int len = type.getLen();
+            for (int r = 0; r < recordcount; r++) {
+                System.arraycopy(records, r * nrecbytes + fieldOffset, body, nrecords * fieldOffset + r * len, len);
+            }
+            fieldOffset += len;
+        }
+        return body;
+    }
 }
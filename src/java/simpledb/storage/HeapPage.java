@@ -4,8 +4,10 @@ import simpledb.common.Database;
 import simpledb.common.DbException;
 import simpledb.common.Debug;
 import simpledb.common.Catalog;
+import simpledb.common.Type;
 import simpledb.transaction.TransactionId;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.io.*;
 
@@ -16,15 +18,19 @@ import java.io.*;
  * @see HeapFile
  * @see BufferPool
  */
-public class HeapPage implements Page {
+public class HeapPage implements TuplePage {
 
     final HeapPageId pid;
     final TupleDesc td;
-    final byte[] header;
-    final Tuple[] tuples;
+    final SlotBitmap header;
     final int numSlots;
+    // the bytes of the page, tuples are decoded from them when they are iterated and
+    // written to them when they are inserted; the frame, or a buffer of the page's own
+    ByteBuffer data;
+    // the frame this page is a view over, null if the page has a buffer of its own
+    ByteBuffer frame;
     byte[] oldData;
-    private final Byte oldDataLock = (byte) 0;
+    private final Object oldDataLock = new Object();
 
     private boolean dirty = false;
 
@@ -42,33 +48,64 @@ public class HeapPage implements Page {
      * <p>
      * ceiling(no. tuple slots / 8)
      * <p>
+     * The page keeps a copy of the bytes, the tuples are decoded from it when they are
+     * iterated, and their fields when they are first accessed.
      *
      * @see Database#getCatalog
      * @see Catalog#getTupleDesc
      * @see BufferPool#getPageSize()
      */
     public HeapPage(HeapPageId id, byte[] data) throws IOException {
+        this(id, data, true);
+    }
+
+    /**
+     * Create a HeapPage from a set of bytes of data read from disk.
+     *
+     * @param copy whether to copy the bytes, or to take ownership of the array
+     * @see #HeapPage(HeapPageId, byte[])
+     */
+    HeapPage(HeapPageId id, byte[] data, boolean copy) {
         this.pid = id;
         this.td = Database.getCatalog().getTupleDesc(id.getTableId());
         this.numSlots = getNumTuples();
-        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data));
-
-        // allocate and read the header slots of this page
-        header = new byte[getHeaderSize()];
-        for (int i = 0; i < header.length; i++)
-            header[i] = dis.readByte();
+        this.data = ByteBuffer.wrap(copy ? data.clone() : data);
+        this.frame = null;
+        header = new SlotBitmap(numSlots, Arrays.copyOf(data, getHeaderSize()));
+        // the before image is taken on the first modification, until then it is the data itself
+    }
 
-        tuples = new Tuple[numSlots];
-        try {
-            // allocate and read the actual records of this page
-            for (int i = 0; i < tuples.length; i++)
-                tuples[i] = readNextTuple(dis, i);
-        } catch (NoSuchElementException e) {
-            e.printStackTrace();
-        }
-        dis.close();
+    /**
+     * Create a HeapPage as a view over a frame of an off-heap BufferPool. The frame
+     * holds the bytes of the page as read from disk, in the format described in
+     * {@link #HeapPage(HeapPageId, byte[])}. Tuples are decoded from the frame when
+     * they are iterated, and inserts and deletes are written through to it, so the
+     * page keeps nothing on the heap but its header.
+     * <p>
+     * The frame may be read-only, e.g. a slice of a memory mapped file, then it is
+     * copied to the heap on the first modification of the page.
+     *
+     * @see FrameArena
+     * @see MappedFile
+     */
+    public HeapPage(HeapPageId id, ByteBuffer frame) {
+        this.pid = id;
+        this.td = Database.getCatalog().getTupleDesc(id.getTableId());
+        this.numSlots = getNumTuples();
+        this.frame = frame;
+        this.data = frame;
+        byte[] headerBytes = new byte[getHeaderSize()];
+        for (int i = 0; i < headerBytes.length; i++)
+            headerBytes[i] = frame.get(i);
+        header = new SlotBitmap(numSlots, headerBytes);
+        // the before image is taken on the first modification, until then it is the frame itself
+    }
 
-        setBeforeImage();
+    /**
+     * @return the frame this page is a view over, or null if it is not backed by a frame
+     */
+    public ByteBuffer getFrame() {
+        return this.frame;
     }
 
     /**
@@ -103,6 +140,10 @@ public class HeapPage implements Page {
             synchronized (oldDataLock) {
                 oldDataRef = oldData;
             }
+            if (oldDataRef == null) {
+                // not modified since it was read
+                return new HeapPage(pid, getPageData(), false);
+            }
             return new HeapPage(pid, oldDataRef);
         } catch (IOException e) {
             e.printStackTrace();
@@ -114,50 +155,99 @@ public class HeapPage implements Page {
 
     public void setBeforeImage() {
         synchronized (oldDataLock) {
-            oldData = getPageData().clone();
+            // the page is its own before image until it is modified
+            oldData = null;
         }
     }
 
     /**
-     * @return the PageId associated with this page.
+     * Take the before image of the page before its first modification, and make a
+     * read-only frame writable.
      */
-    public HeapPageId getId() {
-        // some code goes here
-        return this.pid;
+    private void captureBeforeImage() {
+        synchronized (oldDataLock) {
+            if (oldData == null) {
+                oldData = getPageData();
+            }
+        }
+        if (data.isReadOnly()) {
+            ByteBuffer copy = ByteBuffer.allocate(data.capacity());
+            ByteBuffer dup = data.duplicate();
+            dup.clear();
+            copy.put(dup);
+            copy.clear();
+            frame = copy;
+            data = copy;
+        }
+    }
+
+    private int tupleOffset(int slotId) {
+        return header.getNumBytes() + slotId * td.getSize();
     }
 
     /**
-     * Suck up tuples from the source file.
+     * Copy the bytes of a used slot into a tuple, which decodes its fields when they are
+     * first accessed. The ints of a tuple of ints only are read into an IntTuple at once.
      */
-    private Tuple readNextTuple(DataInputStream dis, int slotId) throws NoSuchElementException {
-        // if associated bit is not set, read forward to the next tuple, and
-        // return null.
-        if (!isSlotUsed(slotId)) {
-            for (int i = 0; i < td.getSize(); i++) {
-                try {
-                    dis.readByte();
-                } catch (IOException e) {
-                    throw new NoSuchElementException("error reading empty tuple");
-                }
+    private Tuple readTuple(int slotId) {
+        if (td.isIntOnly()) {
+            int offset = tupleOffset(slotId);
+            int[] values = new int[td.numFields()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = data.getInt(offset + 4 * i);
             }
-            return null;
+            Tuple t = new IntTuple(td, values, 0);
+            t.setRecordId(new RecordId(pid, slotId));
+            return t;
         }
+        byte[] raw = new byte[td.getSize()];
+        if (data.hasArray()) {
+            System.arraycopy(data.array(), data.arrayOffset() + tupleOffset(slotId), raw, 0, raw.length);
+        } else {
+            ByteBuffer dup = data.duplicate();
+            dup.position(tupleOffset(slotId));
+            dup.get(raw);
+        }
+        Tuple t = new Tuple(td, raw);
+        t.setRecordId(new RecordId(pid, slotId));
+        return t;
+    }
 
-        // read fields in the tuple
-        Tuple t = new Tuple(td);
-        RecordId rid = new RecordId(pid, slotId);
-        t.setRecordId(rid);
-        try {
-            for (int j = 0; j < td.numFields(); j++) {
-                Field f = td.getFieldType(j).parse(dis);
-                t.setField(j, f);
+    /**
+     * Serialize the fields of a tuple into its slot, in the format of Field.serialize.
+     */
+    private void writeTuple(int slotId, Tuple t) {
+        int offset = tupleOffset(slotId);
+        for (int j = 0; j < td.numFields(); j++) {
+            int pos = offset + td.getFieldOffset(j);
+            if (td.getFieldType(j) == Type.STRING_TYPE) {
+                // a length, one byte per character, and zeros up to STRING_LEN
+                String s = ((StringField) t.getField(j)).getValue();
+                int len = Math.min(s.length(), Type.STRING_LEN);
+                data.putInt(pos, len);
+                pos += 4;
+                for (int k = 0; k < Type.STRING_LEN; k++) {
+                    data.put(pos + k, k < len ? (byte) s.charAt(k) : 0);
+                }
+            } else {
+                data.putInt(pos, t.getInt(j));
             }
-        } catch (java.text.ParseException e) {
-            e.printStackTrace();
-            throw new NoSuchElementException("parsing error!");
         }
+    }
 
-        return t;
+    private void clearSlot(int slotId) {
+        int offset = tupleOffset(slotId);
+        for (int i = 0; i < td.getSize(); i++) {
+            data.put(offset + i, (byte) 0);
+        }
+    }
+
+    /**
+     * @return the PageId associated with this page.
+     */
+    public HeapPageId getId() {
+        // some code goes here
+        return this.pid;
     }
 
     /**
@@ -172,64 +262,19 @@ public class HeapPage implements Page {
      * @see #HeapPage
      */
     public byte[] getPageData() {
-        int len = BufferPool.getPageSize();
-        ByteArrayOutputStream baos = new ByteArrayOutputStream(len);
-        DataOutputStream dos = new DataOutputStream(baos);
-
-        // create the header of the page
-        for (byte b : header) {
-            try {
-                dos.writeByte(b);
-            } catch (IOException e) {
-                // this really shouldn't happen
-                e.printStackTrace();
-            }
-        }
-
-        // create the tuples
-        for (int i = 0; i < tuples.length; i++) {
-
-            // empty slot
-            if (!isSlotUsed(i)) {
-                for (int j = 0; j < td.getSize(); j++) {
-                    try {
-                        dos.writeByte(0);
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-
-                }
-                continue;
-            }
-
-            // non-empty slot
-            for (int j = 0; j < td.numFields(); j++) {
-                Field f = tuples[i].getField(j);
-                try {
-                    f.serialize(dos);
-
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-
-        // padding
-        int zerolen = BufferPool.getPageSize() - (header.length + td.getSize() * tuples.length); //- numSlots * td.getSize();
-        byte[] zeroes = new byte[zerolen];
-        try {
-            dos.write(zeroes, 0, zerolen);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        try {
-            dos.flush();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        byte[] bytes = new byte[data.capacity()];
+        getPageBuffer().get(bytes);
+        return bytes;
+    }
 
-        return baos.toByteArray();
+    /**
+     * @return a read-only view of the bytes of the page, which inserts and deletes patch
+     * in place
+     */
+    public ByteBuffer getPageBuffer() {
+        ByteBuffer view = data.asReadOnlyBuffer();
+        view.clear();
+        return view;
     }
 
     /**
@@ -264,7 +309,8 @@ public class HeapPage implements Page {
             throw new DbException("page doesn't contain this tuple");
         }
         // delete the tuple in memory
-        this.tuples[tupleNumber] = null;
+        captureBeforeImage();
+        clearSlot(tupleNumber);
         // mark the header
         this.markSlotUsed(tupleNumber, false);
     }
@@ -286,7 +332,8 @@ public class HeapPage implements Page {
         }
         int slotIndex = findFirstEmptySlot();
         t.setRecordId(new RecordId(this.pid, slotIndex));
-        this.tuples[slotIndex] = t;
+        captureBeforeImage();
+        writeTuple(slotIndex, t);
         this.markSlotUsed(slotIndex, true);
     }
 
@@ -315,11 +362,15 @@ public class HeapPage implements Page {
      */
     public int getNumEmptySlots() {
         // some code goes here
-        int count = 0;
-        for (int i = 0; i < this.getNumTuples(); i++) {
-            if (!isSlotUsed(i)) count++;
-        }
-        return count;
+        return this.header.getNumEmpty();
+    }
+
+    public boolean hasRoomFor(Tuple t) {
+        return getNumEmptySlots() > 0;
+    }
+
+    public boolean hasFreeSpace() {
+        return getNumEmptySlots() > 0;
     }
 
     /**
@@ -327,18 +378,11 @@ public class HeapPage implements Page {
      */
     public boolean isSlotUsed(int i) {
         // some code goes here
-        int byteNo = i / 8;
-        int bitNo = i % 8;
-        return (this.header[byteNo] & (1 << bitNo)) != 0;
+        return this.header.isUsed(i);
     }
 
     private int findFirstEmptySlot() {
-        for (int i = 0; i < this.getNumTuples(); i++) {
-            if (!isSlotUsed(i)) {
-                return i;
-            }
-        }
-        return -1;
+        return this.header.nextEmpty(0);
     }
 
     /**
@@ -347,19 +391,9 @@ public class HeapPage implements Page {
     private void markSlotUsed(int i, boolean value) {
         // some code goes here
         // not necessary for lab1
-        int index = i / 8;
-        int offset = i % 8;
-        if (value) {
-            // if we want to mark it as used
-            // for example: 1011 0100 is our first header byte, we want to mark the slot-1 as used,
-            // so we should 1011 0100 | 0000 0010 = 1011 0110
-            header[index] = (byte) (header[index] | (1 << offset));
-        } else {
-            // if we want to mark it as unused
-            // for example: 1111 0100 is our first header byte, we want to mark the slot-2 as unused,
-            // so we should 1011 0100 & 1111 1011 = 1011 0000
-            header[index] = (byte) (header[index] & (0b11111111 - (1 << offset)));
-        }
+        header.set(i, value);
+        // write the header byte of the slot through to the page
+        data.put(i / 8, header.getByte(i / 8));
     }
 
     /**
@@ -368,13 +402,28 @@ public class HeapPage implements Page {
      */
     public Iterator<Tuple> iterator() {
         // some code goes here
-        LinkedList<Tuple> tupleIterator = new LinkedList<>();
-        for (int i = 0; i < this.tuples.length; i++) {
-            if (isSlotUsed(i)) {
-                tupleIterator.add(this.tuples[i]);
+        // the slots in use when the iterator is created, a tuple is copied out of the page
+        // when the iterator reaches it
+        SlotBitmap used = this.header.copy();
+        return new Iterator<Tuple>() {
+
+            private int next = used.nextUsed(0);
+
+            @Override
+            public boolean hasNext() {
+                return this.next >= 0;
             }
-        }
-        return tupleIterator.iterator();
+
+            @Override
+            public Tuple next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int slotId = this.next;
+                this.next = used.nextUsed(slotId + 1);
+                return readTuple(slotId);
+            }
+        };
     }
 
 }
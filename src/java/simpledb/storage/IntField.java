@@ -59,20 +59,28 @@ public class IntField implements Field {
 
         IntField iVal = (IntField) val;
 
+        return compare(op, value, iVal.value);
+    }
+
+    /**
+     * Compare two ints the way {@link #compare(Predicate.Op, Field)} compares their fields,
+     * without creating them.
+     */
+    public static boolean compare(Predicate.Op op, int value, int other) {
         switch (op) {
             case EQUALS:
             case LIKE:
-                return value == iVal.value;
+                return value == other;
             case NOT_EQUALS:
-                return value != iVal.value;
+                return value != other;
             case GREATER_THAN:
-                return value > iVal.value;
+                return value > other;
             case GREATER_THAN_OR_EQ:
-                return value >= iVal.value;
+                return value >= other;
             case LESS_THAN:
-                return value < iVal.value;
+                return value < other;
             case LESS_THAN_OR_EQ:
-                return value <= iVal.value;
+                return value <= other;
         }
 
         return false;
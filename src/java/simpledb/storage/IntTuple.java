@@ -0,0 +1,106 @@
+package simpledb.storage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 22:40
+ * @description A tuple of a schema of ints only, kept as a row of an int array.
+ * <p>
+ * The values are read with {@link #getInt} and written with {@link #setInt} without a
+ * Field in between, {@link #getField} creates an IntField for the value on every call.
+ * The row may be a slice of an array shared by several tuples.
+ */
+public class IntTuple extends Tuple {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] values;
+
+    private final int offset;
+
+    private final int width;
+
+    /**
+     * Create a tuple of the specified schema with every field 0.
+     *
+     * @param td a schema of {@link simpledb.common.Type#INT_TYPE} fields only
+     */
+    public IntTuple(TupleDesc td) {
+        this(td, new int[td.numFields()], 0);
+    }
+
+    /**
+     * Create a tuple over a row of the given array, the tuple reads and writes the array.
+     *
+     * @param td     a schema of {@link simpledb.common.Type#INT_TYPE} fields only
+     * @param values the array holding the row
+     * @param offset the index of the first field of the row in the array
+     */
+    public IntTuple(TupleDesc td, int[] values, int offset) {
+        super(td, (RecordId) null);
+        this.values = values;
+        this.offset = offset;
+        this.width = td.numFields();
+    }
+
+    /**
+     * @return a tuple with the fields of the first tuple followed by those of the second
+     */
+    static IntTuple concat(TupleDesc td, IntTuple tuple1, IntTuple tuple2) {
+        int[] values = new int[tuple1.width + tuple2.width];
+        System.arraycopy(tuple1.values, tuple1.offset, values, 0, tuple1.width);
+        System.arraycopy(tuple2.values, tuple2.offset, values, tuple1.width, tuple2.width);
+        return new IntTuple(td, values, 0);
+    }
+
+    private int index(int i) {
+        if (i < 0 || i >= this.width) {
+            throw new IndexOutOfBoundsException("field " + i + " of " + this.width);
+        }
+        return this.offset + i;
+    }
+
+    @Override
+    public int getInt(int i) {
+        return this.values[index(i)];
+    }
+
+    @Override
+    public void setInt(int i, int value) {
+        this.values[index(i)] = value;
+    }
+
+    @Override
+    public Field getField(int i) {
+        return new IntField(getInt(i));
+    }
+
+    @Override
+    public void setField(int i, Field f) {
+        setInt(i, ((IntField) f).getValue());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < this.width; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(this.values[this.offset + i]);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public Iterator<Field> fields() {
+        List<Field> fields = new ArrayList<>(this.width);
+        for (int i = 0; i < this.width; i++) {
+            fields.add(new IntField(this.values[this.offset + i]));
+        }
+        return fields.iterator();
+    }
+}
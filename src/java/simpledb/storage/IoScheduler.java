@@ -0,0 +1,523 @@
+package simpledb.storage;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 21:40
+ * @description I/O scheduler of a BufferPool.
+ * <p>
+ * Page reads and writes are queued instead of being issued by whichever thread needs
+ * them, and a small set of I/O threads works through the queues:
+ * <ul>
+ * <li>there is a queue per {@link Priority}, a request is taken from the most urgent
+ * queue that has one, so foreground reads go before read-ahead, and read-ahead before
+ * background writes. Every {@link #STARVATION_LIMIT} requests in a row taken while a
+ * less urgent queue waits, one is taken from the next queue down, so writes are never
+ * starved;</li>
+ * <li>within a queue, requests are taken in elevator order: the next one from the file
+ * and page the last request ended at, wrapping around at the end, so the pages of a file
+ * are visited in a sweep instead of in arrival order;</li>
+ * <li>queued requests for adjacent pages of a file are issued together, with a single
+ * {@link DbFile#readPages} or {@link DbFile#writePages};</li>
+ * <li>a read of a page that is queued already joins the queued request, and moves it to
+ * the more urgent queue; a write of a page that is queued already replaces its page. A
+ * page is never read or written by two threads at a time, and a read of a page with a
+ * pending write waits for the write.</li>
+ * </ul>
+ * Every request completes through a {@link CompletableFuture}.
+ *
+ * @see BufferPool#startIoScheduler
+ */
+
+public class IoScheduler {
+
+    /**
+     * The queues, most urgent first.
+     */
+    public enum Priority {
+        /**
+         * A read a query is waiting for.
+         */
+        READ,
+        /**
+         * A read ahead of a scan, or a preload.
+         */
+        PREFETCH,
+        /**
+         * A write back nobody is waiting for.
+         */
+        WRITE
+    }
+
+    /**
+     * Maximum number of requests taken in a row from a more urgent queue while a less
+     * urgent one waits.
+     */
+    public static final int STARVATION_LIMIT = 8;
+
+    /**
+     * Maximum number of adjacent pages issued with a single read or write.
+     */
+    public static final int MAX_RUN_PAGES = 64;
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private static final Comparator<Request> ELEVATOR_ORDER = Comparator
+            .comparingInt((Request r) -> r.tableId)
+            .thenComparingInt(r -> r.pageNo)
+            .thenComparingLong(r -> r.seq);
+
+    private static final class Request {
+
+        final DbFile file;
+
+        final PageId pid;
+
+        final int tableId;
+
+        final int pageNo;
+
+        final long seq;
+
+        // the page to write, null for a read; replaced by a later write of the same page
+        Page page;
+
+        Priority priority;
+
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        Request(DbFile file, PageId pid, Page page, Priority priority, long seq) {
+            this.file = file;
+            this.pid = pid;
+            this.tableId = pid.getTableId();
+            this.pageNo = pid.getPageNumber();
+            this.page = page;
+            this.priority = priority;
+            this.seq = seq;
+        }
+
+        // a position of the elevator, not a request
+        Request(int tableId, int pageNo) {
+            this.file = null;
+            this.pid = null;
+            this.tableId = tableId;
+            this.pageNo = pageNo;
+            this.seq = Long.MIN_VALUE;
+        }
+
+        boolean isWrite() {
+            return this.page != null;
+        }
+    }
+
+    // the queues, one per priority, and the requests queued per page; guarded by this
+    private final List<TreeSet<Request>> queues = new ArrayList<>();
+
+    private final Map<PageId, Request> queuedReads = new HashMap<>();
+
+    private final Map<PageId, Request> queuedWrites = new HashMap<>();
+
+    // pages being read or written, and the writes in progress; guarded by this
+    private final Set<PageId> inFlight = new HashSet<>();
+
+    private final Map<PageId, CompletableFuture<Object>> inFlightWrites = new HashMap<>();
+
+    // where the elevator is; guarded by this
+    private Request head = new Request(Integer.MIN_VALUE, Integer.MIN_VALUE);
+
+    // requests taken in a row while a less urgent queue waits; guarded by this
+    private int passedOver = 0;
+
+    private long nextSeq = 0;
+
+    private boolean stopping = false;
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private final LongAdder reads = new LongAdder();
+
+    private final LongAdder writes = new LongAdder();
+
+    private final LongAdder calls = new LongAdder();
+
+    IoScheduler(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("the I/O scheduler needs at least one thread");
+        }
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            this.queues.add(new TreeSet<>(ELEVATOR_ORDER));
+        }
+        AtomicInteger threadNo = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::work, "simpledb-io-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            this.threads.add(thread);
+        }
+        this.threads.forEach(Thread::start);
+    }
+
+    /**
+     * Stop taking requests, and wait for the I/O threads to work through the queued ones.
+     */
+    void stop() {
+        synchronized (this) {
+            this.stopping = true;
+            notifyAll();
+        }
+        for (Thread thread : this.threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Queue a read of a page.
+     *
+     * @return the page, or the exception the file threw reading it
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Page> read(DbFile file, PageId pid, Priority priority) {
+        CompletableFuture<Object> write;
+        synchronized (this) {
+            checkRunning();
+            write = pendingWrite(pid);
+            if (write == null) {
+                Request queued = this.queuedReads.get(pid);
+                if (queued != null) {
+                    if (priority.compareTo(queued.priority) < 0) {
+                        move(queued, priority);
+                    }
+                    return (CompletableFuture<Page>) (CompletableFuture<?>) queued.future;
+                }
+                Request request = new Request(file, pid, null, priority, this.nextSeq++);
+                this.queuedReads.put(pid, request);
+                enqueue(request);
+                return (CompletableFuture<Page>) (CompletableFuture<?>) request.future;
+            }
+        }
+        // read what the write leaves on disk, whether it succeeded or not
+        return write.handle((result, failure) -> null).thenCompose(ignored -> read(file, pid, priority));
+    }
+
+    /**
+     * Queue a background write of a page. The data written is the content of the page
+     * when the write is issued.
+     *
+     * @return completed when the page is written, or with the exception the file threw
+     * writing it; cancelled if the write was {@link #cancelWrite cancelled}
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Void> write(DbFile file, Page page) {
+        PageId pid = page.getId();
+        synchronized (this) {
+            checkRunning();
+            Request queued = this.queuedWrites.get(pid);
+            if (queued != null) {
+                queued.page = page;
+                return (CompletableFuture<Void>) (CompletableFuture<?>) queued.future;
+            }
+            Request request = new Request(file, pid, page, Priority.WRITE, this.nextSeq++);
+            this.queuedWrites.put(pid, request);
+            enqueue(request);
+            return (CompletableFuture<Void>) (CompletableFuture<?>) request.future;
+        }
+    }
+
+    /**
+     * Wait until the pending write of the page, if any, is done. A queued write is moved
+     * to the most urgent queue, since a foreground thread is waiting for it.
+     */
+    public void awaitWrite(PageId pid) {
+        CompletableFuture<Object> write;
+        synchronized (this) {
+            Request queued = this.queuedWrites.get(pid);
+            if (queued != null) {
+                move(queued, Priority.READ);
+            }
+            write = pendingWrite(pid);
+        }
+        awaitQuietly(write);
+    }
+
+    /**
+     * Drop the queued write of the page, if any, and wait for a write of the page that
+     * is in progress. The dropped write completes as cancelled.
+     */
+    public void cancelWrite(PageId pid) {
+        Request queued;
+        CompletableFuture<Object> write;
+        synchronized (this) {
+            queued = this.queuedWrites.remove(pid);
+            if (queued != null) {
+                this.queues.get(queued.priority.ordinal()).remove(queued);
+            }
+            write = this.inFlightWrites.get(pid);
+        }
+        if (queued != null) {
+            queued.future.cancel(false);
+        }
+        awaitQuietly(write);
+    }
+
+    /**
+     * Wait for the future of a request and return its result, rethrowing what the file
+     * threw as is if it is unchecked.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void awaitQuietly(CompletableFuture<?> future) {
+        if (future != null) {
+            try {
+                future.join();
+            } catch (CompletionException | CancellationException e) {
+                // the waiter only cares that it is over
+            }
+        }
+    }
+
+    private void checkRunning() {
+        if (this.stopping) {
+            throw new IllegalStateException("the I/O scheduler is stopped");
+        }
+    }
+
+    private CompletableFuture<Object> pendingWrite(PageId pid) {
+        Request queued = this.queuedWrites.get(pid);
+        return queued != null ? queued.future : this.inFlightWrites.get(pid);
+    }
+
+    private void enqueue(Request request) {
+        this.queues.get(request.priority.ordinal()).add(request);
+        notify();
+    }
+
+    private void move(Request request, Priority priority) {
+        this.queues.get(request.priority.ordinal()).remove(request);
+        request.priority = priority;
+        this.queues.get(priority.ordinal()).add(request);
+    }
+
+    private void work() {
+        while (true) {
+            List<Request> run;
+            synchronized (this) {
+                while ((run = takeRun()) == null) {
+                    if (this.stopping && this.queuedReads.isEmpty() && this.queuedWrites.isEmpty()) {
+                        return;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            issue(run);
+        }
+    }
+
+    /**
+     * Take the next run of requests to issue, in the order of priority and then of the
+     * elevator, and mark its pages in flight.
+     *
+     * @return the run, or null if no queued request can be issued now
+     */
+    private List<Request> takeRun() {
+        int first = -1;
+        for (int i = 0; i < PRIORITIES.length && first < 0; i++) {
+            if (!this.queues.get(i).isEmpty()) {
+                first = i;
+            }
+        }
+        if (first < 0) {
+            return null;
+        }
+        int second = -1;
+        for (int i = first + 1; i < PRIORITIES.length && second < 0; i++) {
+            if (!this.queues.get(i).isEmpty()) {
+                second = i;
+            }
+        }
+        List<Request> run = null;
+        if (second >= 0 && this.passedOver >= STARVATION_LIMIT) {
+            run = takeRun(this.queues.get(second));
+        }
+        if (run != null) {
+            this.passedOver = 0;
+            return run;
+        }
+        for (int i = first; i < PRIORITIES.length; i++) {
+            run = takeRun(this.queues.get(i));
+            if (run != null) {
+                boolean lessUrgentWaiting = false;
+                for (int j = i + 1; j < PRIORITIES.length; j++) {
+                    lessUrgentWaiting |= !this.queues.get(j).isEmpty();
+                }
+                this.passedOver = lessUrgentWaiting ? this.passedOver + 1 : 0;
+                return run;
+            }
+        }
+        return null;
+    }
+
+    private List<Request> takeRun(TreeSet<Request> queue) {
+        Request start = null;
+        for (Request request : queue.tailSet(this.head, false)) {
+            if (!this.inFlight.contains(request.pid)) {
+                start = request;
+                break;
+            }
+        }
+        if (start == null) {
+            // wrap around
+            for (Request request : queue.headSet(this.head, true)) {
+                if (!this.inFlight.contains(request.pid)) {
+                    start = request;
+                    break;
+                }
+            }
+        }
+        if (start == null) {
+            return null;
+        }
+        List<Request> run = new ArrayList<>();
+        run.add(start);
+        for (Request request : queue.tailSet(start, false)) {
+            Request last = run.get(run.size() - 1);
+            if (run.size() == MAX_RUN_PAGES || request.tableId != last.tableId || request.pageNo != last.pageNo + 1
+                    || request.isWrite() != start.isWrite() || this.inFlight.contains(request.pid)) {
+                break;
+            }
+            run.add(request);
+        }
+        for (Request request : run) {
+            queue.remove(request);
+            this.inFlight.add(request.pid);
+            if (request.page != null) {
+                this.queuedWrites.remove(request.pid);
+                this.inFlightWrites.put(request.pid, request.future);
+            } else {
+                this.queuedReads.remove(request.pid);
+            }
+        }
+        this.head = new Request(run.get(run.size() - 1).tableId, run.get(run.size() - 1).pageNo);
+        return run;
+    }
+
+    private void issue(List<Request> run) {
+        Request start = run.get(0);
+        Object[] results = new Object[run.size()];
+        Throwable[] failures = new Throwable[run.size()];
+        if (start.page != null) {
+            List<Page> pages = new ArrayList<>(run.size());
+            for (Request request : run) {
+                pages.add(request.page);
+            }
+            try {
+                this.calls.increment();
+                if (pages.size() == 1) {
+                    start.file.writePage(pages.get(0));
+                } else {
+                    start.file.writePages(pages);
+                }
+                this.writes.add(pages.size());
+            } catch (IOException | RuntimeException e) {
+                Arrays.fill(failures, e);
+            }
+        } else {
+            int done = 0;
+            if (run.size() > 1) {
+                try {
+                    this.calls.increment();
+                    List<Page> pages = start.file.readPages(start.pid, run.size());
+                    for (; done < pages.size() && done < run.size(); done++) {
+                        results[done] = pages.get(done);
+                    }
+                } catch (RuntimeException e) {
+                    // read the pages one by one, to find the one that failed
+                    done = 0;
+                }
+            }
+            // the file may read fewer pages than asked, or only one at a time
+            for (; done < run.size(); done++) {
+                try {
+                    this.calls.increment();
+                    results[done] = start.file.readPage(run.get(done).pid);
+                } catch (RuntimeException e) {
+                    failures[done] = e;
+                }
+            }
+            for (Object result : results) {
+                if (result != null) {
+                    this.reads.increment();
+                }
+            }
+        }
+        synchronized (this) {
+            for (Request request : run) {
+                this.inFlight.remove(request.pid);
+                this.inFlightWrites.remove(request.pid, request.future);
+            }
+            notifyAll();
+        }
+        for (int i = 0; i < run.size(); i++) {
+            if (failures[i] != null) {
+                run.get(i).future.completeExceptionally(failures[i]);
+            } else {
+                run.get(i).future.complete(results[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the number of pages read
+     */
+    public long getPagesRead() {
+        return this.reads.sum();
+    }
+
+    /**
+     * @return the number of pages written
+     */
+    public long getPagesWritten() {
+        return this.writes.sum();
+    }
+
+    /**
+     * @return the number of reads and writes issued to the files, a run of pages is one
+     */
+    public long getIoCalls() {
+        return this.calls.sum();
+    }
+
+    /**
+     * @return the number of queued requests
+     */
+    public synchronized int getQueueDepth() {
+        return this.queuedReads.size() + this.queuedWrites.size();
+    }
+}
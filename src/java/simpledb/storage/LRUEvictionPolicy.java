@@ -0,0 +1,224 @@
+package simpledb.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 10:20
+ * @description Least recently used replacement.
+ * <p>
+ * The recency order is kept in intrusive doubly linked lists, one per stripe. A page
+ * belongs to the stripe picked by the hash of its PageId, so a hit only locks the stripe
+ * of that page and moves its node to the front in O(1). Readers of pages in different
+ * stripes never contend.
+ * <p>
+ * Every node records the time of its last access. On eviction, the tails of all stripes
+ * are compared and the oldest one is chosen, so the eviction order is still the global
+ * LRU order.
+ */
+
+public class LRUEvictionPolicy implements EvictionPolicy {
+
+    private static final int MAX_STRIPES = 16;
+
+    private final ConcurrentHashMap<PageId, Node> nodes;
+
+    private final Stripe[] stripes;
+
+    private static class Node {
+        final PageId pageId;
+
+        volatile long lastAccess;
+
+        // guarded by the monitor of the owning stripe
+        Node prev;
+
+        Node next;
+
+        boolean linked;
+
+        Node(PageId pageId) {
+            this.pageId = pageId;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+
+    private static class Stripe {
+        // most recently used
+        private Node head;
+
+        // least recently used
+        private Node tail;
+
+        synchronized void addFirst(Node node) {
+            node.prev = null;
+            node.next = head;
+            if (head != null) {
+                head.prev = node;
+            }
+            head = node;
+            if (tail == null) {
+                tail = node;
+            }
+            node.linked = true;
+        }
+
+        synchronized void addLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail != null) {
+                tail.next = node;
+            }
+            tail = node;
+            if (head == null) {
+                head = node;
+            }
+            node.linked = true;
+        }
+
+        synchronized void unlink(Node node) {
+            if (!node.linked) {
+                return;
+            }
+            if (node.prev != null) {
+                node.prev.next = node.next;
+            } else {
+                head = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            } else {
+                tail = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.linked = false;
+        }
+
+        synchronized void moveToFront(Node node) {
+            node.lastAccess = System.nanoTime();
+            if (!node.linked || head == node) {
+                return;
+            }
+            unlink(node);
+            addFirst(node);
+        }
+
+        synchronized long tailAccess() {
+            return tail == null ? Long.MAX_VALUE : tail.lastAccess;
+        }
+
+        synchronized Node removeLast() {
+            Node node = tail;
+            if (node != null) {
+                unlink(node);
+            }
+            return node;
+        }
+    }
+
+    public LRUEvictionPolicy() {
+        this.nodes = new ConcurrentHashMap<>();
+        int stripeNum = 1;
+        while (stripeNum < MAX_STRIPES && stripeNum < Runtime.getRuntime().availableProcessors() * 2) {
+            stripeNum <<= 1;
+        }
+        this.stripes = new Stripe[stripeNum];
+        for (int i = 0; i < stripeNum; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripeOf(PageId pageId) {
+        int h = pageId.hashCode();
+        // spread the high bits, page ids of one table differ mostly in the low bits
+        h ^= (h >>> 16);
+        return this.stripes[h & (this.stripes.length - 1)];
+    }
+
+    @Override
+    public void recordAccess(PageId pageId) {
+        Node node = this.nodes.get(pageId);
+        if (node != null) {
+            // put it to first
+            stripeOf(pageId).moveToFront(node);
+        }
+    }
+
+    @Override
+    public void recordInsert(PageId pageId) {
+        Node exist = this.nodes.get(pageId);
+        if (exist != null) {
+            stripeOf(pageId).moveToFront(exist);
+            return;
+        }
+        Node node = new Node(pageId);
+        stripeOf(pageId).addFirst(node);
+        this.nodes.put(pageId, node);
+    }
+
+    @Override
+    public void recordRemove(PageId pageId) {
+        Node node = this.nodes.remove(pageId);
+        if (node != null) {
+            stripeOf(pageId).unlink(node);
+        }
+    }
+
+    @Override
+    public void restore(PageId pageId) {
+        if (this.nodes.containsKey(pageId)) {
+            return;
+        }
+        // older than every tail, so that it is the least recently used page again
+        long oldest = System.nanoTime();
+        for (Stripe stripe : this.stripes) {
+            oldest = Math.min(oldest, stripe.tailAccess());
+        }
+        Node node = new Node(pageId);
+        node.lastAccess = oldest - 1;
+        stripeOf(pageId).addLast(node);
+        this.nodes.put(pageId, node);
+    }
+
+    @Override
+    public PageId evict() {
+        Stripe victimStripe = null;
+        long oldest = Long.MAX_VALUE;
+        for (Stripe stripe : this.stripes) {
+            long access = stripe.tailAccess();
+            if (access < oldest) {
+                oldest = access;
+                victimStripe = stripe;
+            }
+        }
+        if (victimStripe == null) {
+            return null;
+        }
+        Node victim = victimStripe.removeLast();
+        if (victim == null) {
+            return null;
+        }
+        this.nodes.remove(victim.pageId, victim);
+        return victim.pageId;
+    }
+
+    @Override
+    public EvictionPolicy newInstance() {
+        return new LRUEvictionPolicy();
+    }
+
+    @Override
+    public List<PageId> evictionOrder() {
+        List<Node> order = new ArrayList<>(this.nodes.values());
+        order.sort(Comparator.comparingLong(node -> node.lastAccess));
+        List<PageId> pageIds = new ArrayList<>(order.size());
+        for (Node node : order) {
+            pageIds.add(node.pageId);
+        }
+        return pageIds;
+    }
+}
@@ -0,0 +1,193 @@
+package simpledb.storage;
+
+import java.util.*;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 11:03
+ * @description LRU-K replacement (O'Neil, O'Neil and Weikum).
+ * <p>
+ * The victim is the page whose K-th most recent access is the oldest, i.e. the page with
+ * the largest backward K-distance. Pages that were accessed fewer than K times have an
+ * infinite distance and are evicted first, in LRU order among themselves. So a page read
+ * once by a scan leaves the pool before a page that B+tree lookups keep coming back to.
+ * <p>
+ * The access history of evicted pages is retained for a while (up to the capacity of the
+ * pool), so a page that is re-read soon after its eviction keeps its history.
+ * <p>
+ * The histories are kept under one lock. Hits do not take it, they are buffered and
+ * replayed in batches, see {@link AccessBuffer}.
+ */
+
+public class LRUKEvictionPolicy implements EvictionPolicy {
+
+    public static final int DEFAULT_K = 2;
+
+    private final int k;
+
+    private final int retainedHistory;
+
+    // logical clock, advanced on every access
+    private long now = 0;
+
+    private final Map<PageId, History> resident;
+
+    // histories of evicted pages, oldest first
+    private final LinkedHashMap<PageId, History> retained;
+
+    // resident pages ordered by their eviction priority, the victim is the first one
+    private final TreeSet<History> order;
+
+    // the hits not yet applied to the histories, and the lock that guards them
+    private final AccessBuffer accesses = new AccessBuffer(this::applyAccess);
+
+    private static class History {
+        final PageId pageId;
+
+        // the last K access times, the most recent one first, 0 if absent
+        final long[] accesses;
+
+        History(PageId pageId, int k) {
+            this.pageId = pageId;
+            this.accesses = new long[k];
+        }
+
+        long kthAccess() {
+            return accesses[accesses.length - 1];
+        }
+
+        long lastAccess() {
+            return accesses[0];
+        }
+
+        void access(long time) {
+            System.arraycopy(accesses, 0, accesses, 1, accesses.length - 1);
+            accesses[0] = time;
+        }
+    }
+
+    private static final Comparator<History> PRIORITY = (a, b) -> {
+        // pages without K accesses have a K-th access time of 0, so they come first
+        int cmp = Long.compare(a.kthAccess(), b.kthAccess());
+        if (cmp != 0) {
+            return cmp;
+        }
+        // last access times are unique since the clock advances on every access
+        return Long.compare(a.lastAccess(), b.lastAccess());
+    };
+
+    public LRUKEvictionPolicy(int k, int capacity) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.retainedHistory = capacity;
+        this.resident = new HashMap<>();
+        this.retained = new LinkedHashMap<>();
+        this.order = new TreeSet<>(PRIORITY);
+    }
+
+    @Override
+    public EvictionPolicy newInstance() {
+        return new LRUKEvictionPolicy(this.k, this.retainedHistory);
+    }
+
+    @Override
+    public void recordAccess(PageId pageId) {
+        this.accesses.record(pageId);
+    }
+
+    private void applyAccess(PageId pageId) {
+        History history = this.resident.get(pageId);
+        if (history == null) {
+            return;
+        }
+        this.order.remove(history);
+        history.access(++this.now);
+        this.order.add(history);
+    }
+
+    @Override
+    public void recordInsert(PageId pageId) {
+        this.accesses.lock();
+        try {
+            if (this.resident.containsKey(pageId)) {
+                applyAccess(pageId);
+                return;
+            }
+            History history = this.retained.remove(pageId);
+            if (history == null) {
+                history = new History(pageId, this.k);
+            }
+            history.access(++this.now);
+            this.resident.put(pageId, history);
+            this.order.add(history);
+        } finally {
+            this.accesses.unlock();
+        }
+    }
+
+    @Override
+    public void recordRemove(PageId pageId) {
+        this.accesses.lock();
+        try {
+            History history = this.resident.remove(pageId);
+            if (history != null) {
+                this.order.remove(history);
+            }
+        } finally {
+            this.accesses.unlock();
+        }
+    }
+
+    @Override
+    public void restore(PageId pageId) {
+        this.accesses.lock();
+        try {
+            History history = this.retained.remove(pageId);
+            if (this.resident.containsKey(pageId) || history == null) {
+                return;
+            }
+            // same history, same priority: it is the first victim again
+            this.resident.put(pageId, history);
+            this.order.add(history);
+        } finally {
+            this.accesses.unlock();
+        }
+    }
+
+    @Override
+    public PageId evict() {
+        this.accesses.lock();
+        try {
+            History victim = this.order.pollFirst();
+            if (victim == null) {
+                return null;
+            }
+            this.resident.remove(victim.pageId);
+            this.retained.put(victim.pageId, victim);
+            if (this.retained.size() > this.retainedHistory) {
+                Iterator<PageId> oldest = this.retained.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+            }
+            return victim.pageId;
+        } finally {
+            this.accesses.unlock();
+        }
+    }
+
+    @Override
+    public List<PageId> evictionOrder() {
+        this.accesses.lock();
+        try {
+            List<PageId> pageIds = new ArrayList<>(this.order.size());
+            for (History history : this.order) {
+                pageIds.add(history.pageId);
+            }
+            return pageIds;
+        } finally {
+            this.accesses.unlock();
+        }
+    }
+}
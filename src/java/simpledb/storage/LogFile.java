@@ -6,6 +6,8 @@ import simpledb.transaction.TransactionId;
 import simpledb.common.Debug;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.lang.reflect.*;
 
@@ -242,9 +244,14 @@ public class LogFile {
         for (int j : pageInfo) {
             raf.writeInt(j);
         }
-        byte[] pageData = p.getPageData();
-        raf.writeInt(pageData.length);
-        raf.write(pageData);
+        // the page's own bytes where it keeps them, written through the channel at the
+        // position of raf
+        ByteBuffer pageData = p.getPageBuffer();
+        raf.writeInt(pageData.remaining());
+        FileChannel channel = raf.getChannel();
+        while (pageData.hasRemaining()) {
+            channel.write(pageData);
+        }
         //        Debug.log ("WROTE PAGE DATA, CLASS = " + pageClassName + ", table = " +  pid.getTableId() + ", page = " + pid.pageno());
     }
 
@@ -344,12 +351,27 @@ public class LogFile {
                 raf.writeLong(currentOffset);
                 currentOffset = raf.getFilePointer();
                 //Debug.log("CP OFFSET = " + currentOffset);
+
+                // remember the resident pages, to warm up the buffer pool of the next run
+                try {
+                    Database.getBufferPool().writeManifest(getManifestFile());
+                } catch (IOException e) {
+                    System.out.println("ERROR WRITING PAGE MANIFEST -- IGNORING.");
+                    e.printStackTrace();
+                }
             }
         }
 
         logTruncate();
     }
 
+    /** The page manifest written at every checkpoint, next to the log file.
+        @see BufferPool#preload
+    */
+    public File getManifestFile() {
+        return new File(logFile.getPath() + ".pages");
+    }
+
     /** Truncate any unneeded portion of the log to reduce its space
         consumption */
     public synchronized void logTruncate() throws IOException {
@@ -472,6 +494,7 @@ public class LogFile {
         try {
             logCheckpoint();  //simple way to shutdown is to write a checkpoint record
             raf.close();
+            Database.getCatalog().closeFiles();
         } catch (IOException e) {
             System.out.println("ERROR SHUTTING DOWN -- IGNORING.");
             e.printStackTrace();
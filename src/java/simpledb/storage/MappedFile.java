@@ -0,0 +1,108 @@
+package simpledb.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 19:40
+ * @description Read-only memory mapping of the file of a DbFile.
+ * <p>
+ * The file is mapped in segments of a fixed size, since a mapping can't be larger than
+ * 2 GB. A segment is mapped on the first read of one of its pages, and the last segment
+ * of the file is mapped again once the file grew past its end. Pages are handed out as
+ * slices of their segment, so reading a page neither makes a system call nor copies it.
+ * <p>
+ * Writes don't go through the mapping, they are written to the file, and the mapping
+ * shares the page cache of the operating system with the file, so it sees them.
+ */
+
+public class MappedFile {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+    private final FileHandle handle;
+
+    private final long segmentSize;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    public MappedFile(FileHandle handle) {
+        this(handle, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedFile(FileHandle handle, long segmentSize) {
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid segment size " + segmentSize);
+        }
+        this.handle = handle;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Get a read-only view over length bytes of the file, starting at offset.
+     *
+     * @return the view, or null if the range is past the end of the file or crosses a
+     * segment boundary, the caller has to read it from the file then
+     */
+    public ByteBuffer slice(long offset, int length) throws IOException {
+        int segmentNo = (int) (offset / this.segmentSize);
+        int start = (int) (offset % this.segmentSize);
+        if (start + length > this.segmentSize) {
+            return null;
+        }
+        MappedByteBuffer segment = segment(segmentNo, start + length);
+        if (segment == null) {
+            return null;
+        }
+        ByteBuffer view = segment.duplicate();
+        view.limit(start + length);
+        view.position(start);
+        return view.slice();
+    }
+
+    /**
+     * Get the segment, mapping it again if it does not reach the given position yet.
+     */
+    private synchronized MappedByteBuffer segment(int segmentNo, int end) throws IOException {
+        MappedByteBuffer segment = segmentNo < this.segments.size() ? this.segments.get(segmentNo) : null;
+        if (segment != null && segment.capacity() >= end) {
+            return segment;
+        }
+        long segmentStart = segmentNo * this.segmentSize;
+        long fileSize = this.handle.size();
+        if (segmentStart + end > fileSize) {
+            return null;
+        }
+        // the file grew since the segment was mapped, or it was never mapped
+        segment = this.handle.map(segmentStart, Math.min(this.segmentSize, fileSize - segmentStart));
+        while (this.segments.size() <= segmentNo) {
+            this.segments.add(null);
+        }
+        this.segments.set(segmentNo, segment);
+        return segment;
+    }
+
+    /**
+     * @return the number of bytes mapped
+     */
+    public synchronized long getMappedSize() {
+        long size = 0;
+        for (MappedByteBuffer segment : this.segments) {
+            if (segment != null) {
+                size += segment.capacity();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Drop the segments, they are unmapped once the pages over them are garbage collected.
+     */
+    public synchronized void close() {
+        this.segments.clear();
+    }
+}
@@ -2,6 +2,8 @@ package simpledb.storage;
 
 import simpledb.transaction.TransactionId;
 
+import java.nio.ByteBuffer;
+
 /**
  * Page is the interface used to represent pages that are resident in the
  * BufferPool.  Typically, DbFiles will read and write pages from disk.
@@ -48,6 +50,15 @@ public interface Page {
 
   byte[] getPageData();
 
+    /**
+     * A read-only view of the bytes {@link #getPageData} returns, positioned at the start
+     * of the page. Pages that keep their byte image return a view over it without copying,
+     * which is only valid until the page is next modified.
+     */
+    default ByteBuffer getPageBuffer() {
+        return ByteBuffer.wrap(getPageData());
+    }
+
     /** Provide a representation of this page before any modifications were made
         to it.  Used by recovery.
     */
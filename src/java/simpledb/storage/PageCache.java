@@ -0,0 +1,361 @@
+package simpledb.storage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * @author TheR1sing3un
+ * @date 2022/5/27 21:32
+ * @description Page table of the BufferPool.
+ * <p>
+ * Pages are looked up through a ConcurrentHashMap, so a hit never takes a lock of the
+ * cache itself, it only tells the {@link EvictionPolicy} about the access. Inserts,
+ * removes and evictions are serialized, and the policy decides which page leaves the
+ * cache when it is full.
+ * <p>
+ * Pages read through a {@link BufferRing} are cached too, but they are owned by their
+ * ring instead of being tracked by the policy, until someone else accesses them or the
+ * ring is released.
+ * <p>
+ * A page can be pinned by a reader that keeps using it, e.g. a scan that is iterating
+ * over its tuples. Pinned pages are never evicted, the victim is the first unpinned page
+ * the policy offers.
+ */
+
+public class PageCache {
+
+    private static final int LOAD_LOCKS = 16;
+
+    private final ConcurrentHashMap<PageId, Page> map;
+
+    // pages owned by a ring, they are not tracked by the policy
+    private final ConcurrentHashMap<PageId, BufferRing> ringPages;
+
+    // pageId -> pin count, only pinned pages have an entry
+    private final ConcurrentHashMap<PageId, Integer> pins;
+
+    private final EvictionPolicy policy;
+
+    // serializes inserts, removes and evictions, hits never take it
+    private final Object evictLock = new Object();
+
+    // serialize loads of missing pages, striped by PageId
+    private final Object[] loadLocks;
+
+    private final EvictCaller evictCaller;
+
+    private final int capacity;
+
+    public PageCache(int capacity, EvictionPolicy policy, EvictCaller evictCaller) {
+        this.capacity = capacity;
+        this.map = new ConcurrentHashMap<>();
+        this.ringPages = new ConcurrentHashMap<>();
+        this.pins = new ConcurrentHashMap<>();
+        this.policy = policy;
+        this.evictCaller = evictCaller;
+        this.loadLocks = new Object[LOAD_LOCKS];
+        for (int i = 0; i < LOAD_LOCKS; i++) {
+            this.loadLocks[i] = new Object();
+        }
+    }
+
+    private Object loadLockOf(PageId pageId) {
+        int h = pageId.hashCode();
+        h ^= (h >>> 16);
+        return this.loadLocks[h & (LOAD_LOCKS - 1)];
+    }
+
+    public Page get(PageId pageId) {
+        return lookup(pageId, null);
+    }
+
+    /**
+     * Get the page from the cache, or load it with the loader and cache it if it is absent.
+     * Concurrent misses on the same page only load it once.
+     */
+    public Page get(PageId pageId, Function<PageId, Page> loader) {
+        return get(pageId, loader, null);
+    }
+
+    /**
+     * Same as {@link #get(PageId, Function)}, but a missing page is loaded into the
+     * given ring instead of the shared frames, if the ring is not null.
+     */
+    public Page get(PageId pageId, Function<PageId, Page> loader, BufferRing ring) {
+        Page page = lookup(pageId, ring);
+        if (page != null) {
+            return page;
+        }
+        synchronized (loadLockOf(pageId)) {
+            // another thread may have loaded it while we were waiting
+            page = lookup(pageId, ring);
+            if (page == null) {
+                page = loader.apply(pageId);
+                if (ring == null) {
+                    put(pageId, page);
+                } else {
+                    putInRing(pageId, page, ring);
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Same as {@link #get(PageId, Function, BufferRing)}, but the page is pinned as well,
+     * it stays in the cache until it is unpinned as many times as it was pinned.
+     */
+    public Page pin(PageId pageId, Function<PageId, Page> loader, BufferRing ring) {
+        // pin the id first: an eviction either removed the page before, then we load it
+        // again, or sees the pin and leaves the page alone
+        this.pins.merge(pageId, 1, Integer::sum);
+        try {
+            return get(pageId, loader, ring);
+        } catch (RuntimeException e) {
+            unpin(pageId);
+            throw e;
+        }
+    }
+
+    /**
+     * Release a pin of the page, a page that is not pinned is left alone.
+     */
+    public void unpin(PageId pageId) {
+        this.pins.computeIfPresent(pageId, (id, count) -> count == 1 ? null : count - 1);
+    }
+
+    public int getPinCount(PageId pageId) {
+        Integer count = this.pins.get(pageId);
+        return count == null ? 0 : count;
+    }
+
+    public boolean isPinned(PageId pageId) {
+        return this.pins.containsKey(pageId);
+    }
+
+    /**
+     * Remove the page from the map unless it is pinned, atomically with respect to
+     * {@link #pin}.
+     *
+     * @return the removed page, or null if it is pinned or absent
+     */
+    private Page removeUnpinned(PageId pageId) {
+        Page[] removed = new Page[1];
+        this.pins.compute(pageId, (id, count) -> {
+            if (count == null) {
+                removed[0] = this.map.remove(id);
+            }
+            return count;
+        });
+        return removed[0];
+    }
+
+    private Page lookup(PageId pageId, BufferRing ring) {
+        Page page = this.map.get(pageId);
+        if (page == null) {
+            return null;
+        }
+        BufferRing owner = this.ringPages.isEmpty() ? null : this.ringPages.get(pageId);
+        if (owner == null) {
+            this.policy.recordAccess(pageId);
+        } else if (owner != ring) {
+            adopt(pageId, owner);
+        }
+        return page;
+    }
+
+    /**
+     * Hand over a page of a ring to the policy.
+     */
+    private void adopt(PageId pageId, BufferRing owner) {
+        synchronized (this.evictLock) {
+            if (this.ringPages.remove(pageId, owner) && this.map.containsKey(pageId)) {
+                this.policy.recordInsert(pageId);
+            }
+        }
+    }
+
+    private void putInRing(PageId pageId, Page page, BufferRing ring) {
+        synchronized (this.evictLock) {
+            if (this.map.containsKey(pageId)) {
+                this.map.put(pageId, page);
+                return;
+            }
+            // reuse the frame of the oldest page of the ring, unless it was handed over
+            PageId old = ring.advance(pageId);
+            if (old != null && this.ringPages.remove(old, ring)) {
+                Page oldPage = removeUnpinned(old);
+                if (oldPage != null) {
+                    this.evictCaller.evictCall(oldPage);
+                } else if (this.map.containsKey(old)) {
+                    // someone still uses it, it becomes an ordinary page of the pool
+                    this.policy.recordInsert(old);
+                }
+            }
+            // the ring is still growing, it takes a frame from the shared pool
+            while (this.map.size() >= this.capacity && evictOne()) {
+            }
+            this.map.put(pageId, page);
+            this.ringPages.put(pageId, ring);
+        }
+    }
+
+    /**
+     * Hand over all pages of the ring to the policy and empty the ring.
+     */
+    public void releaseRing(BufferRing ring) {
+        synchronized (this.evictLock) {
+            for (PageId pageId : ring.clear()) {
+                if (pageId != null && this.ringPages.remove(pageId, ring) && this.map.containsKey(pageId)) {
+                    this.policy.recordInsert(pageId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the page if it is resident, without counting it as an access.
+     */
+    public Page peek(PageId pageId) {
+        return this.map.get(pageId);
+    }
+
+    /**
+     * List the resident pages tracked by the policy, the most recently used one first.
+     * Pages owned by rings are left out, they were only read by a scan.
+     */
+    public List<PageId> residentByRecency() {
+        List<PageId> order = this.policy.evictionOrder();
+        List<PageId> pageIds = new ArrayList<>(order.size());
+        for (int i = order.size() - 1; i >= 0; i--) {
+            PageId pageId = order.get(i);
+            if (this.map.containsKey(pageId) && !this.ringPages.containsKey(pageId)) {
+                pageIds.add(pageId);
+            }
+        }
+        return pageIds;
+    }
+
+    public boolean containsKey(PageId pageId) {
+        return this.map.containsKey(pageId);
+    }
+
+    /**
+     * Put the page in the cache, evicting a page if the cache is full.
+     *
+     * @return the page that was cached under the same id and got replaced, or null
+     */
+    public Page put(PageId pageId, Page page) {
+        synchronized (this.evictLock) {
+            // if contain, just replace it
+            Page replaced = this.map.get(pageId);
+            if (replaced != null) {
+                this.map.put(pageId, page);
+                if (this.ringPages.remove(pageId) != null) {
+                    this.policy.recordInsert(pageId);
+                } else {
+                    this.policy.recordAccess(pageId);
+                }
+                return replaced;
+            }
+            while (this.map.size() >= this.capacity && evictOne()) {
+            }
+            this.map.put(pageId, page);
+            this.policy.recordInsert(pageId);
+            return null;
+        }
+    }
+
+    /**
+     * Evict a page if the cache is full, so that the page about to be loaded has a
+     * free frame.
+     */
+    public void evictIfFull() {
+        synchronized (this.evictLock) {
+            while (this.map.size() >= this.capacity && evictOne()) {
+            }
+        }
+    }
+
+    /**
+     * Evict the first unpinned page chosen by the policy.
+     *
+     * @return false if there is nothing to evict, i.e. every page is pinned
+     */
+    private boolean evictOne() {
+        List<PageId> skipped = null;
+        try {
+            PageId victim;
+            while ((victim = this.policy.evict()) != null) {
+                if (this.pins.containsKey(victim)) {
+                    if (skipped == null) {
+                        skipped = new ArrayList<>();
+                    }
+                    skipped.add(victim);
+                    continue;
+                }
+                Page page = removeUnpinned(victim);
+                if (page != null) {
+                    this.evictCaller.evictCall(page);
+                    return true;
+                }
+                if (this.map.containsKey(victim)) {
+                    // pinned right after we checked
+                    if (skipped == null) {
+                        skipped = new ArrayList<>();
+                    }
+                    skipped.add(victim);
+                }
+            }
+            // only pages of rings are left, e.g. of a reader that never released its ring
+            for (Iterator<Map.Entry<PageId, BufferRing>> it = this.ringPages.entrySet().iterator(); it.hasNext(); ) {
+                PageId ringPage = it.next().getKey();
+                Page page = removeUnpinned(ringPage);
+                if (page != null) {
+                    it.remove();
+                    this.evictCaller.evictCall(page);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            // pinned pages stay in the cache, the policy keeps tracking them where they were,
+            // they were not accessed
+            if (skipped != null) {
+                for (int i = skipped.size() - 1; i >= 0; i--) {
+                    this.policy.restore(skipped.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the removed page, or null if it was not cached
+     */
+    public Page remove(PageId pageId) {
+        synchronized (this.evictLock) {
+            Page page = this.map.remove(pageId);
+            if (page != null && this.ringPages.remove(pageId) == null) {
+                this.policy.recordRemove(pageId);
+            }
+            return page;
+        }
+    }
+
+    public int size() {
+        return this.map.size();
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public EvictionPolicy getPolicy() {
+        return this.policy;
+    }
+
+    public List<Page> values() {
+        return new ArrayList<>(this.map.values());
+    }
+}
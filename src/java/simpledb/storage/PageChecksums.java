@@ -0,0 +1,334 @@
+package simpledb.storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 21:05
+ * @description Checksums of the pages of a DbFile.
+ * <p>
+ * The checksum of a page is computed when the page is written and verified when it is
+ * read, so a torn or otherwise damaged page is noticed as soon as it is read instead of
+ * when a query returns garbage. The checksums are kept in a side file next to the table,
+ * the format of the pages themselves does not change:
+ * <pre>
+ * magic, format version, padding to 16 bytes, one slot of 16 bytes per page
+ * </pre>
+ * A slot holds two checksums of the page, the one it was written with before and the
+ * last one, each the CRC32 of the page with {@link #PRESENT} set, or 0 if no checksum was
+ * recorded, e.g. for pages written before checksums were turned on for the file, which
+ * are not verified until they are written again. A page verifies if it matches either.
+ * <p>
+ * The page and its checksum are two writes to two files, so they are ordered to survive
+ * a crash between them:
+ * <ol>
+ * <li>{@link #record} shifts the last checksum of the page to the first half of its slot,
+ * puts the checksum of the new bytes in the second half, writes the slot and forces the
+ * side file to disk;</li>
+ * <li>then the file writes the page.</li>
+ * </ol>
+ * Whenever the crash happens, the page on disk is the old one, which matches the first
+ * checksum, or the new one, which matches the second, or a torn mix of both, which
+ * matches neither and is reported as it should be. A slot is 16 bytes at a multiple of
+ * 16, so it never spans two sectors and is itself written whole. A page read back with
+ * its first checksum, because the crash came before its write, keeps that checksum as
+ * the one it was written with for the next record. The price is a force of the side
+ * file per page write, or per run of pages written together.
+ * <p>
+ * A side file of format version 1, with one checksum of 8 bytes per page, is rewritten
+ * in the current format when it is opened.
+ */
+
+public class PageChecksums {
+
+    /**
+     * System property that turns on checksums for every file that does not have them yet.
+     */
+    public static final String CHECKSUM_PROPERTY = "simpledb.checksums";
+
+    /**
+     * The version of the format of the side file, a file of a later version is not opened.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x50435243;
+
+    private static final int HEADER_BYTES = 16;
+
+    private static final int SLOT_BYTES = 16;
+
+    // the header and the slot of a page in format version 1
+    private static final int V1_HEADER_BYTES = 8;
+
+    private static final int V1_SLOT_BYTES = 8;
+
+    // set in a slot with a checksum
+    private static final long PRESENT = 1L << 32;
+
+    /**
+     * Reads the raw bytes of a page of the file, for {@link #scrub}.
+     */
+    public interface PageReader {
+        ByteBuffer read(int pageNo) throws IOException;
+    }
+
+    private final File dataFile;
+
+    private final FileHandle handle;
+
+    // the two checksums of each page, the one it was written with before and the last one,
+    // loaded at open and written through
+    private long[] slots;
+
+    // orders the writes of the side file, so that the slot of a page on disk is the last
+    // one recorded
+    private final Object writeLock = new Object();
+
+    private PageChecksums(File dataFile, FileHandle handle, long[] slots) {
+        this.dataFile = dataFile;
+        this.handle = handle;
+        this.slots = slots;
+    }
+
+    /**
+     * The side file of the table stored in the given file.
+     */
+    public static File sideFileOf(File tableFile) {
+        return new File(tableFile.getPath() + ".crc");
+    }
+
+    /**
+     * Open the checksums of the table stored in the given file. A file without checksums
+     * gets them if {@link #CHECKSUM_PROPERTY} is set.
+     *
+     * @return the checksums, or null if the file has none
+     * @throws IOException if the side file can't be read or is of a later format version
+     */
+    public static PageChecksums open(File tableFile) throws IOException {
+        if (!sideFileOf(tableFile).exists() && !Boolean.getBoolean(CHECKSUM_PROPERTY)) {
+            return null;
+        }
+        return create(tableFile);
+    }
+
+    /**
+     * Open the checksums of the table stored in the given file, creating them if the file
+     * has none yet.
+     */
+    public static PageChecksums create(File tableFile) throws IOException {
+        File sideFile = sideFileOf(tableFile);
+        FileHandle handle = new FileHandle(sideFile);
+        long size = handle.size();
+        if (size == 0) {
+            handle.write(header(), 0);
+            handle.force();
+            return new PageChecksums(tableFile, handle, new long[0]);
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) size);
+        handle.read(buf, 0);
+        buf.flip();
+        if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC) {
+            handle.close();
+            throw new IOException("not a checksum file: " + sideFileOf(tableFile));
+        }
+        int version = buf.getInt();
+        if (version > FORMAT_VERSION) {
+            handle.close();
+            throw new IOException("unsupported checksum format version " + version + ": " + sideFileOf(tableFile));
+        }
+        if (version < FORMAT_VERSION) {
+            // the checksum of version 1 is the last one of the page
+            buf.position(V1_HEADER_BYTES);
+            long[] slots = new long[buf.remaining() / V1_SLOT_BYTES * 2];
+            for (int i = 1; i < slots.length; i += 2) {
+                slots[i] = buf.getLong();
+            }
+            handle.close();
+            rewrite(sideFile, slots);
+            return new PageChecksums(tableFile, new FileHandle(sideFile), slots);
+        }
+        buf.position(HEADER_BYTES);
+        long[] slots = new long[buf.remaining() / SLOT_BYTES * 2];
+        buf.asLongBuffer().get(slots);
+        return new PageChecksums(tableFile, handle, slots);
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).rewind();
+        return header;
+    }
+
+    /**
+     * Replace the side file atomically with one in the current format holding the given slots.
+     */
+    private static void rewrite(File sideFile, long[] slots) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + slots.length * 8);
+        buf.put(header());
+        buf.asLongBuffer().put(slots);
+        File tmp = new File(sideFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(buf.array());
+            out.getFD().sync();
+        }
+        Files.move(tmp.toPath(), sideFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The CRC32 of the remaining bytes of the buffer, the position of the buffer does not move.
+     */
+    public static int compute(ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Record the checksum of a page that is about to be written.
+     */
+    public void record(int pageNo, ByteBuffer data) throws IOException {
+        record(pageNo, Collections.singletonList(data));
+    }
+
+    /**
+     * Record the checksums of a run of pages that is about to be written, with a single
+     * write of the side file. The side file is on disk when this returns, so the pages
+     * can be written then, see the class comment.
+     */
+    public void record(int firstPageNo, List<ByteBuffer> pages) throws IOException {
+        long[] crcs = new long[pages.size()];
+        for (int i = 0; i < crcs.length; i++) {
+            crcs[i] = PRESENT | (compute(pages.get(i)) & 0xffffffffL);
+        }
+        synchronized (this.writeLock) {
+            ByteBuffer buf = ByteBuffer.allocate(crcs.length * SLOT_BYTES);
+            synchronized (this) {
+                int end = 2 * (firstPageNo + crcs.length);
+                if (end > this.slots.length) {
+                    this.slots = Arrays.copyOf(this.slots, Math.max(end, this.slots.length * 2));
+                }
+                for (int i = 0; i < crcs.length; i++) {
+                    int at = 2 * (firstPageNo + i);
+                    this.slots[at] = this.slots[at + 1];
+                    this.slots[at + 1] = crcs[i];
+                    buf.putLong(this.slots[at]).putLong(this.slots[at + 1]);
+                }
+            }
+            buf.flip();
+            this.handle.write(buf, HEADER_BYTES + (long) firstPageNo * SLOT_BYTES);
+            this.handle.force();
+        }
+    }
+
+    /**
+     * @return whether a checksum was recorded for the page
+     */
+    public synchronized boolean has(int pageNo) {
+        return 2 * pageNo < this.slots.length
+                && ((this.slots[2 * pageNo] | this.slots[2 * pageNo + 1]) & PRESENT) != 0;
+    }
+
+    /**
+     * Verify a page read from disk. Pages without a checksum pass.
+     *
+     * @throws CorruptPageException if the page matches neither of its checksums
+     */
+    public void verify(int pageNo, ByteBuffer data) {
+        long before;
+        long last;
+        synchronized (this) {
+            if (2 * pageNo >= this.slots.length) {
+                return;
+            }
+            before = this.slots[2 * pageNo];
+            last = this.slots[2 * pageNo + 1];
+        }
+        if (((before | last) & PRESENT) == 0) {
+            return;
+        }
+        int actual = compute(data);
+        if ((last & PRESENT) != 0 && actual == (int) last) {
+            return;
+        }
+        if ((before & PRESENT) != 0 && actual == (int) before) {
+            // the last write of the page did not make it to disk, the next one replaces it
+            synchronized (this) {
+                if (this.slots[2 * pageNo] == before && this.slots[2 * pageNo + 1] == last) {
+                    this.slots[2 * pageNo] = last;
+                    this.slots[2 * pageNo + 1] = before;
+                }
+            }
+            return;
+        }
+        int expected = (int) ((last & PRESENT) != 0 ? last : before);
+        throw new CorruptPageException(this.dataFile, pageNo, expected, actual);
+    }
+
+    /**
+     * Verify the pages of a range of the file, with the given number of threads. Only the
+     * raw bytes are read, nothing is parsed and the buffer pool is not involved.
+     *
+     * @param from    the first page
+     * @param to      the page after the last one
+     * @return the numbers of the pages that do not match their checksums, in order
+     */
+    public List<Integer> scrub(PageReader reader, int from, int to, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            // a few chunks per thread, so a slow chunk does not hold up the others
+            int chunks = Math.max(1, Math.min(to - from, threads * 4));
+            List<Future<List<Integer>>> futures = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                int start = from + (int) ((long) (to - from) * i / chunks);
+                int end = from + (int) ((long) (to - from) * (i + 1) / chunks);
+                futures.add(executor.submit(() -> {
+                    List<Integer> corrupt = new ArrayList<>();
+                    for (int pageNo = start; pageNo < end; pageNo++) {
+                        if (!has(pageNo)) {
+                            continue;
+                        }
+                        try {
+                            verify(pageNo, reader.read(pageNo));
+                        } catch (CorruptPageException e) {
+                            corrupt.add(pageNo);
+                        }
+                    }
+                    return corrupt;
+                }));
+            }
+            List<Integer> corrupt = new ArrayList<>();
+            for (Future<List<Integer>> future : futures) {
+                corrupt.addAll(future.get());
+            }
+            return corrupt;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void close() throws IOException {
+        this.handle.close();
+    }
+}
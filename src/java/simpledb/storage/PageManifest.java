@@ -0,0 +1,106 @@
+package simpledb.storage;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 18:30
+ * @description Manifest of the pages resident in a BufferPool, used to warm the pool up after a restart.
+ * <p>
+ * The manifest is a list of PageIds, the most recently used one first. A PageId is stored
+ * like in the log, as the name of its class and its serialized ints, except that the class
+ * names are written once in a table at the head of the file:
+ * <pre>
+ * magic, version, number of classes, class names, number of pages,
+ * per page: class index, number of ints, ints
+ * </pre>
+ */
+
+public class PageManifest {
+
+    private static final int MAGIC = 0x53444250;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Write the manifest. The file is replaced atomically, a crash while writing it leaves
+     * the previous manifest in place.
+     */
+    public static void write(File file, List<PageId> pageIds) throws IOException {
+        Map<String, Integer> classIndex = new HashMap<>();
+        List<String> classNames = new ArrayList<>();
+        for (PageId pid : pageIds) {
+            String name = pid.getClass().getName();
+            if (!classIndex.containsKey(name)) {
+                classIndex.put(name, classNames.size());
+                classNames.add(name);
+            }
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(classNames.size());
+            for (String name : classNames) {
+                out.writeUTF(name);
+            }
+            out.writeInt(pageIds.size());
+            for (PageId pid : pageIds) {
+                int[] data = pid.serialize();
+                out.writeByte(classIndex.get(pid.getClass().getName()));
+                out.writeByte(data.length);
+                for (int i : data) {
+                    out.writeInt(i);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the manifest.
+     *
+     * @return the PageIds, the most recently used one first
+     * @throws IOException if the file can't be read or is not a manifest
+     */
+    public static List<PageId> read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a page manifest");
+            }
+            int numClasses = in.readInt();
+            Constructor<?>[] constructors = new Constructor<?>[numClasses];
+            for (int i = 0; i < numClasses; i++) {
+                try {
+                    constructors[i] = Class.forName(in.readUTF()).getDeclaredConstructors()[0];
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            }
+            int numPages = in.readInt();
+            List<PageId> pageIds = new ArrayList<>(numPages);
+            for (int i = 0; i < numPages; i++) {
+                Constructor<?> constructor = constructors[in.readUnsignedByte()];
+                Object[] args = new Object[in.readUnsignedByte()];
+                for (int j = 0; j < args.length; j++) {
+                    args[j] = in.readInt();
+                }
+                try {
+                    pageIds.add((PageId) constructor.newInstance(args));
+                } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                    throw new IOException(e);
+                }
+            }
+            return pageIds;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package simpledb.storage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 18:45
+ * @description Background loader that warms a BufferPool up from a {@link PageManifest}.
+ * <p>
+ * The pages are read in (table, page number) order, so that the reads of every file are
+ * sequential, while the pool serves requests. A page that a request read in the meantime
+ * is skipped, and so is a page whose partition of the pool is full: the preloader never
+ * evicts a page.
+ *
+ * @see BufferPool#preload
+ */
+
+public class PagePreloader implements Runnable {
+
+    private final BufferPool pool;
+
+    private final List<PageId> pageIds;
+
+    private final Thread thread;
+
+    private volatile boolean running = false;
+
+    private final LongAdder pagesLoaded = new LongAdder();
+
+    private final LongAdder pagesSkipped = new LongAdder();
+
+    /**
+     * @param pageIds the pages to load, in the order to read them
+     */
+    PagePreloader(BufferPool pool, List<PageId> pageIds) {
+        this.pool = pool;
+        this.pageIds = pageIds;
+        this.thread = new Thread(this, "simpledb-page-preloader");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        this.running = true;
+        this.thread.start();
+    }
+
+    /**
+     * Stop loading, the pages loaded so far stay in the pool.
+     */
+    public void stop() {
+        this.running = false;
+        this.thread.interrupt();
+    }
+
+    /**
+     * Wait until all the pages are loaded.
+     *
+     * @return true if the loader is done
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        this.thread.join(unit.toMillis(timeout));
+        return !this.thread.isAlive();
+    }
+
+    @Override
+    public void run() {
+        for (PageId pid : this.pageIds) {
+            if (!this.running) {
+                break;
+            }
+            try {
+                if (this.pool.preloadPage(pid)) {
+                    this.pagesLoaded.increment();
+                } else {
+                    this.pagesSkipped.increment();
+                }
+            } catch (RuntimeException e) {
+                // e.g. the table was truncated since the manifest was written
+                this.pagesSkipped.increment();
+            }
+        }
+        this.running = false;
+    }
+
+    /**
+     * @return the number of pages to load
+     */
+    public int getNumPages() {
+        return this.pageIds.size();
+    }
+
+    public long getPagesLoaded() {
+        return this.pagesLoaded.sum();
+    }
+
+    public long getPagesSkipped() {
+        return this.pagesSkipped.sum();
+    }
+}
@@ -0,0 +1,45 @@
+package simpledb.storage;
+
+import simpledb.index.BTreePageId;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 17:05
+ * @description Kinds of the pages of the BufferPool, as reported by {@link BufferPoolStats}.
+ */
+
+public enum PageType {
+
+    HEAP,
+
+    BTREE_ROOT_PTR,
+
+    BTREE_INTERNAL,
+
+    BTREE_LEAF,
+
+    BTREE_HEADER,
+
+    OTHER;
+
+    public static PageType of(PageId pid) {
+        if (pid instanceof HeapPageId) {
+            return HEAP;
+        }
+        if (pid instanceof BTreePageId) {
+            switch (((BTreePageId) pid).pgcateg()) {
+                case BTreePageId.ROOT_PTR:
+                    return BTREE_ROOT_PTR;
+                case BTreePageId.INTERNAL:
+                    return BTREE_INTERNAL;
+                case BTreePageId.LEAF:
+                    return BTREE_LEAF;
+                case BTreePageId.HEADER:
+                    return BTREE_HEADER;
+                default:
+                    return OTHER;
+            }
+        }
+        return OTHER;
+    }
+}
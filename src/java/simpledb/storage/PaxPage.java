@@ -0,0 +1,315 @@
+package simpledb.storage;
+
+import simpledb.common.Database;
+import simpledb.common.DbException;
+import simpledb.common.Type;
+import simpledb.execution.Predicate;
+import simpledb.transaction.TransactionId;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 23:40
+ * @description A page of a HeapFile of the {@link HeapFile.Format#PAX PAX} format.
+ * <p>
+ * The page has the slots and the header of a {@link HeapPage}, but the fields are stored
+ * column by column: after the header comes one minipage per field of the table, which
+ * holds the values of that field for every slot, in slot order and in the format of
+ * Field.serialize:
+ * <pre>
+ * header, field 0 of slots 0..n-1, field 1 of slots 0..n-1, ..., padding
+ * </pre>
+ * A scan that needs a few fields only reads their minipages, see
+ * {@link #iterator(int[], TupleDesc, Predicate)}, and a predicate on an int field is evaluated over
+ * its minipage without decoding the tuples it rejects.
+ * <p>
+ * A page of zeros is an empty page, as it is for a HeapPage.
+ */
+public class PaxPage implements TuplePage {
+
+    final HeapPageId pid;
+    final TupleDesc td;
+    final SlotBitmap header;
+    final int numSlots;
+    final byte[] data;
+    // a view over data, to read and write the ints of the minipages
+    private final ByteBuffer buf;
+    // the offset of the minipage of each field
+    private final int[] columnStart;
+    byte[] oldData;
+    private final Object oldDataLock = new Object();
+
+    private boolean dirty = false;
+
+    private TransactionId dirtyMakerTid = null;
+
+    /**
+     * Create a PaxPage from a set of bytes of data read from disk, in the format
+     * described above. The page has as many slots as a HeapPage of the table.
+     */
+    public PaxPage(HeapPageId id, byte[] data) {
+        this(id, data, true);
+    }
+
+    /**
+     * @param copy whether to copy the bytes, or to take ownership of the array
+     */
+    PaxPage(HeapPageId id, byte[] data, boolean copy) {
+        this.pid = id;
+        this.td = Database.getCatalog().getTupleDesc(id.getTableId());
+        this.numSlots = BufferPool.getPageSize() * 8 / (this.td.getSize() * 8 + 1);
+        this.data = copy ? data.clone() : data;
+        this.buf = ByteBuffer.wrap(this.data);
+        int headerSize = (this.numSlots + 7) / 8;
+        this.header = new SlotBitmap(this.numSlots, Arrays.copyOf(data, headerSize));
+        this.columnStart = new int[this.td.numFields()];
+        for (int j = 0; j < this.columnStart.length; j++) {
+            this.columnStart[j] = headerSize + this.numSlots * this.td.getFieldOffset(j);
+        }
+    }
+
+    private int[] allColumns() {
+        int[] columns = new int[this.td.numFields()];
+        for (int j = 0; j < columns.length; j++) {
+            columns[j] = j;
+        }
+        return columns;
+    }
+
+    private int valueOffset(int field, int slotId) {
+        return this.columnStart[field] + slotId * this.td.getFieldType(field).getLen();
+    }
+
+    /**
+     * @return the PageId associated with this page.
+     */
+    public HeapPageId getId() {
+        return this.pid;
+    }
+
+    /**
+     * Return a view of this page before it was modified
+     * -- used by recovery
+     */
+    public PaxPage getBeforeImage() {
+        byte[] oldDataRef;
+        synchronized (oldDataLock) {
+            oldDataRef = oldData;
+        }
+        // not modified since it was read if there is no before image
+        return new PaxPage(pid, oldDataRef == null ? data : oldDataRef);
+    }
+
+    public void setBeforeImage() {
+        synchronized (oldDataLock) {
+            // the page is its own before image until it is modified
+            oldData = null;
+        }
+    }
+
+    private void captureBeforeImage() {
+        synchronized (oldDataLock) {
+            if (oldData == null) {
+                oldData = getPageData();
+            }
+        }
+    }
+
+    public byte[] getPageData() {
+        return data.clone();
+    }
+
+    public ByteBuffer getPageBuffer() {
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the number of empty slots on this page.
+     */
+    public int getNumEmptySlots() {
+        return this.header.getNumEmpty();
+    }
+
+    /**
+     * Returns true if associated slot on this page is filled.
+     */
+    public boolean isSlotUsed(int i) {
+        return this.header.isUsed(i);
+    }
+
+    public boolean hasRoomFor(Tuple t) {
+        return getNumEmptySlots() > 0;
+    }
+
+    public boolean hasFreeSpace() {
+        return getNumEmptySlots() > 0;
+    }
+
+    private void markSlotUsed(int i, boolean value) {
+        header.set(i, value);
+        // write the header byte of the slot through to the page
+        data[i / 8] = header.getByte(i / 8);
+    }
+
+    /**
+     * Adds the specified tuple to the page, in the first empty slot.
+     *
+     * @throws DbException if the page is full (no empty slots)
+     */
+    public void insertTuple(Tuple t) throws DbException {
+        int slotId = this.header.nextEmpty(0);
+        if (slotId < 0) {
+            throw new DbException("page is full");
+        }
+        captureBeforeImage();
+        for (int j = 0; j < td.numFields(); j++) {
+            int pos = valueOffset(j, slotId);
+            if (td.getFieldType(j) == Type.STRING_TYPE) {
+                // a length, one byte per character, and zeros up to STRING_LEN
+                String s = ((StringField) t.getField(j)).getValue();
+                int len = Math.min(s.length(), Type.STRING_LEN);
+                buf.putInt(pos, len);
+                for (int k = 0; k < Type.STRING_LEN; k++) {
+                    data[pos + 4 + k] = k < len ? (byte) s.charAt(k) : 0;
+                }
+            } else {
+                buf.putInt(pos, t.getInt(j));
+            }
+        }
+        markSlotUsed(slotId, true);
+        t.setRecordId(new RecordId(pid, slotId));
+    }
+
+    /**
+     * Delete the specified tuple from the page.
+     *
+     * @throws DbException if this tuple is not on this page, or tuple slot is
+     *                     already empty.
+     */
+    public void deleteTuple(Tuple t) throws DbException {
+        RecordId recordId = t.getRecordId();
+        int slotId = recordId == null ? -1 : recordId.getTupleNumber();
+        if (recordId == null || !this.pid.equals(recordId.getPageId()) || slotId < 0 || slotId >= numSlots
+                || !isSlotUsed(slotId)) {
+            throw new DbException("page doesn't contain this tuple");
+        }
+        captureBeforeImage();
+        for (int j = 0; j < td.numFields(); j++) {
+            int pos = valueOffset(j, slotId);
+            Arrays.fill(data, pos, pos + td.getFieldType(j).getLen(), (byte) 0);
+        }
+        markSlotUsed(slotId, false);
+    }
+
+    /**
+     * Marks this page as dirty/not dirty and record that transaction
+     * that did the dirtying
+     */
+    public void markDirty(boolean dirty, TransactionId tid) {
+        this.dirty = dirty;
+        this.dirtyMakerTid = tid;
+    }
+
+    /**
+     * Returns the tid of the transaction that last dirtied this page, or null if the page is not dirty
+     */
+    public TransactionId isDirty() {
+        return this.dirty ? this.dirtyMakerTid : null;
+    }
+
+    /**
+     * Clear the slots whose value of the field of the predicate does not satisfy it. The
+     * values of an int field are compared where they are, one after the other.
+     */
+    private void filter(SlotBitmap slots, Predicate predicate) {
+        int field = predicate.getField();
+        if (td.getFieldType(field) == Type.INT_TYPE) {
+            Predicate.Op op = predicate.getOp();
+            int operand = ((IntField) predicate.getOperand()).getValue();
+            int start = this.columnStart[field];
+            for (int i = slots.nextUsed(0); i >= 0; i = slots.nextUsed(i + 1)) {
+                if (!IntField.compare(op, buf.getInt(start + 4 * i), operand)) {
+                    slots.set(i, false);
+                }
+            }
+        } else {
+            for (int i = slots.nextUsed(0); i >= 0; i = slots.nextUsed(i + 1)) {
+                Field value = td.getFieldType(field).parse(buf, valueOffset(field, i));
+                if (!value.compare(predicate.getOp(), predicate.getOperand())) {
+                    slots.set(i, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the given fields of the tuple in a slot into a tuple of their TupleDesc.
+     */
+    private Tuple readTuple(int slotId, int[] columns, TupleDesc projected) {
+        Tuple t;
+        if (projected.isIntOnly()) {
+            t = new IntTuple(projected);
+            for (int k = 0; k < columns.length; k++) {
+                t.setInt(k, buf.getInt(this.columnStart[columns[k]] + 4 * slotId));
+            }
+        } else {
+            t = new Tuple(projected);
+            for (int k = 0; k < columns.length; k++) {
+                t.setField(k, td.getFieldType(columns[k]).parse(buf, valueOffset(columns[k], slotId)));
+            }
+        }
+        t.setRecordId(new RecordId(pid, slotId));
+        return t;
+    }
+
+    /**
+     * @return an iterator over all tuples on this page (calling remove on this iterator throws an UnsupportedOperationException)
+     */
+    public Iterator<Tuple> iterator() {
+        return iterator(null, null, null);
+    }
+
+    /**
+     * Iterate over the tuples of the page that satisfy a predicate, with some of their
+     * fields only. Only the minipages of those fields are read.
+     *
+     * @param columns   the fields to read, in order, null for every field
+     * @param projected the {@link TupleDesc#project projection} of the TupleDesc of the
+     *                  table on the columns, the TupleDesc of the tuples; null to compute it
+     * @param predicate the predicate the tuples satisfy, null for every tuple; its field
+     *                  need not be one of the columns read
+     * @return an iterator over the tuples in the slots used, and satisfying the predicate,
+     * when it is created (calling remove on this iterator throws an UnsupportedOperationException)
+     */
+    public Iterator<Tuple> iterator(int[] columns, TupleDesc projected, Predicate predicate) {
+        int[] fields = columns != null ? columns : this.allColumns();
+        TupleDesc tupleDesc = columns == null ? this.td : projected != null ? projected : this.td.project(columns);
+        SlotBitmap slots = this.header.copy();
+        if (predicate != null) {
+            filter(slots, predicate);
+        }
+        return new Iterator<Tuple>() {
+
+            private int next = slots.nextUsed(0);
+
+            @Override
+            public boolean hasNext() {
+                return this.next >= 0;
+            }
+
+            @Override
+            public Tuple next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int slotId = this.next;
+                this.next = slots.nextUsed(slotId + 1);
+                return readTuple(slotId, fields, tupleDesc);
+            }
+        };
+    }
+}
@@ -0,0 +1,227 @@
+package simpledb.storage;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 16:20
+ * @description Asynchronous read-ahead of a BufferPool.
+ * <p>
+ * Every scan gets a {@link Window}. Before the scan reads a page, it tells its window,
+ * and asks it to read ahead the pages it is going to need next: the following pages of a
+ * heap file, or the right siblings of a B+ tree leaf. Those pages are read into the pool
+ * by a small set of I/O threads, so the scan finds them resident when it gets there.
+ * <p>
+ * The window adapts to the scan: it doubles, up to the maximum, every time the scan
+ * reaches a page that was read ahead and is still resident, and halves every time such a
+ * page was evicted before the scan got to it.
+ *
+ * @see BufferPool#startReadAhead
+ */
+
+public class ReadAhead {
+
+    public static final int MIN_WINDOW = 1;
+
+    private final BufferPool pool;
+
+    private final int maxWindow;
+
+    private final ExecutorService executor;
+
+    private final LongAdder issued = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder wasted = new LongAdder();
+
+    ReadAhead(BufferPool pool, int maxWindow, int threads) {
+        if (maxWindow < 1 || threads < 1) {
+            throw new IllegalArgumentException("read-ahead settings must be positive");
+        }
+        this.pool = pool;
+        this.maxWindow = maxWindow;
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "simpledb-read-ahead-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void stop() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Create the window of a new scan.
+     *
+     * @param ring the ring the scan reads into, pages read ahead go to the same ring; may be null
+     */
+    public Window newWindow(BufferRing ring) {
+        int max = this.maxWindow;
+        if (ring != null) {
+            // the page being read stays in the ring, the rest of the ring is for read-ahead
+            max = Math.min(max, ring.size() - 1);
+        }
+        return new Window(ring, max);
+    }
+
+    public int getMaxWindow() {
+        return this.maxWindow;
+    }
+
+    /**
+     * @return the number of pages read ahead
+     */
+    public long getPrefetchesIssued() {
+        return this.issued.sum();
+    }
+
+    /**
+     * @return the number of pages read ahead that were still resident when the scan read them
+     */
+    public long getPrefetchHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of pages read ahead that were evicted before the scan read them,
+     * or that the scan never read
+     */
+    public long getWastedPrefetches() {
+        return this.wasted.sum();
+    }
+
+    /**
+     * The read-ahead state of one scan. A window is used by the thread of its scan only.
+     */
+    public class Window {
+
+        private final BufferRing ring;
+
+        private final int max;
+
+        private int size;
+
+        // pages read ahead for this scan that it has not read yet -> whether they are loaded
+        private final ConcurrentHashMap<PageId, Boolean> pending = new ConcurrentHashMap<>();
+
+        private volatile boolean closed = false;
+
+        Window(BufferRing ring, int max) {
+            this.ring = ring;
+            this.max = max;
+            this.size = Math.min(MIN_WINDOW, max);
+        }
+
+        /**
+         * @return the number of pages to keep read ahead of the scan
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * The scan is about to read the page, adapt the window to whether reading it ahead
+         * paid off.
+         */
+        public void read(PageId pid) {
+            Boolean loaded = this.pending.remove(pid);
+            if (loaded == null || !loaded) {
+                // not read ahead, or the scan caught up with the I/O thread
+                return;
+            }
+            if (pool.containsPage(pid)) {
+                hits.increment();
+                this.size = Math.min(this.max, this.size * 2);
+            } else {
+                wasted.increment();
+                this.size = Math.max(Math.min(MIN_WINDOW, this.max), this.size / 2);
+            }
+        }
+
+        /**
+         * Read the page ahead, unless it is resident or was read ahead already.
+         */
+        public void prefetch(PageId pid) {
+            if (this.closed || pool.containsPage(pid) || this.pending.putIfAbsent(pid, false) != null) {
+                return;
+            }
+            submit(() -> load(pid));
+        }
+
+        /**
+         * Read ahead a chain of count pages, starting with first, where every page gives
+         * the id of the next one, e.g. the right siblings of a B+ tree leaf.
+         *
+         * @param next returns the id of the page after the given one, or null at the end of the chain
+         */
+        public void prefetchChain(PageId first, int count, Function<Page, PageId> next) {
+            if (this.closed || first == null || count < 1) {
+                return;
+            }
+            submit(() -> {
+                PageId pid = first;
+                for (int i = 0; i < count && pid != null && !this.closed; i++) {
+                    Page page = pool.peekPage(pid);
+                    if (page == null) {
+                        if (this.pending.putIfAbsent(pid, false) != null) {
+                            return;
+                        }
+                        page = load(pid);
+                        if (page == null) {
+                            return;
+                        }
+                    }
+                    pid = next.apply(page);
+                }
+            });
+        }
+
+        private void submit(Runnable task) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // read-ahead was stopped
+            }
+        }
+
+        private Page load(PageId pid) {
+            if (this.closed) {
+                this.pending.remove(pid);
+                return null;
+            }
+            Page resident = pool.peekPage(pid);
+            if (resident != null) {
+                // the scan or someone else read it in the meantime
+                return resident;
+            }
+            try {
+                Page page = pool.prefetchPage(pid, this.ring);
+                this.pending.replace(pid, false, true);
+                issued.increment();
+                return page;
+            } catch (RuntimeException e) {
+                // e.g. the page is past the end of the file, the scan will find out itself
+                this.pending.remove(pid);
+                return null;
+            }
+        }
+
+        /**
+         * The scan is done, pages read ahead that it did not read are wasted.
+         */
+        public void close() {
+            this.closed = true;
+            wasted.add(this.pending.size());
+            this.pending.clear();
+        }
+    }
+}
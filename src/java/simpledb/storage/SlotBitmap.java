@@ -0,0 +1,177 @@
+package simpledb.storage;
+
+import java.util.Arrays;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 23:05
+ * @description The header of a page with fixed slots, one bit per slot.
+ * <p>
+ * On disk slot i is bit i % 8 of byte i / 8 of the header. In memory the bits are packed
+ * into longs, byte 8k being the low byte of word k, so that counting the used slots and
+ * finding the next used or empty one look at 64 slots at a time. The number of used
+ * slots is kept up to date as slots are marked.
+ * <p>
+ * The header may have more bits than the page has slots, the bits past the last slot
+ * are kept as they were read but are not counted nor returned by the searches.
+ */
+public class SlotBitmap {
+
+    private final long[] words;
+
+    private final int numSlots;
+
+    private final int numBytes;
+
+    // the number of used slots
+    private int used;
+
+    /**
+     * Create a header of the given number of bytes, with every slot empty.
+     */
+    public SlotBitmap(int numSlots, int numBytes) {
+        this.numSlots = numSlots;
+        this.numBytes = numBytes;
+        this.words = new long[(numBytes + 7) / 8];
+    }
+
+    /**
+     * Create a header from its bytes as read from disk.
+     */
+    public SlotBitmap(int numSlots, byte[] bytes) {
+        this(numSlots, bytes.length);
+        for (int b = 0; b < bytes.length; b++) {
+            this.words[b >>> 3] |= (bytes[b] & 0xffL) << ((b & 7) << 3);
+        }
+        countUsed();
+    }
+
+    private SlotBitmap(SlotBitmap other) {
+        this.numSlots = other.numSlots;
+        this.numBytes = other.numBytes;
+        this.words = other.words.clone();
+        this.used = other.used;
+    }
+
+    private void countUsed() {
+        int count = 0;
+        int full = this.numSlots >>> 6;
+        for (int w = 0; w < full; w++) {
+            count += Long.bitCount(this.words[w]);
+        }
+        if ((this.numSlots & 63) != 0) {
+            count += Long.bitCount(this.words[full] & ((1L << this.numSlots) - 1));
+        }
+        this.used = count;
+    }
+
+    /**
+     * @return a copy of this header, which does not change with it
+     */
+    public SlotBitmap copy() {
+        return new SlotBitmap(this);
+    }
+
+    public int getNumSlots() {
+        return this.numSlots;
+    }
+
+    /**
+     * @return the number of bytes of the header on disk
+     */
+    public int getNumBytes() {
+        return this.numBytes;
+    }
+
+    /**
+     * @return the number of used slots
+     */
+    public int getNumUsed() {
+        return this.used;
+    }
+
+    /**
+     * @return the number of empty slots
+     */
+    public int getNumEmpty() {
+        return this.numSlots - this.used;
+    }
+
+    public boolean isUsed(int i) {
+        return (this.words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Mark the given slot used or empty.
+     */
+    public void set(int i, boolean value) {
+        long bit = 1L << i;
+        long word = this.words[i >>> 6];
+        if (((word & bit) != 0) == value) {
+            return;
+        }
+        this.words[i >>> 6] = word ^ bit;
+        if (i < this.numSlots) {
+            this.used += value ? 1 : -1;
+        }
+    }
+
+    /**
+     * Mark every bit of the header used or empty, the bits past the last slot as well.
+     */
+    public void fill(boolean value) {
+        Arrays.fill(this.words, value ? -1L : 0L);
+        if (value && (this.numBytes & 7) != 0) {
+            this.words[this.words.length - 1] = (1L << ((this.numBytes & 7) << 3)) - 1;
+        }
+        this.used = value ? this.numSlots : 0;
+    }
+
+    /**
+     * @return the first used slot from the given one on, or -1 if there is none
+     */
+    public int nextUsed(int from) {
+        return next(from, 0L);
+    }
+
+    /**
+     * @return the first empty slot from the given one on, or -1 if there is none
+     */
+    public int nextEmpty(int from) {
+        return next(from, -1L);
+    }
+
+    private int next(int from, long flip) {
+        if (from >= this.numSlots) {
+            return -1;
+        }
+        int w = from >>> 6;
+        long word = (this.words[w] ^ flip) & (-1L << from);
+        while (word == 0) {
+            if (++w == this.words.length) {
+                return -1;
+            }
+            word = this.words[w] ^ flip;
+        }
+        int i = (w << 6) + Long.numberOfTrailingZeros(word);
+        return i < this.numSlots ? i : -1;
+    }
+
+    /**
+     * @return byte b of the header as it is on disk
+     */
+    public byte getByte(int b) {
+        return (byte) (this.words[b >>> 3] >>> ((b & 7) << 3));
+    }
+
+    /**
+     * @return the header as it is on disk
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[this.numBytes];
+        for (int b = 0; b < bytes.length; b++) {
+            bytes[b] = getByte(b);
+        }
+        return bytes;
+    }
+}
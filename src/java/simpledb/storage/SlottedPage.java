@@ -0,0 +1,377 @@
+package simpledb.storage;
+
+import simpledb.common.Database;
+import simpledb.common.DbException;
+import simpledb.common.Type;
+import simpledb.transaction.TransactionId;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 22:10
+ * @description A page of a HeapFile of the {@link HeapFile.Format#SLOTTED slotted} format.
+ * <p>
+ * Tuples are stored as variable-length records: an int takes 4 bytes, a string a 2-byte
+ * length and its characters, instead of the {@link Type#STRING_LEN} bytes it takes on a
+ * {@link HeapPage}. The page starts with a slot directory, the records are packed at the
+ * end of the page and grow towards it:
+ * <pre>
+ * number of slots (2), bytes of records (2), slots (4 each), free space, records
+ * </pre>
+ * A slot holds the offset and the length of its record, offset 0 marks an empty slot.
+ * Deleting a record moves the records in front of it up to close the gap, so the free
+ * space is always in one piece, and a tuple keeps its slot, and so its record id, when
+ * the records move. Trailing empty slots are dropped from the directory.
+ * <p>
+ * A page of zeros is an empty page, as it is for a HeapPage. Offsets are 2 bytes, so the
+ * page size is at most {@link #MAX_PAGE_SIZE}.
+ */
+public class SlottedPage implements TuplePage {
+
+    public static final int MAX_PAGE_SIZE = 1 << 16;
+
+    static final int HEADER_BYTES = 4;
+
+    static final int SLOT_BYTES = 4;
+
+    final HeapPageId pid;
+    final TupleDesc td;
+    final byte[] data;
+    byte[] oldData;
+    private final Object oldDataLock = new Object();
+
+    private boolean dirty = false;
+
+    private TransactionId dirtyMakerTid = null;
+
+    /**
+     * Create a SlottedPage from a set of bytes of data read from disk, in the format
+     * described above.
+     */
+    public SlottedPage(HeapPageId id, byte[] data) {
+        this(id, data, true);
+    }
+
+    /**
+     * @param copy whether to copy the bytes, or to take ownership of the array
+     */
+    SlottedPage(HeapPageId id, byte[] data, boolean copy) {
+        if (data.length > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("slotted pages are at most " + MAX_PAGE_SIZE + " bytes");
+        }
+        this.pid = id;
+        this.td = Database.getCatalog().getTupleDesc(id.getTableId());
+        this.data = copy ? data.clone() : data;
+    }
+
+    private int getShort(int pos) {
+        return ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff);
+    }
+
+    private void putShort(int pos, int value) {
+        data[pos] = (byte) (value >>> 8);
+        data[pos + 1] = (byte) value;
+    }
+
+    private int numSlots() {
+        return getShort(0);
+    }
+
+    private int recordBytes() {
+        return getShort(2);
+    }
+
+    private int recordsStart() {
+        return data.length - recordBytes();
+    }
+
+    private int slotOffset(int slotId) {
+        return getShort(HEADER_BYTES + slotId * SLOT_BYTES);
+    }
+
+    private int slotLength(int slotId) {
+        return getShort(HEADER_BYTES + slotId * SLOT_BYTES + 2);
+    }
+
+    private void setSlot(int slotId, int offset, int length) {
+        putShort(HEADER_BYTES + slotId * SLOT_BYTES, offset);
+        putShort(HEADER_BYTES + slotId * SLOT_BYTES + 2, length);
+    }
+
+    /**
+     * @return the first empty slot of the directory, or the number of slots if there is none
+     */
+    private int findFirstEmptySlot() {
+        int numSlots = numSlots();
+        for (int i = 0; i < numSlots; i++) {
+            if (slotOffset(i) == 0) {
+                return i;
+            }
+        }
+        return numSlots;
+    }
+
+    /**
+     * @return the number of bytes between the slot directory and the records
+     */
+    public int getFreeSpace() {
+        return recordsStart() - HEADER_BYTES - numSlots() * SLOT_BYTES;
+    }
+
+    /**
+     * @return the number of tuples on this page
+     */
+    public int getNumTuples() {
+        int count = 0;
+        for (int i = 0; i < numSlots(); i++) {
+            if (slotOffset(i) != 0) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns true if associated slot on this page is filled.
+     */
+    public boolean isSlotUsed(int i) {
+        return i < numSlots() && slotOffset(i) != 0;
+    }
+
+    /**
+     * @return the bytes the record of the given tuple takes on a slotted page
+     */
+    static int recordSize(TupleDesc td, Tuple t) {
+        int size = 0;
+        for (int i = 0; i < td.numFields(); i++) {
+            if (td.getFieldType(i) == Type.STRING_TYPE) {
+                size += 2 + stringValue(t.getField(i)).length();
+            } else {
+                size += td.getFieldType(i).getLen();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the bytes the record of a tuple of the table takes at least, with empty strings
+     */
+    static int minRecordSize(TupleDesc td) {
+        int size = 0;
+        for (int i = 0; i < td.numFields(); i++) {
+            size += td.getFieldType(i) == Type.STRING_TYPE ? 2 : td.getFieldType(i).getLen();
+        }
+        return size;
+    }
+
+    private static String stringValue(Field field) {
+        String s = ((StringField) field).getValue();
+        return s.length() > Type.STRING_LEN ? s.substring(0, Type.STRING_LEN) : s;
+    }
+
+    private int spaceNeeded(int recordSize) {
+        return findFirstEmptySlot() < numSlots() ? recordSize : recordSize + SLOT_BYTES;
+    }
+
+    public boolean hasRoomFor(Tuple t) {
+        return spaceNeeded(recordSize(td, t)) <= getFreeSpace();
+    }
+
+    public boolean hasFreeSpace() {
+        return spaceNeeded(minRecordSize(td)) <= getFreeSpace();
+    }
+
+    private void writeRecord(int offset, Tuple t) {
+        int pos = offset;
+        for (int i = 0; i < td.numFields(); i++) {
+            if (td.getFieldType(i) == Type.STRING_TYPE) {
+                // one byte per character, as StringField.serialize writes them
+                String s = stringValue(t.getField(i));
+                putShort(pos, s.length());
+                pos += 2;
+                for (int j = 0; j < s.length(); j++) {
+                    data[pos++] = (byte) s.charAt(j);
+                }
+            } else {
+                int v = t.getInt(i);
+                data[pos] = (byte) (v >>> 24);
+                data[pos + 1] = (byte) (v >>> 16);
+                data[pos + 2] = (byte) (v >>> 8);
+                data[pos + 3] = (byte) v;
+                pos += 4;
+            }
+        }
+    }
+
+    private Tuple readTuple(int slotId) {
+        Tuple t = td.isIntOnly() ? new IntTuple(td) : new Tuple(td);
+        int pos = slotOffset(slotId);
+        for (int i = 0; i < td.numFields(); i++) {
+            if (td.getFieldType(i) == Type.STRING_TYPE) {
+                int len = getShort(pos);
+                t.setField(i, new StringField(new String(data, pos + 2, len), Type.STRING_LEN));
+                pos += 2 + len;
+            } else {
+                t.setInt(i, ((data[pos] & 0xff) << 24) | ((data[pos + 1] & 0xff) << 16)
+                        | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff));
+                pos += 4;
+            }
+        }
+        t.setRecordId(new RecordId(pid, slotId));
+        return t;
+    }
+
+    /**
+     * @return the PageId associated with this page.
+     */
+    public HeapPageId getId() {
+        return this.pid;
+    }
+
+    /**
+     * Return a view of this page before it was modified
+     * -- used by recovery
+     */
+    public SlottedPage getBeforeImage() {
+        byte[] oldDataRef;
+        synchronized (oldDataLock) {
+            oldDataRef = oldData;
+        }
+        // not modified since it was read if there is no before image
+        return new SlottedPage(pid, oldDataRef == null ? data : oldDataRef);
+    }
+
+    public void setBeforeImage() {
+        synchronized (oldDataLock) {
+            // the page is its own before image until it is modified
+            oldData = null;
+        }
+    }
+
+    private void captureBeforeImage() {
+        synchronized (oldDataLock) {
+            if (oldData == null) {
+                oldData = getPageData();
+            }
+        }
+    }
+
+    public byte[] getPageData() {
+        return data.clone();
+    }
+
+    public ByteBuffer getPageBuffer() {
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    /**
+     * Adds the specified tuple to the page, in the first empty slot or a new one.
+     *
+     * @throws DbException if the record of the tuple does not fit in the free space
+     */
+    public void insertTuple(Tuple t) throws DbException {
+        int size = recordSize(td, t);
+        if (spaceNeeded(size) > getFreeSpace()) {
+            throw new DbException("page is full");
+        }
+        int slotId = findFirstEmptySlot();
+        captureBeforeImage();
+        int offset = recordsStart() - size;
+        writeRecord(offset, t);
+        putShort(2, recordBytes() + size);
+        if (slotId == numSlots()) {
+            putShort(0, slotId + 1);
+        }
+        setSlot(slotId, offset, size);
+        t.setRecordId(new RecordId(pid, slotId));
+    }
+
+    /**
+     * Delete the specified tuple from the page, and compact the records.
+     *
+     * @throws DbException if this tuple is not on this page, or tuple slot is
+     *                     already empty.
+     */
+    public void deleteTuple(Tuple t) throws DbException {
+        RecordId recordId = t.getRecordId();
+        int slotId = recordId == null ? -1 : recordId.getTupleNumber();
+        if (recordId == null || !this.pid.equals(recordId.getPageId()) || slotId < 0 || !isSlotUsed(slotId)) {
+            throw new DbException("page doesn't contain this tuple");
+        }
+        captureBeforeImage();
+        int offset = slotOffset(slotId);
+        int length = slotLength(slotId);
+        int start = recordsStart();
+        // move the records in front of the deleted one up over it
+        System.arraycopy(data, start, data, start + length, offset - start);
+        for (int i = start; i < start + length; i++) {
+            data[i] = 0;
+        }
+        int numSlots = numSlots();
+        for (int i = 0; i < numSlots; i++) {
+            int other = slotOffset(i);
+            if (other != 0 && other < offset) {
+                setSlot(i, other + length, slotLength(i));
+            }
+        }
+        setSlot(slotId, 0, 0);
+        putShort(2, recordBytes() - length);
+        while (numSlots > 0 && slotOffset(numSlots - 1) == 0) {
+            numSlots--;
+        }
+        putShort(0, numSlots);
+    }
+
+    /**
+     * Marks this page as dirty/not dirty and record that transaction
+     * that did the dirtying
+     */
+    public void markDirty(boolean dirty, TransactionId tid) {
+        this.dirty = dirty;
+        this.dirtyMakerTid = tid;
+    }
+
+    /**
+     * Returns the tid of the transaction that last dirtied this page, or null if the page is not dirty
+     */
+    public TransactionId isDirty() {
+        return this.dirty ? this.dirtyMakerTid : null;
+    }
+
+    /**
+     * @return an iterator over the tuples in the slots used when it is created and still
+     * used when it reaches them (calling remove on this iterator throws an UnsupportedOperationException)
+     */
+    public Iterator<Tuple> iterator() {
+        int numSlots = numSlots();
+        int[] used = new int[numSlots];
+        int count = 0;
+        for (int i = 0; i < numSlots; i++) {
+            if (slotOffset(i) != 0) {
+                used[count++] = i;
+            }
+        }
+        int total = count;
+        return new Iterator<Tuple>() {
+
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (this.next < total && !isSlotUsed(used[this.next])) {
+                    this.next++;
+                }
+                return this.next < total;
+            }
+
+            @Override
+            public Tuple next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return readTuple(used[this.next++]);
+            }
+        };
+    }
+}
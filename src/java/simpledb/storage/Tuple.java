@@ -1,6 +1,7 @@
 package simpledb.storage;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -10,6 +11,9 @@ import java.util.List;
  * Tuple maintains information about the contents of a tuple. Tuples have a
  * specified schema specified by a TupleDesc object and contain Field objects
  * with the data for each field.
+ * <p>
+ * Tuples of a schema of ints only are read from pages as {@link IntTuple}s, which keep
+ * the values in an int array; {@link #getInt} reads them without creating a Field.
  */
 public class Tuple implements Serializable {
 
@@ -19,6 +23,13 @@ public class Tuple implements Serializable {
 
     private ArrayList<Field> fields;
 
+    // the serialized fields of a tuple read from a page and the TupleDesc they were
+    // serialized with, the fields are decoded one by one on their first access; null for
+    // a tuple built field by field, or once every field is decoded
+    private byte[] raw;
+
+    private TupleDesc rawDesc;
+
     private static final long serialVersionUID = 1L;
 
     /**
@@ -33,6 +44,47 @@ public class Tuple implements Serializable {
         this.fields = new ArrayList<>(td.numFields());
     }
 
+    /**
+     * Create a tuple of a subclass that keeps its fields itself.
+     */
+    Tuple(TupleDesc td, RecordId rid) {
+        this.tupleDesc = td;
+        this.recordId = rid;
+    }
+
+    /**
+     * Create a tuple over the serialized fields of a tuple, the fields are decoded when
+     * they are first accessed.
+     *
+     * @param raw the fields as serialized in a page, the tuple takes ownership of the array
+     */
+    Tuple(TupleDesc td, byte[] raw) {
+        this(td);
+        this.raw = raw;
+        this.rawDesc = td;
+        for (int i = 0; i < td.numFields(); i++) {
+            this.fields.add(null);
+        }
+    }
+
+    private Field decode(int i) {
+        Field f = this.rawDesc.getFieldType(i).parse(ByteBuffer.wrap(this.raw), this.rawDesc.getFieldOffset(i));
+        this.fields.set(i, f);
+        return f;
+    }
+
+    private void decodeAll() {
+        if (this.raw != null) {
+            for (int i = 0; i < this.fields.size(); i++) {
+                if (this.fields.get(i) == null) {
+                    decode(i);
+                }
+            }
+            this.raw = null;
+            this.rawDesc = null;
+        }
+    }
+
     /**
      * @return The TupleDesc representing the schema of this tuple.
      */
@@ -81,7 +133,28 @@ public class Tuple implements Serializable {
      */
     public Field getField(int i) {
         // some code goes here
-        return this.fields.get(i);
+        Field f = this.fields.get(i);
+        if (f == null && this.raw != null) {
+            f = decode(i);
+        }
+        return f;
+    }
+
+    /**
+     * @param i index of an {@link simpledb.common.Type#INT_TYPE} field. It must be a valid index.
+     * @return the value of the ith field
+     */
+    public int getInt(int i) {
+        return ((IntField) getField(i)).getValue();
+    }
+
+    /**
+     * Change the value of the ith field of this tuple to an int.
+     *
+     * @param i index of an {@link simpledb.common.Type#INT_TYPE} field. It must be a valid index.
+     */
+    public void setInt(int i, int value) {
+        setField(i, new IntField(value));
     }
 
     /**
@@ -94,6 +167,7 @@ public class Tuple implements Serializable {
      */
     public String toString() {
         // some code goes here
+        decodeAll();
         StringBuilder sb = new StringBuilder();
         for (Field field : this.fields) {
         }
@@ -111,6 +185,7 @@ public class Tuple implements Serializable {
      */
     public Iterator<Field> fields() {
         // some code goes here
+        decodeAll();
         return this.fields.iterator();
     }
 
@@ -123,10 +198,44 @@ public class Tuple implements Serializable {
     }
 
     public static Tuple merge(Tuple tuple1, Tuple tuple2) {
-        Tuple tuple = new Tuple(TupleDesc.merge(tuple1.getTupleDesc(), tuple2.getTupleDesc()));
-        int index = 0;
-        tuple.fields.addAll(tuple1.fields);
-        tuple.fields.addAll(tuple2.fields);
+        return merge(TupleDesc.merge(tuple1.getTupleDesc(), tuple2.getTupleDesc()), tuple1, tuple2);
+    }
+
+    /**
+     * Copy some of the fields of a tuple into a tuple of the given TupleDesc, the
+     * {@link TupleDesc#project projection} of its own. The record id is kept.
+     */
+    public static Tuple project(TupleDesc td, Tuple tuple, int[] fields) {
+        Tuple projected;
+        if (tuple instanceof IntTuple) {
+            projected = new IntTuple(td);
+            for (int i = 0; i < fields.length; i++) {
+                projected.setInt(i, tuple.getInt(fields[i]));
+            }
+        } else {
+            projected = new Tuple(td);
+            for (int i = 0; i < fields.length; i++) {
+                projected.setField(i, tuple.getField(fields[i]));
+            }
+        }
+        projected.setRecordId(tuple.getRecordId());
+        return projected;
+    }
+
+    /**
+     * Merge two tuples into a tuple of the given TupleDesc, the merge of theirs.
+     */
+    public static Tuple merge(TupleDesc td, Tuple tuple1, Tuple tuple2) {
+        if (tuple1 instanceof IntTuple && tuple2 instanceof IntTuple) {
+            return IntTuple.concat(td, (IntTuple) tuple1, (IntTuple) tuple2);
+        }
+        Tuple tuple = new Tuple(td);
+        for (Iterator<Field> it = tuple1.fields(); it.hasNext(); ) {
+            tuple.fields.add(it.next());
+        }
+        for (Iterator<Field> it = tuple2.fields(); it.hasNext(); ) {
+            tuple.fields.add(it.next());
+        }
         return tuple;
     }
 }
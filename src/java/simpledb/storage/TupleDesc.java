@@ -14,6 +14,12 @@ public class TupleDesc implements Serializable {
 
     private int size = 0;
 
+    // the offset of every field in a serialized tuple, computed on first use
+    private transient int[] offsets;
+
+    // whether every field is an int, computed on first use
+    private transient Boolean intOnly;
+
     /**
      * A help class to facilitate organizing the information of each field
      */
@@ -157,6 +163,43 @@ public class TupleDesc implements Serializable {
         return this.size;
     }
 
+    /**
+     * @return whether every field is of {@link Type#INT_TYPE}, tuples of such a schema
+     * are read from pages as {@link IntTuple}s
+     */
+    public boolean isIntOnly() {
+        Boolean intOnly = this.intOnly;
+        if (intOnly == null) {
+            intOnly = true;
+            for (TDItem item : this.items) {
+                if (item.fieldType != Type.INT_TYPE) {
+                    intOnly = false;
+                    break;
+                }
+            }
+            this.intOnly = intOnly;
+        }
+        return intOnly;
+    }
+
+    /**
+     * @param i the index of the field. It must be a valid index.
+     * @return the offset in bytes of the ith field in a serialized tuple of this TupleDesc
+     */
+    public int getFieldOffset(int i) {
+        int[] offsets = this.offsets;
+        if (offsets == null) {
+            offsets = new int[this.items.size()];
+            int offset = 0;
+            for (int j = 0; j < offsets.length; j++) {
+                offsets[j] = offset;
+                offset += this.items.get(j).fieldType.getLen();
+            }
+            this.offsets = offsets;
+        }
+        return offsets[i];
+    }
+
     /**
      * Merge two TupleDescs into one, with td1.numFields + td2.numFields fields,
      * with the first td1.numFields coming from td1 and the remaining from td2.
@@ -179,6 +222,22 @@ public class TupleDesc implements Serializable {
         return td;
     }
 
+    /**
+     * The TupleDesc of some of the fields of this one, with their names.
+     *
+     * @param fields the indices of the fields, in the order of the new TupleDesc
+     * @return the new TupleDesc
+     */
+    public TupleDesc project(int[] fields) {
+        TupleDesc td = new TupleDesc();
+        for (int field : fields) {
+            TDItem item = this.items.get(field);
+            td.items.add(item);
+            td.size += item.fieldType.getLen();
+        }
+        return td;
+    }
+
     /**
      * Compares the specified object with this TupleDesc for equality. Two
      * TupleDescs are considered equal if they have the same number of items
@@ -0,0 +1,48 @@
+package simpledb.storage;
+
+import simpledb.common.DbException;
+
+import java.util.Iterator;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 22:10
+ * @description A page of a HeapFile, in one of its {@link HeapFile.Format formats}.
+ * <p>
+ * The heap file inserts, deletes and scans through this interface, so it does not
+ * care how the tuples are laid out on the page.
+ */
+public interface TuplePage extends Page {
+
+    HeapPageId getId();
+
+    /**
+     * Adds the specified tuple to the page, and sets its record id.
+     *
+     * @throws DbException if the tuple does not fit on the page
+     */
+    void insertTuple(Tuple t) throws DbException;
+
+    /**
+     * Deletes the specified tuple from the page.
+     *
+     * @throws DbException if the tuple is not on this page
+     */
+    void deleteTuple(Tuple t) throws DbException;
+
+    /**
+     * @return an iterator over the tuples on this page, remove is not supported
+     */
+    Iterator<Tuple> iterator();
+
+    /**
+     * @return whether the given tuple fits on the page
+     */
+    boolean hasRoomFor(Tuple t);
+
+    /**
+     * @return whether some tuple of the table may still fit on the page, which is what
+     * the free-space map records
+     */
+    boolean hasFreeSpace();
+}
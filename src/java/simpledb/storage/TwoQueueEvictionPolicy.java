@@ -0,0 +1,168 @@
+package simpledb.storage;
+
+import java.util.*;
+
+/**
+ * @author TheR1sing3un
+ * @date 2026/10/18 11:27
+ * @description Full 2Q replacement (Johnson and Shasha).
+ * <p>
+ * A page read for the first time enters A1in, a FIFO queue of about a quarter of the
+ * pool. When it falls out of A1in, only its PageId is remembered in A1out. A page that is
+ * read again while it is remembered in A1out is hot, it goes to Am, which is managed as
+ * an LRU list. Pages touched once by a big scan therefore flow through A1in and never
+ * push the hot pages out of Am.
+ * <p>
+ * The queues are kept under one lock. Hits do not take it, they are buffered and
+ * replayed in batches, see {@link AccessBuffer}.
+ */
+
+public class TwoQueueEvictionPolicy implements EvictionPolicy {
+
+    // A1in, FIFO of pages read once
+    private final LinkedHashSet<PageId> a1in;
+
+    // A1out, FIFO of the ids of pages evicted from A1in
+    private final LinkedHashSet<PageId> a1out;
+
+    // Am, LRU of hot pages, the least recently used one first
+    private final LinkedHashMap<PageId, Boolean> am;
+
+    private final int kin;
+
+    private final int kout;
+
+    // the hits not yet applied to the queues, and the lock that guards them
+    private final AccessBuffer accesses = new AccessBuffer(this::applyAccess);
+
+    public TwoQueueEvictionPolicy(int capacity) {
+        // the tuning suggested by the paper: Kin = 25%, Kout = 50% of the pool
+        this(Math.max(1, capacity / 4), Math.max(1, capacity / 2));
+    }
+
+    public TwoQueueEvictionPolicy(int kin, int kout) {
+        this.kin = kin;
+        this.kout = kout;
+        this.a1in = new LinkedHashSet<>();
+        this.a1out = new LinkedHashSet<>();
+        this.am = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public EvictionPolicy newInstance() {
+        return new TwoQueueEvictionPolicy(this.kin, this.kout);
+    }
+
+    @Override
+    public void recordAccess(PageId pageId) {
+        this.accesses.record(pageId);
+    }
+
+    private void applyAccess(PageId pageId) {
+        // a hit in A1in does nothing: correlated references of a page are not a sign of heat
+        if (this.am.containsKey(pageId)) {
+            // refresh its position in the access-ordered map
+            this.am.get(pageId);
+        }
+    }
+
+    @Override
+    public void recordInsert(PageId pageId) {
+        this.accesses.lock();
+        try {
+            if (this.a1in.contains(pageId) || this.am.containsKey(pageId)) {
+                applyAccess(pageId);
+                return;
+            }
+            if (this.a1out.remove(pageId)) {
+                this.am.put(pageId, Boolean.TRUE);
+            } else {
+                this.a1in.add(pageId);
+            }
+        } finally {
+            this.accesses.unlock();
+        }
+    }
+
+    @Override
+    public void recordRemove(PageId pageId) {
+        this.accesses.lock();
+        try {
+            if (!this.a1in.remove(pageId)) {
+                this.am.remove(pageId);
+            }
+        } finally {
+            this.accesses.unlock();
+        }
+    }
+
+    @Override
+    public void restore(PageId pageId) {
+        this.accesses.lock();
+        try {
+            if (this.a1in.contains(pageId) || this.am.containsKey(pageId)) {
+                return;
+            }
+            // a victim of A1in was remembered in A1out, it goes back to the head of A1in
+            // instead of being promoted; any other victim came from Am
+            if (this.a1out.remove(pageId)) {
+                List<PageId> in = new ArrayList<>(this.a1in);
+                this.a1in.clear();
+                this.a1in.add(pageId);
+                this.a1in.addAll(in);
+            } else {
+                Map<PageId, Boolean> hot = new LinkedHashMap<>(this.am);
+                this.am.clear();
+                this.am.put(pageId, Boolean.TRUE);
+                this.am.putAll(hot);
+            }
+        } finally {
+            this.accesses.unlock();
+        }
+    }
+
+    @Override
+    public PageId evict() {
+        this.accesses.lock();
+        try {
+            if (this.a1in.size() > this.kin || (this.am.isEmpty() && !this.a1in.isEmpty())) {
+                PageId victim = pollFirst(this.a1in);
+                this.a1out.add(victim);
+                if (this.a1out.size() > this.kout) {
+                    pollFirst(this.a1out);
+                }
+                return victim;
+            }
+            if (!this.am.isEmpty()) {
+                return pollFirst(this.am.keySet());
+            }
+            return null;
+        } finally {
+            this.accesses.unlock();
+        }
+    }
+
+    @Override
+    public List<PageId> evictionOrder() {
+        this.accesses.lock();
+        try {
+            // A1in is drained first down to Kin, then Am in LRU order, then the rest of A1in
+            List<PageId> pageIds = new ArrayList<>(this.a1in.size() + this.am.size());
+            List<PageId> in = new ArrayList<>(this.a1in);
+            int overflow = Math.max(0, in.size() - this.kin);
+            pageIds.addAll(in.subList(0, overflow));
+            pageIds.addAll(this.am.keySet());
+            pageIds.addAll(in.subList(overflow, in.size()));
+            return pageIds;
+        } finally {
+            this.accesses.unlock();
+        }
+    }
+
+    private static PageId pollFirst(Set<PageId> set) {
+        Iterator<PageId> iterator = set.iterator();
+        PageId first = iterator.next();
+        iterator.remove();
+        return first;
+    }
+}
@@ -184,6 +184,19 @@ public class BTreeHeaderPageTest extends SimpleDbTestBase {
         assertFalse(dirtier != null);
 	}
 
+	/**
+	 * The before image is the page as it was read until the page is modified.
+	 */
+	@Test public void beforeImage() throws Exception {
+		BTreeHeaderPage page = new BTreeHeaderPage(pid, EXAMPLE_DATA);
+		assertArrayEquals(EXAMPLE_DATA, page.getBeforeImage().getPageData());
+		page.init();
+		page.markSlotUsed(5, false);
+		assertArrayEquals(EXAMPLE_DATA, page.getBeforeImage().getPageData());
+		page.setBeforeImage();
+		assertEquals(5, page.getBeforeImage().getEmptySlot());
+	}
+
 	/**
 	 * JUnit suite target
 	 */
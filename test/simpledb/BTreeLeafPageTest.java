@@ -347,6 +347,29 @@ public class BTreeLeafPageTest extends SimpleDbTestBase {
 		}
 	}
 
+	/**
+	 * The before image is the page as it was read until the page is modified, and as it
+	 * was before its first modification until setBeforeImage is called.
+	 */
+	@Test public void beforeImage() throws Exception {
+		BTreeLeafPage page = new BTreeLeafPage(pid, EXAMPLE_DATA, 0);
+		byte[] read = page.getPageData();
+		assertArrayEquals(read, page.getBeforeImage().getPageData());
+
+		Iterator<Tuple> it = page.iterator();
+		page.deleteTuple(it.next());
+		page.setLeftSiblingId(new BTreePageId(pid.getTableId(), 7, BTreePageId.LEAF));
+		page.deleteTuple(it.next());
+		assertArrayEquals(read, page.getBeforeImage().getPageData());
+
+		page.setBeforeImage();
+		byte[] modified = page.getPageData();
+		assertArrayEquals(modified, page.getBeforeImage().getPageData());
+		page.setParentId(new BTreePageId(pid.getTableId(), 3, BTreePageId.INTERNAL));
+		assertArrayEquals(modified, page.getBeforeImage().getPageData());
+		assertFalse(Arrays.equals(modified, page.getPageData()));
+	}
+
 	/**
 	 * JUnit suite target
 	 */
@@ -0,0 +1,71 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.common.Utility;
+import simpledb.storage.*;
+import simpledb.transaction.TransactionId;
+
+import static org.junit.Assert.*;
+
+public class BackgroundWriterTest extends TestUtil.CreateHeapFile {
+
+    private TransactionId tid;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+    }
+
+    @After
+    public void tearDown() {
+        Database.getBufferPool().stopBackgroundWriter();
+    }
+
+    /**
+     * Dirty pages above the high-water mark are written back by the writer and stay cached.
+     */
+    @Test
+    public void writeBackAboveHighWaterMark() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        // 504 tuples fill a page, so this dirties 4 pages
+        for (int i = 0; i < 504 * 4; i++) {
+            pool.insertTuple(tid, empty.getId(), Utility.getHeapTuple(i, 2));
+        }
+        assertEquals(4, pool.getNumDirtyPages());
+
+        BackgroundWriter writer = pool.startBackgroundWriter(2, 1, 10);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getNumDirtyPages() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(pool.getNumDirtyPages() <= 1);
+        assertTrue(writer.getPagesWritten() >= 3);
+        assertEquals(pool.getNumDirtyPages(), writer.getQueueDepth());
+        assertTrue(writer.getThroughput() > 0);
+
+        // the written pages are on disk and clean in the pool
+        int clean = 0;
+        for (int i = 0; i < 4; i++) {
+            HeapPageId pid = new HeapPageId(empty.getId(), i);
+            if (pool.containsPage(pid) && pool.getPage(tid, pid, Permissions.READ_ONLY).isDirty() == null) {
+                clean++;
+                HeapPage onDisk = (HeapPage) empty.readPage(pid);
+                assertEquals(0, onDisk.getNumEmptySlots());
+            }
+        }
+        assertTrue(clean >= 3);
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(BackgroundWriterTest.class);
+    }
+}
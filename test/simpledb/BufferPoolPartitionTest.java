@@ -0,0 +1,170 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class BufferPoolPartitionTest extends SimpleDbTestBase {
+
+    private static final int POOL_PAGES = 4;
+
+    private TransactionId tid;
+
+    private HeapFile hot;
+
+    private HeapFile big;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        // 2 int columns -> 504 tuples per page
+        hot = SystemTestUtil.createRandomHeapFile(2, 504 * 3, null, null);
+        big = SystemTestUtil.createRandomHeapFile(2, 504 * 10, null, null);
+        Database.resetBufferPool(POOL_PAGES);
+    }
+
+    private void readAll(HeapFile f) throws Exception {
+        for (int i = 0; i < f.numPages(); i++) {
+            Database.getBufferPool().getPage(tid, new HeapPageId(f.getId(), i), Permissions.READ_ONLY);
+        }
+    }
+
+    /**
+     * Reading a big table does not evict the pages of a table in another partition.
+     */
+    @Test
+    public void partitionKeepsWorkingSet() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        pool.createPartition("hot", 3, "lru");
+        pool.assignTable(hot.getId(), "hot");
+        assertEquals("hot", pool.getPartition(hot.getId()));
+        assertEquals(BufferPool.DEFAULT_PARTITION, pool.getPartition(big.getId()));
+
+        readAll(hot);
+        readAll(big);
+        readAll(big);
+        for (int i = 0; i < hot.numPages(); i++) {
+            assertTrue(pool.containsPage(new HeapPageId(hot.getId(), i)));
+        }
+        assertEquals(3, pool.getPartitionSize("hot"));
+        assertEquals(POOL_PAGES, pool.getPartitionSize(BufferPool.DEFAULT_PARTITION));
+        assertEquals(POOL_PAGES + 3, pool.getStats().getCapacity());
+    }
+
+    /**
+     * A partition caps the pages of its tables.
+     */
+    @Test
+    public void partitionQuota() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        pool.createPartition("scratch", 2, "clock");
+        pool.assignTable(big.getId(), "scratch");
+        readAll(hot);
+        readAll(big);
+        assertEquals(2, pool.getPartitionSize("scratch"));
+        assertEquals(3, pool.getPartitionSize(BufferPool.DEFAULT_PARTITION));
+        for (int i = 0; i < hot.numPages(); i++) {
+            assertTrue(pool.containsPage(new HeapPageId(hot.getId(), i)));
+        }
+    }
+
+    /**
+     * Resident pages follow their table to its new partition.
+     */
+    @Test
+    public void assignMovesPages() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        readAll(hot);
+        pool.createPartition("hot", 3, "lru");
+        pool.assignTable(hot.getId(), "hot");
+        assertEquals(3, pool.getPartitionSize("hot"));
+        assertEquals(0, pool.getPartitionSize(BufferPool.DEFAULT_PARTITION));
+        assertTrue(pool.containsPage(new HeapPageId(hot.getId(), 0)));
+
+        try {
+            pool.assignTable(hot.getId(), "missing");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            pool.createPartition("hot", 3, "lru");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The catalog declares partitions and assigns tables to them.
+     */
+    @Test
+    public void loadSchema() throws IOException {
+        File schema = File.createTempFile("partitions", ".txt");
+        schema.deleteOnExit();
+        try (FileWriter writer = new FileWriter(schema)) {
+            writer.write("partition dims 8 2q\n");
+            writer.write("dim_users (id int pk, age int) partition dims\n");
+            writer.write("facts (id int, value int)\n");
+        }
+        Database.getCatalog().loadSchema(schema.getAbsolutePath());
+        BufferPool pool = Database.getBufferPool();
+        int users = Database.getCatalog().getTableId("dim_users");
+        int facts = Database.getCatalog().getTableId("facts");
+        assertEquals(8, pool.getPartitionCapacity("dims"));
+        assertEquals("dims", pool.getPartition(users));
+        assertEquals("dims", Database.getCatalog().getPartition(users));
+        assertEquals(BufferPool.DEFAULT_PARTITION, pool.getPartition(facts));
+        assertEquals(BufferPool.DEFAULT_PARTITION, Database.getCatalog().getPartition(facts));
+    }
+
+    /**
+     * A reset pool keeps the partitions and the assignments of the tables, and the
+     * threads of the pool it replaces are stopped.
+     */
+    @Test
+    public void resetKeepsPartitions() throws Exception {
+        BufferPool old = Database.getBufferPool();
+        old.createPartition("hot", 3, "lru-2");
+        old.assignTable(hot.getId(), "hot");
+        Database.getCatalog().addTable(hot, SystemTestUtil.getUUID(), "", "hot");
+        old.startBackgroundWriter(2, 1, 10);
+        old.startReadAhead(4);
+        old.startIoScheduler(1);
+
+        BufferPool pool = Database.resetBufferPool(POOL_PAGES);
+        assertNotSame(old, pool);
+        assertNull(old.getBackgroundWriter());
+        assertNull(old.getReadAhead());
+        assertNull(old.getIoScheduler());
+        assertEquals(3, pool.getPartitionCapacity("hot"));
+        assertEquals("hot", pool.getPartition(hot.getId()));
+        assertEquals(BufferPool.DEFAULT_PARTITION, pool.getPartition(big.getId()));
+
+        readAll(hot);
+        readAll(big);
+        for (int i = 0; i < hot.numPages(); i++) {
+            assertTrue(pool.containsPage(new HeapPageId(hot.getId(), i)));
+        }
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(BufferPoolPartitionTest.class);
+    }
+}
@@ -0,0 +1,125 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BufferPoolStatsTest extends SimpleDbTestBase {
+
+    private static final int POOL_PAGES = 4;
+
+    private TransactionId tid;
+
+    private HeapFile f;
+
+    private HeapFile g;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        // 2 int columns -> 504 tuples per page
+        f = SystemTestUtil.createRandomHeapFile(2, 504 * 6, null, null);
+        g = SystemTestUtil.createRandomHeapFile(2, 504, null, null);
+        Database.resetBufferPool(POOL_PAGES);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Database.getBufferPool().unregisterMBean();
+    }
+
+    private HeapPageId pid(HeapFile file, int pageNo) {
+        return new HeapPageId(file.getId(), pageNo);
+    }
+
+    /**
+     * Requests, misses and evictions are counted per table and per page type.
+     */
+    @Test
+    public void countsPerTable() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        for (int i = 0; i < 6; i++) {
+            pool.getPage(tid, pid(f, i), Permissions.READ_ONLY);
+        }
+        pool.getPage(tid, pid(f, 5), Permissions.READ_ONLY);
+        pool.getPage(tid, pid(g, 0), Permissions.READ_ONLY);
+        pool.getPage(tid, pid(g, 0), Permissions.READ_ONLY);
+
+        BufferPoolStats stats = pool.getStats();
+        BufferPoolStats.Counters table = stats.getTable(f.getId());
+        assertEquals(7, table.getRequests());
+        assertEquals(6, table.getMisses());
+        assertEquals(1, table.getHits());
+        assertEquals(3, table.getResidentPages());
+        assertEquals(3, table.getEvictions());
+
+        BufferPoolStats.Counters other = stats.getTable(g.getId());
+        assertEquals(2, other.getRequests());
+        assertEquals(0.5, other.getHitRatio(), 1e-9);
+        assertEquals(1, other.getResidentPages());
+
+        assertEquals(9, stats.getTotal().getRequests());
+        assertEquals(POOL_PAGES, stats.getTotal().getResidentPages());
+        assertEquals(9, stats.getPageType(PageType.HEAP).getRequests());
+        assertEquals(0, stats.getPageType(PageType.BTREE_LEAF).getRequests());
+        assertEquals(POOL_PAGES, stats.getCapacity());
+    }
+
+    /**
+     * Dirty pages written back are counted.
+     */
+    @Test
+    public void countsWriteBacks() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        Tuple t = new Tuple(f.getTupleDesc());
+        t.setField(0, new IntField(1));
+        t.setField(1, new IntField(2));
+        pool.insertTuple(tid, f.getId(), t);
+        assertEquals(1, pool.getStats().getDirtyPages());
+        pool.flushAllPages();
+        assertEquals(1, pool.getStats().getTable(f.getId()).getWriteBacks());
+        assertEquals(0, pool.getStats().getDirtyPages());
+    }
+
+    /**
+     * The counters are exported through JMX.
+     */
+    @Test
+    public void mbean() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        ObjectName name = pool.registerMBean("test");
+        pool.getPage(tid, pid(f, 0), Permissions.READ_ONLY);
+        pool.getPage(tid, pid(f, 0), Permissions.READ_ONLY);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.isRegistered(name));
+        assertEquals(2L, server.getAttribute(name, "Requests"));
+        assertEquals(0.5, (Double) server.getAttribute(name, "HitRatio"), 1e-9);
+        assertEquals(POOL_PAGES, server.getAttribute(name, "Capacity"));
+
+        pool.unregisterMBean();
+        assertFalse(server.isRegistered(name));
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(BufferPoolStatsTest.class);
+    }
+}
@@ -0,0 +1,90 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import static org.junit.Assert.*;
+
+public class BufferRingTest extends SimpleDbTestBase {
+
+    private static final int POOL_PAGES = 40;
+
+    private TransactionId tid;
+
+    private HeapFile hot;
+
+    private HeapFile big;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        // 2 int columns -> 504 tuples per page
+        hot = SystemTestUtil.createRandomHeapFile(2, 504 * 5, null, null);
+        big = SystemTestUtil.createRandomHeapFile(2, 504 * 100, null, null);
+        Database.resetBufferPool(POOL_PAGES);
+    }
+
+    private int scan(HeapFile f) throws Exception {
+        DbFileIterator it = f.iterator(tid);
+        it.open();
+        int count = 0;
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        it.close();
+        return count;
+    }
+
+    /**
+     * A scan of a table that is larger than the pool does not flush the pages of other tables.
+     */
+    @Test
+    public void scanKeepsWorkingSet() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        scan(hot);
+        assertEquals(504 * 100, scan(big));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(pool.containsPage(new HeapPageId(hot.getId(), i)));
+        }
+    }
+
+    /**
+     * A ring recycles its own frames once it is full.
+     */
+    @Test
+    public void ringRecyclesFrames() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        BufferRing ring = pool.newBulkReadRing(big.numPages());
+        assertNotNull(ring);
+        for (int i = 0; i < ring.size() * 3; i++) {
+            pool.getPage(tid, new HeapPageId(big.getId(), i), Permissions.READ_ONLY, ring);
+        }
+        int resident = 0;
+        for (int i = 0; i < ring.size() * 3; i++) {
+            if (pool.containsPage(new HeapPageId(big.getId(), i))) {
+                resident++;
+            }
+        }
+        assertEquals(ring.size(), resident);
+        pool.releaseRing(ring);
+
+        // small reads do not get a ring
+        assertNull(pool.newBulkReadRing(hot.numPages()));
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(BufferRingTest.class);
+    }
+}
@@ -0,0 +1,280 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.common.Utility;
+import simpledb.index.BTreeFile;
+import simpledb.index.BTreePageId;
+import simpledb.index.BTreeRootPtrPage;
+import simpledb.index.BTreeUtility;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChecksumTest extends SimpleDbTestBase {
+
+    private static final int PAGES = 20;
+
+    private TransactionId tid;
+
+    private HeapFile f;
+
+    private List<List<Integer>> tuples;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        tuples = new ArrayList<>();
+        // 2 int columns -> 504 tuples per page
+        f = SystemTestUtil.createRandomHeapFile(2, 504 * PAGES, null, tuples);
+        PageChecksums.sideFileOf(f.getFile()).deleteOnExit();
+        f.enableChecksums();
+        // give every page a checksum
+        List<Page> pages = new ArrayList<>();
+        for (int i = 0; i < PAGES; i++) {
+            pages.add(f.readPage(pid(i)));
+        }
+        f.writePages(pages);
+    }
+
+    private HeapPageId pid(int pageNo) {
+        return new HeapPageId(f.getId(), pageNo);
+    }
+
+    /**
+     * Flip a byte in the middle of a page.
+     */
+    private static void corrupt(File file, long offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            int b = raf.read();
+            raf.seek(offset);
+            raf.write(b ^ 0xff);
+        }
+    }
+
+    @Test
+    public void intactPagesVerify() throws Exception {
+        for (int i = 0; i < PAGES; i++) {
+            assertTrue(f.getChecksums().has(i));
+        }
+        SystemTestUtil.matchTuples(f, tuples);
+        assertEquals(Collections.emptyList(), f.scrub(4));
+    }
+
+    @Test
+    public void corruptPageFailsRead() throws Exception {
+        corrupt(f.getFile(), 7L * BufferPool.getPageSize() + 100);
+        try {
+            f.readPage(pid(7));
+            fail("expected a corrupt page");
+        } catch (CorruptPageException e) {
+            assertEquals(7, e.getPageNo());
+        }
+        try {
+            f.readPages(pid(5), 5);
+            fail("expected a corrupt page");
+        } catch (CorruptPageException e) {
+            assertEquals(7, e.getPageNo());
+        }
+        f.readPage(pid(6));
+    }
+
+    /**
+     * A page written through the buffer pool gets a new checksum.
+     */
+    @Test
+    public void writeRecordsChecksum() throws Exception {
+        HeapPage page = (HeapPage) Database.getBufferPool().getPage(tid, pid(3), Permissions.READ_WRITE);
+        page.deleteTuple(page.iterator().next());
+        page.insertTuple(Utility.getHeapTuple(new int[]{-1, -1}));
+        page.markDirty(true, tid);
+        Database.getBufferPool().flushAllPages();
+        assertArrayEquals(page.getPageData(), f.readPage(pid(3)).getPageData());
+    }
+
+    @Test
+    public void scrubFindsCorruptPages() throws Exception {
+        for (int pageNo : new int[]{2, 11, 19}) {
+            corrupt(f.getFile(), (long) pageNo * BufferPool.getPageSize() + 3);
+        }
+        assertEquals(Arrays.asList(2, 11, 19), f.scrub(4));
+        assertEquals(Arrays.asList(2, 11, 19), f.scrub(1));
+    }
+
+    /**
+     * The checksums are found again when the file is opened, a later format version is refused.
+     */
+    @Test
+    public void formatVersion() throws Exception {
+        f.close();
+        HeapFile reopened = new HeapFile(f.getFile(), f.getTupleDesc());
+        assertNotNull(reopened.getChecksums());
+        assertTrue(reopened.getChecksums().has(PAGES - 1));
+        reopened.close();
+
+        File sideFile = PageChecksums.sideFileOf(f.getFile());
+        try (RandomAccessFile raf = new RandomAccessFile(sideFile, "rw")) {
+            raf.seek(4);
+            raf.writeInt(PageChecksums.FORMAT_VERSION + 1);
+        }
+        try {
+            PageChecksums.open(f.getFile());
+            fail("expected an unsupported format version");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Write the bytes of a page straight to the file, as the file would after recording
+     * their checksum.
+     */
+    private void writeRaw(int pageNo, byte[] data, int length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f.getFile(), "rw")) {
+            raf.seek((long) pageNo * BufferPool.getPageSize());
+            raf.write(data, 0, length);
+        }
+    }
+
+    private HeapPage reopenAndRead(int pageNo) throws Exception {
+        f.close();
+        f = new HeapFile(f.getFile(), f.getTupleDesc());
+        return (HeapPage) f.readPage(pid(pageNo));
+    }
+
+    /**
+     * Delete the first and the last tuple of the page, so the bytes change at both ends.
+     */
+    private byte[] changed(HeapPage page) throws Exception {
+        Tuple last = null;
+        for (Iterator<Tuple> it = page.iterator(); it.hasNext(); ) {
+            last = it.next();
+        }
+        page.deleteTuple(page.iterator().next());
+        page.deleteTuple(last);
+        return page.getPageData();
+    }
+
+    /**
+     * A crash between the write of the checksum and the write of the page leaves a page
+     * that verifies, whether the page made it to disk or not; a torn page does not.
+     */
+    @Test
+    public void crashBetweenChecksumAndPage() throws Exception {
+        byte[] old = f.readPage(pid(4)).getPageData();
+        byte[] first = changed((HeapPage) f.readPage(pid(4)));
+        // the checksum is recorded, the crash comes before the page is written
+        f.getChecksums().record(4, ByteBuffer.wrap(first));
+        assertArrayEquals(old, reopenAndRead(4).getPageData());
+
+        // the page read back with its previous checksum is written again, and again the
+        // crash comes before the page
+        byte[] second = changed(reopenAndRead(4));
+        f.getChecksums().record(4, ByteBuffer.wrap(second));
+        assertArrayEquals(old, reopenAndRead(4).getPageData());
+
+        // this time the page makes it to disk
+        f.getChecksums().record(4, ByteBuffer.wrap(second));
+        writeRaw(4, second, second.length);
+        assertArrayEquals(second, reopenAndRead(4).getPageData());
+
+        // half of the next version is written
+        byte[] third = changed(reopenAndRead(4));
+        f.getChecksums().record(4, ByteBuffer.wrap(third));
+        writeRaw(4, third, third.length / 2);
+        try {
+            reopenAndRead(4);
+            fail("expected a corrupt page");
+        } catch (CorruptPageException e) {
+            assertEquals(4, e.getPageNo());
+        }
+        assertEquals(Collections.singletonList(4), f.scrub(2));
+    }
+
+    /**
+     * A side file of format version 1 is rewritten in the current format, its checksums
+     * still verify the pages.
+     */
+    @Test
+    public void formatVersion1() throws Exception {
+        f.close();
+        File sideFile = PageChecksums.sideFileOf(f.getFile());
+        ByteBuffer v1 = ByteBuffer.allocate(8 + 8 * PAGES);
+        v1.putInt(0x50435243).putInt(1);
+        for (int i = 0; i < PAGES; i++) {
+            ByteBuffer data = ByteBuffer.wrap(f.readPage(pid(i)).getPageData());
+            long crc = PageChecksums.compute(data) & 0xffffffffL;
+            // a wrong checksum for page 9
+            v1.putLong(1L << 32 | (i == 9 ? crc ^ 1 : crc));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(sideFile, "rw")) {
+            raf.setLength(0);
+            raf.write(v1.array());
+        }
+        f = new HeapFile(f.getFile(), f.getTupleDesc());
+        try (RandomAccessFile raf = new RandomAccessFile(sideFile, "r")) {
+            raf.seek(4);
+            assertEquals(PageChecksums.FORMAT_VERSION, raf.readInt());
+        }
+        assertTrue(f.getChecksums().has(PAGES - 1));
+        assertEquals(Collections.singletonList(9), f.scrub(2));
+    }
+
+    @Test
+    public void btree() throws Exception {
+        BTreeFile bf = BTreeUtility.createRandomBTreeFile(2, 2000, null, null, 0);
+        PageChecksums.sideFileOf(bf.getFile()).deleteOnExit();
+        bf.enableChecksums();
+        BTreeRootPtrPage rootPtr = (BTreeRootPtrPage) bf.readPage(BTreeRootPtrPage.getId(bf.getId()));
+        List<Page> pages = new ArrayList<>();
+        pages.add(rootPtr);
+        for (int pageNo = 1; pageNo <= bf.numPages(); pageNo++) {
+            int categ = pageNo == rootPtr.getRootId().getPageNumber() ? rootPtr.getRootId().pgcateg() : BTreePageId.LEAF;
+            pages.add(bf.readPage(new BTreePageId(bf.getId(), pageNo, categ)));
+        }
+        bf.writePages(pages);
+        assertEquals(Collections.emptyList(), bf.scrub(2));
+
+        corrupt(bf.getFile(), 2);
+        assertEquals(Collections.singletonList(0), bf.scrub(2));
+        try {
+            bf.readPage(BTreeRootPtrPage.getId(bf.getId()));
+            fail("expected a corrupt page");
+        } catch (CorruptPageException e) {
+            assertEquals(0, e.getPageNo());
+        }
+    }
+
+    @Test
+    public void compute() {
+        ByteBuffer buf = ByteBuffer.wrap("123456789".getBytes());
+        // the CRC-32 check value
+        assertEquals(0xcbf43926, PageChecksums.compute(buf));
+        assertEquals(0, buf.position());
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ChecksumTest.class);
+    }
+}
@@ -0,0 +1,235 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Test;
+import simpledb.storage.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class EvictionPolicyTest {
+
+    private static final String[] POLICIES = {"lru", "clock", "lru-k", "2q"};
+
+    private static final int CAPACITY = 40;
+
+    /**
+     * Replay the trace against a pool of the given capacity and return its hit ratio.
+     */
+    private static double hitRatio(EvictionPolicy policy, int capacity, List<PageId> trace) {
+        Set<PageId> resident = new HashSet<>();
+        int hits = 0;
+        for (PageId pid : trace) {
+            if (resident.contains(pid)) {
+                hits++;
+                policy.recordAccess(pid);
+                continue;
+            }
+            if (resident.size() >= capacity) {
+                PageId victim = policy.evict();
+                assertNotNull(victim);
+                assertTrue(resident.remove(victim));
+            }
+            resident.add(pid);
+            policy.recordInsert(pid);
+        }
+        return (double) hits / trace.size();
+    }
+
+    private static double hitRatio(String policy, List<PageId> trace) {
+        return hitRatio(EvictionPolicy.create(policy, CAPACITY), CAPACITY, trace);
+    }
+
+    /**
+     * Point lookups on 20 hot pages (the upper levels of an index), interleaved
+     * with scans that read 100 cold pages once. The lookups go on during the scans,
+     * at a lower rate.
+     */
+    private static List<PageId> lookupsAndScans() {
+        Random random = new Random(6830);
+        List<PageId> trace = new ArrayList<>();
+        int coldPageNo = 1000;
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 200; i++) {
+                trace.add(new HeapPageId(1, random.nextInt(20)));
+            }
+            for (int i = 0; i < 100; i++) {
+                trace.add(new HeapPageId(2, coldPageNo++));
+                if (i % 5 == 0) {
+                    trace.add(new HeapPageId(1, random.nextInt(20)));
+                }
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * A loop over a working set that fits in the pool.
+     */
+    private static List<PageId> loop(int pages, int times) {
+        List<PageId> trace = new ArrayList<>();
+        for (int t = 0; t < times; t++) {
+            for (int i = 0; i < pages; i++) {
+                trace.add(new HeapPageId(1, i));
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * Every policy keeps a working set that fits in the pool: only the first loop misses.
+     */
+    @Test
+    public void workingSetFits() {
+        List<PageId> trace = loop(30, 10);
+        for (String policy : POLICIES) {
+            assertEquals(policy, 0.9, hitRatio(policy, trace), 1e-9);
+        }
+    }
+
+    /**
+     * Scans flush the hot pages out of LRU, but not out of the scan resistant policies.
+     */
+    @Test
+    public void scanResistance() {
+        List<PageId> trace = lookupsAndScans();
+        double lru = hitRatio("lru", trace);
+        double clock = hitRatio("clock", trace);
+        double lruK = hitRatio("lru-k", trace);
+        double twoQ = hitRatio("2q", trace);
+
+        // 4400 lookups and 2000 cold reads, the lookups can all hit after their first read
+        double best = (4400.0 - 20) / 6400;
+        assertEquals(best, lruK, 0.005);
+        assertTrue(twoQ > lru + 0.05);
+        assertTrue(lru < lruK - 0.05);
+        assertTrue(clock < lruK - 0.05);
+    }
+
+    /**
+     * A hot page keeps its place in CLOCK thanks to its second chance.
+     */
+    @Test
+    public void clockSecondChance() {
+        ClockEvictionPolicy clock = new ClockEvictionPolicy(3);
+        for (int i = 0; i < 3; i++) {
+            clock.recordInsert(new HeapPageId(1, i));
+        }
+        clock.recordAccess(new HeapPageId(1, 0));
+        assertEquals(new HeapPageId(1, 1), clock.evict());
+        clock.recordInsert(new HeapPageId(1, 3));
+        assertEquals(new HeapPageId(1, 2), clock.evict());
+    }
+
+    /**
+     * A page evicted from A1in and read again soon is promoted to Am, where pages
+     * read once can no longer push it out.
+     */
+    @Test
+    public void twoQueuePromotion() {
+        TwoQueueEvictionPolicy twoQ = new TwoQueueEvictionPolicy(1, 4);
+        PageId hot = new HeapPageId(1, 0);
+        twoQ.recordInsert(hot);
+        twoQ.recordInsert(new HeapPageId(1, 1));
+        assertEquals(hot, twoQ.evict());
+        // read again while remembered in A1out
+        twoQ.recordInsert(hot);
+        twoQ.recordInsert(new HeapPageId(1, 2));
+        twoQ.recordInsert(new HeapPageId(1, 3));
+        // A1in is over its size, its pages go first
+        assertEquals(new HeapPageId(1, 1), twoQ.evict());
+        assertEquals(new HeapPageId(1, 2), twoQ.evict());
+        // A1in is at its size, Am gives up its least recently used page
+        assertEquals(hot, twoQ.evict());
+        assertEquals(new HeapPageId(1, 3), twoQ.evict());
+        assertNull(twoQ.evict());
+    }
+
+    /**
+     * LRU-K evicts the page with the oldest K-th access, pages read once go first.
+     */
+    @Test
+    public void lruKBackwardDistance() {
+        LRUKEvictionPolicy lruK = new LRUKEvictionPolicy(2, 8);
+        PageId a = new HeapPageId(1, 0);
+        PageId b = new HeapPageId(1, 1);
+        PageId c = new HeapPageId(1, 2);
+        lruK.recordInsert(a);
+        lruK.recordInsert(b);
+        lruK.recordAccess(a);
+        lruK.recordAccess(b);
+        lruK.recordInsert(c);
+        // c was read only once, even if it is the most recent page
+        assertEquals(c, lruK.evict());
+        assertEquals(a, lruK.evict());
+        assertEquals(b, lruK.evict());
+    }
+
+    /**
+     * Victims put back in the reverse order of their eviction are the next victims again,
+     * in the same order.
+     */
+    @Test
+    public void restoreKeepsPlace() {
+        for (String name : POLICIES) {
+            EvictionPolicy policy = EvictionPolicy.create(name, 4);
+            for (int i = 0; i < 4; i++) {
+                policy.recordInsert(new HeapPageId(1, i));
+            }
+            PageId first = policy.evict();
+            PageId second = policy.evict();
+            policy.restore(second);
+            policy.restore(first);
+            assertEquals(name, first, policy.evict());
+            assertEquals(name, second, policy.evict());
+        }
+    }
+
+    /**
+     * Hits recorded by many threads while pages come and go are all applied, the pages
+     * evicted are the ones inserted and every page is evicted once.
+     */
+    @Test
+    public void concurrentHits() throws Exception {
+        for (String name : POLICIES) {
+            EvictionPolicy policy = EvictionPolicy.create(name, CAPACITY);
+            int pages = 2000;
+            Thread[] readers = new Thread[4];
+            for (int t = 0; t < readers.length; t++) {
+                int seed = t;
+                readers[t] = new Thread(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 50000; i++) {
+                        policy.recordAccess(new HeapPageId(1, random.nextInt(pages)));
+                    }
+                });
+                readers[t].start();
+            }
+            Set<PageId> resident = new HashSet<>();
+            for (int i = 0; i < pages; i++) {
+                if (resident.size() >= CAPACITY) {
+                    assertTrue(name, resident.remove(policy.evict()));
+                }
+                PageId pid = new HeapPageId(1, i);
+                resident.add(pid);
+                policy.recordInsert(pid);
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertEquals(name, resident, new HashSet<>(policy.evictionOrder()));
+            while (!resident.isEmpty()) {
+                assertTrue(name, resident.remove(policy.evict()));
+            }
+            assertNull(name, policy.evict());
+        }
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(EvictionPolicyTest.class);
+    }
+}
@@ -0,0 +1,156 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FileHandleTest extends SimpleDbTestBase {
+
+    private File file;
+
+    private FileHandle handle;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("simpledb", ".dat");
+        file.deleteOnExit();
+        handle = new FileHandle(file);
+    }
+
+    private static ByteBuffer bytes(int... values) {
+        ByteBuffer buf = ByteBuffer.allocate(values.length);
+        for (int v : values) {
+            buf.put((byte) v);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Positional writes extend the file, positional reads stop at its end.
+     */
+    @Test
+    public void positionalIO() throws Exception {
+        handle.write(bytes(1, 2, 3), 4);
+        assertEquals(7, file.length());
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        assertEquals(3, handle.read(buf, 4));
+        assertEquals(3, buf.get(2));
+        assertEquals(-1, handle.read(ByteBuffer.allocate(4), 7));
+    }
+
+    /**
+     * A closed handle opens the file again on the next access.
+     */
+    @Test
+    public void reopenAfterClose() throws Exception {
+        handle.write(bytes(9), 0);
+        assertTrue(handle.isOpen());
+        handle.close();
+        assertFalse(handle.isOpen());
+        ByteBuffer buf = ByteBuffer.allocate(1);
+        assertEquals(1, handle.read(buf, 0));
+        assertEquals(9, buf.get(0));
+    }
+
+    /**
+     * An interrupted reader fails, but the channel it closed is opened again for the others.
+     */
+    @Test
+    public void interruptedReader() throws Exception {
+        handle.write(bytes(5), 0);
+        Thread.currentThread().interrupt();
+        try {
+            handle.read(ByteBuffer.allocate(1), 0);
+            fail("the read should have been interrupted");
+        } catch (ClosedByInterruptException e) {
+            // expected
+        } finally {
+            Thread.interrupted();
+        }
+        ByteBuffer buf = ByteBuffer.allocate(1);
+        assertEquals(1, handle.read(buf, 0));
+        assertEquals(5, buf.get(0));
+    }
+
+    /**
+     * The file is opened read-only until the first write, so a read-only file can be read.
+     */
+    @Test
+    public void readOnlyUntilWrite() throws Exception {
+        handle.write(bytes(7), 0);
+        handle.close();
+        assertTrue(file.setWritable(false));
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(1);
+            assertEquals(1, handle.read(buf, 0));
+            assertEquals(7, buf.get(0));
+            assertEquals(1, handle.size());
+            assertTrue(handle.isOpen());
+            assertFalse(handle.isWritable());
+        } finally {
+            assertTrue(file.setWritable(true));
+        }
+        handle.write(bytes(8), 1);
+        assertTrue(handle.isWritable());
+        ByteBuffer buf = ByteBuffer.allocate(2);
+        assertEquals(2, handle.read(buf, 0));
+        assertEquals(8, buf.get(1));
+    }
+
+    /**
+     * A read of a missing file fails and leaves no file behind, only a write creates it.
+     */
+    @Test
+    public void missingFileCreatedByWrite() throws Exception {
+        assertTrue(file.delete());
+        assertEquals(0, handle.size());
+        try {
+            handle.read(ByteBuffer.allocate(1), 0);
+            fail("the file does not exist");
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+        assertFalse(file.exists());
+        assertFalse(handle.isOpen());
+
+        handle.write(bytes(3), 0);
+        assertTrue(file.exists());
+        assertEquals(1, handle.size());
+    }
+
+    /**
+     * The tables of a cleared catalog release their files, and can still be read afterwards.
+     */
+    @Test
+    public void catalogClearClosesFiles() throws Exception {
+        List<List<Integer>> tuples = new ArrayList<>();
+        HeapFile f = SystemTestUtil.createRandomHeapFile(2, 1000, null, tuples);
+        SystemTestUtil.matchTuples(f, tuples);
+        Database.getCatalog().clear();
+        Database.getCatalog().addTable(f);
+        Database.resetBufferPool(BufferPool.DEFAULT_PAGES);
+        SystemTestUtil.matchTuples(f, tuples);
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(FileHandleTest.class);
+    }
+}
@@ -0,0 +1,174 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.common.Utility;
+import simpledb.index.BTreeFile;
+import simpledb.index.BTreePageId;
+import simpledb.index.BTreeRootPtrPage;
+import simpledb.index.BTreeUtility;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class FlushTest extends SimpleDbTestBase {
+
+    /**
+     * Records the runs of pages written.
+     */
+    private static class InstrumentedHeapFile extends HeapFile {
+
+        final List<List<Integer>> runs = Collections.synchronizedList(new ArrayList<>());
+
+        InstrumentedHeapFile(File f, TupleDesc td) {
+            super(f, td);
+        }
+
+        @Override
+        public void writePages(List<Page> pages) throws IOException {
+            List<Integer> run = new ArrayList<>();
+            for (Page page : pages) {
+                run.add(page.getId().getPageNumber());
+            }
+            runs.add(run);
+            super.writePages(pages);
+        }
+    }
+
+    private TransactionId tid;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+    }
+
+    private InstrumentedHeapFile createFile(int pages) throws IOException {
+        // 2 int columns -> 504 tuples per page
+        File file = SystemTestUtil.createRandomHeapFileUnopened(2, 504 * pages, 1000, null, null);
+        InstrumentedHeapFile f = new InstrumentedHeapFile(file, Utility.getTupleDesc(2));
+        Database.getCatalog().addTable(f, SystemTestUtil.getUUID());
+        return f;
+    }
+
+    /**
+     * Dirty a page by replacing one of its tuples with (pageNo, -1).
+     */
+    private void dirty(HeapFile f, int pageNo) throws Exception {
+        HeapPage page = (HeapPage) Database.getBufferPool().getPage(tid, new HeapPageId(f.getId(), pageNo), Permissions.READ_WRITE);
+        page.deleteTuple(page.iterator().next());
+        page.insertTuple(Utility.getHeapTuple(new int[]{pageNo, -1}));
+        page.markDirty(true, tid);
+    }
+
+    private boolean onDisk(HeapFile f, int pageNo) {
+        HeapPage page = (HeapPage) f.readPage(new HeapPageId(f.getId(), pageNo));
+        for (Iterator<Tuple> it = page.iterator(); it.hasNext(); ) {
+            if (SystemTestUtil.tupleToList(it.next()).equals(Arrays.asList(pageNo, -1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Dirty pages are written in page number order, adjacent ones with a single write,
+     * and clean pages are not written at all.
+     */
+    @Test
+    public void coalescedRuns() throws Exception {
+        InstrumentedHeapFile f = createFile(10);
+        for (int pageNo : new int[]{6, 2, 0, 5, 1}) {
+            dirty(f, pageNo);
+        }
+        Database.getBufferPool().getPage(tid, new HeapPageId(f.getId(), 3), Permissions.READ_ONLY);
+        Database.getBufferPool().flushAllPages();
+
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(5, 6)), f.runs);
+        for (int pageNo : new int[]{0, 1, 2, 5, 6}) {
+            assertTrue(onDisk(f, pageNo));
+            assertNull(Database.getBufferPool().getPage(tid, new HeapPageId(f.getId(), pageNo), Permissions.READ_ONLY).isDirty());
+        }
+        assertEquals(0, Database.getBufferPool().getNumDirtyPages());
+    }
+
+    /**
+     * Several files are all written.
+     */
+    @Test
+    public void severalFiles() throws Exception {
+        List<InstrumentedHeapFile> files = new ArrayList<>();
+        for (int i = 0; i < BufferPool.FLUSH_THREADS + 1; i++) {
+            InstrumentedHeapFile f = createFile(3);
+            dirty(f, 0);
+            dirty(f, 2);
+            files.add(f);
+        }
+        Database.getBufferPool().flushAllPages();
+        for (InstrumentedHeapFile f : files) {
+            assertEquals(2, f.runs.size());
+            assertTrue(onDisk(f, 0));
+            assertTrue(onDisk(f, 2));
+        }
+    }
+
+    /**
+     * Only the pages dirtied by the transaction are written.
+     */
+    @Test
+    public void flushPagesOfTransaction() throws Exception {
+        InstrumentedHeapFile f = createFile(3);
+        dirty(f, 0);
+        TransactionId other = tid;
+        tid = new TransactionId();
+        dirty(f, 1);
+        Database.getBufferPool().flushPages(tid);
+        assertEquals(Collections.singletonList(Collections.singletonList(1)), f.runs);
+        assertFalse(onDisk(f, 0));
+        assertTrue(onDisk(f, 1));
+        Database.getBufferPool().flushPages(other);
+        assertTrue(onDisk(f, 0));
+    }
+
+    /**
+     * A run of B+ tree pages may start with the root pointer page.
+     */
+    @Test
+    public void btreeRun() throws Exception {
+        BTreeFile bf = BTreeUtility.createRandomBTreeFile(2, 2000, null, null, 0);
+        List<Page> pages = new ArrayList<>();
+        pages.add(bf.readPage(BTreeRootPtrPage.getId(bf.getId())));
+        BTreeRootPtrPage rootPtr = (BTreeRootPtrPage) pages.get(0);
+        for (int pageNo = 1; pageNo <= bf.numPages(); pageNo++) {
+            int categ = pageNo == rootPtr.getRootId().getPageNumber() ? rootPtr.getRootId().pgcateg() : BTreePageId.LEAF;
+            pages.add(bf.readPage(new BTreePageId(bf.getId(), pageNo, categ)));
+        }
+        byte[][] before = new byte[pages.size()][];
+        for (int i = 0; i < pages.size(); i++) {
+            before[i] = pages.get(i).getPageData();
+        }
+        long length = bf.getFile().length();
+        bf.writePages(pages);
+        assertEquals(length, bf.getFile().length());
+        for (int i = 0; i < pages.size(); i++) {
+            assertArrayEquals(before[i], bf.readPage(pages.get(i).getId()).getPageData());
+        }
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(FlushTest.class);
+    }
+}
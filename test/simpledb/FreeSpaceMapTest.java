@@ -0,0 +1,171 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.common.Utility;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FreeSpaceMapTest extends SimpleDbTestBase {
+
+    private static final int PAGES = 10;
+
+    private TransactionId tid;
+
+    private HeapFile f;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        // 2 int columns -> 504 tuples per page, every page is full
+        f = SystemTestUtil.createRandomHeapFile(2, 504 * PAGES, null, null);
+        FreeSpaceMap.sideFileOf(f.getFile()).deleteOnExit();
+    }
+
+    private long requests() {
+        return Database.getBufferPool().getStats().getTable(f.getId()).getRequests();
+    }
+
+    private void insert(int value) throws Exception {
+        Database.getBufferPool().insertTuple(tid, f.getId(), Utility.getHeapTuple(new int[]{value, value}));
+    }
+
+    /**
+     * Once the full pages are known, an insert goes straight to the page with room.
+     */
+    @Test
+    public void insertSkipsFullPages() throws Exception {
+        insert(1);
+        assertEquals(PAGES + 1, f.numPages());
+        assertFalse(f.getFreeSpaceMap().isFree(0));
+        assertTrue(f.getFreeSpaceMap().isFree(PAGES));
+
+        long before = requests();
+        for (int i = 0; i < 100; i++) {
+            insert(i);
+        }
+        // one page per insert
+        assertEquals(100, requests() - before);
+    }
+
+    /**
+     * A delete makes its page a candidate again.
+     */
+    @Test
+    public void deleteFreesPage() throws Exception {
+        insert(1);
+        HeapPage page = (HeapPage) Database.getBufferPool().getPage(tid, new HeapPageId(f.getId(), 3), Permissions.READ_ONLY);
+        Tuple victim = page.iterator().next();
+        Database.getBufferPool().deleteTuple(tid, victim);
+        assertTrue(f.getFreeSpaceMap().isFree(3));
+
+        insert(2);
+        assertFalse(f.getFreeSpaceMap().isFree(3));
+        assertEquals(PAGES + 1, f.numPages());
+    }
+
+    /**
+     * The map is saved next to the table when the file is closed, and loaded again.
+     */
+    @Test
+    public void persistent() throws Exception {
+        insert(1);
+        Database.getBufferPool().flushAllPages();
+        f.close();
+        File sideFile = FreeSpaceMap.sideFileOf(f.getFile());
+        assertTrue(sideFile.exists());
+
+        FreeSpaceMap loaded = FreeSpaceMap.load(f.getFile());
+        assertEquals(PAGES + 1, loaded.getNumPages());
+        for (int i = 0; i < PAGES; i++) {
+            assertFalse(loaded.isFree(i));
+        }
+        assertTrue(loaded.isFree(PAGES));
+    }
+
+    /**
+     * Flushing all pages saves the map too, so it outlives a crash that skips the close.
+     */
+    @Test
+    public void savedOnFlush() throws Exception {
+        insert(1);
+        Database.getBufferPool().flushAllPages();
+        FreeSpaceMap loaded = FreeSpaceMap.load(f.getFile());
+        assertEquals(PAGES + 1, loaded.getNumPages());
+        assertFalse(loaded.isFree(0));
+    }
+
+    /**
+     * A side file is ignored once its table file was written after the map was saved,
+     * or created again: the pages it takes for full may have room.
+     */
+    @Test
+    public void staleSideFileIgnored() throws Exception {
+        insert(1);
+        Database.getBufferPool().flushAllPages();
+        HeapPage page = (HeapPage) Database.getBufferPool().getPage(tid, new HeapPageId(f.getId(), 3), Permissions.READ_WRITE);
+        page.deleteTuple(page.iterator().next());
+        // a write of the page behind the back of the map, e.g. before a crash
+        Thread.sleep(20);
+        f.writePage(page);
+        FreeSpaceMap loaded = FreeSpaceMap.load(f.getFile());
+        assertEquals(0, loaded.getNumPages());
+        assertTrue(loaded.isFree(3));
+
+        Database.getBufferPool().flushAllPages();
+        assertEquals(PAGES + 1, FreeSpaceMap.load(f.getFile()).getNumPages());
+        List<List<Integer>> tuples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            List<Integer> tuple = new ArrayList<>();
+            tuple.add(i);
+            tuple.add(i);
+            tuples.add(tuple);
+        }
+        HeapFileEncoder.convert(tuples, f.getFile(), BufferPool.getPageSize(), 2);
+        assertEquals(0, FreeSpaceMap.load(f.getFile()).getNumPages());
+    }
+
+    /**
+     * Stale hints are corrected: a page the map takes for free is checked, and pages
+     * appended behind its back are found.
+     */
+    @Test
+    public void staleHints() throws Exception {
+        FreeSpaceMap map = f.getFreeSpaceMap();
+        assertEquals(0, map.nextFree(0, PAGES));
+        map.setFree(0, false);
+        assertEquals(1, map.nextFree(0, PAGES));
+        assertEquals(PAGES + 1, map.nextFree(PAGES + 1, PAGES + 2));
+        assertEquals(-1, map.nextFree(PAGES + 2, PAGES + 2));
+
+        // every page is full in fact
+        insert(1);
+        List<Integer> free = new ArrayList<>();
+        for (int i = 0; i < f.numPages(); i++) {
+            if (map.isFree(i)) {
+                free.add(i);
+            }
+        }
+        assertEquals(1, free.size());
+        assertEquals(PAGES, (int) free.get(0));
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(FreeSpaceMapTest.class);
+    }
+}
@@ -0,0 +1,135 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Type;
+import simpledb.common.Utility;
+import simpledb.execution.JoinPredicate;
+import simpledb.execution.Predicate;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IntTupleTest extends SimpleDbTestBase {
+
+    @Test
+    public void accessors() {
+        TupleDesc td = Utility.getTupleDesc(3);
+        int[] rows = {1, 2, 3, 4, 5, 6};
+        IntTuple second = new IntTuple(td, rows, 3);
+        assertEquals(4, second.getInt(0));
+        assertEquals(new IntField(6), second.getField(2));
+        assertEquals("4 5 6", second.toString());
+
+        second.setInt(1, 50);
+        second.setField(2, new IntField(60));
+        assertEquals(50, rows[4]);
+        assertEquals(60, rows[5]);
+        List<Field> fields = new ArrayList<>();
+        for (Iterator<Field> it = second.fields(); it.hasNext(); ) {
+            fields.add(it.next());
+        }
+        assertEquals(new IntField(50), fields.get(1));
+        try {
+            second.getInt(3);
+            fail("expected an index out of bounds");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        assertEquals(0, new IntTuple(td).getInt(2));
+    }
+
+    /**
+     * The generic accessors and the typed ones work on either kind of tuple.
+     */
+    @Test
+    public void genericTuple() {
+        Tuple t = Utility.getHeapTuple(new int[]{7, 8});
+        assertEquals(8, t.getInt(1));
+        t.setInt(0, 9);
+        assertEquals(new IntField(9), t.getField(0));
+    }
+
+    @Test
+    public void pagesReadIntTuples() throws Exception {
+        HeapFile ints = SystemTestUtil.createRandomHeapFile(3, 100, null, null);
+        Tuple t = firstTuple(ints);
+        assertTrue(t instanceof IntTuple);
+        assertEquals(0, t.getRecordId().getTupleNumber());
+
+        TupleDesc mixed = new TupleDesc(new Type[]{Type.INT_TYPE, Type.STRING_TYPE});
+        File file = File.createTempFile("mixed", ".dat");
+        file.deleteOnExit();
+        HeapFile f = new HeapFile(file, mixed);
+        Database.getCatalog().addTable(f, SystemTestUtil.getUUID());
+        HeapPage page = new HeapPage(new HeapPageId(f.getId(), 0), HeapPage.createEmptyPageData());
+        Tuple m = new Tuple(mixed);
+        m.setField(0, new IntField(1));
+        m.setField(1, new StringField("a", Type.STRING_LEN));
+        page.insertTuple(m);
+        assertFalse(page.iterator().next() instanceof IntTuple);
+    }
+
+    /**
+     * An IntTuple written to a page reads back the same.
+     */
+    @Test
+    public void roundTrip() throws Exception {
+        HeapFile ints = SystemTestUtil.createRandomHeapFile(2, 0, null, null);
+        HeapPageId pid = new HeapPageId(ints.getId(), 0);
+        HeapPage page = new HeapPage(pid, HeapPage.createEmptyPageData());
+        IntTuple t = new IntTuple(ints.getTupleDesc());
+        t.setInt(0, -5);
+        t.setInt(1, Integer.MAX_VALUE);
+        page.insertTuple(t);
+        Tuple read = new HeapPage(pid, page.getPageData()).iterator().next();
+        assertEquals("-5 " + Integer.MAX_VALUE, read.toString());
+    }
+
+    private static Tuple firstTuple(HeapFile f) throws Exception {
+        HeapPage page = (HeapPage) f.readPage(new HeapPageId(f.getId(), 0));
+        return page.iterator().next();
+    }
+
+    @Test
+    public void merge() {
+        TupleDesc td = Utility.getTupleDesc(2);
+        IntTuple a = new IntTuple(td, new int[]{1, 2}, 0);
+        IntTuple b = new IntTuple(td, new int[]{0, 3, 4}, 1);
+        Tuple merged = Tuple.merge(a, b);
+        assertTrue(merged instanceof IntTuple);
+        assertEquals("1 2 3 4", merged.toString());
+        assertEquals(4, merged.getTupleDesc().numFields());
+
+        Tuple mixed = Tuple.merge(a, Utility.getHeapTuple(new int[]{5, 6}));
+        assertFalse(mixed instanceof IntTuple);
+        assertEquals("1 2 5 6", mixed.toString());
+    }
+
+    @Test
+    public void predicates() {
+        TupleDesc td = Utility.getTupleDesc(2);
+        IntTuple a = new IntTuple(td, new int[]{1, 2}, 0);
+        Tuple b = Utility.getHeapTuple(new int[]{2, 1});
+        assertTrue(new Predicate(1, Predicate.Op.EQUALS, new IntField(2)).filter(a));
+        assertFalse(new Predicate(0, Predicate.Op.GREATER_THAN, new IntField(1)).filter(a));
+        assertTrue(new JoinPredicate(1, Predicate.Op.EQUALS, 0).filter(a, b));
+        assertTrue(new JoinPredicate(0, Predicate.Op.LESS_THAN, 0).filter(a, b));
+        assertFalse(new JoinPredicate(0, Predicate.Op.GREATER_THAN_OR_EQ, 0).filter(a, b));
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(IntTupleTest.class);
+    }
+}
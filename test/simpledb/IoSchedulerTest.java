@@ -0,0 +1,262 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.common.Utility;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class IoSchedulerTest extends SimpleDbTestBase {
+
+    private static final int PAGES = 20;
+
+    /**
+     * Records the I/O issued to the file, reading page 0 blocks until the gate opens.
+     */
+    private static class InstrumentedHeapFile extends HeapFile {
+
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        final CountDownLatch entered = new CountDownLatch(1);
+
+        final CountDownLatch gate = new CountDownLatch(1);
+
+        InstrumentedHeapFile(File f, TupleDesc td) {
+            super(f, td);
+        }
+
+        @Override
+        public Page readPage(PageId pid) {
+            if (pid.getPageNumber() == 0) {
+                entered.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            calls.add("r" + pid.getPageNumber());
+            return super.readPage(pid);
+        }
+
+        @Override
+        public List<Page> readPages(PageId first, int count) {
+            calls.add("r" + first.getPageNumber() + "+" + count);
+            return super.readPages(first, count);
+        }
+
+        @Override
+        public void writePage(Page page) throws IOException {
+            calls.add("w" + page.getId().getPageNumber());
+            super.writePage(page);
+        }
+
+        @Override
+        public void writePages(List<Page> pages) throws IOException {
+            calls.add("w" + pages.get(0).getId().getPageNumber() + "+" + pages.size());
+            super.writePages(pages);
+        }
+    }
+
+    private TransactionId tid;
+
+    private InstrumentedHeapFile f;
+
+    private List<List<Integer>> tuples;
+
+    private IoScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        tuples = new ArrayList<>();
+        // 2 int columns -> 504 tuples per page
+        File file = SystemTestUtil.createRandomHeapFileUnopened(2, 504 * PAGES, 1000, null, tuples);
+        f = new InstrumentedHeapFile(file, Utility.getTupleDesc(2));
+        Database.getCatalog().addTable(f, SystemTestUtil.getUUID());
+        scheduler = Database.getBufferPool().startIoScheduler(1);
+    }
+
+    @After
+    public void tearDown() {
+        Database.getBufferPool().stopIoScheduler();
+    }
+
+    private HeapPageId pid(int pageNo) {
+        return new HeapPageId(f.getId(), pageNo);
+    }
+
+    /**
+     * Hold the only I/O thread on a read of page 0, until the gate opens.
+     */
+    private CompletableFuture<Page> block() throws InterruptedException {
+        CompletableFuture<Page> blocked = scheduler.read(f, pid(0), IoScheduler.Priority.READ);
+        assertTrue(f.entered.await(10, TimeUnit.SECONDS));
+        f.calls.clear();
+        return blocked;
+    }
+
+    private void release(CompletableFuture<?>... futures) {
+        f.gate.countDown();
+        CompletableFuture.allOf(futures).join();
+        f.calls.remove("r0");
+    }
+
+    /**
+     * Queued reads are issued in page order from where the last one ended, and adjacent
+     * ones together.
+     */
+    @Test
+    public void elevatorOrder() throws Exception {
+        CompletableFuture<Page> blocked = block();
+        List<CompletableFuture<Page>> reads = new ArrayList<>();
+        for (int pageNo : new int[]{9, 4, 1, 5, 3}) {
+            reads.add(scheduler.read(f, pid(pageNo), IoScheduler.Priority.READ));
+        }
+        release(blocked, CompletableFuture.allOf(reads.toArray(new CompletableFuture[0])));
+        assertEquals(Arrays.asList("r1", "r3+3", "r9"), f.calls);
+        assertEquals(pid(4), reads.get(1).join().getId());
+        assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    /**
+     * Reads go before read-ahead, and read-ahead before writes.
+     */
+    @Test
+    public void priorities() throws Exception {
+        Page page = f.readPage(pid(2));
+        CompletableFuture<Page> blocked = block();
+        CompletableFuture<Void> write = scheduler.write(f, page);
+        CompletableFuture<Page> prefetch = scheduler.read(f, pid(7), IoScheduler.Priority.PREFETCH);
+        CompletableFuture<Page> read = scheduler.read(f, pid(12), IoScheduler.Priority.READ);
+        release(blocked, write, prefetch, read);
+        assertEquals(Arrays.asList("r12", "r7", "w2"), f.calls);
+    }
+
+    /**
+     * Less urgent requests get their turn once in a while.
+     */
+    @Test
+    public void noStarvation() throws Exception {
+        Page page = f.readPage(pid(18));
+        CompletableFuture<Page> blocked = block();
+        CompletableFuture<Void> write = scheduler.write(f, page);
+        List<CompletableFuture<Page>> reads = new ArrayList<>();
+        for (int i = 0; i < IoScheduler.STARVATION_LIMIT + 2; i++) {
+            // not adjacent, one read each
+            reads.add(scheduler.read(f, pid(1 + 2 * i), IoScheduler.Priority.READ));
+        }
+        release(blocked, write, CompletableFuture.allOf(reads.toArray(new CompletableFuture[0])));
+        assertEquals("w18", f.calls.get(IoScheduler.STARVATION_LIMIT));
+    }
+
+    /**
+     * A read of a queued page joins the queued read, a write of a queued page replaces it,
+     * and a read of a page waits for its pending write.
+     */
+    @Test
+    public void duplicates() throws Exception {
+        Page page = f.readPage(pid(5));
+        Page newer = f.readPage(pid(5));
+        CompletableFuture<Page> blocked = block();
+        CompletableFuture<Page> prefetch = scheduler.read(f, pid(8), IoScheduler.Priority.PREFETCH);
+        CompletableFuture<Page> read = scheduler.read(f, pid(8), IoScheduler.Priority.READ);
+        assertSame(prefetch, read);
+        CompletableFuture<Void> write = scheduler.write(f, page);
+        assertSame(write, scheduler.write(f, newer));
+        CompletableFuture<Page> afterWrite = scheduler.read(f, pid(5), IoScheduler.Priority.READ);
+        release(blocked, read, write, afterWrite);
+        assertEquals(Arrays.asList("r8", "w5", "r5"), f.calls);
+    }
+
+    @Test
+    public void cancelWrite() throws Exception {
+        Page page = f.readPage(pid(5));
+        CompletableFuture<Page> blocked = block();
+        CompletableFuture<Void> write = scheduler.write(f, page);
+        scheduler.cancelWrite(pid(5));
+        assertTrue(write.isCancelled());
+        release(blocked);
+        assertEquals(Collections.emptyList(), f.calls);
+        try {
+            IoScheduler.await(write);
+            fail("expected the write to be cancelled");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    /**
+     * A failed read completes its future with what the file threw.
+     */
+    @Test
+    public void failure() throws Exception {
+        f.gate.countDown();
+        try {
+            IoScheduler.await(scheduler.read(f, new HeapPageId(-1, 3), IoScheduler.Priority.READ));
+            fail("expected a failed read");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The buffer pool, its read-ahead and its background writer go through the scheduler.
+     */
+    @Test
+    public void bufferPool() throws Exception {
+        f.gate.countDown();
+        Database.getBufferPool().stopIoScheduler();
+        Database.resetBufferPool(BufferPool.DEFAULT_PAGES);
+        BufferPool pool = Database.getBufferPool();
+        scheduler = pool.startIoScheduler(2);
+        pool.startReadAhead(8);
+        try {
+            SystemTestUtil.matchTuples(f, tuples);
+            assertTrue(scheduler.getPagesRead() > 0);
+
+            for (int pageNo = 0; pageNo < 10; pageNo++) {
+                HeapPage page = (HeapPage) pool.getPage(tid, pid(pageNo), Permissions.READ_WRITE);
+                pool.deleteTuple(tid, page.iterator().next());
+            }
+            BackgroundWriter writer = pool.startBackgroundWriter(1, 10, 10);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (writer.getPagesWritten() < 10 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(10, scheduler.getPagesWritten());
+            assertEquals(10, writer.getPagesWritten());
+        } finally {
+            pool.stopBackgroundWriter();
+            pool.stopReadAhead();
+        }
+        for (int pageNo = 0; pageNo < 10; pageNo++) {
+            assertEquals(1, ((HeapPage) f.readPage(pid(pageNo))).getNumEmptySlots());
+            assertNull(pool.getPage(tid, pid(pageNo), Permissions.READ_ONLY).isDirty());
+        }
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(IoSchedulerTest.class);
+    }
+}
@@ -0,0 +1,135 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Type;
+import simpledb.common.Utility;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LazyTupleTest extends SimpleDbTestBase {
+
+    private HeapPageId pid;
+
+    private byte[] data;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        TupleDesc td = new TupleDesc(new Type[]{Type.INT_TYPE, Type.STRING_TYPE, Type.INT_TYPE});
+        File file = File.createTempFile("lazy", ".dat");
+        file.deleteOnExit();
+        HeapFile f = new HeapFile(file, td);
+        Database.getCatalog().addTable(f, SystemTestUtil.getUUID());
+        pid = new HeapPageId(f.getId(), 0);
+        HeapPage page = new HeapPage(pid, HeapPage.createEmptyPageData());
+        for (int i = 0; i < 5; i++) {
+            Tuple t = new Tuple(td);
+            t.setField(0, new IntField(i));
+            t.setField(1, new StringField("s" + i, Type.STRING_LEN));
+            t.setField(2, new IntField(-i));
+            page.insertTuple(t);
+        }
+        data = page.getPageData();
+    }
+
+    private static List<String> contents(Iterator<Tuple> it) {
+        List<String> rows = new ArrayList<>();
+        while (it.hasNext()) {
+            rows.add(it.next().toString());
+        }
+        return rows;
+    }
+
+    @Test
+    public void fieldsOnDemand() throws Exception {
+        HeapPage page = new HeapPage(pid, data);
+        Iterator<Tuple> it = page.iterator();
+        it.next();
+        Tuple t = it.next();
+        assertEquals(new IntField(-1), t.getField(2));
+        assertEquals(new StringField("s1", Type.STRING_LEN), t.getField(1));
+        assertEquals(new IntField(1), t.getField(0));
+        assertEquals(new RecordId(pid, 1), t.getRecordId());
+        assertEquals("1 s1 -1", t.toString());
+
+        Tuple merged = Tuple.merge(t, t);
+        assertEquals(new IntField(-1), merged.getField(5));
+    }
+
+    /**
+     * A tuple does not change with the page it was read from, nor the page with the array
+     * it was created from.
+     */
+    @Test
+    public void independentCopies() throws Exception {
+        HeapPage page = new HeapPage(pid, data);
+        Arrays.fill(data, (byte) 0);
+        Tuple t = page.iterator().next();
+        page.deleteTuple(t);
+        assertEquals(new IntField(0), t.getField(0));
+        assertEquals(4, contents(page.iterator()).size());
+
+        t.setField(0, new IntField(42));
+        page.insertTuple(t);
+        assertTrue(contents(page.iterator()).contains("42 s0 0"));
+    }
+
+    /**
+     * An iterator returns the tuples in use when it was created.
+     */
+    @Test
+    public void iteratorSnapshot() throws Exception {
+        HeapPage page = new HeapPage(pid, data);
+        Iterator<Tuple> it = page.iterator();
+        Tuple t = new Tuple(page.iterator().next().getTupleDesc());
+        t.setField(0, new IntField(5));
+        t.setField(1, new StringField("s5", Type.STRING_LEN));
+        t.setField(2, new IntField(-5));
+        page.insertTuple(t);
+        assertEquals(5, contents(it).size());
+        assertEquals(6, contents(page.iterator()).size());
+    }
+
+    /**
+     * The before image is taken on the first modification.
+     */
+    @Test
+    public void beforeImage() throws Exception {
+        HeapPage page = new HeapPage(pid, data);
+        page.deleteTuple(page.iterator().next());
+        assertArrayEquals(data, page.getBeforeImage().getPageData());
+        page.setBeforeImage();
+        byte[] modified = page.getPageData();
+        assertArrayEquals(modified, page.getBeforeImage().getPageData());
+        page.deleteTuple(page.iterator().next());
+        assertArrayEquals(modified, page.getBeforeImage().getPageData());
+    }
+
+    @Test
+    public void fieldOffsets() {
+        TupleDesc td = Utility.getTupleDesc(3);
+        assertEquals(0, td.getFieldOffset(0));
+        assertEquals(8, td.getFieldOffset(2));
+        TupleDesc merged = TupleDesc.merge(new TupleDesc(new Type[]{Type.STRING_TYPE}), td);
+        assertEquals(Type.STRING_TYPE.getLen() + 4, merged.getFieldOffset(2));
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(LazyTupleTest.class);
+    }
+}
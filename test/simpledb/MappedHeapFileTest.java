@@ -0,0 +1,118 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.common.Utility;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MappedHeapFileTest extends SimpleDbTestBase {
+
+    private TransactionId tid;
+
+    private HeapFile f;
+
+    private List<List<Integer>> tuples;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        tuples = new ArrayList<>();
+        // 2 int columns -> 504 tuples per page
+        f = SystemTestUtil.createRandomHeapFile(2, 504 * 4, null, tuples);
+        f.setMemoryMapped(true);
+        Database.resetBufferPool(BufferPool.DEFAULT_PAGES);
+    }
+
+    /**
+     * Pages of a memory mapped file are read-only views over the mapping.
+     */
+    @Test
+    public void pagesAreViews() throws Exception {
+        HeapPage page = (HeapPage) f.readPage(new HeapPageId(f.getId(), 1));
+        assertNotNull(page.getFrame());
+        assertTrue(page.getFrame().isReadOnly());
+
+        f.setMemoryMapped(false);
+        HeapPage copy = (HeapPage) f.readPage(new HeapPageId(f.getId(), 1));
+        assertNull(copy.getFrame());
+        assertArrayEquals(copy.getPageData(), page.getPageData());
+    }
+
+    @Test
+    public void scan() throws Exception {
+        SystemTestUtil.matchTuples(f, tuples);
+    }
+
+    /**
+     * A modified page is copied to the heap, the file only changes when the page is written.
+     */
+    @Test
+    public void copyOnWrite() throws Exception {
+        HeapPageId pid = new HeapPageId(f.getId(), 0);
+        HeapPage page = (HeapPage) Database.getBufferPool().getPage(tid, pid, Permissions.READ_WRITE);
+        byte[] before = page.getPageData();
+        page.deleteTuple(page.iterator().next());
+        page.insertTuple(Utility.getHeapTuple(new int[]{-1, -2}));
+        assertFalse(page.getFrame().isReadOnly());
+        assertArrayEquals(before, page.getBeforeImage().getPageData());
+        assertArrayEquals(before, ((HeapPage) f.readPage(pid)).getPageData());
+
+        f.writePage(page);
+        assertArrayEquals(page.getPageData(), ((HeapPage) f.readPage(pid)).getPageData());
+    }
+
+    /**
+     * Pages appended to the file are mapped once they are read.
+     */
+    @Test
+    public void fileGrows() throws Exception {
+        HeapPageId pid = new HeapPageId(f.getId(), 4);
+        HeapPage empty = (HeapPage) f.readPage(pid);
+        // past the end of the file, read the old way
+        assertNull(empty.getFrame());
+
+        f.writePage(new HeapPage(pid, HeapPage.createEmptyPageData()));
+        HeapPage page = (HeapPage) f.readPage(pid);
+        assertNotNull(page.getFrame());
+        assertEquals(504, page.getNumEmptySlots());
+    }
+
+    /**
+     * The last segment is mapped again when the file grows past it.
+     */
+    @Test
+    public void segments() throws Exception {
+        int pageSize = BufferPool.getPageSize();
+        MappedFile mapped = new MappedFile(new FileHandle(f.getFile()), 2L * pageSize);
+        ByteBuffer view = mapped.slice(3L * pageSize, pageSize);
+        assertEquals(pageSize, view.capacity());
+        assertEquals(2L * pageSize, mapped.getMappedSize());
+        assertNull(mapped.slice(4L * pageSize, pageSize));
+
+        f.writePage(new HeapPage(new HeapPageId(f.getId(), 4), HeapPage.createEmptyPageData()));
+        assertNotNull(mapped.slice(4L * pageSize, pageSize));
+        assertEquals(3L * pageSize, mapped.getMappedSize());
+        // a range crossing a segment boundary is not mapped
+        assertNull(mapped.slice(pageSize + 1, pageSize));
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(MappedHeapFileTest.class);
+    }
+}
@@ -0,0 +1,129 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.common.Utility;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OffHeapBufferPoolTest extends SimpleDbTestBase {
+
+    private static final int POOL_PAGES = 4;
+
+    private TransactionId tid;
+
+    private HeapFile f;
+
+    private List<List<Integer>> tuples;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        tuples = new ArrayList<>();
+        // 2 int columns -> 504 tuples per page
+        f = SystemTestUtil.createRandomHeapFile(2, 504 * 10, null, tuples);
+        System.setProperty(BufferPool.OFF_HEAP_PROPERTY, "true");
+        Database.resetBufferPool(POOL_PAGES);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(BufferPool.OFF_HEAP_PROPERTY);
+    }
+
+    /**
+     * The pages of an off-heap pool are views over the frames of its arena.
+     */
+    @Test
+    public void pagesAreFrames() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        FrameArena arena = pool.getFrameArena();
+        assertNotNull(arena);
+        HeapPage page = (HeapPage) pool.getPage(tid, new HeapPageId(f.getId(), 0), Permissions.READ_ONLY);
+        assertNotNull(page.getFrame());
+        assertTrue(page.getFrame().isDirect());
+        assertEquals(POOL_PAGES - 1, arena.getNumFreeFrames());
+
+        // the view serializes to the same bytes as a page parsed on the heap
+        HeapPage parsed = (HeapPage) f.readPage(page.getId());
+        assertArrayEquals(parsed.getPageData(), page.getPageData());
+    }
+
+    /**
+     * A scan of a table that is larger than the pool recycles the frames and sees every tuple.
+     */
+    @Test
+    public void scan() throws Exception {
+        SystemTestUtil.matchTuples(f, tuples);
+        // every frame is either free or held by a resident page
+        BufferPool pool = Database.getBufferPool();
+        int resident = 0;
+        for (int i = 0; i < f.numPages(); i++) {
+            if (pool.containsPage(new HeapPageId(f.getId(), i))) {
+                resident++;
+            }
+        }
+        assertEquals(POOL_PAGES, resident + pool.getFrameArena().getNumFreeFrames());
+    }
+
+    /**
+     * Writes go through to the frame, and an evicted dirty page is written back from it.
+     */
+    @Test
+    public void writeThrough() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        HeapPageId pid = new HeapPageId(f.getId(), 0);
+        HeapPage page = (HeapPage) pool.getPage(tid, pid, Permissions.READ_WRITE);
+        Tuple victim = page.iterator().next();
+        ByteBuffer frame = page.getFrame();
+        byte[] before = page.getPageData();
+
+        page.deleteTuple(victim);
+        Tuple t = Utility.getHeapTuple(new int[]{-1, -2});
+        page.insertTuple(t);
+        page.markDirty(true, tid);
+        assertSame(frame, page.getFrame());
+        assertArrayEquals(before, page.getBeforeImage().getPageData());
+
+        byte[] after = page.getPageData();
+        // push the page out of the pool
+        for (int i = 1; i <= POOL_PAGES; i++) {
+            pool.getPage(tid, new HeapPageId(f.getId(), i), Permissions.READ_ONLY);
+        }
+        assertFalse(pool.containsPage(pid));
+        assertEquals(0, pool.getFrameArena().getNumFreeFrames());
+
+        HeapPage reread = (HeapPage) pool.getPage(tid, pid, Permissions.READ_ONLY);
+        assertArrayEquals(after, reread.getPageData());
+        boolean found = false;
+        for (java.util.Iterator<Tuple> it = reread.iterator(); it.hasNext(); ) {
+            Tuple next = it.next();
+            if (next.getRecordId().equals(t.getRecordId())) {
+                assertEquals(Arrays.asList(-1, -2), SystemTestUtil.tupleToList(next));
+                found = true;
+            }
+        }
+        assertTrue(found);
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(OffHeapBufferPoolTest.class);
+    }
+}
@@ -0,0 +1,127 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Utility;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PageCacheTest extends SimpleDbTestBase {
+
+    private static final int TABLE_ID = -1;
+
+    private List<Page> evicted;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        Database.getCatalog().addTable(new TestUtil.SkeletonFile(TABLE_ID, Utility.getTupleDesc(2)));
+        evicted = new ArrayList<>();
+    }
+
+    private static Page page(int pageNo) throws Exception {
+        return new HeapPage(new HeapPageId(TABLE_ID, pageNo), HeapPage.createEmptyPageData());
+    }
+
+    /**
+     * The least recently used page is evicted first, and a hit makes a page the most recent.
+     */
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        PageCache cache = new PageCache(3, new LRUEvictionPolicy(), evicted::add);
+        for (int i = 0; i < 3; i++) {
+            cache.put(new HeapPageId(TABLE_ID, i), page(i));
+        }
+        assertNotNull(cache.get(new HeapPageId(TABLE_ID, 0)));
+
+        cache.put(new HeapPageId(TABLE_ID, 3), page(3));
+        assertEquals(1, evicted.size());
+        assertEquals(new HeapPageId(TABLE_ID, 1), evicted.get(0).getId());
+
+        cache.put(new HeapPageId(TABLE_ID, 4), page(4));
+        assertEquals(new HeapPageId(TABLE_ID, 2), evicted.get(1).getId());
+        assertEquals(3, cache.size());
+        assertTrue(cache.containsKey(new HeapPageId(TABLE_ID, 0)));
+    }
+
+    /**
+     * A pinned page of A1in that 2Q offers as the victim stays in A1in: it was not read
+     * again, so it is not promoted to Am and goes first once it is unpinned.
+     */
+    @Test
+    public void pinnedVictimNotPromoted() throws Exception {
+        EvictionPolicy policy = new TwoQueueEvictionPolicy(1, 4);
+        PageCache cache = new PageCache(3, policy, evicted::add);
+        PageId pinned = new HeapPageId(TABLE_ID, 0);
+        Page first = page(0);
+        cache.pin(pinned, pid -> first, null);
+        cache.put(new HeapPageId(TABLE_ID, 1), page(1));
+        cache.put(new HeapPageId(TABLE_ID, 2), page(2));
+
+        cache.put(new HeapPageId(TABLE_ID, 3), page(3));
+        assertEquals(1, evicted.size());
+        assertEquals(new HeapPageId(TABLE_ID, 1), evicted.get(0).getId());
+        assertTrue(cache.containsKey(pinned));
+        // still at the head of A1in, Am is empty
+        assertEquals(pinned, policy.evictionOrder().get(0));
+        assertEquals(new HeapPageId(TABLE_ID, 2), policy.evictionOrder().get(1));
+
+        cache.unpin(pinned);
+        cache.put(new HeapPageId(TABLE_ID, 4), page(4));
+        assertEquals(pinned, evicted.get(1).getId());
+    }
+
+    /**
+     * Concurrent hits and misses never grow the cache beyond its capacity, whatever the policy.
+     */
+    @Test
+    public void concurrentAccess() throws Exception {
+        for (String policy : new String[]{"lru", "clock", "lru-k", "2q"}) {
+            concurrentAccess(EvictionPolicy.create(policy, 32), 32);
+        }
+    }
+
+    private void concurrentAccess(EvictionPolicy policy, int capacity) throws Exception {
+        final PageCache cache = new PageCache(capacity, policy, page -> { });
+        final Page[] pages = new Page[capacity * 4];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = page(i);
+        }
+        final AtomicInteger mismatches = new AtomicInteger(0);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    int pageNo = (i * 31 + seed) % pages.length;
+                    Page p = cache.get(pages[pageNo].getId(), pid -> pages[pid.getPageNumber()]);
+                    if (p != pages[pageNo]) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatches.get());
+        assertTrue(cache.size() <= capacity);
+        assertEquals(cache.size(), cache.values().size());
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(PageCacheTest.class);
+    }
+}
@@ -0,0 +1,102 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Utility;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.*;
+
+public class PageCountTest extends SimpleDbTestBase {
+
+    private TransactionId tid;
+
+    private HeapFile f;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        f = SystemTestUtil.createRandomHeapFile(2, 0, null, null);
+        FreeSpaceMap.sideFileOf(f.getFile()).deleteOnExit();
+    }
+
+    private void fillPage() throws Exception {
+        // 2 int columns -> 504 tuples per page
+        for (int i = 0; i < 504; i++) {
+            Database.getBufferPool().insertTuple(tid, f.getId(), Utility.getHeapTuple(new int[]{i, i}));
+        }
+    }
+
+    /**
+     * The file grows by whole extents, the page count only by the pages in use.
+     */
+    @Test
+    public void extents() throws Exception {
+        int pageSize = BufferPool.getPageSize();
+        // the file starts with one empty page
+        assertEquals(1, f.numPages());
+        fillPage();
+        fillPage();
+        assertEquals(2, f.numPages());
+        long length = pageSize + HeapFile.EXTENT_BYTES;
+        assertEquals(length, f.getFile().length());
+
+        fillPage();
+        fillPage();
+        assertEquals(4, f.numPages());
+        assertEquals(length, f.getFile().length());
+
+        // the preallocated pages are empty pages
+        HeapPage page = (HeapPage) f.readPage(new HeapPageId(f.getId(), (int) (length / pageSize) - 1));
+        assertEquals(504, page.getNumEmptySlots());
+    }
+
+    /**
+     * The preallocated pages are cut off when the file is closed, so the count is the
+     * same when the file is opened again.
+     */
+    @Test
+    public void reopen() throws Exception {
+        fillPage();
+        fillPage();
+        assertEquals(2, f.numPages());
+        Database.getBufferPool().flushAllPages();
+        f.close();
+        assertEquals(2 * BufferPool.getPageSize(), f.getFile().length());
+        assertEquals(2, f.numPages());
+
+        HeapFile reopened = new HeapFile(f.getFile(), f.getTupleDesc());
+        assertEquals(2, reopened.numPages());
+        reopened.close();
+    }
+
+    /**
+     * Pages appended by another writer are counted.
+     */
+    @Test
+    public void externalAppend() throws Exception {
+        assertEquals(1, f.numPages());
+        try (FileOutputStream out = new FileOutputStream(f.getFile(), true)) {
+            out.write(HeapPage.createEmptyPageData());
+            out.write(HeapPage.createEmptyPageData());
+        }
+        assertEquals(3, f.numPages());
+        fillPage();
+        assertEquals(3, f.numPages());
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(PageCountTest.class);
+    }
+}
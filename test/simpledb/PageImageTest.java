@@ -0,0 +1,124 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Type;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PageImageTest extends SimpleDbTestBase {
+
+    private TupleDesc td;
+
+    private HeapPageId pid;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        td = new TupleDesc(new Type[]{Type.INT_TYPE, Type.STRING_TYPE});
+        File file = File.createTempFile("image", ".dat");
+        file.deleteOnExit();
+        HeapFile f = new HeapFile(file, td);
+        Database.getCatalog().addTable(f, SystemTestUtil.getUUID());
+        pid = new HeapPageId(f.getId(), 0);
+    }
+
+    private Tuple tuple(int i, String s) {
+        Tuple t = new Tuple(td);
+        t.setField(0, new IntField(i));
+        t.setField(1, new StringField(s, Type.STRING_LEN));
+        return t;
+    }
+
+    /**
+     * A tuple is written to its slot in the format Field.serialize writes.
+     */
+    @Test
+    public void slotFormat() throws Exception {
+        HeapPage page = new HeapPage(pid, HeapPage.createEmptyPageData());
+        page.insertTuple(tuple(1, "first"));
+        Tuple t = tuple(-7, "hello");
+        page.insertTuple(t);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        t.getField(0).serialize(dos);
+        t.getField(1).serialize(dos);
+        byte[] expected = baos.toByteArray();
+        int numSlots = BufferPool.getPageSize() * 8 / (td.getSize() * 8 + 1);
+        int header = (numSlots + 7) / 8;
+        byte[] data = page.getPageData();
+        int offset = header + td.getSize();
+        assertArrayEquals(expected, Arrays.copyOfRange(data, offset, offset + td.getSize()));
+        assertEquals(0x03, data[0]);
+    }
+
+    /**
+     * The buffer is a read-only view over the page, which follows its inserts and deletes.
+     */
+    @Test
+    public void pageBuffer() throws Exception {
+        HeapPage page = new HeapPage(pid, HeapPage.createEmptyPageData());
+        ByteBuffer view = page.getPageBuffer();
+        assertEquals(0, view.position());
+        assertEquals(BufferPool.getPageSize(), view.remaining());
+        try {
+            view.put(0, (byte) 1);
+            fail("expected a read-only view");
+        } catch (ReadOnlyBufferException e) {
+            // expected
+        }
+
+        Tuple t = tuple(5, "x");
+        page.insertTuple(t);
+        assertEquals(1, view.get(0));
+        byte[] viewed = new byte[view.remaining()];
+        view.duplicate().get(viewed);
+        assertArrayEquals(page.getPageData(), viewed);
+
+        page.deleteTuple(t);
+        assertEquals(0, view.get(0));
+    }
+
+    /**
+     * Pages that do not keep a byte image serialize themselves for the view.
+     */
+    @Test
+    public void defaultBuffer() throws Exception {
+        SlottedPage slotted = new SlottedPage(pid, HeapPage.createEmptyPageData());
+        slotted.insertTuple(tuple(1, "a"));
+        ByteBuffer view = slotted.getPageBuffer();
+        byte[] viewed = new byte[view.remaining()];
+        view.get(viewed);
+        assertArrayEquals(slotted.getPageData(), viewed);
+
+        Page page = new Page() {
+            public PageId getId() { return pid; }
+            public simpledb.transaction.TransactionId isDirty() { return null; }
+            public void markDirty(boolean dirty, simpledb.transaction.TransactionId tid) { }
+            public byte[] getPageData() { return new byte[]{1, 2, 3}; }
+            public Page getBeforeImage() { return this; }
+            public void setBeforeImage() { }
+        };
+        assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), page.getPageBuffer());
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(PageImageTest.class);
+    }
+}
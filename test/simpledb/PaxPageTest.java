@@ -0,0 +1,283 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Type;
+import simpledb.common.Utility;
+import simpledb.execution.Predicate;
+import simpledb.execution.Project;
+import simpledb.execution.SeqScan;
+import simpledb.optimizer.LogicalPlan;
+import simpledb.optimizer.TableStats;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PaxPageTest extends SimpleDbTestBase {
+
+    private static HeapFile paxFile(TupleDesc td, List<List<Integer>> tuples) throws Exception {
+        File file = File.createTempFile("pax", ".dat");
+        file.deleteOnExit();
+        if (tuples != null) {
+            HeapFileEncoder.convert(tuples, file, BufferPool.getPageSize(), td.numFields(), HeapFile.Format.PAX);
+        }
+        HeapFile f = new HeapFile(file, td, HeapFile.Format.PAX);
+        Database.getCatalog().addTable(f, SystemTestUtil.getUUID());
+        return f;
+    }
+
+    private static List<List<Integer>> rows(int count, int columns) {
+        List<List<Integer>> tuples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<Integer> tuple = new ArrayList<>();
+            for (int j = 0; j < columns; j++) {
+                tuple.add(i * 10 + j);
+            }
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    /**
+     * The fields of a page are stored column by column after the header.
+     */
+    @Test
+    public void layout() throws Exception {
+        TupleDesc td = new TupleDesc(new Type[]{Type.INT_TYPE, Type.STRING_TYPE});
+        HeapFile f = paxFile(td, null);
+        PaxPage page = new PaxPage(new HeapPageId(f.getId(), 0), HeapPage.createEmptyPageData());
+        for (int i = 0; i < 3; i++) {
+            Tuple t = new Tuple(td);
+            t.setField(0, new IntField(i + 1));
+            t.setField(1, new StringField("s" + i, Type.STRING_LEN));
+            page.insertTuple(t);
+            assertEquals(i, t.getRecordId().getTupleNumber());
+        }
+        int numSlots = BufferPool.getPageSize() * 8 / (td.getSize() * 8 + 1);
+        int header = (numSlots + 7) / 8;
+        ByteBuffer data = ByteBuffer.wrap(page.getPageData());
+        assertEquals(0x07, data.get(0));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, data.getInt(header + 4 * i));
+        }
+        int strings = header + 4 * numSlots;
+        assertEquals(new StringField("s2", Type.STRING_LEN),
+                Type.STRING_TYPE.parse(data, strings + 2 * Type.STRING_TYPE.getLen()));
+
+        Iterator<Tuple> it = page.iterator();
+        Tuple first = it.next();
+        assertEquals("1 s0", first.toString());
+        page.deleteTuple(first);
+        assertFalse(page.isSlotUsed(0));
+        assertEquals(0, ByteBuffer.wrap(page.getPageData()).getInt(header));
+        PaxPage read = new PaxPage(page.getId(), page.getPageData());
+        assertEquals(numSlots - 2, read.getNumEmptySlots());
+        assertEquals("2 s1", read.iterator().next().toString());
+    }
+
+    /**
+     * Only the given fields are read, of the tuples that satisfy the predicate.
+     */
+    @Test
+    public void projectAndFilter() throws Exception {
+        TupleDesc td = new TupleDesc(new Type[]{Type.INT_TYPE, Type.STRING_TYPE, Type.INT_TYPE});
+        HeapFile f = paxFile(td, null);
+        PaxPage page = new PaxPage(new HeapPageId(f.getId(), 0), HeapPage.createEmptyPageData());
+        for (int i = 0; i < 20; i++) {
+            Tuple t = new Tuple(td);
+            t.setField(0, new IntField(i));
+            t.setField(1, new StringField("v" + (i % 3), Type.STRING_LEN));
+            t.setField(2, new IntField(-i));
+            page.insertTuple(t);
+        }
+        Iterator<Tuple> it = page.iterator(new int[]{2}, null, new Predicate(0, Predicate.Op.GREATER_THAN_OR_EQ, new IntField(15)));
+        for (int i = 15; i < 20; i++) {
+            Tuple t = it.next();
+            assertEquals(1, t.getTupleDesc().numFields());
+            assertEquals(-i, t.getInt(0));
+            assertEquals(i, t.getRecordId().getTupleNumber());
+        }
+        assertFalse(it.hasNext());
+
+        it = page.iterator(new int[]{0}, null, new Predicate(1, Predicate.Op.EQUALS, new StringField("v1", Type.STRING_LEN)));
+        int count = 0;
+        while (it.hasNext()) {
+            assertEquals(1, it.next().getInt(0) % 3);
+            count++;
+        }
+        assertEquals(7, count);
+    }
+
+    /**
+     * The minipages of the fields not read are not decoded: a projection that leaves out a
+     * field whose values cannot be parsed reads the others.
+     */
+    @Test
+    public void projectionSkipsOtherColumns() throws Exception {
+        TupleDesc td = new TupleDesc(new Type[]{Type.INT_TYPE, Type.STRING_TYPE, Type.INT_TYPE});
+        HeapFile f = paxFile(td, null);
+        HeapPageId pid = new HeapPageId(f.getId(), 0);
+        PaxPage page = new PaxPage(pid, HeapPage.createEmptyPageData());
+        for (int i = 0; i < 10; i++) {
+            Tuple t = new Tuple(td);
+            t.setField(0, new IntField(i));
+            t.setField(1, new StringField("s" + i, Type.STRING_LEN));
+            t.setField(2, new IntField(100 + i));
+            page.insertTuple(t);
+        }
+        byte[] data = page.getPageData();
+        int numSlots = BufferPool.getPageSize() * 8 / (td.getSize() * 8 + 1);
+        int strings = (numSlots + 7) / 8 + 4 * numSlots;
+        // a negative length, the string of every slot cannot be parsed
+        Arrays.fill(data, strings, strings + numSlots * Type.STRING_TYPE.getLen(), (byte) 0xFF);
+        PaxPage corrupt = new PaxPage(pid, data);
+
+        Iterator<Tuple> it = corrupt.iterator(new int[]{2, 0}, null, null);
+        for (int i = 0; i < 10; i++) {
+            Tuple t = it.next();
+            assertTrue(t instanceof IntTuple);
+            assertEquals(100 + i, t.getInt(0));
+            assertEquals(i, t.getInt(1));
+        }
+        assertFalse(it.hasNext());
+        try {
+            corrupt.iterator().next();
+            fail("a scan of every field parses the strings");
+        } catch (NegativeArraySizeException expected) {
+        }
+    }
+
+    /**
+     * A scan of some of the fields returns tuples of the projected TupleDesc, in the order
+     * of the fields given.
+     */
+    @Test
+    public void projectedScan() throws Exception {
+        List<List<Integer>> tuples = rows(2000, 3);
+        HeapFile f = paxFile(Utility.getTupleDesc(3, "field"), tuples);
+        TransactionId tid = new TransactionId();
+        SeqScan scan = new SeqScan(tid, f.getId(), "t", new int[]{2, 0},
+                new Predicate(1, Predicate.Op.LESS_THAN, new IntField(31)));
+        TupleDesc td = scan.getTupleDesc();
+        assertEquals(2, td.numFields());
+        assertEquals("t.field2", td.getFieldName(0));
+        assertEquals("t.field0", td.getFieldName(1));
+        scan.open();
+        List<String> seen = new ArrayList<>();
+        while (scan.hasNext()) {
+            Tuple t = scan.next();
+            assertEquals(2, t.getTupleDesc().numFields());
+            seen.add(t.toString());
+        }
+        scan.close();
+        Database.getBufferPool().transactionComplete(tid);
+        assertEquals(Arrays.asList("2 0", "12 10", "22 20"), seen);
+    }
+
+    /**
+     * A file written by the encoder scans back the same, with and without a predicate.
+     */
+    @Test
+    public void encodeAndScan() throws Exception {
+        List<List<Integer>> tuples = rows(2000, 3);
+        HeapFile f = paxFile(Utility.getTupleDesc(3), tuples);
+        assertTrue(f.numPages() > 1);
+        assertTrue(f.readPage(new HeapPageId(f.getId(), 0)) instanceof PaxPage);
+        SystemTestUtil.matchTuples(f, tuples);
+
+        TransactionId tid = new TransactionId();
+        SeqScan scan = new SeqScan(tid, f.getId(), "", new Predicate(0, Predicate.Op.LESS_THAN, new IntField(50)));
+        assertEquals(3, scan.getTupleDesc().numFields());
+        scan.open();
+        List<Integer> seen = new ArrayList<>();
+        while (scan.hasNext()) {
+            Tuple t = scan.next();
+            assertTrue(t instanceof IntTuple);
+            assertEquals(t.getInt(0) + 2, t.getInt(2));
+            seen.add(t.getInt(1));
+        }
+        scan.close();
+        Database.getBufferPool().transactionComplete(tid);
+        assertEquals(Arrays.asList(1, 11, 21, 31, 41), seen);
+    }
+
+    /**
+     * The planner pushes a filter on a PAX table into its scan, which reads the fields the
+     * plan uses only.
+     */
+    @Test
+    public void plannerPushesFilter() throws Exception {
+        HeapFile f = paxFile(Utility.getTupleDesc(3, "field"), rows(1000, 3));
+        String name = Database.getCatalog().getTableName(f.getId());
+        LogicalPlan lp = new LogicalPlan();
+        lp.addScan(f.getId(), "t");
+        lp.addFilter("t.field0", Predicate.Op.GREATER_THAN_OR_EQ, "9950");
+        lp.addProjectField("t.field2", null);
+        Map<String, TableStats> stats = new HashMap<>();
+        stats.put(name, new TableStats(f.getId(), 1000));
+        TransactionId tid = new TransactionId();
+        Project plan = (Project) lp.physicalPlan(tid, stats, false);
+        assertTrue(plan.getChildren()[0] instanceof SeqScan);
+        SeqScan scan = (SeqScan) plan.getChildren()[0];
+        assertNotNull(scan.getPredicate());
+        // the field of the pushed filter is not returned
+        assertArrayEquals(new int[]{2}, scan.getColumns());
+        assertEquals(1, scan.getTupleDesc().numFields());
+        plan.open();
+        List<Integer> seen = new ArrayList<>();
+        while (plan.hasNext()) {
+            seen.add(((IntField) plan.next().getField(0)).getValue());
+        }
+        plan.close();
+        Database.getBufferPool().transactionComplete(tid);
+        assertEquals(Arrays.asList(9952, 9962, 9972, 9982, 9992), seen);
+    }
+
+    /**
+     * Inserts go through the pages of the format, and the predicate of a scan applies to
+     * the other formats as well.
+     */
+    @Test
+    public void insertAndFilterFormats() throws Exception {
+        TupleDesc td = Utility.getTupleDesc(2);
+        HeapFile pax = paxFile(td, null);
+        File fixedFile = File.createTempFile("fixed", ".dat");
+        fixedFile.deleteOnExit();
+        HeapFile fixed = Utility.createEmptyHeapFile(fixedFile.getAbsolutePath(), 2);
+        TransactionId tid = new TransactionId();
+        for (int i = 0; i < 600; i++) {
+            pax.insertTuple(tid, Utility.getHeapTuple(new int[]{i, -i}));
+            fixed.insertTuple(tid, Utility.getHeapTuple(new int[]{i, -i}));
+        }
+        for (HeapFile f : new HeapFile[]{pax, fixed}) {
+            DbFileIterator it = f.iterator(tid, null, new Predicate(1, Predicate.Op.GREATER_THAN, new IntField(-3)));
+            it.open();
+            assertEquals("0 0", it.next().toString());
+            assertEquals("1 -1", it.next().toString());
+            assertEquals("2 -2", it.next().toString());
+            assertFalse(it.hasNext());
+            it.close();
+        }
+        Database.getBufferPool().transactionComplete(tid);
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(PaxPageTest.class);
+    }
+}
@@ -0,0 +1,125 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import static org.junit.Assert.*;
+
+public class PinTest extends SimpleDbTestBase {
+
+    private static final int POOL_PAGES = 4;
+
+    private TransactionId tid;
+
+    private HeapFile f;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        // 2 int columns -> 504 tuples per page
+        f = SystemTestUtil.createRandomHeapFile(2, 504 * 10, null, null);
+        Database.resetBufferPool(POOL_PAGES);
+    }
+
+    private HeapPageId pid(int pageNo) {
+        return new HeapPageId(f.getId(), pageNo);
+    }
+
+    /**
+     * A pinned page survives a sweep through the pool, and is evicted again once it is unpinned.
+     */
+    @Test
+    public void pinnedPageIsNotEvicted() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        Page pinned = pool.pinPage(tid, pid(0), Permissions.READ_ONLY);
+        assertEquals(1, pool.getPinCount(pid(0)));
+        for (int i = 1; i < 10; i++) {
+            pool.getPage(tid, pid(i), Permissions.READ_ONLY);
+        }
+        assertTrue(pool.containsPage(pid(0)));
+        assertSame(pinned, pool.getPage(tid, pid(0), Permissions.READ_ONLY));
+
+        pool.unpinPage(pid(0));
+        assertEquals(0, pool.getPinCount(pid(0)));
+        for (int i = 1; i < 10; i++) {
+            pool.getPage(tid, pid(i), Permissions.READ_ONLY);
+        }
+        assertFalse(pool.containsPage(pid(0)));
+    }
+
+    /**
+     * Pins nest: a page stays pinned until every pin is released.
+     */
+    @Test
+    public void pinsAreCounted() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        pool.pinPage(tid, pid(0), Permissions.READ_ONLY);
+        pool.pinPage(tid, pid(0), Permissions.READ_ONLY);
+        pool.unpinPage(pid(0));
+        assertEquals(1, pool.getPinCount(pid(0)));
+        pool.unpinPage(pid(0));
+        assertEquals(0, pool.getPinCount(pid(0)));
+        // releasing a page that is not pinned does nothing
+        pool.unpinPage(pid(0));
+        assertEquals(0, pool.getPinCount(pid(0)));
+    }
+
+    /**
+     * A scan pins the page it is reading and releases it when it moves on or is closed.
+     */
+    @Test
+    public void scanPinsCurrentPage() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        DbFileIterator it = f.iterator(tid);
+        it.open();
+        Tuple first = it.next();
+        PageId firstPage = first.getRecordId().getPageId();
+        assertEquals(1, pool.getPinCount(firstPage));
+
+        // the page being read stays resident while the rest of the table goes through the pool
+        for (int i = 1; i < 10; i++) {
+            pool.getPage(tid, pid(i), Permissions.READ_ONLY);
+        }
+        assertTrue(pool.containsPage(firstPage));
+
+        for (int i = 1; i < 504; i++) {
+            it.next();
+        }
+        Tuple second = it.next();
+        assertEquals(0, pool.getPinCount(firstPage));
+        assertEquals(1, pool.getPinCount(second.getRecordId().getPageId()));
+
+        it.close();
+        assertEquals(0, pool.getPinCount(second.getRecordId().getPageId()));
+    }
+
+    /**
+     * Inserts and deletes release the pins they take.
+     */
+    @Test
+    public void modificationsReleasePins() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        Tuple t = new Tuple(f.getTupleDesc());
+        t.setField(0, new IntField(1));
+        t.setField(1, new IntField(2));
+        pool.insertTuple(tid, f.getId(), t);
+        assertEquals(0, pool.getPinCount(t.getRecordId().getPageId()));
+        pool.deleteTuple(tid, t);
+        assertEquals(0, pool.getPinCount(t.getRecordId().getPageId()));
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(PinTest.class);
+    }
+}
@@ -0,0 +1,109 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReadAheadTest extends SimpleDbTestBase {
+
+    private static final int POOL_PAGES = 50;
+
+    private TransactionId tid;
+
+    private HeapFile f;
+
+    private List<List<Integer>> tuples;
+
+    private ReadAhead readAhead;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        tuples = new ArrayList<>();
+        // 2 int columns -> 504 tuples per page
+        f = SystemTestUtil.createRandomHeapFile(2, 504 * 20, null, tuples);
+        Database.resetBufferPool(POOL_PAGES);
+        readAhead = Database.getBufferPool().startReadAhead(8);
+    }
+
+    @After
+    public void tearDown() {
+        Database.getBufferPool().stopReadAhead();
+    }
+
+    private void awaitIssued(long pages) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (readAhead.getPrefetchesIssued() < pages) {
+            assertTrue("pages were not read ahead", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * A scan reads the next page ahead, and its window grows when the page is there in time.
+     */
+    @Test
+    public void windowGrowsOnHits() throws Exception {
+        DbFileIterator it = f.iterator(tid);
+        it.open();
+        it.next();
+        awaitIssued(1);
+        assertTrue(Database.getBufferPool().containsPage(new HeapPageId(f.getId(), 1)));
+        for (int i = 1; i < 504; i++) {
+            it.next();
+        }
+        assertEquals(0, readAhead.getPrefetchHits());
+        // the first tuple of page 1
+        it.next();
+        assertEquals(1, readAhead.getPrefetchHits());
+        assertEquals(0, readAhead.getWastedPrefetches());
+
+        // page 1 read ahead pages 2 and 3
+        awaitIssued(3);
+        assertTrue(Database.getBufferPool().containsPage(new HeapPageId(f.getId(), 3)));
+        it.close();
+        assertEquals(2, readAhead.getWastedPrefetches());
+    }
+
+    /**
+     * Pages read ahead that the scan never reads are wasted.
+     */
+    @Test
+    public void unreadPagesAreWasted() throws Exception {
+        DbFileIterator it = f.iterator(tid);
+        it.open();
+        awaitIssued(1);
+        it.close();
+        assertEquals(1, readAhead.getWastedPrefetches());
+        assertEquals(0, readAhead.getPrefetchHits());
+    }
+
+    /**
+     * A scan with read-ahead sees every tuple exactly once.
+     */
+    @Test
+    public void scan() throws Exception {
+        SystemTestUtil.matchTuples(f, tuples);
+        assertTrue(readAhead.getPrefetchesIssued() > 0);
+        assertTrue(readAhead.getPrefetchesIssued() < f.numPages());
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ReadAheadTest.class);
+    }
+}
@@ -0,0 +1,123 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.common.Utility;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReadPagesTest extends SimpleDbTestBase {
+
+    private static final int PAGES = 100;
+
+    // a ring of 8 frames, runs of 7 pages
+    private static final int POOL_PAGES = 64;
+
+    /**
+     * Counts the reads of the file.
+     */
+    private static class InstrumentedHeapFile extends HeapFile {
+
+        int pageReads = 0;
+
+        int runReads = 0;
+
+        InstrumentedHeapFile(File f, TupleDesc td) {
+            super(f, td);
+        }
+
+        @Override
+        public Page readPage(PageId pid) {
+            pageReads++;
+            return super.readPage(pid);
+        }
+
+        @Override
+        public List<Page> readPages(PageId first, int count) {
+            runReads++;
+            return super.readPages(first, count);
+        }
+    }
+
+    private TransactionId tid;
+
+    private InstrumentedHeapFile f;
+
+    private List<List<Integer>> tuples;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        tuples = new ArrayList<>();
+        // 2 int columns -> 504 tuples per page
+        File file = SystemTestUtil.createRandomHeapFileUnopened(2, 504 * PAGES, 1000, null, tuples);
+        f = new InstrumentedHeapFile(file, Utility.getTupleDesc(2));
+        Database.getCatalog().addTable(f, SystemTestUtil.getUUID());
+        Database.resetBufferPool(POOL_PAGES);
+    }
+
+    private HeapPageId pid(int pageNo) {
+        return new HeapPageId(f.getId(), pageNo);
+    }
+
+    /**
+     * A run holds the same pages as reading them one by one, and stops at the end of the file.
+     */
+    @Test
+    public void readRun() throws Exception {
+        List<Page> pages = f.readPages(pid(10), 5);
+        assertEquals(5, pages.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(pid(10 + i), pages.get(i).getId());
+            assertArrayEquals(((HeapPage) f.readPage(pid(10 + i))).getPageData(), pages.get(i).getPageData());
+        }
+        assertEquals(3, f.readPages(pid(PAGES - 3), 10).size());
+        assertEquals(1, f.readPages(pid(PAGES - 1), 10).size());
+    }
+
+    /**
+     * A scan larger than the pool reads the table in runs.
+     */
+    @Test
+    public void scanReadsRuns() throws Exception {
+        SystemTestUtil.matchTuples(f, tuples);
+        assertEquals(0, f.pageReads);
+        assertEquals((PAGES + 6) / 7, f.runReads);
+    }
+
+    /**
+     * The pages of a run that are resident already are not replaced.
+     */
+    @Test
+    public void residentPagesWin() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        Page resident = pool.getPage(tid, pid(3), Permissions.READ_ONLY);
+        Page first = pool.pinPage(tid, pid(0), Permissions.READ_ONLY, null, PAGES);
+        pool.unpinPage(first.getId());
+        // a quarter of the pool
+        for (int i = 0; i < POOL_PAGES / 4; i++) {
+            assertTrue(pool.containsPage(pid(i)));
+        }
+        assertFalse(pool.containsPage(pid(POOL_PAGES / 4)));
+        assertSame(resident, pool.getPage(tid, pid(3), Permissions.READ_ONLY));
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ReadPagesTest.class);
+    }
+}
@@ -0,0 +1,88 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Test;
+import simpledb.storage.SlotBitmap;
+import simpledb.systemtest.SimpleDbTestBase;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SlotBitmapTest extends SimpleDbTestBase {
+
+    private static void assertMatches(BitSet expected, SlotBitmap bitmap) {
+        int numSlots = bitmap.getNumSlots();
+        assertEquals(expected.get(0, numSlots).cardinality(), bitmap.getNumUsed());
+        assertEquals(numSlots - bitmap.getNumUsed(), bitmap.getNumEmpty());
+        for (int i = 0; i <= numSlots; i++) {
+            int used = expected.nextSetBit(i);
+            int empty = expected.nextClearBit(i);
+            assertEquals(used >= 0 && used < numSlots ? used : -1, bitmap.nextUsed(i));
+            assertEquals(empty < numSlots ? empty : -1, bitmap.nextEmpty(i));
+            if (i < numSlots) {
+                assertEquals(expected.get(i), bitmap.isUsed(i));
+            }
+        }
+    }
+
+    /**
+     * Marking slots agrees with a BitSet, for headers that do not end on a word.
+     */
+    @Test
+    public void randomOperations() {
+        Random random = new Random(22);
+        for (int numSlots : new int[]{1, 8, 63, 64, 65, 200, 504}) {
+            SlotBitmap bitmap = new SlotBitmap(numSlots, (numSlots + 7) / 8);
+            BitSet expected = new BitSet();
+            for (int op = 0; op < 4 * numSlots; op++) {
+                int i = random.nextInt(numSlots);
+                boolean value = random.nextInt(3) > 0;
+                bitmap.set(i, value);
+                expected.set(i, value);
+            }
+            assertMatches(expected, bitmap);
+        }
+    }
+
+    /**
+     * The bytes read are the bytes written, with the bits past the last slot.
+     */
+    @Test
+    public void bytes() {
+        byte[] bytes = {(byte) 0x81, 0x00, (byte) 0xff, 0x10, 0x01, 0x00, 0x00, 0x00, (byte) 0xf0};
+        // 66 slots, the last 6 bits of the last byte are padding
+        SlotBitmap bitmap = new SlotBitmap(66, bytes);
+        BitSet expected = BitSet.valueOf(bytes);
+        assertMatches(expected, bitmap);
+        assertArrayEquals(bytes, bitmap.toByteArray());
+        assertEquals((byte) 0xff, bitmap.getByte(2));
+
+        SlotBitmap copy = bitmap.copy();
+        bitmap.set(1, true);
+        assertFalse(copy.isUsed(1));
+        assertEquals((byte) 0x83, bitmap.getByte(0));
+    }
+
+    @Test
+    public void fill() {
+        SlotBitmap bitmap = new SlotBitmap(20, 3);
+        bitmap.fill(true);
+        assertEquals(20, bitmap.getNumUsed());
+        assertEquals(-1, bitmap.nextEmpty(0));
+        assertArrayEquals(new byte[]{-1, -1, -1}, bitmap.toByteArray());
+        bitmap.set(13, false);
+        assertEquals(13, bitmap.nextEmpty(0));
+        bitmap.fill(false);
+        assertEquals(0, bitmap.getNumUsed());
+        assertEquals(-1, bitmap.nextUsed(0));
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(SlotBitmapTest.class);
+    }
+}
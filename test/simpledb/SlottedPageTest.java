@@ -0,0 +1,201 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.DbException;
+import simpledb.common.Type;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SlottedPageTest extends SimpleDbTestBase {
+
+    private TupleDesc td;
+
+    private HeapFile f;
+
+    private HeapPageId pid;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        td = new TupleDesc(new Type[]{Type.INT_TYPE, Type.STRING_TYPE});
+        File file = File.createTempFile("slotted", ".dat");
+        file.deleteOnExit();
+        f = new HeapFile(file, td, HeapFile.Format.SLOTTED);
+        Database.getCatalog().addTable(f, SystemTestUtil.getUUID());
+        pid = new HeapPageId(f.getId(), 0);
+    }
+
+    private Tuple tuple(int i, String s) {
+        Tuple t = new Tuple(td);
+        t.setField(0, new IntField(i));
+        t.setField(1, new StringField(s, Type.STRING_LEN));
+        return t;
+    }
+
+    private static List<String> contents(Iterator<Tuple> it) {
+        List<String> rows = new ArrayList<>();
+        while (it.hasNext()) {
+            rows.add(it.next().toString());
+        }
+        return rows;
+    }
+
+    /**
+     * Strings take their actual length, so many more short tuples fit than on a HeapPage.
+     */
+    @Test
+    public void variableLength() throws Exception {
+        SlottedPage page = new SlottedPage(pid, HeapPage.createEmptyPageData());
+        int free = page.getFreeSpace();
+        page.insertTuple(tuple(1, "abc"));
+        // 4 + 2 + 3 bytes of record, 4 bytes of slot
+        assertEquals(free - 13, page.getFreeSpace());
+
+        int fixed = new HeapPage(pid, HeapPage.createEmptyPageData()).getNumEmptySlots();
+        int n = 1;
+        while (page.hasRoomFor(tuple(n, "s" + n))) {
+            page.insertTuple(tuple(n, "s" + n));
+            n++;
+        }
+        assertTrue(n > 5 * fixed);
+        try {
+            page.insertTuple(tuple(n, "s" + n));
+            fail("expected a full page");
+        } catch (DbException e) {
+            // expected
+        }
+
+        SlottedPage reread = new SlottedPage(pid, page.getPageData());
+        assertEquals(n, reread.getNumTuples());
+        assertEquals(contents(page.iterator()), contents(reread.iterator()));
+        Tuple first = reread.iterator().next();
+        assertEquals("1 abc", first.toString());
+        assertEquals(new RecordId(pid, 0), first.getRecordId());
+    }
+
+    /**
+     * A delete gives the record's bytes back at once, the other tuples keep their slots.
+     */
+    @Test
+    public void compactOnDelete() throws Exception {
+        SlottedPage page = new SlottedPage(pid, HeapPage.createEmptyPageData());
+        int empty = page.getFreeSpace();
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Tuple t = tuple(i, String.join("", Collections.nCopies(i + 1, "x")));
+            page.insertTuple(t);
+            tuples.add(t);
+        }
+        int free = page.getFreeSpace();
+        page.deleteTuple(tuples.get(1));
+        assertEquals(free + 4 + 2 + 2, page.getFreeSpace());
+        assertFalse(page.isSlotUsed(1));
+        assertEquals(Arrays.asList("0 x", "2 xxx", "3 xxxx"), contents(page.iterator()));
+        List<Integer> slots = new ArrayList<>();
+        for (Iterator<Tuple> it = page.iterator(); it.hasNext(); ) {
+            slots.add(it.next().getRecordId().getTupleNumber());
+        }
+        assertEquals(Arrays.asList(0, 2, 3), slots);
+
+        // the empty slot is taken first
+        Tuple t = tuple(9, "yy");
+        page.insertTuple(t);
+        assertEquals(1, t.getRecordId().getTupleNumber());
+        assertTrue(contents(page.iterator()).contains("9 yy"));
+
+        // trailing empty slots leave the directory
+        for (Tuple deleted : Arrays.asList(tuples.get(3), tuples.get(2), tuples.get(0), t)) {
+            page.deleteTuple(deleted);
+        }
+        assertEquals(empty, page.getFreeSpace());
+        assertEquals(0, page.getNumTuples());
+        assertArrayEquals(HeapPage.createEmptyPageData(), page.getPageData());
+        try {
+            page.deleteTuple(t);
+            fail("expected the tuple to be gone");
+        } catch (DbException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void beforeImage() throws Exception {
+        SlottedPage page = new SlottedPage(pid, HeapPage.createEmptyPageData());
+        page.insertTuple(tuple(1, "a"));
+        page.insertTuple(tuple(2, "b"));
+        page.setBeforeImage();
+        byte[] before = page.getPageData();
+        page.deleteTuple(page.iterator().next());
+        assertArrayEquals(before, page.getBeforeImage().getPageData());
+        assertEquals(1, page.getNumTuples());
+    }
+
+    /**
+     * A slotted table through the buffer pool: inserts, deletes, a scan, and the pages on disk.
+     */
+    @Test
+    public void heapFile() throws Exception {
+        TransactionId tid = new TransactionId();
+        BufferPool pool = Database.getBufferPool();
+        Set<String> expected = new HashSet<>();
+        List<Tuple> inserted = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Tuple t = tuple(i, "row" + i);
+            pool.insertTuple(tid, f.getId(), t);
+            inserted.add(t);
+            expected.add(t.toString());
+        }
+        // about 20 bytes a tuple, where a HeapPage takes 30 tuples
+        assertTrue(f.numPages() < 2000 / 30);
+        for (int i = 0; i < 2000; i += 3) {
+            pool.deleteTuple(tid, inserted.get(i));
+            expected.remove(inserted.get(i).toString());
+        }
+        pool.flushAllPages();
+
+        HeapFile reopened = new HeapFile(f.getFile(), td, HeapFile.Format.SLOTTED);
+        Database.getCatalog().addTable(reopened, SystemTestUtil.getUUID());
+        Database.resetBufferPool(BufferPool.DEFAULT_PAGES);
+        Set<String> actual = new HashSet<>();
+        DbFileIterator it = reopened.iterator(new TransactionId());
+        it.open();
+        while (it.hasNext()) {
+            assertTrue(actual.add(it.next().toString()));
+        }
+        it.close();
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void catalogOption() throws Exception {
+        File schema = File.createTempFile("slotted", ".schema");
+        schema.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(schema)) {
+            out.println("slotted_t (a int, b string) slotted");
+            out.println("fixed_t (a int, b string)");
+        }
+        Database.getCatalog().loadSchema(schema.getAbsolutePath());
+        HeapFile slotted = (HeapFile) Database.getCatalog().getDatabaseFile(Database.getCatalog().getTableId("slotted_t"));
+        HeapFile fixed = (HeapFile) Database.getCatalog().getDatabaseFile(Database.getCatalog().getTableId("fixed_t"));
+        assertEquals(HeapFile.Format.SLOTTED, slotted.getFormat());
+        assertEquals(HeapFile.Format.FIXED, fixed.getFormat());
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(SlottedPageTest.class);
+    }
+}
@@ -0,0 +1,132 @@
+package simpledb;
+
+import junit.framework.JUnit4TestAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.storage.*;
+import simpledb.systemtest.SimpleDbTestBase;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class WarmRestartTest extends SimpleDbTestBase {
+
+    private static final int POOL_PAGES = 5;
+
+    private TransactionId tid;
+
+    private HeapFile f;
+
+    private File manifest;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tid = new TransactionId();
+        // 2 int columns -> 504 tuples per page
+        f = SystemTestUtil.createRandomHeapFile(2, 504 * 10, null, null);
+        Database.resetBufferPool(POOL_PAGES);
+        manifest = File.createTempFile("simpledb", ".pages");
+        manifest.deleteOnExit();
+    }
+
+    private HeapPageId pid(int pageNo) {
+        return new HeapPageId(f.getId(), pageNo);
+    }
+
+    /**
+     * The manifest lists the resident pages, the most recently used one first.
+     */
+    @Test
+    public void manifestIsOrderedByRecency() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        for (int pageNo : new int[]{3, 1, 4, 2}) {
+            pool.getPage(tid, pid(pageNo), Permissions.READ_ONLY);
+        }
+        pool.getPage(tid, pid(1), Permissions.READ_ONLY);
+        pool.writeManifest(manifest);
+        assertEquals(Arrays.asList(pid(1), pid(2), pid(4), pid(3)), PageManifest.read(manifest));
+    }
+
+    /**
+     * A new pool loads the pages of the manifest in the background.
+     */
+    @Test
+    public void preloadWarmsUpThePool() throws Exception {
+        BufferPool pool = Database.getBufferPool();
+        for (int pageNo : new int[]{7, 2, 5}) {
+            pool.getPage(tid, pid(pageNo), Permissions.READ_ONLY);
+        }
+        pool.writeManifest(manifest);
+
+        Database.resetBufferPool(POOL_PAGES);
+        pool = Database.getBufferPool();
+        PagePreloader preloader = pool.preload(manifest);
+        assertNotNull(preloader);
+        assertTrue(preloader.awaitCompletion(5, TimeUnit.SECONDS));
+        assertEquals(3, preloader.getPagesLoaded());
+        for (int pageNo : new int[]{7, 2, 5}) {
+            assertTrue(pool.containsPage(pid(pageNo)));
+        }
+        assertFalse(pool.containsPage(pid(0)));
+    }
+
+    /**
+     * Only the most recently used pages that fit in the free frames are loaded.
+     */
+    @Test
+    public void preloadNeverEvicts() throws Exception {
+        List<PageId> pageIds = Arrays.asList(pid(9), pid(8), pid(7), pid(6), pid(5));
+        PageManifest.write(manifest, pageIds);
+        BufferPool pool = Database.getBufferPool();
+        pool.getPage(tid, pid(0), Permissions.READ_ONLY);
+        pool.getPage(tid, pid(1), Permissions.READ_ONLY);
+
+        PagePreloader preloader = pool.preload(manifest);
+        assertTrue(preloader.awaitCompletion(5, TimeUnit.SECONDS));
+        assertEquals(3, preloader.getNumPages());
+        assertTrue(pool.containsPage(pid(0)));
+        assertTrue(pool.containsPage(pid(1)));
+        for (int pageNo = 7; pageNo <= 9; pageNo++) {
+            assertTrue(pool.containsPage(pid(pageNo)));
+        }
+        assertFalse(pool.containsPage(pid(6)));
+    }
+
+    /**
+     * Pages of tables that are gone, or past the end of their file, are left out.
+     */
+    @Test
+    public void stalePagesAreSkipped() throws Exception {
+        PageManifest.write(manifest, Arrays.asList(new HeapPageId(f.getId() + 1, 0), pid(10), pid(0)));
+        BufferPool pool = Database.getBufferPool();
+        PagePreloader preloader = pool.preload(manifest);
+        assertTrue(preloader.awaitCompletion(5, TimeUnit.SECONDS));
+        assertEquals(1, preloader.getPagesLoaded());
+        assertTrue(pool.containsPage(pid(0)));
+    }
+
+    /**
+     * Without a manifest there is nothing to load.
+     */
+    @Test
+    public void missingManifest() throws Exception {
+        assertTrue(manifest.delete());
+        assertNull(Database.getBufferPool().preload(manifest));
+    }
+
+    /**
+     * JUnit suite target
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(WarmRestartTest.class);
+    }
+}
@@ -0,0 +1,68 @@
+package simpledb.benchmark;
+
+import simpledb.common.Database;
+import simpledb.common.Permissions;
+import simpledb.storage.BufferPool;
+import simpledb.storage.HeapFile;
+import simpledb.storage.HeapPageId;
+import simpledb.systemtest.SystemTestUtil;
+import simpledb.transaction.TransactionId;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Multi-threaded throughput benchmark of BufferPool.getPage on a warm pool.
+ * Run with: ant runbenchmark -Dbenchmark=BufferPoolBenchmark
+ */
+public class BufferPoolBenchmark {
+
+    private static final int PAGES = 2000;
+
+    private static final int OPS_PER_THREAD = 2000000;
+
+    public static void main(String[] args) throws Exception {
+        // 2 int columns -> 504 tuples per page
+        HeapFile hf = SystemTestUtil.createRandomHeapFile(2, PAGES * 504, null, null);
+        Database.resetBufferPool(PAGES);
+        TransactionId tid = new TransactionId();
+        // warm up the pool so that every getPage is a hit
+        for (int i = 0; i < PAGES; i++) {
+            Database.getBufferPool().getPage(tid, new HeapPageId(hf.getId(), i), Permissions.READ_ONLY);
+        }
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            run(hf.getId(), threads);
+        }
+    }
+
+    private static void run(int tableId, int threads) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        BufferPool pool = Database.getBufferPool();
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            new Thread(() -> {
+                Random random = new Random(seed);
+                TransactionId tid = new TransactionId();
+                try {
+                    start.await();
+                    for (int i = 0; i < OPS_PER_THREAD; i++) {
+                        pool.getPage(tid, new HeapPageId(tableId, random.nextInt(PAGES)), Permissions.READ_ONLY);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        double opsPerSec = (double) OPS_PER_THREAD * threads / (elapsed / 1e9);
+        System.out.printf("threads=%d getPage/s=%.0f%n", threads, opsPerSec);
+    }
+}
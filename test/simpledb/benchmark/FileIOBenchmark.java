@@ -0,0 +1,85 @@
+package simpledb.benchmark;
+
+import simpledb.storage.BufferPool;
+import simpledb.storage.FileHandle;
+import simpledb.storage.HeapFile;
+import simpledb.systemtest.SystemTestUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Random page reads straight from a table file, bypassing the BufferPool and the parsing
+ * of the pages: opening, seeking, reading and closing the file for every page, as
+ * HeapFile used to, against positional reads on a long-lived {@link FileHandle}, as
+ * HeapFile and BTreeFile do now.
+ * Run with: ant runbenchmark -Dbenchmark=FileIOBenchmark
+ */
+public class FileIOBenchmark {
+
+    private static final int PAGES = 2000;
+
+    private static final int READS_PER_THREAD = 200000;
+
+    private interface PageReader {
+        void read(int pageNo) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // 2 int columns -> 504 tuples per page
+        HeapFile hf = SystemTestUtil.createRandomHeapFile(2, PAGES * 504, null, null);
+        File file = hf.getFile();
+        PageReader openPerRead = pageNo -> {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                byte[] buf = new byte[BufferPool.getPageSize()];
+                raf.seek((long) pageNo * BufferPool.getPageSize());
+                raf.read(buf);
+            }
+        };
+        FileHandle handle = new FileHandle(file);
+        PageReader positional = pageNo -> {
+            ByteBuffer buf = ByteBuffer.allocate(BufferPool.getPageSize());
+            handle.read(buf, (long) pageNo * BufferPool.getPageSize());
+        };
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            // warm up both, the file is in the page cache of the OS from then on
+            run(openPerRead, threads);
+            run(positional, threads);
+            System.out.printf("threads=%d open-seek-read-close reads/s=%.0f positional reads/s=%.0f%n",
+                    threads, run(openPerRead, threads), run(positional, threads));
+        }
+        handle.close();
+    }
+
+    private static double run(PageReader reader, int threads) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                    for (int i = 0; i < READS_PER_THREAD; i++) {
+                        reader.read(random.nextInt(PAGES));
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        return (double) READS_PER_THREAD * threads / (elapsed / 1e9);
+    }
+}